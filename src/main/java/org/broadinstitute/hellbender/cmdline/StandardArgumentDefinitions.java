@@ -29,6 +29,13 @@ public final class StandardArgumentDefinitions {
     public static final String CLOUD_PREFETCH_BUFFER_LONG_NAME = "cloud-prefetch-buffer";
     public static final String CLOUD_INDEX_PREFETCH_BUFFER_LONG_NAME = "cloud-index-prefetch-buffer";
     public static final String DISABLE_BAM_INDEX_CACHING_LONG_NAME = "disable-bam-index-caching";
+    public static final String READ_DECODING_THREADS_LONG_NAME = "read-decoding-threads";
+    public static final String OUTPUT_COMPRESSION_THREADS_LONG_NAME = "output-compression-threads";
+    public static final String MEMORY_MAPPED_REFERENCE_LONG_NAME = "memory-mapped-reference";
+    public static final String MEMORY_MAPPED_REFERENCE_CACHE_LONG_NAME = "memory-mapped-reference-cache";
+    public static final String PREFETCH_FEATURES_LONG_NAME = "prefetch-features";
+    public static final String READ_FILTER_STATISTICS_LONG_NAME = "read-filter-statistics";
+    public static final String REORDER_READ_FILTERS_LONG_NAME = "reorder-read-filters";
     public static final String DISABLE_SEQUENCE_DICT_VALIDATION_NAME = "disable-sequence-dictionary-validation";
     public static final String ADD_OUTPUT_SAM_PROGRAM_RECORD = "add-output-sam-program-record";
     public static final String ADD_OUTPUT_VCF_COMMANDLINE = "add-output-vcf-command-line";
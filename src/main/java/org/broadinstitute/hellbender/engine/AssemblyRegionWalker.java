@@ -1,5 +1,7 @@
 package org.broadinstitute.hellbender.engine;
 
+import com.google.common.collect.Iterators;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.broadinstitute.barclay.argparser.Advanced;
 import org.broadinstitute.barclay.argparser.Argument;
 import org.broadinstitute.barclay.argparser.CommandLineException;
@@ -11,6 +13,7 @@ import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.utils.IGVUtils;
 import org.broadinstitute.hellbender.utils.IntervalUtils;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.activityprofile.ActivityProfileState;
 import org.broadinstitute.hellbender.utils.downsampling.PositionalDownsampler;
 import org.broadinstitute.hellbender.utils.downsampling.ReadsDownsampler;
@@ -20,6 +23,11 @@ import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * An AssemblyRegionWalker is a tool that processes an entire region of reads at a time, each marked as either "active"
@@ -38,6 +46,15 @@ import java.util.List;
  *
  * Internally, the reads are loaded in chunks called read shards, which are then subdivided into active/inactive regions
  * for processing by the tool implementation. One read shard is created per contig.
+ *
+ * Tools may opt in to processing regions on multiple threads by overriding {@link #makeAssemblyRegionWorker}. When
+ * more than one thread is requested via {@link #ASSEMBLY_REGION_THREADS_LONG_NAME}, regions are still determined
+ * on the traversal thread, but are handed to a bounded pool of {@link AssemblyRegionWorker}s, and the output actions
+ * of the workers are run back on the traversal thread in the original genomic order.
+ *
+ * Independently, region determination itself can be moved off the traversal thread via
+ * {@link #ASSEMBLY_REGION_PREFETCH_LONG_NAME}, in which case a {@link PrefetchingAssemblyRegionIterator} computes the
+ * activity profile for upcoming loci while the current regions are being processed.
  */
 public abstract class AssemblyRegionWalker extends GATKTool {
 
@@ -50,6 +67,8 @@ public abstract class AssemblyRegionWalker extends GATKTool {
     public static final String PROPAGATION_LONG_NAME = "max-prob-propagation-distance";
     public static final String PROFILE_OUT_LONG_NAME = "activity-profile-out";
     public static final String ASSEMBLY_REGION_OUT_LONG_NAME = "assembly-region-out";
+    public static final String ASSEMBLY_REGION_THREADS_LONG_NAME = "assembly-region-threads";
+    public static final String ASSEMBLY_REGION_PREFETCH_LONG_NAME = "assembly-region-prefetch";
 
     @Advanced
     @Argument(fullName = MIN_ASSEMBLY_LONG_NAME, doc = "Minimum size of an assembly region", optional = true)
@@ -100,6 +119,31 @@ public abstract class AssemblyRegionWalker extends GATKTool {
 
     private PrintStream assemblyRegionOutStream;
 
+    /**
+     * Number of threads on which to process assembly regions. Activity profiling and region determination
+     * always happen on a single thread (see {@link #assemblyRegionPrefetch}); only the per-region work done by the tool is parallelized, and output
+     * is emitted in the same order as a single-threaded run. Only supported by tools that implement
+     * {@link #makeAssemblyRegionWorker}.
+     *
+     * The random numbers used while processing a region (such as the jitter applied to high QD values) are drawn from
+     * a generator seeded from the region, for any number of threads, so the output doesn't depend on the number of threads.
+     */
+    @Advanced
+    @Argument(fullName = ASSEMBLY_REGION_THREADS_LONG_NAME, doc = "Number of threads on which to process assembly regions", optional = true)
+    protected int assemblyRegionThreads = 1;
+
+    /**
+     * If greater than 0, assembly regions are determined on a separate thread (pileup construction and activity
+     * profile evaluation for the upcoming loci), keeping up to this many finished regions ready ahead of the tool.
+     * This overlaps the activity profile calculation with the processing of the previous regions. The regions
+     * themselves are identical to those of the default behavior, as region determination (including the downsampling
+     * of the reads) draws its random numbers from a generator of its own either way. Requires that the tool's
+     * {@link #assemblyRegionEvaluator} is safe to run concurrently with {@link #apply}.
+     */
+    @Advanced
+    @Argument(fullName = ASSEMBLY_REGION_PREFETCH_LONG_NAME, doc = "Number of assembly regions to determine ahead of processing on a separate thread. Set to 0 to disable.", optional = true)
+    protected int assemblyRegionPrefetch = 0;
+
     /**
      * @return Default value for the {@link #minAssemblyRegionSize} parameter, if none is provided on the command line
      */
@@ -171,6 +215,14 @@ public abstract class AssemblyRegionWalker extends GATKTool {
             throw new CommandLineException.BadArgumentValue("maxReadsPerAlignmentStart must be >= 0");
         }
 
+        if ( assemblyRegionThreads < 1 ) {
+            throw new CommandLineException.BadArgumentValue(ASSEMBLY_REGION_THREADS_LONG_NAME, "must be >= 1");
+        }
+
+        if ( assemblyRegionPrefetch < 0 ) {
+            throw new CommandLineException.BadArgumentValue(ASSEMBLY_REGION_PREFETCH_LONG_NAME, "must be >= 0");
+        }
+
         final List<SimpleInterval> intervals = hasUserSuppliedIntervals() ? userIntervals : IntervalUtils.getAllIntervalsForReference(getHeaderForReads().getSequenceDictionary());
         readShards = makeReadShards(intervals);
 
@@ -256,20 +308,46 @@ public abstract class AssemblyRegionWalker extends GATKTool {
         // meter to check the time more frequently (every 10 regions instead of every 1000 regions).
         progressMeter.setRecordsBetweenTimeChecks(10L);
 
-        for ( final MultiIntervalLocalReadShard readShard : readShards ) {
-            // Since reads in each shard are lazily fetched, we need to pass the filter and transformers to the window
-            // instead of filtering the reads directly here
-            readShard.setPreReadFilterTransformer(makePreReadFilterTransformer());
-            readShard.setReadFilter(countedFilter);
-            readShard.setDownsampler(createDownsampler());
-            readShard.setPostReadFilterTransformer(makePostReadFilterTransformer());
-
-            processReadShard(readShard, reference, features);
+        final ParallelRegionProcessor parallelProcessor = assemblyRegionThreads > 1 ? new ParallelRegionProcessor() : null;
+        try {
+            for ( final MultiIntervalLocalReadShard readShard : readShards ) {
+                // Since reads in each shard are lazily fetched, we need to pass the filter and transformers to the window
+                // instead of filtering the reads directly here
+                readShard.setPreReadFilterTransformer(makePreReadFilterTransformer());
+                readShard.setReadFilter(countedFilter);
+                readShard.setDownsampler(createDownsampler());
+                readShard.setPostReadFilterTransformer(makePostReadFilterTransformer());
+
+                if ( parallelProcessor != null ) {
+                    parallelProcessor.processReadShard(readShard, reference, features);
+                } else {
+                    processReadShard(readShard, reference, features);
+                }
+            }
+        } finally {
+            if ( parallelProcessor != null ) {
+                parallelProcessor.close();
+            }
         }
 
         logger.info(countedFilter.getSummaryLine());
     }
 
+    /**
+     * Create a new worker for processing assembly regions on a thread other than the traversal thread. Tools that
+     * support multi-threaded region processing must override this method; the default implementation returns
+     * {@code null}, indicating that only single-threaded traversal via {@link #apply} is supported.
+     *
+     * This method is called on the traversal thread, once per requested thread, after {@link #onTraversalStart}.
+     * Each worker must own all of the mutable state it needs to process a region (its own calling engine,
+     * assembler, likelihood engine, etc.). Shared state must be safe for concurrent access.
+     *
+     * @return a new, independent worker, or {@code null} if this tool does not support multi-threaded traversal
+     */
+    protected AssemblyRegionWorker makeAssemblyRegionWorker() {
+        return null;
+    }
+
     /**
      * Divide the given Shard up into active/inactive AssemblyRegions using the {@link #assemblyRegionEvaluator},
      * and send each region to the tool implementation for processing.
@@ -279,21 +357,176 @@ public abstract class AssemblyRegionWalker extends GATKTool {
      * @param features FeatureManager
      */
     private void processReadShard(MultiIntervalLocalReadShard shard, ReferenceDataSource reference, FeatureManager features ) {
-        final Iterator<AssemblyRegion> assemblyRegionIter = new AssemblyRegionIterator(shard, getHeaderForReads(), reference, features, assemblyRegionEvaluator(), minAssemblyRegionSize, maxAssemblyRegionSize, assemblyRegionPadding, activeProbThreshold, maxProbPropagationDistance, includeReadsWithDeletionsInIsActivePileups());
+        final Iterator<AssemblyRegion> assemblyRegionIter = makeAssemblyRegionIterator(shard, reference, features);
+
+        try {
+            // Call into the tool implementation to process each assembly region from this shard.
+            while ( assemblyRegionIter.hasNext() ) {
+                final AssemblyRegion assemblyRegion = assemblyRegionIter.next();
+
+                logger.debug("Processing assembly region at " + assemblyRegion.getSpan() + " isActive: " + assemblyRegion.isActive() + " numReads: " + assemblyRegion.getReads().size());
+                writeAssemblyRegion(assemblyRegion);
+
+                Utils.setThreadRandomGenerator(makeRegionRandomGenerator(assemblyRegion));
+                try {
+                    apply(assemblyRegion,
+                            new ReferenceContext(reference, assemblyRegion.getExtendedSpan()),
+                            new FeatureContext(features, assemblyRegion.getExtendedSpan()));
+                } finally {
+                    Utils.setThreadRandomGenerator(null);
+                }
+
+                // For this traversal, the progress meter unit is the assembly region rather than the read shard
+                progressMeter.update(assemblyRegion.getSpan());
+            }
+        } finally {
+            closeAssemblyRegionIterator(assemblyRegionIter);
+        }
+    }
+
+    /**
+     * The random numbers drawn while processing a region (eg., for QD jittering) come from a generator seeded from the
+     * region itself, so that they don't depend on the number of threads, nor on the order in which the threads
+     * process the regions.
+     */
+    private static Random makeRegionRandomGenerator(final AssemblyRegion region) {
+        return new Random(Utils.getRandomSeed(region.getSpan().getContig(), region.getSpan().getStart()));
+    }
 
-        // Call into the tool implementation to process each assembly region from this shard.
-        while ( assemblyRegionIter.hasNext() ) {
-            final AssemblyRegion assemblyRegion = assemblyRegionIter.next();
-            
-            logger.debug("Processing assembly region at " + assemblyRegion.getSpan() + " isActive: " + assemblyRegion.isActive() + " numReads: " + assemblyRegion.getReads().size());
-            writeAssemblyRegion(assemblyRegion);
+    private Iterator<AssemblyRegion> makeAssemblyRegionIterator(final MultiIntervalLocalReadShard shard, final ReferenceDataSource reference, final FeatureManager features) {
+        final Random regionDeterminationGenerator = new Random(Utils.getRandomSeed(RegionDeterminationIterator.class.getSimpleName(), shard.getIntervals().get(0).getContig()));
+        // the reads iterator may already pull (and downsample) reads when it is created
+        final AssemblyRegionIterator assemblyRegionIter;
+        Utils.setThreadRandomGenerator(regionDeterminationGenerator);
+        try {
+            assemblyRegionIter = new AssemblyRegionIterator(shard, getHeaderForReads(), reference, features, assemblyRegionEvaluator(), minAssemblyRegionSize, maxAssemblyRegionSize, assemblyRegionPadding, activeProbThreshold, maxProbPropagationDistance, includeReadsWithDeletionsInIsActivePileups());
+        } finally {
+            Utils.setThreadRandomGenerator(null);
+        }
+        final Iterator<AssemblyRegion> seededRegionIter = new RegionDeterminationIterator(assemblyRegionIter, regionDeterminationGenerator);
+        return assemblyRegionPrefetch > 0 ? new PrefetchingAssemblyRegionIterator(seededRegionIter, assemblyRegionPrefetch) : seededRegionIter;
+    }
 
-            apply(assemblyRegion,
-                    new ReferenceContext(reference, assemblyRegion.getExtendedSpan()),
-                    new FeatureContext(features, assemblyRegion.getExtendedSpan()));
+    /**
+     * Determines the regions of a shard with the random numbers (eg., for downsampling the reads) drawn from a
+     * generator of their own, so that region determination draws the same numbers whether it is interleaved with the
+     * processing of the regions on the traversal thread, or runs ahead of it on the prefetching thread.
+     */
+    private static final class RegionDeterminationIterator implements Iterator<AssemblyRegion> {
+        private final Iterator<AssemblyRegion> regions;
+        private final Random randomGenerator;
+
+        RegionDeterminationIterator(final Iterator<AssemblyRegion> regions, final Random randomGenerator) {
+            this.regions = regions;
+            this.randomGenerator = randomGenerator;
+        }
+
+        @Override
+        public boolean hasNext() {
+            Utils.setThreadRandomGenerator(randomGenerator);
+            try {
+                return regions.hasNext();
+            } finally {
+                Utils.setThreadRandomGenerator(null);
+            }
+        }
+
+        @Override
+        public AssemblyRegion next() {
+            Utils.setThreadRandomGenerator(randomGenerator);
+            try {
+                return regions.next();
+            } finally {
+                Utils.setThreadRandomGenerator(null);
+            }
+        }
+    }
+
+    private static void closeAssemblyRegionIterator(final Iterator<AssemblyRegion> assemblyRegionIter) {
+        if ( assemblyRegionIter instanceof PrefetchingAssemblyRegionIterator ) {
+            ((PrefetchingAssemblyRegionIterator) assemblyRegionIter).close();
+        }
+    }
+
+    /**
+     * Dispatches the assembly regions of each shard to a fixed pool of {@link AssemblyRegionWorker}s, and runs the
+     * resulting output actions on the traversal thread in the order in which the regions were produced.
+     *
+     * Each task checks out a worker from {@link #idleWorkers} for the duration of the region, so there are never
+     * more workers in use than there are threads, and a worker is never used by two threads at once.
+     */
+    private final class ParallelRegionProcessor implements AutoCloseable {
+        private final List<AssemblyRegionWorker> workers = new ArrayList<>(assemblyRegionThreads);
+        private final BlockingQueue<AssemblyRegionWorker> idleWorkers = new ArrayBlockingQueue<>(assemblyRegionThreads);
+        private final ExecutorService executor;
+
+        ParallelRegionProcessor() {
+            for ( int i = 0; i < assemblyRegionThreads; i++ ) {
+                final AssemblyRegionWorker worker = makeAssemblyRegionWorker();
+                if ( worker == null ) {
+                    closeWorkers();
+                    throw new CommandLineException.BadArgumentValue(ASSEMBLY_REGION_THREADS_LONG_NAME,
+                            AssemblyRegionWalker.this.getClass().getSimpleName() + " does not support multi-threaded assembly region processing");
+                }
+                workers.add(worker);
+                idleWorkers.add(worker);
+            }
+            executor = Executors.newFixedThreadPool(assemblyRegionThreads, new ThreadFactoryBuilder()
+                    .setNameFormat("assembly-region-worker-%d")
+                    .setDaemon(true)
+                    .build());
+            logger.info("Processing assembly regions on " + assemblyRegionThreads + " threads");
+        }
+
+        void processReadShard(final MultiIntervalLocalReadShard shard, final ReferenceDataSource reference, final FeatureManager features) {
+            final Iterator<AssemblyRegion> assemblyRegionIter = makeAssemblyRegionIterator(shard, reference, features);
+
+            // Regions are pulled from the iterator (and written to the debug outputs) on this thread; keep twice as
+            // many regions in flight as there are threads so that workers don't starve while we wait on the oldest one.
+            final Iterator<AssemblyRegion> loggedRegionIter = Iterators.transform(assemblyRegionIter, region -> {
+                logger.debug("Processing assembly region at " + region.getSpan() + " isActive: " + region.isActive() + " numReads: " + region.getReads().size());
+                writeAssemblyRegion(region);
+                return region;
+            });
+            final Iterator<Runnable> outputActions = Utils.transformParallel(loggedRegionIter,
+                    region -> processOnWorker(region, reference, features), executor, 2 * assemblyRegionThreads);
+
+            try {
+                while ( outputActions.hasNext() ) {
+                    outputActions.next().run();
+                }
+            } finally {
+                closeAssemblyRegionIterator(assemblyRegionIter);
+            }
+        }
+
+        private Runnable processOnWorker(final AssemblyRegion region, final ReferenceDataSource reference, final FeatureManager features) {
+            final AssemblyRegionWorker worker = idleWorkers.remove();
+            Utils.setThreadRandomGenerator(makeRegionRandomGenerator(region));
+            try {
+                final Runnable output = Utils.nonNull(worker.process(region,
+                        new ReferenceContext(reference, region.getExtendedSpan()),
+                        new FeatureContext(features, region.getExtendedSpan())));
+                return () -> {
+                    output.run();
+                    // For this traversal, the progress meter unit is the assembly region rather than the read shard
+                    progressMeter.update(region.getSpan());
+                };
+            } finally {
+                Utils.setThreadRandomGenerator(null);
+                idleWorkers.add(worker);
+            }
+        }
+
+        private void closeWorkers() {
+            workers.forEach(AssemblyRegionWorker::close);
+            workers.clear();
+        }
 
-            // For this traversal, the progress meter unit is the assembly region rather than the read shard
-            progressMeter.update(assemblyRegion.getSpan());
+        @Override
+        public void close() {
+            executor.shutdownNow();
+            closeWorkers();
         }
     }
 
@@ -0,0 +1,31 @@
+package org.broadinstitute.hellbender.engine;
+
+/**
+ * A unit of per-thread state used by {@link AssemblyRegionWalker} when processing assembly regions in parallel
+ * (see {@link AssemblyRegionWalker#makeAssemblyRegionWorker}).
+ *
+ * Each worker is used by at most one thread at a time, so implementations may hold non-thread-safe state such as
+ * their own calling engine, assembler and PairHMM instances. The heavy lifting is done in {@link #process}, which
+ * runs on a worker thread; the {@link Runnable} it returns is run on the traversal thread, in the same genomic
+ * order in which the regions were produced, and is the place to emit output (eg., add calls to a
+ * VariantContextWriter).
+ */
+public interface AssemblyRegionWorker extends AutoCloseable {
+
+    /**
+     * Process an individual AssemblyRegion on a worker thread.
+     *
+     * @param region region to process (pre-marked as either active or inactive)
+     * @param referenceContext reference data overlapping the full extended span of the assembly region
+     * @param featureContext features overlapping the full extended span of the assembly region
+     * @return an action that will be run on the traversal thread, in genomic order, once this region and all regions
+     *         before it have been processed. Never {@code null}.
+     */
+    Runnable process( final AssemblyRegion region, final ReferenceContext referenceContext, final FeatureContext featureContext );
+
+    /**
+     * Release any resources held by this worker. Called on the traversal thread once traversal has completed.
+     */
+    @Override
+    void close();
+}
@@ -31,6 +31,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * Enables traversals and queries over sources of Features, which are metadata associated with a location
@@ -99,6 +100,18 @@ public final class FeatureDataSource<T extends Feature> implements GATKDataSourc
      */
     private final int queryLookaheadBases;
 
+    /**
+     * Opens another reader over our input, for the background thread of {@link #prefetchingCache}
+     */
+    private final Supplier<FeatureReader<T>> readerFactory;
+
+    /**
+     * If intervals were provided via {@link #enablePrefetching(List)}, prefetches the Features overlapping these
+     * intervals ahead of queries initiated via {@link #query(SimpleInterval)} and/or {@link #queryAndPrefetch(SimpleInterval)},
+     * which fall back to {@link #queryCache} for intervals it does not cover. Null otherwise.
+     */
+    private PrefetchingFeatureCache<T> prefetchingCache;
+
     /**
      * Holds information about the path this datasource reads from.
      */
@@ -253,6 +266,7 @@ public final class FeatureDataSource<T extends Feature> implements GATKDataSourc
         // Create a feature reader without requiring an index.  We will require one ourselves as soon as
         // a query by interval is attempted.
         this.featureReader = getFeatureReader(featureInput, targetFeatureType, cloudWrapper, cloudIndexWrapper, reference);
+        this.readerFactory = () -> getFeatureReader(featureInput, targetFeatureType, cloudWrapper, cloudIndexWrapper, reference);
 
         if (IOUtils.isGenomicsDBPath(featureInput.getFeaturePath())) {
             //genomics db uri's have no associated index file to read from, but they do support random access
@@ -274,6 +288,7 @@ public final class FeatureDataSource<T extends Feature> implements GATKDataSourc
         this.intervalsForTraversal = null;
         this.queryCache = new FeatureCache<>();
         this.queryLookaheadBases = queryLookaheadBases;
+        this.prefetchingCache = null;
     }
 
 
@@ -417,6 +432,33 @@ public final class FeatureDataSource<T extends Feature> implements GATKDataSourc
     }
 
 
+    /**
+     * Prefetches the Features overlapping the provided intervals (padded by our query lookahead) on a background thread,
+     * with a separate reader, ahead of calls to {@link #query(SimpleInterval)} and/or {@link #queryAndPrefetch(SimpleInterval)}
+     * made in the order of the intervals. Queries outside of the upcoming intervals are still answered, but go to disk
+     * as without prefetching. See {@link PrefetchingFeatureCache}.
+     * <p>
+     * Intervals MUST be sorted, and should be the intervals of the traversal. Passing in a null or empty interval List
+     * disables prefetching.
+     *
+     * @param intervals intervals in the order in which Features will be queried
+     */
+    public void enablePrefetching(final List<SimpleInterval> intervals) {
+        if (prefetchingCache != null) {
+            prefetchingCache.close();
+            prefetchingCache = null;
+        }
+        if (intervals == null || intervals.isEmpty()) {
+            return;
+        }
+        if (!supportsRandomAccess) {
+            throw new UserException("Input " + featureInput.getFeaturePath() + " must support random access to enable prefetching by intervals. " +
+                    "If it's a file, please index it using the bundled tool " + IndexFeatureFile.class.getSimpleName());
+        }
+        prefetchingCache = new PrefetchingFeatureCache<>(readerFactory.get(), featureInput.toString(), intervals,
+                queryLookaheadBases, Math.max(PrefetchingFeatureCache.DEFAULT_BLOCK_SIZE, 2 * queryLookaheadBases));
+    }
+
     /**
      * Gets an iterator over all Features in this data source, restricting traversal to Features
      * overlapping our intervals if intervals were provided via {@link #setIntervalsForTraversal(List)}
@@ -486,6 +528,14 @@ public final class FeatureDataSource<T extends Feature> implements GATKDataSourc
                     "If it's a file, please index it using the bundled tool " + IndexFeatureFile.class.getSimpleName());
         }
 
+        // Features of the upcoming traversal intervals were fetched ahead of time, if prefetching is enabled
+        if (prefetchingCache != null) {
+            final List<T> prefetchedFeatures = prefetchingCache.getFeatures(interval);
+            if (prefetchedFeatures != null) {
+                return prefetchedFeatures;
+            }
+        }
+
         // If the query can be satisfied using existing cache contents, prepare for retrieval
         // by discarding all Features at the beginning of the cache that end before the start
         // of our query interval.
@@ -532,6 +582,13 @@ public final class FeatureDataSource<T extends Feature> implements GATKDataSourc
         }
     }
 
+    /**
+     * @return true if this data source supports efficient random access queries, which prefetching requires
+     */
+    public boolean supportsRandomAccess() {
+        return supportsRandomAccess;
+    }
+
     /**
      * Get the logical name of this data source.
      *
@@ -560,6 +617,10 @@ public final class FeatureDataSource<T extends Feature> implements GATKDataSourc
 
         logger.debug(String.format("Cache statistics for FeatureInput %s:", featureInput));
         queryCache.printCacheStatistics();
+        if (prefetchingCache != null) {
+            prefetchingCache.printCacheStatistics();
+            prefetchingCache.close();
+        }
 
         try {
             if (featureReader != null) {
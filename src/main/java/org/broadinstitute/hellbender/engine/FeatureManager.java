@@ -42,7 +42,8 @@ import java.util.stream.Collectors;
  * creates a FeatureDataSource for that file, and adds it to a query-able resource pool.
  *
  * Clients can then call {@link #getFeatures(FeatureInput, SimpleInterval)} to query the data source for
- * a particular FeatureInput over a specific interval.
+ * a particular FeatureInput over a specific interval. Queries and header lookups are synchronized, so that
+ * a FeatureManager may be shared by multiple threads (eg., during multi-threaded assembly region traversal).
  */
 public final class FeatureManager implements AutoCloseable {
     private static final Logger logger = LogManager.getLogger(FeatureManager.class);
@@ -325,7 +326,7 @@ public final class FeatureManager implements AutoCloseable {
      * @return A List of all Features in the backing data source for the provided FeatureInput that overlap
      *         the provided interval (may be empty if there are none, but never null)
      */
-    public <T extends Feature> List<T> getFeatures( final FeatureInput<T> featureDescriptor, final SimpleInterval interval ) {
+    public synchronized <T extends Feature> List<T> getFeatures( final FeatureInput<T> featureDescriptor, final SimpleInterval interval ) {
         final FeatureDataSource<T> dataSource = lookupDataSource(featureDescriptor);
 
         // No danger of a ClassCastException here, since we verified that the FeatureDataSource for this
@@ -364,7 +365,7 @@ public final class FeatureManager implements AutoCloseable {
      * @param <T> type of Feature in our FeatureInput
      * @return header for the provided FeatureInput
      */
-    public <T extends Feature> Object getHeader( final FeatureInput<T> featureDescriptor ) {
+    public synchronized <T extends Feature> Object getHeader( final FeatureInput<T> featureDescriptor ) {
         final FeatureDataSource<T> dataSource = lookupDataSource(featureDescriptor);
         return dataSource.getHeader();
     }
@@ -523,6 +524,25 @@ public final class FeatureManager implements AutoCloseable {
         return Files.exists(file) && ! getCandidateCodecsForFile(file).isEmpty();
     }
 
+    /**
+     * Prefetches the Features of all of our data sources overlapping the provided intervals on background threads,
+     * ahead of queries made in the order of the intervals. See {@link FeatureDataSource#enablePrefetching(List)}.
+     *
+     * Data sources that don't support random access (such as unindexed files) are skipped, and keep being queried
+     * without prefetching.
+     *
+     * @param intervals sorted traversal intervals (null or empty to disable prefetching)
+     */
+    public synchronized void enablePrefetching( final List<SimpleInterval> intervals ) {
+        for ( final FeatureDataSource<? extends Feature> dataSource : featureSources.values() ) {
+            if ( dataSource.supportsRandomAccess() ) {
+                dataSource.enablePrefetching(intervals);
+            } else if ( intervals != null && ! intervals.isEmpty() ) {
+                logger.info("Not prefetching the features of " + dataSource.getName() + ", which does not support random access (it may not be indexed)");
+            }
+        }
+    }
+
     /**
      * Permanently closes this manager by closing all backing data sources
      */
@@ -9,8 +9,10 @@ import htsjdk.tribble.Feature;
 import htsjdk.variant.variantcontext.writer.Options;
 import htsjdk.variant.variantcontext.writer.VariantContextWriter;
 import htsjdk.variant.vcf.VCFHeaderLine;
+import org.broadinstitute.barclay.argparser.Advanced;
 import org.broadinstitute.barclay.argparser.Argument;
 import org.broadinstitute.barclay.argparser.ArgumentCollection;
+import org.broadinstitute.barclay.argparser.CommandLineException;
 import org.broadinstitute.barclay.argparser.CommandLinePluginDescriptor;
 import org.broadinstitute.hellbender.cmdline.CommandLineProgram;
 import org.broadinstitute.hellbender.cmdline.GATKPlugin.GATKAnnotationPluginDescriptor;
@@ -116,6 +118,88 @@ public abstract class GATKTool extends CommandLineProgram {
             optional = true)
     public boolean disableBamIndexCaching = false;
 
+    /**
+     * Decompress and decode the input reads on other threads, ahead of the traversal, so that tools that do little
+     * work per read are not limited by the speed of decoding the input on a single thread.
+     */
+    @Advanced
+    @Argument(fullName = StandardArgumentDefinitions.READ_DECODING_THREADS_LONG_NAME,
+            doc = "Number of threads decoding the input reads ahead of the traversal (0 to decode them on the traversal thread).",
+            optional = true, minValue = 0)
+    public int readDecodingThreads = 0;
+
+    /**
+     * Compress BAM and block compressed VCF output on other threads, so that tools writing many records are not
+     * limited by the speed of compressing their output on a single thread. The records and the index are the same as
+     * without compression threads. Only used for BAM output whose reads do not need sorting, and for block compressed
+     * VCF output, without MD5.
+     */
+    @Advanced
+    @Argument(fullName = StandardArgumentDefinitions.OUTPUT_COMPRESSION_THREADS_LONG_NAME,
+            doc = "Number of threads compressing the output BAM or block compressed VCF (0 to compress it on the writing thread).",
+            optional = true, minValue = 0)
+    public int outputCompressionThreads = 0;
+
+    /**
+     * Serve the reference from a memory-mapped cache file of its bases (see {@link #memoryMappedReferenceCache}),
+     * built on first use, rather than from the fasta itself. The bases are the same, but the cache can be shared by
+     * multi-threaded tools without locking, and it lives in the page cache rather than on the heap.
+     */
+    @Advanced
+    @Argument(fullName = StandardArgumentDefinitions.MEMORY_MAPPED_REFERENCE_LONG_NAME,
+            doc = "If true, memory-map a cache file of the reference bases instead of reading the reference fasta.",
+            optional = true)
+    public boolean memoryMappedReference = false;
+
+    /**
+     * Cache file of the reference bases for {@link #memoryMappedReference}, which must be on the local file system.
+     * The cache file is as large as the reference, and is reused by later runs as long as it is newer than the
+     * reference. By default it is written next to the reference, which must then be local and in a directory that can
+     * be written to.
+     */
+    @Advanced
+    @Argument(fullName = StandardArgumentDefinitions.MEMORY_MAPPED_REFERENCE_CACHE_LONG_NAME,
+            doc = "Local cache file of the reference bases for --" + StandardArgumentDefinitions.MEMORY_MAPPED_REFERENCE_LONG_NAME +
+                    " (by default, the reference file name followed by " + MemoryMappedReferenceSource.CACHE_FILE_EXTENSION + ", next to the reference).",
+            optional = true)
+    public String memoryMappedReferenceCache = null;
+
+    /**
+     * Query and decode the Features overlapping the upcoming traversal intervals on background threads, ahead of
+     * the traversal, so that tools querying large sources of Features (such as dbSNP or gnomAD) don't wait for them.
+     * The Features returned are the same as without prefetching. Sources that don't support random access (such as
+     * unindexed files) are not prefetched.
+     */
+    @Advanced
+    @Argument(fullName = StandardArgumentDefinitions.PREFETCH_FEATURES_LONG_NAME,
+            doc = "If true, prefetch the Features of the traversal intervals on background threads.",
+            optional = true)
+    public boolean prefetchFeatures = false;
+
+    /**
+     * Record the time spent evaluating each read filter and the fraction of the reads it rejects, and print them
+     * with the read filter counts at the end of the traversal.
+     */
+    @Advanced
+    @Argument(fullName = StandardArgumentDefinitions.READ_FILTER_STATISTICS_LONG_NAME,
+            doc = "If true, report the evaluation time and the rejection rate of each read filter.",
+            optional = true)
+    public boolean readFilterStatistics = false;
+
+    /**
+     * Reorder the read filters during traversal so that those rejecting the most reads per unit of evaluation time
+     * (typically cheap filters on the mapping quality or the flags) are tested before more expensive ones. Filters
+     * that others rely on, such as WellformedReadFilter and MappedReadFilter, are never moved, and no filter is moved
+     * across them. The reads filtered are the same, but the counts reported for each filter depend on the order in
+     * which they were tested.
+     * Implies {@link #readFilterStatistics}.
+     */
+    @Advanced
+    @Argument(fullName = StandardArgumentDefinitions.REORDER_READ_FILTERS_LONG_NAME,
+            doc = "If true, test the read filters rejecting the most reads per unit of time first.",
+            optional = true)
+    public boolean reorderReadFilters = false;
+
     @Argument(fullName = StandardArgumentDefinitions.SITES_ONLY_LONG_NAME,
             doc = "If true, don't emit genotype fields when writing vcf file output.", optional = true)
     public boolean outputSitesOnlyVCFs = false;
@@ -199,7 +283,9 @@ public abstract class GATKTool extends CommandLineProgram {
      * the default read filters for this tool (returned by {@link #getDefaultReadFilters} along with any read filter
      * command line directives specified by the user (such as enabling other filters or disabling default filters);
      * wraps each filter in the resulting list with a CountingReadFilter; and returns a single composite filter
-     * resulting from the list by and'ing them together.
+     * resulting from the list by and'ing them together. With {@link #readFilterStatistics} or {@link #reorderReadFilters},
+     * the composite filter also records the cost and the rejection rate of each filter
+     * (see {@link CountingReadFilter#fromListWithStatistics}).
      *
      * NOTE: Most tools will not need to override the method, and should only do so in order to provide custom
      * behavior or processing of the final merged read filter. To change the default read filters used by the tool,
@@ -214,9 +300,13 @@ public abstract class GATKTool extends CommandLineProgram {
      public CountingReadFilter makeReadFilter(){
         final GATKReadFilterPluginDescriptor readFilterPlugin =
                 getCommandLineParser().getPluginDescriptor(GATKReadFilterPluginDescriptor.class);
-        return hasReads() ?
-                readFilterPlugin.getMergedCountingReadFilter(getHeaderForReads()) :
-                new CountingReadFilter(ReadFilterLibrary.ALLOW_ALL_READS);
+        if (!hasReads()) {
+            return new CountingReadFilter(ReadFilterLibrary.ALLOW_ALL_READS);
+        }
+        return readFilterStatistics || reorderReadFilters ?
+                readFilterPlugin.getMergedReadFilter(getHeaderForReads(),
+                        (filters, header) -> CountingReadFilter.fromListWithStatistics(filters, header, reorderReadFilters)) :
+                readFilterPlugin.getMergedCountingReadFilter(getHeaderForReads());
     }
 
     /**
@@ -361,7 +451,24 @@ public abstract class GATKTool extends CommandLineProgram {
      * May be overridden by traversals that require custom initialization of the reference data source.
      */
     void initializeReference() {
-        reference = referenceArguments.getReferencePath() != null ? ReferenceDataSource.of(referenceArguments.getReferencePath()) : null;
+        if (referenceArguments.getReferencePath() == null) {
+            reference = null;
+        } else {
+            reference = makeReferenceDataSource();
+        }
+    }
+
+    /**
+     * @return a new data source for the reference, memory-mapped if requested with {@link #memoryMappedReference}
+     */
+    protected final ReferenceDataSource makeReferenceDataSource() {
+        if (memoryMappedReferenceCache != null && !memoryMappedReference) {
+            throw new CommandLineException.BadArgumentValue(StandardArgumentDefinitions.MEMORY_MAPPED_REFERENCE_CACHE_LONG_NAME,
+                    "requires --" + StandardArgumentDefinitions.MEMORY_MAPPED_REFERENCE_LONG_NAME);
+        }
+        return memoryMappedReference ? ReferenceDataSource.ofMemoryMapped(referenceArguments.getReferencePath(),
+                        memoryMappedReferenceCache == null ? null : IOUtils.getPath(memoryMappedReferenceCache))
+                : ReferenceDataSource.of(referenceArguments.getReferencePath());
     }
 
     /**
@@ -384,8 +491,14 @@ public abstract class GATKTool extends CommandLineProgram {
                 factory = factory.enable(SamReaderFactory.Option.CACHE_FILE_BASED_INDEXES);
             }
 
+            if (readDecodingThreads > 0) {
+                // inflate the BGZF blocks ahead of the decoding as well
+                factory = factory.setUseAsyncIo(true);
+            }
+
             reads = new ReadsDataSource(readArguments.getReadPaths(), readArguments.getReadIndexPaths(), factory, cloudPrefetchBuffer,
                 (cloudIndexPrefetchBuffer < 0 ? cloudPrefetchBuffer : cloudIndexPrefetchBuffer));
+            reads.setDecodingThreads(readDecodingThreads);
         }
         else {
             reads = null;
@@ -609,6 +722,18 @@ public abstract class GATKTool extends CommandLineProgram {
         return hasFeatures() ? features.getHeader(featureDescriptor) : null;
     }
 
+    /**
+     * Returns the Features of the specified source overlapping an interval, for tools that query their sources of
+     * Features other than through the FeatureContext of each record
+     * @param featureDescriptor FeatureInput whose Features to retrieve
+     * @param interval interval to query over
+     * @param <T> type of Feature in our FeatureInput
+     * @return the Features overlapping interval (empty if we have no sources of Features)
+     */
+    public final <T extends Feature> List<T> getFeatures( final FeatureInput<T> featureDescriptor, final SimpleInterval interval ) {
+        return hasFeatures() ? features.getFeatures(featureDescriptor, interval) : Collections.emptyList();
+    }
+
     /**
      * Initialize our data sources, make sure that all tool requirements for input data have been satisfied
      * and start the progress meter.
@@ -639,6 +764,10 @@ public abstract class GATKTool extends CommandLineProgram {
 
         initializeIntervals(); // Must be initialized after reference, reads and features, since intervals currently require a sequence dictionary from another data source
 
+        if ( prefetchFeatures && hasFeatures() ) {
+            features.enablePrefetching(getTraversalIntervals());
+        }
+
         if ( seqValidationArguments.performSequenceDictionaryValidation()) {
             validateSequenceDictionaries();
         }
@@ -765,7 +894,8 @@ public abstract class GATKTool extends CommandLineProgram {
                 getHeaderForSAMWriter(),
                 preSorted,
                 createOutputBamIndex,
-                createOutputBamMD5
+                createOutputBamMD5,
+                outputCompressionThreads
             )
         );
     }
@@ -805,6 +935,7 @@ public abstract class GATKTool extends CommandLineProgram {
                 outFile,
                 sequenceDictionary,
                 createOutputVariantMD5,
+                outputCompressionThreads,
                 options.toArray(new Options[options.size()]));
     }
 
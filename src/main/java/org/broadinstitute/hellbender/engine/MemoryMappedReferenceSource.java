@@ -0,0 +1,310 @@
+package org.broadinstitute.hellbender.engine;
+
+import htsjdk.samtools.SAMException;
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.SAMSequenceRecord;
+import htsjdk.samtools.reference.ReferenceSequence;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.fasta.CachingIndexedFastaSequenceFile;
+import org.broadinstitute.hellbender.utils.reference.ReferenceBasesView;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Manages queries over reference data by memory-mapping a cache file holding the bases of every contig of a fasta,
+ * one byte per base, already upper-cased and with IUPAC bases converted to `N` (as {@link ReferenceFileSource} returns them).
+ *
+ * The cache file is built from the fasta on first use, at the given location or by default next to the fasta, and is
+ * reused by later runs as long as it is newer than the fasta. There is no default location for a fasta that is not
+ * on the local file system or whose directory can't be written to, since a cache rebuilt on every run would cost more
+ * than it saves; a location must be given explicitly in that case. Since the bases
+ * live in the page cache rather than on the heap, and queries never modify any state, a single instance can be shared
+ * by any number of threads without locking, and by concurrent processes on the same machine without duplicating the
+ * reference in memory.
+ *
+ * Supports targeted queries over the reference by interval, but does not
+ * yet support complete iteration over the entire reference.
+ */
+public final class MemoryMappedReferenceSource implements ReferenceDataSource {
+    private static final Logger logger = LogManager.getLogger(MemoryMappedReferenceSource.class);
+
+    /**
+     * Extension appended to the name of the fasta to name its cache file
+     */
+    public static final String CACHE_FILE_EXTENSION = ".bases";
+
+    // identifies cache files written by this class, followed by the bases of the contigs in dictionary order
+    private static final byte[] CACHE_FILE_MAGIC = "GATKBAS1".getBytes(StandardCharsets.US_ASCII);
+
+    // contigs are mapped together in segments of up to this size, to keep the number of mappings small for
+    // references with many contigs (a contig longer than this is mapped on its own)
+    private static final long MAX_SEGMENT_SIZE = 1L << 30;
+
+    private static final int BUILD_CHUNK_SIZE = (int) CachingIndexedFastaSequenceFile.DEFAULT_CACHE_SIZE;
+
+    private final SAMSequenceDictionary sequenceDictionary;
+    // for each contig, by index in the dictionary, the segment holding its bases and its offset in the segment
+    private final ByteBuffer[] contigSegments;
+    private final int[] contigOffsets;
+    private volatile boolean closed = false;
+
+    /**
+     * Initialize this data source using a fasta file, building its cache file at the default location if needed.
+     *
+     * The provided fasta file must have companion .fai and .dict files.
+     *
+     * @param fastaPath reference fasta file
+     * @throws UserException if there is no default location for the cache file, see {@link #getDefaultCachePath}
+     */
+    public MemoryMappedReferenceSource(final Path fastaPath) {
+        this(fastaPath, getDefaultCachePath(Utils.nonNull(fastaPath)));
+    }
+
+    /**
+     * Initialize this data source using a fasta file and the cache file of its bases, which is built if it does not
+     * exist or is older than the fasta.
+     *
+     * The provided fasta file must have companion .fai and .dict files.
+     *
+     * @param fastaPath reference fasta file
+     * @param cachePath cache file of the bases of the fasta, which must be on the default (local) file system
+     */
+    public MemoryMappedReferenceSource(final Path fastaPath, final Path cachePath) {
+        Utils.nonNull(fastaPath);
+        Utils.nonNull(cachePath);
+        Utils.validateArg(cachePath.getFileSystem() == FileSystems.getDefault(),
+                () -> "the reference cache file must be on the local file system, but was " + cachePath.toUri());
+
+        // Will throw a UserException if the .fai and/or .dict are missing
+        try (final CachingIndexedFastaSequenceFile fasta = new CachingIndexedFastaSequenceFile(fastaPath)) {
+            sequenceDictionary = fasta.getSequenceDictionary();
+            if (!isUpToDate(fastaPath, cachePath, getCacheFileSize(sequenceDictionary))) {
+                buildCacheFile(fasta, cachePath);
+            }
+        }
+
+        contigSegments = new ByteBuffer[sequenceDictionary.size()];
+        contigOffsets = new int[sequenceDictionary.size()];
+        mapCacheFile(cachePath);
+    }
+
+    /**
+     * @return the cache file used for the given fasta when none is specified: the fasta name followed by
+     *         {@link #CACHE_FILE_EXTENSION}, next to the fasta
+     * @throws UserException if the fasta is not on the local file system, or if the cache file does not exist and
+     *         can't be created next to the fasta
+     */
+    public static Path getDefaultCachePath(final Path fastaPath) {
+        if (fastaPath.getFileSystem() == FileSystems.getDefault()) {
+            final Path cachePath = fastaPath.resolveSibling(fastaPath.getFileName() + CACHE_FILE_EXTENSION);
+            final Path directory = cachePath.toAbsolutePath().getParent();
+            if (Files.isReadable(cachePath) || (directory != null && Files.isWritable(directory))) {
+                return cachePath;
+            }
+        }
+        throw new UserException("There is no persistent location for the memory-mapped reference cache file of " +
+                fastaPath.toUri() + ", as the reference is not on the local file system or its directory can't be written to. " +
+                "Specify a local file for the cache with --" + StandardArgumentDefinitions.MEMORY_MAPPED_REFERENCE_CACHE_LONG_NAME +
+                ", which will be reused by later runs.");
+    }
+
+    private static long getCacheFileSize(final SAMSequenceDictionary dictionary) {
+        return CACHE_FILE_MAGIC.length + dictionary.getReferenceLength();
+    }
+
+    // a cache file is reused if it was written by this class for a fasta of the same length, after the fasta was last modified
+    private static boolean isUpToDate(final Path fastaPath, final Path cachePath, final long expectedSize) {
+        try {
+            if (!Files.isRegularFile(cachePath) || Files.size(cachePath) != expectedSize ||
+                    Files.getLastModifiedTime(cachePath).compareTo(Files.getLastModifiedTime(fastaPath)) < 0) {
+                return false;
+            }
+            final byte[] magic = new byte[CACHE_FILE_MAGIC.length];
+            try (final InputStream in = Files.newInputStream(cachePath)) {
+                return in.read(magic) == magic.length && Arrays.equals(magic, CACHE_FILE_MAGIC);
+            }
+        } catch (final IOException e) {
+            return false;
+        }
+    }
+
+    // writes the cache file next to its final location before moving it there, so that a partially written cache file is never used
+    private void buildCacheFile(final CachingIndexedFastaSequenceFile fasta, final Path cachePath) {
+        logger.info("Building the reference cache file " + cachePath.toUri() + " (" + getCacheFileSize(sequenceDictionary) +
+                " bytes), which will be reused by later runs as long as it is newer than the reference");
+        Path tempPath = null;
+        try {
+            final Path directory = cachePath.toAbsolutePath().getParent();
+            tempPath = Files.createTempFile(directory, cachePath.getFileName().toString(), ".tmp");
+            try (final OutputStream out = new BufferedOutputStream(Files.newOutputStream(tempPath))) {
+                out.write(CACHE_FILE_MAGIC);
+                for (final SAMSequenceRecord contig : sequenceDictionary.getSequences()) {
+                    // the reader upper-cases the bases and converts IUPAC bases to N
+                    for (long start = 1; start <= contig.getSequenceLength(); start += BUILD_CHUNK_SIZE) {
+                        final long stop = Math.min(start + BUILD_CHUNK_SIZE - 1, contig.getSequenceLength());
+                        out.write(fasta.getSubsequenceAt(contig.getSequenceName(), start, stop).getBases());
+                    }
+                }
+            }
+            try {
+                Files.move(tempPath, cachePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (final AtomicMoveNotSupportedException e) {
+                Files.move(tempPath, cachePath, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (final IOException e) {
+            throw new UserException.CouldNotCreateOutputFile(cachePath.toUri().toString(), "could not write the reference cache file", e);
+        } finally {
+            if (tempPath != null) {
+                try {
+                    Files.deleteIfExists(tempPath);
+                } catch (final IOException e) {
+                    logger.warn("Could not delete the temporary file " + tempPath.toUri());
+                }
+            }
+        }
+    }
+
+    // maps consecutive contigs together, so that each contig lies entirely within one mapped segment
+    private void mapCacheFile(final Path cachePath) {
+        try (final FileChannel channel = FileChannel.open(cachePath, StandardOpenOption.READ)) {
+            final List<SAMSequenceRecord> contigs = sequenceDictionary.getSequences();
+            int firstContig = 0;
+            long segmentStart = CACHE_FILE_MAGIC.length;
+            long segmentSize = 0;
+            for (int i = 0; i <= contigs.size(); i++) {
+                final long length = i < contigs.size() ? contigs.get(i).getSequenceLength() : 0;
+                if (i == contigs.size() || (segmentSize > 0 && segmentSize + length > MAX_SEGMENT_SIZE)) {
+                    final ByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, segmentStart, segmentSize);
+                    int offset = 0;
+                    for (int j = firstContig; j < i; j++) {
+                        contigSegments[j] = segment;
+                        contigOffsets[j] = offset;
+                        offset += contigs.get(j).getSequenceLength();
+                    }
+                    firstContig = i;
+                    segmentStart += segmentSize;
+                    segmentSize = 0;
+                }
+                segmentSize += length;
+            }
+        } catch (final IOException e) {
+            throw new UserException.CouldNotReadInputFile(cachePath, "could not map the reference cache file", e);
+        }
+    }
+
+    /**
+     * Start an iteration over the entire reference. Not yet supported!
+     *
+     * See the BaseUtils class for guidance on how to work with bases in this format.
+     *
+     * @return iterator over all bases in this reference
+     */
+    @Override
+    public Iterator<Byte> iterator() {
+        throw new UnsupportedOperationException("Iteration over entire reference not yet implemented");
+    }
+
+    /**
+     * Get a read-only buffer over the bases of the contig in the range [start,stop], without copying them.
+     * The buffer is backed by the mapped cache file, and is independent from the buffers returned by other queries,
+     * so it may be used on any thread.
+     *
+     * @param contig query interval contig
+     * @param start query interval start
+     * @param stop query interval stop
+     * @return a buffer whose position is the base at start and whose limit is just past the base at stop
+     */
+    public ByteBuffer getBasesBuffer(final String contig, final long start, final long stop) {
+        Utils.validate(!closed, "the reference data source was closed");
+        final SAMSequenceRecord contigInfo = sequenceDictionary.getSequence(contig);
+        if (contigInfo == null) {
+            throw new UserException.MissingContigInSequenceDictionary(contig, sequenceDictionary);
+        }
+        if (stop > contigInfo.getSequenceLength()) {
+            throw new SAMException("Query asks for data past end of contig. Query contig " + contig + " start:" + start + " stop:" + stop + " contigLength:" + contigInfo.getSequenceLength());
+        }
+        Utils.validateArg(start >= 1 && stop >= start - 1, () -> "invalid query " + contig + ":" + start + "-" + stop);
+
+        final int offset = contigOffsets[contigInfo.getSequenceIndex()] + (int) (start - 1);
+        final ByteBuffer buffer = contigSegments[contigInfo.getSequenceIndex()].asReadOnlyBuffer();
+        buffer.limit(offset + (int) (stop - start + 1));
+        buffer.position(offset);
+        return buffer;
+    }
+
+    /**
+     * Query a specific interval on this reference, and get back all bases spanning that interval at once.
+     * Call getBases() on the returned ReferenceSequence to get the actual reference bases. See the BaseUtils
+     * class for guidance on how to work with bases in this format.
+     *
+     * @param contig query interval contig
+     * @param start query interval start
+     * @param stop query interval stop
+     * @return a ReferenceSequence containing all bases spanning the query interval, prefetched
+     */
+    @Override
+    public ReferenceSequence queryAndPrefetch(final String contig, final long start, final long stop) {
+        return new ReferenceSequence(contig, sequenceDictionary.getSequenceIndex(contig), getBases(contig, start, stop));
+    }
+
+    /**
+     * Query a specific interval on this reference, and get back a view of the bases spanning that interval, copied
+     * from the mapped cache file at once.
+     *
+     * @param contig query interval contig
+     * @param start query interval start
+     * @param stop query interval stop
+     * @return a view of the bases spanning the query interval
+     */
+    @Override
+    public ReferenceBasesView queryBases(final String contig, final long start, final long stop) {
+        final byte[] bases = getBases(contig, start, stop);
+        return new ReferenceBasesView(contig, (int) start, bases, 0, bases.length);
+    }
+
+    private byte[] getBases(final String contig, final long start, final long stop) {
+        final ByteBuffer buffer = getBasesBuffer(contig, start, stop);
+        final byte[] bases = new byte[buffer.remaining()];
+        buffer.get(bases);
+        return bases;
+    }
+
+    /**
+     * Get the sequence dictionary for this reference
+     *
+     * @return SAMSequenceDictionary for this reference
+     */
+    @Override
+    public SAMSequenceDictionary getSequenceDictionary() {
+        return sequenceDictionary;
+    }
+
+    /**
+     * Drop the mapped segments of the cache file, so that they are unmapped once garbage collected.
+     * Queries fail after closing.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        Arrays.fill(contigSegments, null);
+    }
+}
@@ -0,0 +1,161 @@
+package org.broadinstitute.hellbender.engine;
+
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wraps an {@link AssemblyRegionIterator} (or any other iterator of {@link AssemblyRegion}s) and pulls on it from a
+ * separate background thread, keeping a bounded number of finished regions ready ahead of the consumer.
+ *
+ * This lets the activity profile for upcoming loci (pileup construction and the evaluator's isActive() calls) be
+ * computed while the tool is still processing the previous regions, rather than strictly alternating with it.
+ * Regions are returned in exactly the same order as by the wrapped iterator.
+ *
+ * Because the wrapped iterator runs on its own thread, everything it touches must be safe to use concurrently
+ * with the consumer: in particular the {@link AssemblyRegionEvaluator} must not share mutable state with the code
+ * that processes the regions, and the reads in the returned regions must be treated as read-only (reads that
+ * overlap more than one region are shared between them). Any exception thrown by the wrapped iterator is rethrown
+ * to the consumer from {@link #hasNext} or {@link #next}.
+ *
+ * In the engine, the reads are filtered (updating the counts of the {@link org.broadinstitute.hellbender.engine.filters.CountingReadFilter})
+ * and {@link AssemblyRegionEvaluator#isActive} is called only on the background thread. The read filter counts are
+ * therefore read only after {@link #close}, which waits for that thread to finish. The evaluators of HaplotypeCaller
+ * and Mutect2 do run concurrently with region processing on the same engine, which is safe as their activity
+ * profile computation only reads engine state that is immutable after initialization (apart from the synchronized
+ * indel PL cache of the reference confidence model, and the stage profiler, whose counters are atomic). The engine
+ * also has region determination draw its random numbers (such as for downsampling) from a generator of its own, so
+ * that they don't depend on whether it runs on the background thread.
+ *
+ * Call {@link #close} to stop the background thread, which must be done before closing any of the data sources used
+ * by the wrapped iterator.
+ */
+public final class PrefetchingAssemblyRegionIterator implements Iterator<AssemblyRegion>, AutoCloseable {
+
+    // how often a producer waiting for the consumer checks whether the iterator was closed
+    private static final long CLOSED_CHECK_INTERVAL_MILLIS = 100;
+
+    // an empty Optional marks the end of the wrapped iterator (or a failure in it)
+    private final BlockingQueue<Optional<AssemblyRegion>> readyRegions;
+    private final Thread producer;
+    private volatile Throwable producerFailure = null;
+    private volatile boolean closed = false;
+
+    private AssemblyRegion nextRegion = null;
+    private boolean exhausted = false;
+
+    /**
+     * @param regions the regions to prefetch; once passed in, this iterator must not be used by the caller
+     * @param numRegionsToPrefetch maximum number of finished regions to hold ahead of the consumer, must be >= 1
+     */
+    public PrefetchingAssemblyRegionIterator(final Iterator<AssemblyRegion> regions, final int numRegionsToPrefetch) {
+        Utils.nonNull(regions);
+        Utils.validateArg(numRegionsToPrefetch >= 1, "numRegionsToPrefetch must be >= 1");
+
+        readyRegions = new ArrayBlockingQueue<>(numRegionsToPrefetch);
+        producer = new Thread(() -> prefetch(regions), "assembly-region-prefetch");
+        producer.setDaemon(true);
+        producer.start();
+    }
+
+    private void prefetch(final Iterator<AssemblyRegion> regions) {
+        try {
+            while ( ! closed && regions.hasNext() ) {
+                enqueue(Optional.of(regions.next()));
+            }
+        } catch ( final Throwable t ) {
+            producerFailure = t;
+        }
+        enqueue(Optional.empty());
+    }
+
+    // The producer is never interrupted, since interrupting a thread doing channel IO closes the channel, and the
+    // data sources of the wrapped iterator are still used after this iterator is closed. It checks for closing instead.
+    private void enqueue(final Optional<AssemblyRegion> region) {
+        try {
+            while ( ! closed ) {
+                if ( readyRegions.offer(region, CLOSED_CHECK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS) ) {
+                    return;
+                }
+            }
+        } catch ( final InterruptedException e ) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if ( nextRegion == null && ! exhausted ) {
+            final Optional<AssemblyRegion> region;
+            try {
+                region = readyRegions.take();
+            } catch ( final InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                throw new GATKException("Interrupted while waiting for the next assembly region", e);
+            }
+
+            if ( region.isPresent() ) {
+                nextRegion = region.get();
+            } else {
+                exhausted = true;
+                rethrowProducerFailure();
+            }
+        }
+        return nextRegion != null;
+    }
+
+    private void rethrowProducerFailure() {
+        final Throwable failure = producerFailure;
+        if ( failure instanceof RuntimeException ) {
+            throw (RuntimeException) failure;
+        } else if ( failure instanceof Error ) {
+            throw (Error) failure;
+        } else if ( failure != null ) {
+            throw new GATKException("Error while determining assembly regions", failure);
+        }
+    }
+
+    @Override
+    public AssemblyRegion next() {
+        if ( ! hasNext() ) {
+            throw new NoSuchElementException("next() called when there were no more elements");
+        }
+
+        final AssemblyRegion toReturn = nextRegion;
+        nextRegion = null;
+        return toReturn;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("remove() not supported by PrefetchingAssemblyRegionIterator");
+    }
+
+    /**
+     * Stop prefetching regions, and wait for the background thread to finish. Any regions not yet returned are discarded.
+     */
+    @Override
+    public void close() {
+        if ( closed ) {
+            return;
+        }
+        closed = true;
+        exhausted = true;
+        nextRegion = null;
+        // make room in the queue, so that a producer waiting for the consumer notices the closing right away
+        readyRegions.clear();
+        try {
+            producer.join();
+        } catch ( final InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new GATKException("Interrupted while stopping assembly region prefetching", e);
+        }
+        readyRegions.clear();
+    }
+}
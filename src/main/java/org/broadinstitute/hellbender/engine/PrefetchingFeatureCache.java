@@ -0,0 +1,346 @@
+package org.broadinstitute.hellbender.engine;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import htsjdk.tribble.CloseableTribbleIterator;
+import htsjdk.tribble.Feature;
+import htsjdk.tribble.FeatureReader;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PrefetchingFeatureCache: helper class for {@link FeatureDataSource} that, given the intervals of a traversal,
+ * queries and decodes the Features overlapping the upcoming intervals on a background thread, ahead of the queries
+ * made by the traversal.
+ *
+ * The traversal intervals (padded on both sides) are divided into blocks of up to {@link #DEFAULT_BLOCK_SIZE} bases,
+ * which are fetched in traversal order with their own {@link FeatureReader}, at most {@link #BLOCKS_AHEAD} blocks ahead
+ * of the block in use. Unlike {@link FeatureCache}, which has to go to disk whenever a query leaves its window, queries
+ * that move on to the next intervals usually find their block already decoded. The Features of a block are kept
+ * along with arrays of their start and end positions, so that queries within a block are answered by a binary search.
+ *
+ * Usage:
+ * -Get the Features overlapping each query interval via {@link #getFeatures(SimpleInterval)}, which returns null
+ *  if the interval is not within a block still ahead of the traversal (for instance if it is outside of the traversal
+ *  intervals, or before the current block), in which case the caller must query the Features itself.
+ *
+ * -Close the cache once the traversal is done, to stop the background thread and close its reader.
+ *
+ * Queries must come from one thread at a time, in the order of the traversal intervals.
+ *
+ * @param <CACHED_FEATURE> Type of Feature record we are caching
+ */
+class PrefetchingFeatureCache<CACHED_FEATURE extends Feature> implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(PrefetchingFeatureCache.class);
+
+    /**
+     * Maximum size in bases of the blocks of Features fetched together
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 100_000;
+
+    /**
+     * Number of blocks fetched ahead of the block in use
+     */
+    public static final int BLOCKS_AHEAD = 4;
+
+    private final FeatureReader<CACHED_FEATURE> reader;
+    private final String sourceName;
+    private final ExecutorService executor;
+
+    private final List<SimpleInterval> blocks;
+
+    /**
+     * Order in the traversal of the contigs of the blocks, to tell whether a query is past a block
+     */
+    private final Map<String, Integer> contigOrder = new HashMap<>();
+
+    /**
+     * Blocks submitted to the background thread, from nextBlock to nextBlockToSubmit - 1
+     */
+    private final Deque<Future<FeatureBlock<CACHED_FEATURE>>> pendingBlocks = new ArrayDeque<>(BLOCKS_AHEAD);
+    private int nextBlock = 0;
+    private int nextBlockToSubmit = 0;
+
+    private FeatureBlock<CACHED_FEATURE> currentBlock = null;
+
+    /**
+     * Number of queries answered from a prefetched block
+     */
+    private int numCacheHits = 0;
+
+    /**
+     * Number of queries that were not within a prefetched block
+     */
+    private int numCacheMisses = 0;
+
+    /**
+     * Number of times a query had to wait for the background thread to finish fetching its block
+     */
+    private int numWaits = 0;
+
+    /**
+     * @param reader reader used only by the background thread, and closed with this cache
+     * @param sourceName name of the source of the Features, for logging
+     * @param intervals traversal intervals, sorted and in the order in which they will be queried
+     * @param padding number of bases by which to pad the intervals on each side, which is also the overlap of the
+     *                blocks of large intervals, so that queries of up to this many bases are never split between blocks
+     * @param blockSize maximum size in bases of the blocks of Features fetched together, larger than padding
+     */
+    public PrefetchingFeatureCache(final FeatureReader<CACHED_FEATURE> reader, final String sourceName,
+                                   final List<SimpleInterval> intervals, final int padding, final int blockSize) {
+        this.reader = Utils.nonNull(reader);
+        this.sourceName = Utils.nonNull(sourceName);
+        Utils.nonEmpty(intervals, "intervals must not be empty");
+        Utils.validateArg(padding >= 0, "padding must be >= 0");
+        Utils.validateArg(blockSize > padding, () -> "block size (" + blockSize + ") must be larger than the padding (" + padding + ")");
+
+        this.blocks = makeBlocks(intervals, padding, blockSize);
+        for (final SimpleInterval block : blocks) {
+            contigOrder.putIfAbsent(block.getContig(), contigOrder.size());
+        }
+        this.executor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("feature-prefetch-%d")
+                .setDaemon(true)
+                .build());
+        submitBlocksAhead();
+    }
+
+    /**
+     * Divides padded intervals into blocks of up to blockSize bases, splitting large intervals into blocks that overlap
+     * by padding bases and merging nearby intervals on the same contig
+     */
+    @VisibleForTesting
+    static List<SimpleInterval> makeBlocks(final List<SimpleInterval> intervals, final int padding, final int blockSize) {
+        final List<SimpleInterval> blocks = new ArrayList<>();
+        for (final SimpleInterval interval : intervals) {
+            final int paddedStart = Math.max(1, interval.getStart() - padding);
+            final int paddedEnd = Math.addExact(interval.getEnd(), padding);
+            for (int start = paddedStart; ; start += blockSize - padding) {
+                final int end = (int) Math.min((long) start + blockSize - 1, paddedEnd);
+                final SimpleInterval last = blocks.isEmpty() ? null : blocks.get(blocks.size() - 1);
+                if (last != null && last.getContig().equals(interval.getContig()) && start >= last.getStart() &&
+                        (long) Math.max(last.getEnd(), end) - last.getStart() + 1 <= blockSize) {
+                    blocks.set(blocks.size() - 1, new SimpleInterval(last.getContig(), last.getStart(), Math.max(last.getEnd(), end)));
+                } else {
+                    blocks.add(new SimpleInterval(interval.getContig(), start, end));
+                }
+                if (end == paddedEnd) {
+                    break;
+                }
+            }
+        }
+        return blocks;
+    }
+
+    /**
+     * @return number of blocks into which the traversal intervals were divided
+     */
+    public int getNumBlocks() {
+        return blocks.size();
+    }
+
+    /**
+     * @return Number of queries answered from a prefetched block
+     */
+    public int getNumCacheHits() {
+        return numCacheHits;
+    }
+
+    /**
+     * @return Number of queries that were not within a prefetched block
+     */
+    public int getNumCacheMisses() {
+        return numCacheMisses;
+    }
+
+    /**
+     * @return Number of times a query had to wait for the background thread to finish fetching its block
+     */
+    public int getNumWaits() {
+        return numWaits;
+    }
+
+    /**
+     * Returns the Features overlapping a query interval if it is within the current block or an upcoming one, moving
+     * on to the block containing it (and discarding the blocks before it).
+     *
+     * @param interval the query interval
+     * @return all Features overlapping the interval, or null if the interval is not within a prefetched block
+     */
+    public List<CACHED_FEATURE> getFeatures(final SimpleInterval interval) {
+        if (currentBlock == null || !currentBlock.getInterval().contains(interval)) {
+            final Integer queryContigOrder = contigOrder.get(interval.getContig());
+            // discard the blocks that can't contain this query or any later one
+            while (queryContigOrder != null && nextBlock < blocks.size() && isBefore(blocks.get(nextBlock), interval, queryContigOrder)) {
+                skipBlock();
+            }
+            if (queryContigOrder == null || nextBlock == blocks.size() || !blocks.get(nextBlock).contains(interval)) {
+                ++numCacheMisses;
+                return null;
+            }
+            currentBlock = takeBlock();
+        }
+        ++numCacheHits;
+        return currentBlock.getOverlappingFeatures(interval);
+    }
+
+    private boolean isBefore(final SimpleInterval block, final SimpleInterval query, final int queryContigOrder) {
+        final int blockContigOrder = contigOrder.get(block.getContig());
+        return blockContigOrder < queryContigOrder || (blockContigOrder == queryContigOrder && block.getEnd() < query.getEnd());
+    }
+
+    private void skipBlock() {
+        // not interrupting the background thread, which could close the channels of its reader
+        pendingBlocks.removeFirst().cancel(false);
+        nextBlock++;
+        submitBlocksAhead();
+    }
+
+    private FeatureBlock<CACHED_FEATURE> takeBlock() {
+        final Future<FeatureBlock<CACHED_FEATURE>> future = pendingBlocks.removeFirst();
+        if (!future.isDone()) {
+            ++numWaits;
+        }
+        nextBlock++;
+        submitBlocksAhead();
+        try {
+            return future.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GATKException("Interrupted while prefetching features from " + sourceName, e);
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new GATKException("Error prefetching features from " + sourceName, e.getCause());
+        }
+    }
+
+    private void submitBlocksAhead() {
+        while (nextBlockToSubmit < blocks.size() && nextBlockToSubmit < nextBlock + BLOCKS_AHEAD) {
+            final SimpleInterval block = blocks.get(nextBlockToSubmit++);
+            pendingBlocks.addLast(executor.submit(() -> fetchBlock(block)));
+        }
+    }
+
+    // runs on the background thread, which is the only one using the reader
+    private FeatureBlock<CACHED_FEATURE> fetchBlock(final SimpleInterval block) throws IOException {
+        try (final CloseableTribbleIterator<CACHED_FEATURE> features = reader.query(block.getContig(), block.getStart(), block.getEnd())) {
+            return new FeatureBlock<>(block, features);
+        }
+    }
+
+    /**
+     * Print statistics about the cache hit rate for debugging.
+     */
+    public void printCacheStatistics() {
+        final int totalQueries = numCacheHits + numCacheMisses;
+        logger.debug(String.format("Prefetching cache hit rate for data source %s was %.2f%% (%d out of %d total queries, %d blocks of %d waited for)",
+                sourceName,
+                totalQueries > 0 ? ((double) numCacheHits / totalQueries) * 100.0 : 0.0,
+                numCacheHits,
+                totalQueries,
+                numWaits,
+                blocks.size()));
+    }
+
+    /**
+     * Stop the background thread and close its reader
+     */
+    @Override
+    public void close() {
+        // as in skipBlock, the background thread is not interrupted: the blocks not yet started are cancelled, and the
+        // one being fetched, if any, is left to finish
+        while (!pendingBlocks.isEmpty()) {
+            pendingBlocks.removeFirst().cancel(false);
+        }
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                logger.warn("Timed out waiting for the prefetching of features from " + sourceName + " to stop");
+            }
+            reader.close();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (final IOException e) {
+            throw new GATKException("Error closing Feature reader for input " + sourceName, e);
+        }
+    }
+
+    /**
+     * The Features overlapping a block, in the order of the file (that is, by increasing start position), with their
+     * start positions and the maximum end position of the Features up to each one, which is non-decreasing and so
+     * allows finding the first Feature that may overlap a query by binary search.
+     */
+    @VisibleForTesting
+    static final class FeatureBlock<T extends Feature> {
+        private final SimpleInterval interval;
+        private final List<T> features;
+        private final int[] starts;
+        private final int[] ends;
+        private final int[] maxEnds;
+
+        FeatureBlock(final SimpleInterval interval, final Iterator<T> featureIter) {
+            this.interval = interval;
+            final List<T> featureList = new ArrayList<>();
+            featureIter.forEachRemaining(featureList::add);
+            this.features = Collections.unmodifiableList(featureList);
+            this.starts = new int[featureList.size()];
+            this.ends = new int[featureList.size()];
+            this.maxEnds = new int[featureList.size()];
+            int maxEnd = Integer.MIN_VALUE;
+            for (int i = 0; i < featureList.size(); i++) {
+                starts[i] = featureList.get(i).getStart();
+                ends[i] = featureList.get(i).getEnd();
+                maxEnd = Math.max(maxEnd, ends[i]);
+                maxEnds[i] = maxEnd;
+            }
+        }
+
+        SimpleInterval getInterval() {
+            return interval;
+        }
+
+        /**
+         * @return the Features of the block overlapping an interval within it, in the order of the file
+         */
+        List<T> getOverlappingFeatures(final SimpleInterval query) {
+            // index of the first Feature whose end, or that of a Feature before it, is at or after the query start
+            int first = Arrays.binarySearch(maxEnds, query.getStart());
+            if (first < 0) {
+                first = -first - 1;
+            } else {
+                while (first > 0 && maxEnds[first - 1] == query.getStart()) {
+                    first--;
+                }
+            }
+
+            final List<T> overlapping = new ArrayList<>();
+            for (int i = first; i < starts.length && starts[i] <= query.getEnd(); i++) {
+                if (ends[i] >= query.getStart()) {
+                    overlapping.add(features.get(i));
+                }
+            }
+            return overlapping;
+        }
+    }
+}
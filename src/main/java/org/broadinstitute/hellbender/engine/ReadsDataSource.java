@@ -1,6 +1,7 @@
 package org.broadinstitute.hellbender.engine;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import htsjdk.samtools.*;
 import htsjdk.samtools.util.CloseableIterator;
 import htsjdk.samtools.util.IOUtil;
@@ -14,6 +15,7 @@ import org.broadinstitute.hellbender.exceptions.GATKException;
 import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.gcs.BucketUtils;
+import org.broadinstitute.hellbender.utils.iterators.ReadAheadDecodingIterator;
 import org.broadinstitute.hellbender.utils.iterators.SAMRecordToReadIterator;
 import org.broadinstitute.hellbender.utils.iterators.SamReaderQueryingIterator;
 import org.broadinstitute.hellbender.utils.nio.SeekableByteChannelPrefetcher;
@@ -23,6 +25,8 @@ import org.broadinstitute.hellbender.utils.read.ReadConstants;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 
 /**
@@ -36,6 +40,11 @@ import java.util.stream.Collectors;
 public final class ReadsDataSource implements GATKDataSource<GATKRead>, AutoCloseable {
     protected static final Logger logger = LogManager.getLogger(ReadsDataSource.class);
 
+    /**
+     * Number of records decoded together by each decoding thread, when reading ahead
+     */
+    private static final int READ_AHEAD_BATCH_SIZE = 1000;
+
     /**
      * Mapping from SamReaders to iterators over the reads from each reader. Only one
      * iterator can be open from a given reader at a time (this is a restriction
@@ -78,6 +87,23 @@ public final class ReadsDataSource implements GATKDataSource<GATKRead>, AutoClos
      */
     private boolean indicesAvailable;
 
+    /**
+     * Number of threads decoding the reads of traversals initiated via {@link #iterator} ahead of the caller,
+     * or 0 to decode them on the caller's thread.
+     */
+    private int decodingThreads = 0;
+
+    /**
+     * The decoding threads, created on the first traversal that reads ahead. Null if none was started.
+     */
+    private ExecutorService decodingExecutor = null;
+
+    /**
+     * The read-ahead of the current traversal, if any. It must be closed before the iterators of the readers, since
+     * it uses them on another thread.
+     */
+    private ReadAheadDecodingIterator readAheadIterator = null;
+
     /**
      * Initialize this data source with a single SAM/BAM file and validation stringency SILENT.
      *
@@ -298,6 +324,21 @@ public final class ReadsDataSource implements GATKDataSource<GATKRead>, AutoClos
         }
     }
 
+    /**
+     * Decode the reads of traversals initiated via {@link #iterator} ahead of the caller, on other threads: the
+     * records are read from the inputs on a background thread, and decoded in batches by {@code numThreads} threads,
+     * so that the caller does not wait for the decoding of the input. Reads are returned in the same order.
+     *
+     * Calls to {@link #query} are not affected by this method, since reading ahead does not pay off for the small
+     * queries they are typically used for.
+     *
+     * @param numThreads number of decoding threads, or 0 to decode the reads on the caller's thread (the default)
+     */
+    public void setDecodingThreads( final int numThreads ) {
+        Utils.validateArg(numThreads >= 0, "numThreads must be >= 0");
+        this.decodingThreads = numThreads;
+    }
+
     /**
      * @return True if traversals initiated via {@link #iterator} will be restricted to reads that overlap intervals
      *         as configured via {@link #setTraversalBounds}, otherwise false
@@ -327,7 +368,19 @@ public final class ReadsDataSource implements GATKDataSource<GATKRead>, AutoClos
     @Override
     public Iterator<GATKRead> iterator() {
         logger.debug("Preparing readers for traversal");
-        return prepareIteratorsForTraversal(intervalsForTraversal, traverseUnmapped);
+        final Iterator<SAMRecord> records = prepareRecordIteratorsForTraversal(intervalsForTraversal, traverseUnmapped);
+        if ( decodingThreads == 0 ) {
+            return new SAMRecordToReadIterator(records);
+        }
+
+        if ( decodingExecutor == null ) {
+            decodingExecutor = Executors.newFixedThreadPool(decodingThreads, new ThreadFactoryBuilder()
+                    .setNameFormat("read-decoding-%d")
+                    .setDaemon(true)
+                    .build());
+        }
+        readAheadIterator = new ReadAheadDecodingIterator(records, decodingExecutor, READ_AHEAD_BATCH_SIZE, 2 * decodingThreads);
+        return readAheadIterator;
     }
 
     /**
@@ -388,6 +441,16 @@ public final class ReadsDataSource implements GATKDataSource<GATKRead>, AutoClos
      * @return Iterator over all reads in this data source, limited to overlap with the supplied intervals
      */
     private Iterator<GATKRead> prepareIteratorsForTraversal( final List<SimpleInterval> queryIntervals, final boolean queryUnmapped ) {
+        return new SAMRecordToReadIterator(prepareRecordIteratorsForTraversal(queryIntervals, queryUnmapped));
+    }
+
+    /**
+     * Prepare iterators over all readers in response to a request for a complete iteration or query
+     *
+     * @param queryIntervals Intervals to bound the iteration (reads must overlap one of these intervals). If null, iteration is unbounded.
+     * @return Iterator over all records in this data source, limited to overlap with the supplied intervals
+     */
+    private Iterator<SAMRecord> prepareRecordIteratorsForTraversal( final List<SimpleInterval> queryIntervals, final boolean queryUnmapped ) {
         // htsjdk requires that only one iterator be open at a time per reader, so close out
         // any previous iterations
         closePreviousIterationsIfNecessary();
@@ -421,7 +484,7 @@ public final class ReadsDataSource implements GATKDataSource<GATKRead>, AutoClos
             startingIterator = new MergingSamRecordIterator(headerMerger, readers, true);
         }
 
-        return new SAMRecordToReadIterator(startingIterator);
+        return startingIterator;
     }
 
     /**
@@ -472,6 +535,9 @@ public final class ReadsDataSource implements GATKDataSource<GATKRead>, AutoClos
     @Override
     public void close() {
         closePreviousIterationsIfNecessary();
+        if ( decodingExecutor != null ) {
+            decodingExecutor.shutdownNow();
+        }
 
         try {
             for ( Map.Entry<SamReader, CloseableIterator<SAMRecord>> readerEntry : readers.entrySet() ) {
@@ -487,6 +553,10 @@ public final class ReadsDataSource implements GATKDataSource<GATKRead>, AutoClos
      * Close any previously-opened iterations over our readers (htsjdk allows only one open iteration per reader).
      */
     private void closePreviousIterationsIfNecessary() {
+        if ( readAheadIterator != null ) {
+            readAheadIterator.close();
+            readAheadIterator = null;
+        }
         for ( Map.Entry<SamReader, CloseableIterator<SAMRecord>> readerEntry : readers.entrySet() ) {
             CloseableIterator<SAMRecord> readerIterator = readerEntry.getValue();
             if ( readerIterator != null ) {
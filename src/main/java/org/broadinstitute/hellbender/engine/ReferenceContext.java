@@ -1,12 +1,12 @@
 package org.broadinstitute.hellbender.engine;
 
 import htsjdk.samtools.SAMSequenceRecord;
-import htsjdk.samtools.reference.ReferenceSequence;
 import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.exceptions.GATKException;
 import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.iterators.ByteArrayIterator;
+import org.broadinstitute.hellbender.utils.reference.ReferenceBasesView;
 
 import java.util.Arrays;
 import java.util.Iterator;
@@ -50,10 +50,16 @@ public final class ReferenceContext implements Iterable<Byte> {
     private SimpleInterval window;
 
     /**
-     * Reference bases spanning this interval/window if a query has been performed. Null if we haven't been queried yet.
+     * View of the reference bases spanning this interval/window if a query has been performed. Null if we haven't been
+     * queried yet. Cache is cleared if the window size changes between queries.
+     */
+    private ReferenceBasesView cachedBasesView;
+
+    /**
+     * Copy of the bases of {@link #cachedBasesView} returned by {@link #getBases()}, made the first time it is called.
      * Cache is cleared if the window size changes between queries.
      */
-    private ReferenceSequence cachedSequence;
+    private byte[] cachedBases;
 
 
     /**
@@ -88,7 +94,6 @@ public final class ReferenceContext implements Iterable<Byte> {
      */
     public ReferenceContext( final ReferenceDataSource dataSource, final SimpleInterval interval, final int windowLeadingBases, final int windowTrailingBases ) {
         this.dataSource = dataSource;
-        this.cachedSequence = null;
         this.interval = interval;
         setWindow(windowLeadingBases, windowTrailingBases);
     }
@@ -103,7 +108,6 @@ public final class ReferenceContext implements Iterable<Byte> {
      */
     public ReferenceContext( final ReferenceContext thatContext, final SimpleInterval interval ) {
         this.dataSource = thatContext.dataSource;
-        this.cachedSequence = null;
         this.interval = interval;
 
         // Determine the window:
@@ -127,7 +131,6 @@ public final class ReferenceContext implements Iterable<Byte> {
      */
     public ReferenceContext( final ReferenceDataSource dataSource, final SimpleInterval interval, final SimpleInterval window ) {
         this.dataSource = dataSource;
-        this.cachedSequence = null;
         this.interval = interval;
         Utils.validateArg(interval != null || window == null, () -> "if interval is null then window must be null too but was " + window);
         Utils.validateArg( interval == null || window == null || window.contains(interval), () ->
@@ -165,7 +168,29 @@ public final class ReferenceContext implements Iterable<Byte> {
      */
     @Override
     public Iterator<Byte> iterator() {
-        return dataSource != null && window != null ? dataSource.query(window) : new ByteArrayIterator(new byte[0]);
+        return dataSource != null && window != null ? getBasesView().iterator() : new ByteArrayIterator(new byte[0]);
+    }
+
+    /**
+     * Get a read-only view of all reference bases in this context, without copying them. The view is cached in this
+     * object for future queries. Prefer this to {@link #getBases()} when the bases are only read, for instance one
+     * at a time in a loop. Will return an empty view if there is no backing data source and/or interval to query.
+     *
+     * Call {@link #setWindow} before calling this method if you want to configure the amount of extra reference context
+     * to include around the current interval
+     *
+     * @return view of the reference bases in this context
+     */
+    public ReferenceBasesView getBasesView() {
+        if ( dataSource == null || window == null ) {
+            return new ReferenceBasesView(interval == null ? "" : interval.getContig(), 1, new byte[0], 0, 0);
+        }
+
+        // Only perform a query if we haven't fetched the bases in this context previously
+        if ( cachedBasesView == null ) {
+            cachedBasesView = dataSource.queryBases(window);
+        }
+        return cachedBasesView;
     }
 
     /**
@@ -182,11 +207,11 @@ public final class ReferenceContext implements Iterable<Byte> {
             return new byte[0];
         }
 
-        // Only perform a query if we haven't fetched the bases in this context previously
-        if ( cachedSequence == null ) {
-            cachedSequence = dataSource.queryAndPrefetch(window);
+        // Only copy the bases if we haven't returned them previously
+        if ( cachedBases == null ) {
+            cachedBases = getBasesView().getBases();
         }
-        return cachedSequence.getBases();
+        return cachedBases;
     }
 
     /**
@@ -200,6 +225,20 @@ public final class ReferenceContext implements Iterable<Byte> {
         if ( dataSource == null || window == null ) {
             return new byte[0];
         }
+        return getBasesView(window).getBases();
+    }
+
+    /**
+     * Get a read-only view of all reference bases in this context with the given window, without copying them.
+     * Does not cache results or modify this {@link ReferenceContext} at all.
+     * Will always return an empty view if there is no backing data source and/or interval to query.
+     *
+     * @return view of the reference bases in the window
+     */
+    public ReferenceBasesView getBasesView(final SimpleInterval window) {
+        if ( dataSource == null || window == null ) {
+            return new ReferenceBasesView(window == null ? "" : window.getContig(), 1, new byte[0], 0, 0);
+        }
 
         // Trim to the contig start/end:
         final SimpleInterval trimmedWindow = new SimpleInterval(
@@ -208,7 +247,7 @@ public final class ReferenceContext implements Iterable<Byte> {
                 trimToContigLength(window.getContig(), window.getEnd())
         );
 
-        return dataSource.queryAndPrefetch(trimmedWindow).getBases();
+        return dataSource.queryBases(trimmedWindow);
     }
 
     /**
@@ -231,16 +270,16 @@ public final class ReferenceContext implements Iterable<Byte> {
                 trimToContigLength(window.getContig(), window.getEnd() + windowTrailingBases)
         );
 
-        return dataSource.queryAndPrefetch(trimmedWindow).getBases();
+        return dataSource.queryBases(trimmedWindow).getBases();
     }
 
     /**
      * Get the bases in this context, from the beginning of the interval to the end of the window.
      */
     public byte[] getForwardBases() {
-        final byte[] bases = getBases();
+        final ReferenceBasesView bases = getBasesView();
         final int mid = interval.getStart() - window.getStart();
-        return new String(bases).substring(mid).getBytes();
+        return bases.subView(mid, bases.length()).getBases();
     }
 
 
@@ -303,7 +342,8 @@ public final class ReferenceContext implements Iterable<Byte> {
         }
 
         // Changing the window size invalidates our cached query result
-        cachedSequence = null;
+        cachedBasesView = null;
+        cachedBases = null;
     }
 
     /**
@@ -393,7 +433,7 @@ public final class ReferenceContext implements Iterable<Byte> {
      * @return The base at the given locus from the reference.
      */
     public byte getBase() {
-        return getBases()[interval.getStart() - window.getStart()];
+        return getBasesView().get(interval.getStart() - window.getStart());
     }
 
     /**
@@ -413,6 +453,6 @@ public final class ReferenceContext implements Iterable<Byte> {
             return null;
         }
 
-        return new String(getBases(newWindow));
+        return getBasesView(newWindow).getBaseString();
     }
 }
@@ -3,8 +3,8 @@ package org.broadinstitute.hellbender.engine;
 import htsjdk.samtools.SAMSequenceDictionary;
 import htsjdk.samtools.reference.ReferenceSequence;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
-import org.broadinstitute.hellbender.utils.iterators.ByteArrayIterator;
 import org.broadinstitute.hellbender.utils.reference.ReferenceBases;
+import org.broadinstitute.hellbender.utils.reference.ReferenceBasesView;
 
 import java.nio.file.Path;
 import java.util.Iterator;
@@ -43,6 +43,31 @@ public interface ReferenceDataSource extends GATKDataSource<Byte>, AutoCloseable
         return new ReferenceFileSource(fastaPath, preserveAmbiguityCodesAndCapitalization);
     }
 
+    /**
+     * Initialize this data source by memory-mapping the bases of a fasta file, so that it may be shared by
+     * multiple threads without locking. See {@link MemoryMappedReferenceSource}.
+     *
+     * The provided fasta file must have companion .fai and .dict files.
+     *
+     * @param fastaPath reference fasta Path
+     */
+    public static ReferenceDataSource ofMemoryMapped(final Path fastaPath) {
+        return new MemoryMappedReferenceSource(fastaPath);
+    }
+
+    /**
+     * Initialize this data source by memory-mapping the bases of a fasta file, held in the given cache file.
+     * See {@link MemoryMappedReferenceSource}.
+     *
+     * The provided fasta file must have companion .fai and .dict files.
+     *
+     * @param fastaPath reference fasta Path
+     * @param cachePath local cache file of the bases of the fasta, built if needed, or null for the default location
+     */
+    public static ReferenceDataSource ofMemoryMapped(final Path fastaPath, final Path cachePath) {
+        return cachePath == null ? new MemoryMappedReferenceSource(fastaPath) : new MemoryMappedReferenceSource(fastaPath, cachePath);
+    }
+
     /**
      * Initialize this data source using ReferenceBases and corresponding sequence dictionary.
      */
@@ -76,6 +101,35 @@ public interface ReferenceDataSource extends GATKDataSource<Byte>, AutoCloseable
      */
     public ReferenceSequence queryAndPrefetch(final String contig, final long start , final long stop);
 
+    /**
+     * Query a specific interval on this reference, and get back a read-only view of the bases spanning that interval.
+     * Unlike {@link #queryAndPrefetch}, implementations may return a view over bases they already hold in memory,
+     * without copying them, so this is the preferred way to access the reference in hot loops.
+     *
+     * The default implementation calls #queryBases(contig, start, stop).
+     *
+     * @param interval query interval
+     * @return a view of the bases spanning the query interval
+     */
+    default public ReferenceBasesView queryBases( final SimpleInterval interval ) {
+        return queryBases(interval.getContig(), interval.getStart(), interval.getEnd());
+    }
+
+    /**
+     * Query a specific interval on this reference, and get back a read-only view of the bases spanning that interval.
+     *
+     * The default implementation calls #queryAndPrefetch(contig, start, stop), and so copies the bases.
+     *
+     * @param contig query interval contig
+     * @param start query interval start
+     * @param stop query interval stop
+     * @return a view of the bases spanning the query interval
+     */
+    default public ReferenceBasesView queryBases( final String contig, final long start, final long stop ) {
+        final byte[] bases = queryAndPrefetch(contig, start, stop).getBases();
+        return new ReferenceBasesView(contig, (int)start, bases, 0, bases.length);
+    }
+
     /**
       * Query a specific interval on this reference, and get back an iterator over the bases spanning that interval.
       *
@@ -87,7 +141,7 @@ public interface ReferenceDataSource extends GATKDataSource<Byte>, AutoCloseable
     @Override
     default public Iterator<Byte> query(final SimpleInterval interval) {
         // TODO: need a way to iterate lazily over reference bases without necessarily loading them all into memory at once
-        return new ByteArrayIterator(queryAndPrefetch(interval).getBases());
+        return queryBases(interval).iterator();
     }
 
     /**
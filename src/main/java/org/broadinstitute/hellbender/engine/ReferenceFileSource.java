@@ -4,6 +4,7 @@ import htsjdk.samtools.SAMSequenceDictionary;
 import htsjdk.samtools.reference.ReferenceSequence;
 import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.fasta.CachingIndexedFastaSequenceFile;
+import org.broadinstitute.hellbender.utils.reference.ReferenceBasesView;
 
 import java.nio.file.Path;
 import java.util.Iterator;
@@ -13,6 +14,9 @@ import java.util.Iterator;
  *
  * Supports targeted queries over the reference by interval, but does not
  * yet support complete iteration over the entire reference.
+ *
+ * Queries are synchronized, so a single instance may be shared by multiple threads
+ * (eg., during multi-threaded assembly region traversal).
  */
 public final class ReferenceFileSource implements ReferenceDataSource {
 
@@ -74,11 +78,25 @@ public final class ReferenceFileSource implements ReferenceDataSource {
      * @return a ReferenceSequence containing all bases spanning the query interval, prefetched
      */
     @Override
-    public ReferenceSequence queryAndPrefetch( final String contig, final long start , final long stop) {
+    public synchronized ReferenceSequence queryAndPrefetch( final String contig, final long start , final long stop) {
         return reference.getSubsequenceAt(contig, start, stop);
     }
 
 
+    /**
+     * Query a specific interval on this reference, and get back a read-only view of the bases spanning that interval,
+     * over the cache of the reference file when the interval fits in it.
+     *
+     * @param contig query interval contig
+     * @param start query interval start
+     * @param stop query interval stop
+     * @return a view of the bases spanning the query interval
+     */
+    @Override
+    public synchronized ReferenceBasesView queryBases( final String contig, final long start , final long stop) {
+        return reference.getSubsequenceView(contig, start, stop);
+    }
+
     /**
      * Get the sequence dictionary for this reference
      *
@@ -8,6 +8,7 @@ import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.fasta.CachingIndexedFastaSequenceFile;
 import org.broadinstitute.hellbender.utils.iterators.ByteArrayIterator;
 import org.broadinstitute.hellbender.utils.reference.ReferenceBases;
+import org.broadinstitute.hellbender.utils.reference.ReferenceBasesView;
 
 import java.io.File;
 import java.io.IOException;
@@ -102,6 +103,26 @@ public final class ReferenceMemorySource implements ReferenceDataSource {
     }
 
 
+    /**
+     * Query a specific interval on this reference, and get back a read-only view of the bases spanning that interval,
+     * without copying them.
+     *
+     * @param contig query interval contig
+     * @param start query interval start
+     * @param stop query interval stop (included)
+     * @return a view of the bases spanning the query interval
+     */
+    @Override
+    public ReferenceBasesView queryBases( final String contig, final long start , final long stop) {
+        final int startIndex = (int)(start - bases.getInterval().getStart());
+        final int length = (int)(stop - start + 1);
+        final byte[] basesBytes = bases.getBases();
+        Utils.validIndex(startIndex, basesBytes.length);
+        Utils.validateArg(startIndex+length <= basesBytes.length, () -> String.format("Asking for stop %d on contig %s but the ReferenceData only has data until %d.", stop, contig, bases.getInterval().getEnd()));
+        Utils.validateArg(length >= 0, () -> String.format("Asking for stop<start (%d < %d)", stop, start));
+        return new ReferenceBasesView(contig, (int)start, basesBytes, startIndex, length);
+    }
+
     /**
      * Get the sequence dictionary for this reference
      *
@@ -6,8 +6,13 @@ import htsjdk.samtools.SAMFileHeader;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
 import org.broadinstitute.hellbender.utils.Utils;
 
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.function.Predicate;
+import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 /**
@@ -60,8 +65,34 @@ public class CountingReadFilter extends ReadFilter {
         return compositeFilter;
     }
 
-    // Used only by the nested CountingBinopReadFilter subclass and its derivatives, which must
-    // override the test method with an implementation that does not depend on delegateFilter.
+    /**
+     * Return a composite (and) {@code CountingReadFilter} constructed from a list of
+     * {@link org.broadinstitute.hellbender.engine.filters.ReadFilter}, as {@link #fromList}, which also records the
+     * time spent evaluating each filter and the fraction of the reads it rejects. These statistics are reported by
+     * {@link #getSummaryLine()}, after the filter counts.
+     *
+     * When {@code reorderFilters} is true, the filters are periodically reordered during traversal so that those
+     * rejecting the most reads per unit of evaluation time are tested first. Filters that others may rely on to have
+     * rejected malformed reads (such as {@link WellformedReadFilter}, {@link ReadFilterLibrary.MappedReadFilter} and
+     * {@link ReadFilterLibrary.HasReadGroupReadFilter}) stay where they are, and the other filters are only reordered
+     * among those between the same guard filters, so the reads accepted are the same in any order. The counts of the
+     * individual filters reflect the order in which they were evaluated.
+     * @param readFilters If null or empty, the ALLOW_ALL_READS read filter will be returned
+     * @param samHeader {@code SAMFileHeader} used to initialize each filter. May not be null
+     * @param reorderFilters whether to reorder the filters according to their cost and selectivity
+     * @return Composite CountingReadFilter
+     */
+    public static CountingReadFilter fromListWithStatistics(final List<ReadFilter> readFilters, final SAMFileHeader samHeader, final boolean reorderFilters) {
+        Utils.nonNull(samHeader, "SAMFileHeader must not be null");
+        if (readFilters == null || readFilters.isEmpty()) {
+            return new CountingReadFilter(ReadFilterLibrary.ALLOW_ALL_READS);
+        }
+        readFilters.forEach(f -> f.setHeader(samHeader));
+        return new ProfilingAndReadFilter(readFilters, reorderFilters);
+    }
+
+    // Used only by the nested CountingBinopReadFilter and ProfilingAndReadFilter subclasses and their derivatives,
+    // which must override the test method with an implementation that does not depend on delegateFilter.
     private CountingReadFilter() {
         delegateFilter = null;
     }
@@ -250,4 +281,151 @@ public class CountingReadFilter extends ReadFilter {
             return "(" + lhs.getName() + " OR " + rhs.getName() + ")";
         }
     }
+
+    /**
+     * Private class for Counting AND filters over a list of filters, which records the number of reads evaluated
+     * and the time spent by each filter, and optionally reorders them by cost per rejected read.
+     */
+    @VisibleForTesting
+    protected static final class ProfilingAndReadFilter extends CountingReadFilter {
+
+        private static final long serialVersionUID = 1L;
+
+        // number of reads tested between two reorderings of the filters
+        @VisibleForTesting
+        static final int REORDER_INTERVAL = 10_000;
+
+        // filters that later filters may rely on, e.g. to only see mapped reads or reads with a read group, and that
+        // are therefore never reordered: other filters are only reordered within the runs between these
+        private static final Set<Class<? extends ReadFilter>> GUARD_FILTERS = new HashSet<>(Arrays.asList(
+                WellformedReadFilter.class,
+                ReadFilterLibrary.MappedReadFilter.class,
+                ReadFilterLibrary.HasReadGroupReadFilter.class,
+                ReadFilterLibrary.ValidAlignmentStartReadFilter.class,
+                ReadFilterLibrary.ValidAlignmentEndReadFilter.class,
+                AlignmentAgreesWithHeaderReadFilter.class,
+                ReadFilterLibrary.SeqIsStoredReadFilter.class,
+                ReadFilterLibrary.MatchingBasesAndQualsReadFilter.class,
+                ReadFilterLibrary.ReadLengthEqualsCigarLengthReadFilter.class));
+
+        // filters in evaluation order, with their statistics at the same indices
+        private final CountingReadFilter[] filters;
+        private final long[] evaluatedCounts;
+        private final long[] evaluationNanos;
+        private final boolean reorderFilters;
+        private long readsSinceReordering = 0;
+
+        private ProfilingAndReadFilter(final List<ReadFilter> readFilters, final boolean reorderFilters) {
+            Utils.nonEmpty(readFilters);
+            this.filters = readFilters.stream().map(CountingReadFilter::new).toArray(CountingReadFilter[]::new);
+            this.evaluatedCounts = new long[filters.length];
+            this.evaluationNanos = new long[filters.length];
+            this.reorderFilters = reorderFilters;
+        }
+
+        @Override
+        public boolean test(final GATKRead read) {
+            if (reorderFilters && ++readsSinceReordering == REORDER_INTERVAL) {
+                reorder();
+                readsSinceReordering = 0;
+            }
+            for (int i = 0; i < filters.length; i++) {
+                final long start = System.nanoTime();
+                final boolean accept = filters[i].test(read);
+                evaluationNanos[i] += System.nanoTime() - start;
+                evaluatedCounts[i]++;
+                if (!accept) {
+                    filteredCount++;
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Sorts each run of filters between two guard filters (see {@link #GUARD_FILTERS}) by increasing cost per
+         * rejected read, the order that minimizes the expected cost of testing a read for independent filters. Guard
+         * filters keep their positions, and filters that haven't rejected any read yet are tested last in their run,
+         * in their current order.
+         */
+        private void reorder() {
+            final Integer[] order = new Integer[filters.length];
+            Arrays.setAll(order, i -> i);
+            int runStart = 0;
+            for (int i = 0; i <= filters.length; i++) {
+                if (i == filters.length || isGuard(filters[i])) {
+                    Arrays.sort(order, runStart, i, Comparator.comparingDouble(this::getCostPerRejectedRead));
+                    runStart = i + 1;
+                }
+            }
+
+            final CountingReadFilter[] sortedFilters = new CountingReadFilter[filters.length];
+            final long[] sortedEvaluatedCounts = new long[filters.length];
+            final long[] sortedEvaluationNanos = new long[filters.length];
+            for (int i = 0; i < filters.length; i++) {
+                sortedFilters[i] = filters[order[i]];
+                sortedEvaluatedCounts[i] = evaluatedCounts[order[i]];
+                sortedEvaluationNanos[i] = evaluationNanos[order[i]];
+            }
+            System.arraycopy(sortedFilters, 0, filters, 0, filters.length);
+            System.arraycopy(sortedEvaluatedCounts, 0, evaluatedCounts, 0, filters.length);
+            System.arraycopy(sortedEvaluationNanos, 0, evaluationNanos, 0, filters.length);
+        }
+
+        private static boolean isGuard(final CountingReadFilter filter) {
+            return GUARD_FILTERS.contains(filter.delegateFilter.getClass());
+        }
+
+        private double getCostPerRejectedRead(final int i) {
+            final long rejectedCount = filters[i].getFilteredCount();
+            return rejectedCount == 0 ? Double.POSITIVE_INFINITY : (double) evaluationNanos[i] / rejectedCount;
+        }
+
+        // Returns the names of the filters, in the order in which they are currently evaluated
+        @VisibleForTesting
+        List<String> getFilterNames() {
+            return Arrays.stream(filters).map(CountingReadFilter::getName).collect(Collectors.toList());
+        }
+
+        @Override
+        public String getName() {
+            return Arrays.stream(filters).map(CountingReadFilter::getName).collect(Collectors.joining(" AND ", "(", ")"));
+        }
+
+        @Override
+        protected String getSummaryLineForLevel(final int indentLevel) {
+            final String indent = getIndentString(indentLevel);
+            final StringBuilder summary = new StringBuilder();
+            if (0 == filteredCount) {
+                summary.append("No reads filtered by: ").append(getName()).append("\n");
+            } else {
+                summary.append(indent).append(filteredCount).append(" read(s) filtered by: ").append(getName()).append("\n");
+                for (final CountingReadFilter filter : filters) {
+                    if (filter.getFilteredCount() > 0) {
+                        summary.append(indent).append(filter.getSummaryLineForLevel(indentLevel + 1));
+                    }
+                }
+            }
+            summary.append(indent).append("Read filter statistics, in evaluation order:\n");
+            for (int i = 0; i < filters.length; i++) {
+                final long rejectedCount = filters[i].getFilteredCount();
+                summary.append(String.format("%s  %s: %d read(s) tested, %d rejected (%.2f%%), %.1f ns per read\n",
+                        indent, filters[i].getName(), evaluatedCounts[i], rejectedCount,
+                        evaluatedCounts[i] == 0 ? 0.0 : 100.0 * rejectedCount / evaluatedCounts[i],
+                        evaluatedCounts[i] == 0 ? 0.0 : (double) evaluationNanos[i] / evaluatedCounts[i]));
+            }
+            return summary.toString();
+        }
+
+        @Override
+        public void resetFilteredCount() {
+            super.resetFilteredCount();
+            for (final CountingReadFilter filter : filters) {
+                filter.resetFilteredCount();
+            }
+            Arrays.fill(evaluatedCounts, 0);
+            Arrays.fill(evaluationNanos, 0);
+            readsSinceReordering = 0;
+        }
+    }
 }
@@ -25,20 +25,21 @@ public final class BaseRecalibratorSparkFn {
      * @return the recalibration report object
      */
     public static RecalibrationReport apply(final JavaPairRDD<GATKRead, Iterable<GATKVariant>> readsWithVariants, final SAMFileHeader header, final String referenceFileName, final RecalibrationArgumentCollection recalArgs) {
-        JavaRDD<RecalibrationTables> unmergedTables = readsWithVariants.mapPartitions(readsWithVariantsIterator -> {
+        // aggregate the statistics in the compact form in which they are collected, which is much cheaper to serialize
+        JavaRDD<DenseRecalibrationTables> unmergedTables = readsWithVariants.mapPartitions(readsWithVariantsIterator -> {
             String pathOnExecutor = SparkFiles.get(referenceFileName);
             ReferenceDataSource referenceDataSource = new ReferenceFileSource(IOUtils.getPath(pathOnExecutor));
             final BaseRecalibrationEngine bqsr = new BaseRecalibrationEngine(recalArgs, header);
             bqsr.logCovariatesUsed();
             Utils.stream(readsWithVariantsIterator).forEach(t -> bqsr.processRead(t._1, referenceDataSource, t._2));
-            return Iterators.singletonIterator(bqsr.getRecalibrationTables());
+            return Iterators.singletonIterator(bqsr.getDenseRecalibrationTables());
         });
 
-        final RecalibrationTables emptyRecalibrationTable = new RecalibrationTables(new StandardCovariateList(recalArgs, header));
+        final DenseRecalibrationTables emptyRecalibrationTable = new DenseRecalibrationTables(new StandardCovariateList(recalArgs, header), header.getReadGroups().size(), recalArgs.computeIndelBQSRTables);
         final RecalibrationTables combinedTables = unmergedTables.treeAggregate(emptyRecalibrationTable,
-                RecalibrationTables::inPlaceCombine,
-                RecalibrationTables::inPlaceCombine,
-                Math.max(1, (int)(Math.log(unmergedTables.partitions().size()) / Math.log(2))));
+                DenseRecalibrationTables::inPlaceCombine,
+                DenseRecalibrationTables::inPlaceCombine,
+                Math.max(1, (int)(Math.log(unmergedTables.partitions().size()) / Math.log(2)))).toRecalibrationTables();
 
         BaseRecalibrationEngine.finalizeRecalibrationTables(combinedTables);
 
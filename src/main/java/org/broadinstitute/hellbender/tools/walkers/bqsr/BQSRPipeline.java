@@ -0,0 +1,235 @@
+package org.broadinstitute.hellbender.tools.walkers.bqsr;
+
+import htsjdk.samtools.util.CloseableIterator;
+import htsjdk.tribble.Feature;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.broadinstitute.barclay.argparser.Argument;
+import org.broadinstitute.barclay.argparser.ArgumentCollection;
+import org.broadinstitute.barclay.argparser.BetaFeature;
+import org.broadinstitute.barclay.argparser.CommandLineProgramProperties;
+import org.broadinstitute.barclay.help.DocumentedFeature;
+import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
+import org.broadinstitute.hellbender.engine.FeatureContext;
+import org.broadinstitute.hellbender.engine.FeatureDataSource;
+import org.broadinstitute.hellbender.engine.FeatureInput;
+import org.broadinstitute.hellbender.engine.ReadWalker;
+import org.broadinstitute.hellbender.engine.ReferenceContext;
+import org.broadinstitute.hellbender.engine.ReferenceDataSource;
+import org.broadinstitute.hellbender.engine.filters.CountingReadFilter;
+import org.broadinstitute.hellbender.engine.filters.ReadFilter;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.tools.ApplyBQSRUniqueArgumentCollection;
+import org.broadinstitute.hellbender.transformers.BQSRReadTransformer;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.io.IOUtils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.read.ReadSpillFile;
+import org.broadinstitute.hellbender.utils.read.SAMFileGATKReadWriter;
+import org.broadinstitute.hellbender.utils.recalibration.BaseRecalibrationEngine;
+import org.broadinstitute.hellbender.utils.recalibration.KnownSitesCursor;
+import org.broadinstitute.hellbender.utils.recalibration.QuantizationInfo;
+import org.broadinstitute.hellbender.utils.recalibration.RecalUtils;
+import org.broadinstitute.hellbender.utils.recalibration.RecalibrationArgumentCollection;
+import picard.cmdline.programgroups.ReadDataManipulationProgramGroup;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Both steps of the base quality score recalibration, {@link BaseRecalibrator} and {@link ApplyBQSR}, in a single
+ * pass over the input reads.
+ *
+ * <p>
+ * While the recalibration tables are computed, the reads are also written to a local scratch file, in their binary
+ * encoding, so that they can be recalibrated afterwards without reading and decoding the input a second time.
+ * The scratch file is created in the temporary directory (see --tmp-dir), which needs room for a copy of the
+ * uncompressed reads, and is deleted at the end of the run.
+ * </p>
+ *
+ * <p>
+ * The output is the same as running BaseRecalibrator and then ApplyBQSR with the same arguments and read filters:
+ * the recalibration table is written (to a temporary file unless --recal-table-output is given) and read back,
+ * exactly as ApplyBQSR would read it. Like {@link ApplyBQSR}, all the reads that pass the tool's read filters are
+ * written; only those that also pass {@link BaseRecalibrator#getBQSRSpecificReadFilterList()} are used to compute the
+ * recalibration tables.
+ * </p>
+ *
+ * <h3>Examples</h3>
+ * <pre>
+ * gatk BQSRPipeline \
+ *   -I my_reads.bam \
+ *   -R reference.fasta \
+ *   --known-sites sites_of_variation.vcf \
+ *   --recal-table-output recal_data.table \
+ *   -O recalibrated.bam
+ * </pre>
+ */
+@CommandLineProgramProperties(
+        summary = BQSRPipeline.USAGE_SUMMARY,
+        oneLineSummary = BQSRPipeline.USAGE_ONE_LINE_SUMMARY,
+        programGroup = ReadDataManipulationProgramGroup.class
+)
+@DocumentedFeature
+@BetaFeature
+public final class BQSRPipeline extends ReadWalker {
+    static final String USAGE_ONE_LINE_SUMMARY = "Both steps of BQSR (BaseRecalibrator and ApplyBQSR) in a single pass over the reads";
+    static final String USAGE_SUMMARY = "This tool performs both steps of BQSR - creation of the recalibration table and " +
+            "rewriting of the reads - reading the input only once, by keeping a copy of the reads in a local scratch file.";
+
+    public static final String RECAL_TABLE_OUTPUT_LONG_NAME = "recal-table-output";
+
+    private static final Logger logger = LogManager.getLogger(BQSRPipeline.class);
+
+    @Argument(fullName = StandardArgumentDefinitions.OUTPUT_LONG_NAME, shortName = StandardArgumentDefinitions.OUTPUT_SHORT_NAME, doc = "Write output to this file")
+    public String output;
+
+    @Argument(fullName = BaseRecalibrator.KNOWN_SITES_ARG_FULL_NAME, doc = "One or more databases of known polymorphic sites used to exclude regions around known polymorphisms from analysis.", optional = false)
+    private List<FeatureInput<Feature>> knownSites;
+
+    @Argument(fullName = RECAL_TABLE_OUTPUT_LONG_NAME, doc = "Also write the recalibration table to this file", optional = true)
+    private File recalTableFile = null;
+
+    /**
+     * All the command line arguments for BQSR and its covariates.
+     */
+    @ArgumentCollection(doc = "all the command line arguments for BQSR and its covariates")
+    private final RecalibrationArgumentCollection recalArgs = new RecalibrationArgumentCollection();
+
+    /**
+     * Command-line arguments to fine tune the recalibration.
+     */
+    @ArgumentCollection
+    public ApplyBQSRUniqueArgumentCollection applyBqsrArgs = new ApplyBQSRUniqueArgumentCollection();
+
+    private BaseRecalibrationEngine recalibrationEngine;
+    private ReferenceDataSource referenceDataSource;
+    private KnownSitesCursor knownSitesCursor;
+    private ReadFilter bqsrReadFilter;
+    private ReadSpillFile spillFile;
+    private SAMFileGATKReadWriter outputWriter;
+
+    @Override
+    public boolean requiresReference() {
+        return true;
+    }
+
+    @Override
+    public void onTraversalStart() {
+        if (recalArgs.FORCE_PLATFORM != null) {
+            recalArgs.DEFAULT_PLATFORM = recalArgs.FORCE_PLATFORM;
+        }
+        Utils.warnOnNonIlluminaReadGroups(getHeaderForReads(), logger);
+
+        recalibrationEngine = new BaseRecalibrationEngine(recalArgs, getHeaderForReads());
+        recalibrationEngine.logCovariatesUsed();
+        referenceDataSource = ReferenceDataSource.of(referenceArguments.getReferencePath());
+        knownSitesCursor = new KnownSitesCursor(knownSites.stream()
+                .map(input -> new FeatureDataSource<>(input, 0, null, cloudPrefetchBuffer, cloudIndexPrefetchBuffer, referenceArguments.getReferencePath()))
+                .collect(Collectors.toList()), KnownSitesCursor.DEFAULT_WINDOW_SIZE);
+
+        // The reads have already had the tool's read filters applied to them, which is all the filtering that
+        // ApplyBQSR wants. BaseRecalibrator wants additional filtering, which we do here.
+        bqsrReadFilter = ReadFilter.fromList(BaseRecalibrator.getBQSRSpecificReadFilterList(), getHeaderForReads());
+
+        spillFile = new ReadSpillFile(getHeaderForReads(), IOUtils.createTempFile("BQSRPipeline.reads", ".spill"));
+        outputWriter = createSAMWriter(IOUtils.getPath(output), true);
+    }
+
+    /**
+     * Computes the recalibration tables while spilling the reads, then recalibrates the spilled reads.
+     * As in {@link org.broadinstitute.hellbender.engine.TwoPassReadWalker}, but the second pass is over the
+     * spilled reads rather than over the input.
+     */
+    @Override
+    public void traverse() {
+        final CountingReadFilter countedFilter = makeReadFilter();
+        getTransformedReadStream(countedFilter).forEach(read -> {
+            firstPassApply(read);
+            progressMeter.update(readInterval(read));
+        });
+        logger.info("Finished first pass through the reads");
+
+        final File recalTable = writeRecalibrationTable();
+
+        logger.info("Starting second pass through the " + spillFile.getNumReads() + " spilled reads");
+        final BQSRReadTransformer transformer = new BQSRReadTransformer(getHeaderForReads(), recalTable,
+                applyBqsrArgs.toApplyBQSRArgumentCollection(recalArgs.PRESERVE_QSCORES_LESS_THAN));
+        try (final CloseableIterator<GATKRead> spilledReads = spillFile.readBack()) {
+            while (spilledReads.hasNext()) {
+                final GATKRead read = transformer.apply(spilledReads.next());
+                outputWriter.addRead(read);
+                progressMeter.update(readInterval(read));
+            }
+        }
+        logger.info(countedFilter.getSummaryLine());
+    }
+
+    private void firstPassApply(final GATKRead read) {
+        // spill the read before the engine sees it, since the engine may modify it
+        spillFile.add(read);
+        if (bqsrReadFilter.test(read)) {
+            final SimpleInterval interval = readInterval(read);
+            final int[] knownSitesForRead = interval == null ? KnownSitesCursor.NO_SITES
+                    : knownSitesCursor.getKnownSites(interval.getContig(), interval.getStart(), interval.getEnd());
+            recalibrationEngine.processRead(read, referenceDataSource, knownSitesForRead);
+        }
+    }
+
+    /**
+     * Finalizes the recalibration tables and writes them the same way as {@link BaseRecalibrator}
+     *
+     * @return the file to which the tables were written
+     */
+    private File writeRecalibrationTable() {
+        recalibrationEngine.finalizeData();
+        logger.info("Calculating quantized quality scores...");
+        final QuantizationInfo quantizationInfo = new QuantizationInfo(recalibrationEngine.getFinalRecalibrationTables(), recalArgs.QUANTIZING_LEVELS);
+
+        final File recalTable = recalTableFile != null ? recalTableFile : IOUtils.createTempFile("BQSRPipeline", ".table");
+        logger.info("Writing recalibration report...");
+        try ( PrintStream recalTableStream = new PrintStream(recalTable) ) {
+            RecalUtils.outputRecalibrationReport(recalTableStream, recalArgs, quantizationInfo, recalibrationEngine.getFinalRecalibrationTables(), recalibrationEngine.getCovariates());
+        }
+        catch (final IOException e) {
+            throw new UserException.CouldNotCreateOutputFile(recalTable, e);
+        }
+        return recalTable;
+    }
+
+    // the same interval as the one used by ReadWalker for the reference and feature contexts of a read
+    private static SimpleInterval readInterval(final GATKRead read) {
+        return !read.isUnmapped() && SimpleInterval.isValid(read.getContig(), read.getStart(), read.getEnd()) ? new SimpleInterval(read) : null;
+    }
+
+    /**
+     * Not called by {@link BQSRPipeline}, which does its own traversal.
+     */
+    @Override
+    public void apply(final GATKRead read, final ReferenceContext referenceContext, final FeatureContext featureContext) {}
+
+    @Override
+    public Object onTraversalSuccess() {
+        return recalibrationEngine.getNumReadsProcessed();
+    }
+
+    @Override
+    public void closeTool() {
+        if (outputWriter != null) {
+            outputWriter.close();
+        }
+        if (spillFile != null) {
+            spillFile.close();
+        }
+        if (knownSitesCursor != null) {
+            knownSitesCursor.close();
+        }
+        if (referenceDataSource != null) {
+            referenceDataSource.close();
+        }
+    }
+}
@@ -1,10 +1,13 @@
 package org.broadinstitute.hellbender.tools.walkers.bqsr;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import htsjdk.tribble.Feature;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.broadinstitute.barclay.argparser.Advanced;
 import org.broadinstitute.barclay.argparser.Argument;
 import org.broadinstitute.barclay.argparser.ArgumentCollection;
+import org.broadinstitute.barclay.argparser.CommandLineException;
 import org.broadinstitute.barclay.argparser.CommandLineProgramProperties;
 import org.broadinstitute.barclay.help.DocumentedFeature;
 import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
@@ -12,10 +15,13 @@ import org.broadinstitute.hellbender.engine.*;
 import org.broadinstitute.hellbender.engine.filters.ReadFilter;
 import org.broadinstitute.hellbender.engine.filters.ReadFilterLibrary;
 import org.broadinstitute.hellbender.engine.filters.WellformedReadFilter;
+import org.broadinstitute.hellbender.exceptions.GATKException;
 import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
 import org.broadinstitute.hellbender.utils.recalibration.BaseRecalibrationEngine;
+import org.broadinstitute.hellbender.utils.recalibration.KnownSitesCursor;
 import org.broadinstitute.hellbender.utils.recalibration.QuantizationInfo;
 import org.broadinstitute.hellbender.utils.recalibration.RecalUtils;
 import org.broadinstitute.hellbender.utils.recalibration.RecalibrationArgumentCollection;
@@ -25,7 +31,15 @@ import java.io.File;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * First pass of the base quality score recalibration.
@@ -87,6 +101,7 @@ public final class BaseRecalibrator extends ReadWalker {
             "(such as read group, reported quality score, machine cycle, and nucleotide context).";
 
     public static final String KNOWN_SITES_ARG_FULL_NAME = "known-sites";
+    public static final String RECALIBRATION_THREADS_LONG_NAME = "recalibration-threads";
 
     protected static final Logger logger = LogManager.getLogger(BaseRecalibrator.class);
 
@@ -115,10 +130,26 @@ public final class BaseRecalibrator extends ReadWalker {
     @Argument(shortName = StandardArgumentDefinitions.OUTPUT_SHORT_NAME, fullName = StandardArgumentDefinitions.OUTPUT_LONG_NAME, doc = "The output recalibration table file to create", optional = false)
     private File recalTableFile = null;
 
+    /**
+     * Number of threads on which to collect the recalibration statistics. Reads are decoded, filtered and matched to
+     * the known sites on the traversal thread, then handed in batches to the other threads, each of which accumulates
+     * statistics into its own tables. The tables are merged once all reads have been processed.
+     */
+    @Advanced
+    @Argument(fullName = RECALIBRATION_THREADS_LONG_NAME, doc = "Number of threads on which to collect recalibration statistics", optional = true)
+    private int recalibrationThreads = 1;
+
+    // number of reads handed to a recalibration thread at a time
+    private static final int READS_PER_BATCH = 1000;
+
     private BaseRecalibrationEngine recalibrationEngine;
 
+    private ParallelRecalibration parallelRecalibration = null; // only when running on more than one thread
+
     private ReferenceDataSource referenceDataSource; // datasource for the reference. We're using a different one from the engine itself to avoid messing with its caches.
 
+    private KnownSitesCursor knownSitesCursor; // streams the known sites along the reads, instead of querying them for each read
+
     /**
      * an object that keeps track of the information necessary for quality score quantization
      */
@@ -139,11 +170,23 @@ public final class BaseRecalibrator extends ReadWalker {
             recalArgs.DEFAULT_PLATFORM = recalArgs.FORCE_PLATFORM;
         }
 
+        if (recalibrationThreads < 1) {
+            throw new CommandLineException.BadArgumentValue(RECALIBRATION_THREADS_LONG_NAME, "must be >= 1");
+        }
+
         Utils.warnOnNonIlluminaReadGroups(getHeaderForReads(), logger);
 
         recalibrationEngine = new BaseRecalibrationEngine(recalArgs, getHeaderForReads());
         recalibrationEngine.logCovariatesUsed();
-        referenceDataSource = ReferenceDataSource.of(referenceArguments.getReferencePath());
+        referenceDataSource = makeReferenceDataSource();
+        // query the known sites through the feature manager, which already has them open
+        knownSitesCursor = new KnownSitesCursor(knownSites.stream()
+                .<Function<SimpleInterval, List<? extends Feature>>>map(input -> interval -> getFeatures(input, interval))
+                .collect(Collectors.toList()), KnownSitesCursor.DEFAULT_WINDOW_SIZE);
+
+        if (recalibrationThreads > 1) {
+            parallelRecalibration = new ParallelRecalibration();
+        }
     }
 
     @Override
@@ -182,11 +225,29 @@ public final class BaseRecalibrator extends ReadWalker {
      */
     @Override
     public void apply( GATKRead read, ReferenceContext ref, FeatureContext featureContext ) {
-        recalibrationEngine.processRead(read, referenceDataSource, featureContext.getValues(knownSites));
+        final int[] knownSitesForRead = getKnownSites(read);
+        if (parallelRecalibration != null) {
+            parallelRecalibration.add(read, knownSitesForRead);
+        } else {
+            recalibrationEngine.processRead(read, referenceDataSource, knownSitesForRead);
+        }
+    }
+
+    /**
+     * Known sites overlapping the read, the same as those in the FeatureContext that apply() gets for the read
+     */
+    private int[] getKnownSites( final GATKRead read ) {
+        if (read.isUnmapped() || !SimpleInterval.isValid(read.getContig(), read.getStart(), read.getEnd())) {
+            return KnownSitesCursor.NO_SITES;
+        }
+        return knownSitesCursor.getKnownSites(read.getContig(), read.getStart(), read.getEnd());
     }
 
     @Override
     public Object onTraversalSuccess() {
+        if (parallelRecalibration != null) {
+            parallelRecalibration.finish();
+        }
         recalibrationEngine.finalizeData();
 
         logger.info("Calculating quantized quality scores...");
@@ -217,4 +278,136 @@ public final class BaseRecalibrator extends ReadWalker {
             throw new UserException.CouldNotCreateOutputFile(recalTableFile, e);
         }
     }
-}
\ No newline at end of file
+
+    @Override
+    public void closeTool() {
+        if (parallelRecalibration != null) {
+            parallelRecalibration.close();
+        }
+        if (referenceDataSource != null) {
+            referenceDataSource.close();
+        }
+    }
+
+    /**
+     * Collects recalibration statistics on a pool of threads. Each thread processes reads with its own
+     * {@link BaseRecalibrationEngine} and reference source (unless the reference is memory-mapped, and so may be
+     * shared), so that the tables are never shared during the traversal, and the engines are combined into
+     * {@link #recalibrationEngine} by {@link #finish}.
+     *
+     * Known sites are looked up on the traversal thread, since the known sites cursor relies on reads arriving in order.
+     */
+    private final class ParallelRecalibration {
+        private final ExecutorService executor;
+        // bounds the number of batches queued or being processed, so that the traversal can't run ahead indefinitely
+        private final Semaphore batchesInFlight;
+        private final List<Worker> workers = Collections.synchronizedList(new ArrayList<>());
+        private final ThreadLocal<Worker> threadWorker = ThreadLocal.withInitial(() -> {
+            final Worker worker = new Worker();
+            workers.add(worker);
+            return worker;
+        });
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+        // set by close(), so that the threads stop at the next read instead of processing the rest of their batch
+        private volatile boolean closed = false;
+
+        private List<GATKRead> batchReads = new ArrayList<>(READS_PER_BATCH);
+        private List<int[]> batchKnownSites = new ArrayList<>(READS_PER_BATCH);
+
+        ParallelRecalibration() {
+            executor = Executors.newFixedThreadPool(recalibrationThreads, new ThreadFactoryBuilder()
+                    .setNameFormat("recalibration-worker-%d")
+                    .setDaemon(true)
+                    .build());
+            batchesInFlight = new Semaphore(2 * recalibrationThreads);
+            logger.info("Collecting recalibration statistics on " + recalibrationThreads + " threads");
+        }
+
+        void add(final GATKRead read, final int[] knownSitesForRead) {
+            batchReads.add(read);
+            batchKnownSites.add(knownSitesForRead);
+            if (batchReads.size() == READS_PER_BATCH) {
+                submitBatch();
+            }
+        }
+
+        private void submitBatch() {
+            checkForFailure();
+            final List<GATKRead> reads = batchReads;
+            final List<int[]> sites = batchKnownSites;
+            batchReads = new ArrayList<>(READS_PER_BATCH);
+            batchKnownSites = new ArrayList<>(READS_PER_BATCH);
+
+            batchesInFlight.acquireUninterruptibly();
+            executor.execute(() -> {
+                try {
+                    if (failure.get() == null && !closed) {
+                        final Worker worker = threadWorker.get();
+                        for (int i = 0; i < reads.size() && !closed; i++) {
+                            worker.engine.processRead(reads.get(i), worker.reference, sites.get(i));
+                        }
+                    }
+                } catch (final Throwable t) {
+                    failure.compareAndSet(null, t);
+                } finally {
+                    batchesInFlight.release();
+                }
+            });
+        }
+
+        /**
+         * Process the remaining reads, wait for all threads to finish and combine their statistics into the main engine
+         */
+        void finish() {
+            if (!batchReads.isEmpty()) {
+                submitBatch();
+            }
+            executor.shutdown();
+            try {
+                executor.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new GATKException("Interrupted while waiting for recalibration threads", e);
+            }
+            checkForFailure();
+            for (final Worker worker : workers) {
+                recalibrationEngine.combine(worker.engine);
+            }
+        }
+
+        private void checkForFailure() {
+            final Throwable t = failure.get();
+            if (t instanceof RuntimeException) {
+                throw (RuntimeException) t;
+            } else if (t instanceof Error) {
+                throw (Error) t;
+            } else if (t != null) {
+                throw new GATKException("Failed to collect recalibration statistics", t);
+            }
+        }
+
+        /**
+         * Stop the threads, waiting for them to be done with their references before closing those
+         */
+        void close() {
+            closed = true;
+            executor.shutdownNow();
+            try {
+                executor.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new GATKException("Interrupted while waiting for recalibration threads", e);
+            }
+            workers.stream()
+                    .filter(worker -> worker.reference != referenceDataSource)
+                    .forEach(worker -> worker.reference.close());
+        }
+    }
+
+    private final class Worker {
+        private final BaseRecalibrationEngine engine = new BaseRecalibrationEngine(recalArgs, getHeaderForReads());
+        // separate from the other threads' to avoid sharing its caches, unless it is memory-mapped and so has none
+        private final ReferenceDataSource reference = memoryMappedReference ? referenceDataSource
+                : ReferenceDataSource.of(referenceArguments.getReferencePath());
+    }
+}
@@ -25,6 +25,9 @@ public abstract class AssemblyBasedCallerArgumentCollection extends StandardCall
     public static final String MIN_BASE_QUALITY_SCORE_LONG_NAME = "min-base-quality-score";
     public static final String SMITH_WATERMAN_LONG_NAME = "smith-waterman";
     public static final String CORRECT_OVERLAPPING_BASE_QUALITIES_LONG_NAME = "correct-overlapping-quality";
+    public static final String STAGE_PROFILE_OUT_LONG_NAME = "stage-profile-out";
+    public static final String REGION_PROFILE_OUT_LONG_NAME = "region-profile-out";
+    public static final String PROFILE_ALLOCATIONS_LONG_NAME = "profile-allocations";
 
     @ArgumentCollection
     public AssemblyRegionTrimmerArgumentCollection assemblyRegionTrimmerArgs = new AssemblyRegionTrimmerArgumentCollection();
@@ -93,6 +96,32 @@ public abstract class AssemblyBasedCallerArgumentCollection extends StandardCall
     @Argument(fullName = DONT_USE_SOFT_CLIPPED_BASES_LONG_NAME, doc = "Do not analyze soft clipped bases in the reads", optional = true)
     public boolean dontUseSoftClippedBases = false;
 
+    /**
+     * If provided, the time spent in each stage of calling (activity profiling, assembly, read likelihoods, genotyping,
+     * reference confidence and output), along with the number of regions, reads and haplotypes processed, is written
+     * to this file at the end of the traversal as a tab-separated (metric, value) table. Intended for finding out where
+     * the runtime of a production run goes.
+     */
+    @Advanced
+    @Argument(fullName = STAGE_PROFILE_OUT_LONG_NAME, doc = "Write a summary of the time spent in each stage of calling to this file", optional = true)
+    public String stageProfileOutput = null;
+
+    /**
+     * If provided, one tab-separated row is written to this file per assembly region, with the region's read and
+     * haplotype counts and the time spent on it in each stage. Intended for finding pathologically expensive regions.
+     */
+    @Advanced
+    @Argument(fullName = REGION_PROFILE_OUT_LONG_NAME, doc = "Write the time spent on each assembly region to this file", optional = true)
+    public String regionProfileOutput = null;
+
+    /**
+     * Together with --stage-profile-out or --region-profile-out, also measure the bytes allocated in each stage.
+     * Requires a JVM that supports per-thread allocation accounting.
+     */
+    @Advanced
+    @Argument(fullName = PROFILE_ALLOCATIONS_LONG_NAME, doc = "Also profile the bytes allocated in each stage of calling", optional = true)
+    public boolean profileAllocations = false;
+
     @Hidden
     @Argument(fullName = CAPTURE_ASSEMBLY_FAILURE_BAM_LONG_NAME, doc = "Write a BAM called assemblyFailure.bam capturing all of the reads that were in the active region when the assembler failed for any reason", optional = true)
     public boolean captureAssemblyFailureBAM = false;
@@ -171,7 +171,7 @@ public final class AssemblyBasedCallerUtils {
 
         switch ( likelihoodArgs.likelihoodEngineImplementation) {
             case PairHMM:
-                return new PairHMMLikelihoodCalculationEngine((byte) likelihoodArgs.gcpHMM, likelihoodArgs.pairHMMNativeArgs.getPairHMMArgs(), likelihoodArgs.pairHMM, log10GlobalReadMismappingRate, likelihoodArgs.pcrErrorModel, likelihoodArgs.BASE_QUALITY_SCORE_THRESHOLD);
+                return new PairHMMLikelihoodCalculationEngine((byte) likelihoodArgs.gcpHMM, likelihoodArgs.pairHMMNativeArgs.getPairHMMArgs(), likelihoodArgs.pairHMM, log10GlobalReadMismappingRate, likelihoodArgs.pcrErrorModel, likelihoodArgs.BASE_QUALITY_SCORE_THRESHOLD, likelihoodArgs.pairHMMResultsCacheSizeMB);
             case Random:
                 return new RandomLikelihoodCalculationEngine();
             default:
@@ -179,6 +179,19 @@ public final class AssemblyBasedCallerUtils {
         }
     }
 
+    /**
+     * Has a likelihood calculation engine share the cache of PairHMM results of another one, if both are PairHMM
+     * engines. See {@link PairHMMLikelihoodCalculationEngine#shareLikelihoodCache}.
+     *
+     * @param engine engine that will use the cache of owner
+     * @param owner engine owning the cache
+     */
+    public static void shareLikelihoodCache(final ReadLikelihoodCalculationEngine engine, final ReadLikelihoodCalculationEngine owner) {
+        if ( engine instanceof PairHMMLikelihoodCalculationEngine && owner instanceof PairHMMLikelihoodCalculationEngine ) {
+            ((PairHMMLikelihoodCalculationEngine) engine).shareLikelihoodCache((PairHMMLikelihoodCalculationEngine) owner);
+        }
+    }
+
     public static ReadThreadingAssembler createReadThreadingAssembler(final AssemblyBasedCallerArgumentCollection args) {
         final ReadThreadingAssemblerArgumentCollection rtaac = args.assemblerArgs;
         final ReadThreadingAssembler assemblyEngine = new ReadThreadingAssembler(rtaac.maxNumHaplotypesInPopulation, rtaac.kmerSizes, rtaac.dontIncreaseKmerSizesForCycles, rtaac.allowNonUniqueKmersInRef, rtaac.numPruningSamples);
@@ -189,6 +202,7 @@ public final class AssemblyBasedCallerUtils {
         assemblyEngine.setRecoverDanglingBranches(!rtaac.doNotRecoverDanglingBranches);
         assemblyEngine.setMinDanglingBranchLength(rtaac.minDanglingBranchLength);
         assemblyEngine.setMinBaseQualityToUseInAssembly(args.minBaseQualityScore);
+        assemblyEngine.setKmerSizeThreads(rtaac.kmerSizeThreads);
 
         if ( rtaac.graphOutput != null ) {
             assemblyEngine.setGraphWriter(new File(rtaac.graphOutput));
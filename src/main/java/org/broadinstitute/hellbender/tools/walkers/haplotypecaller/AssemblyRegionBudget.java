@@ -0,0 +1,248 @@
+package org.broadinstitute.hellbender.tools.walkers.haplotypecaller;
+
+import htsjdk.samtools.SAMFileHeader;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.broadinstitute.hellbender.engine.AssemblyRegion;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.downsampling.PositionalDownsampler;
+import org.broadinstitute.hellbender.utils.downsampling.ReadsDownsampler;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.read.ReadCoordinateComparator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounds the work done by {@link HaplotypeCallerEngine} on any single assembly region, so that a few pathological
+ * regions (centromeres, high-copy repeats) don't dominate the running time of a shard.
+ *
+ * Two limits are supported, each disabled when 0:
+ * <ul>
+ *     <li>the time spent on a region up to the end of its assembly: once over it the assembler stops trying further
+ *     kmer sizes (see {@link #getAssemblyDeadline}), and regions over it are not genotyped at all</li>
+ *     <li>the number of reads times the number of haplotypes for which likelihoods are computed: the assembler
+ *     finds only as many haplotypes in each graph as could fit with the reads of the region (see
+ *     {@link #getMaxHaplotypesPerGraph}), and regions still over it are degraded progressively, first by halving the
+ *     number of reads allowed to start at any one position (as --max-reads-per-alignment-start does for the whole
+ *     input) until the region fits, then by keeping only the best-scoring haplotypes, and finally by not genotyping
+ *     the region</li>
+ * </ul>
+ *
+ * Every degraded region is logged, and the number of regions degraded in each way is reported by
+ * {@link #getSummaryLine}. The calls made in degraded regions are flagged by the engine with
+ * {@link org.broadinstitute.hellbender.utils.variant.GATKVCFConstants#ASSEMBLY_REGION_BUDGET_KEY}. Each engine owns
+ * its own budget, so it is not thread-safe.
+ */
+public final class AssemblyRegionBudget {
+    private static final Logger logger = LogManager.getLogger(AssemblyRegionBudget.class);
+
+    /**
+     * Never keep fewer haplotypes than this (the reference and one alternate haplotype)
+     */
+    private static final int MIN_HAPLOTYPES = 2;
+
+    private final long maxReadHaplotypeProduct;
+    private final long maxAssemblyNanos;
+    private final SAMFileHeader header;
+
+    private long haplotypeLimitedRegions = 0;
+    private long downsampledRegions = 0;
+    private long haplotypeReducedRegions = 0;
+    private long skippedRegions = 0;
+
+    /**
+     * @param maxReadHaplotypeProduct maximum number of reads x haplotypes in a region, or 0 for no limit
+     * @param maxAssemblySeconds maximum time up to the end of the assembly of a region, or 0 for no limit
+     * @param header header of the reads
+     */
+    public AssemblyRegionBudget(final long maxReadHaplotypeProduct, final double maxAssemblySeconds, final SAMFileHeader header) {
+        Utils.validateArg(maxReadHaplotypeProduct >= 0, "maxReadHaplotypeProduct must be >= 0");
+        Utils.validateArg(maxAssemblySeconds >= 0, "maxAssemblySeconds must be >= 0");
+        this.maxReadHaplotypeProduct = maxReadHaplotypeProduct;
+        this.maxAssemblyNanos = (long) (maxAssemblySeconds * TimeUnit.SECONDS.toNanos(1));
+        this.header = Utils.nonNull(header);
+    }
+
+    public boolean isEnabled() {
+        return maxReadHaplotypeProduct > 0 || maxAssemblyNanos > 0;
+    }
+
+    public boolean hasAssemblyTimeLimit() {
+        return maxAssemblyNanos > 0;
+    }
+
+    public boolean hasReadHaplotypeLimit() {
+        return maxReadHaplotypeProduct > 0;
+    }
+
+    /**
+     * @return the maximum number of haplotypes that could be genotyped with the reads of region, downsampled as far as
+     *         {@link #apply} would (to one read per start position), to be passed to
+     *         {@link org.broadinstitute.hellbender.tools.walkers.haplotypecaller.readthreading.ReadThreadingAssembler#setMaxHaplotypesPerGraph}
+     *         so that the assembler doesn't spend time finding haplotypes that would not be kept
+     */
+    public int getMaxHaplotypesPerGraph(final AssemblyRegion region) {
+        Utils.validate(hasReadHaplotypeLimit(), "there is no limit on the number of reads x haplotypes");
+        final long minReads = Math.max(1, countReadsPerStart(region.getReads()).size());
+        return (int) Math.max(MIN_HAPLOTYPES, Math.min(Integer.MAX_VALUE, maxReadHaplotypeProduct / minReads));
+    }
+
+    /**
+     * Record that the assembler found only the best {@link #getMaxHaplotypesPerGraph} haplotypes of some graph of region
+     */
+    public void recordHaplotypeLimitReached(final AssemblyRegion region) {
+        haplotypeLimitedRegions++;
+        logger.info(String.format("Region %s is over the budget of %d: found only the best %d haplotypes per assembly graph",
+                region.getSpan(), maxReadHaplotypeProduct, getMaxHaplotypesPerGraph(region)));
+    }
+
+    /**
+     * @return the time (as given by {@link System#nanoTime}) by which the assembly of a region whose processing started
+     *         at regionStartNanos should be done, to be passed to
+     *         {@link org.broadinstitute.hellbender.tools.walkers.haplotypecaller.readthreading.ReadThreadingAssembler#setAssemblyDeadline}
+     */
+    public long getAssemblyDeadline(final long regionStartNanos) {
+        Utils.validate(hasAssemblyTimeLimit(), "there is no assembly time limit");
+        return regionStartNanos + maxAssemblyNanos;
+    }
+
+    /**
+     * Check whether region, whose processing started at regionStartNanos (as given by {@link System#nanoTime}) has
+     * taken too long to assemble to be genotyped
+     *
+     * @return true if the region should not be genotyped
+     */
+    public boolean isAssemblyOverTime(final AssemblyRegion region, final long regionStartNanos) {
+        if ( maxAssemblyNanos == 0 ) {
+            return false;
+        }
+        final long elapsed = System.nanoTime() - regionStartNanos;
+        if ( elapsed <= maxAssemblyNanos ) {
+            return false;
+        }
+        skippedRegions++;
+        logger.info(String.format("Not genotyping region %s: assembly took %.1f seconds", region.getSpan(), elapsed / (double) TimeUnit.SECONDS.toNanos(1)));
+        return true;
+    }
+
+    /**
+     * Bring the number of reads x haplotypes of the region to genotype within the budget, downsampling the reads of
+     * the region in place and/or dropping haplotypes.
+     *
+     * Whether the region can be brought within the budget is decided before any read is removed, so that a region that
+     * is not genotyped keeps all its reads (for the reference model).
+     *
+     * @param assemblyResult the assembled haplotypes, whose region for genotyping holds the reads to genotype
+     * @return assemblyResult or a copy of it with fewer haplotypes, or {@code null} if the region can't be brought
+     *         within the budget and should not be genotyped, in which case its reads are left untouched
+     */
+    public AssemblyResultSet apply(final AssemblyResultSet assemblyResult) {
+        Utils.nonNull(assemblyResult);
+        final AssemblyRegion region = assemblyResult.getRegionForGenotyping();
+        final int numHaplotypes = assemblyResult.getHaplotypeCount();
+        if ( maxReadHaplotypeProduct == 0 || (long) region.size() * numHaplotypes <= maxReadHaplotypeProduct ) {
+            return assemblyResult;
+        }
+
+        // work out the number of reads and haplotypes to keep first: the positional downsampler keeps exactly
+        // min(count, readsPerStart) of the reads at each start position
+        final List<Integer> readCounts = countReadsPerStart(region.getReads());
+        final int readsPerStart = maxReadsPerStartWithinBudget(readCounts, numHaplotypes);
+        final long numReads = readsPerStart < Integer.MAX_VALUE ? countDownsampledReads(readCounts, readsPerStart) : region.size();
+        final int maxHaplotypes = numReads * numHaplotypes <= maxReadHaplotypeProduct ? numHaplotypes :
+                (int) Math.max(MIN_HAPLOTYPES, Math.min(numHaplotypes, maxReadHaplotypeProduct / numReads));
+
+        final String originalSize = region.size() + " reads x " + numHaplotypes + " haplotypes";
+        if ( numReads * maxHaplotypes > maxReadHaplotypeProduct ) {
+            skippedRegions++;
+            logger.info(String.format("Not genotyping region %s: %s is over the budget of %d", region.getSpan(), originalSize, maxReadHaplotypeProduct));
+            return null;
+        }
+
+        final List<String> actions = new ArrayList<>(2);
+        if ( readsPerStart < Integer.MAX_VALUE ) {
+            downsample(region, readsPerStart);
+            downsampledRegions++;
+            actions.add("downsampled to " + readsPerStart + " reads per start position");
+        }
+
+        AssemblyResultSet result = assemblyResult;
+        if ( maxHaplotypes < numHaplotypes ) {
+            result = assemblyResult.subsetToBestHaplotypes(maxHaplotypes);
+            haplotypeReducedRegions++;
+            actions.add("kept the best " + maxHaplotypes + " haplotypes");
+        }
+
+        logger.info(String.format("Region %s with %s is over the budget of %d: %s", region.getSpan(), originalSize,
+                maxReadHaplotypeProduct, String.join(", ", actions)));
+        return result;
+    }
+
+    /**
+     * @return the largest number of reads per start position, obtained by halving the largest count of reads at any
+     *         start position, that brings the reads within budget for numHaplotypes; 1 if none does; or
+     *         Integer.MAX_VALUE if downsampling cannot reduce the number of reads
+     */
+    private int maxReadsPerStartWithinBudget(final List<Integer> readsPerStart, final int numHaplotypes) {
+        final int maxCount = readsPerStart.stream().mapToInt(Integer::intValue).max().orElse(0);
+        if ( maxCount <= 1 ) {
+            return Integer.MAX_VALUE;
+        }
+        int cap = maxCount;
+        do {
+            cap /= 2;
+            if ( countDownsampledReads(readsPerStart, cap) * numHaplotypes <= maxReadHaplotypeProduct ) {
+                break;
+            }
+        } while ( cap > 1 );
+        return cap;
+    }
+
+    private static long countDownsampledReads(final List<Integer> readsPerStart, final int cap) {
+        return readsPerStart.stream().mapToLong(count -> Math.min(count, cap)).sum();
+    }
+
+    private static List<Integer> countReadsPerStart(final List<GATKRead> reads) {
+        final List<GATKRead> sorted = new ArrayList<>(reads);
+        sorted.sort((r1, r2) -> Integer.compare(r1.getStart(), r2.getStart()));
+        final List<Integer> counts = new ArrayList<>();
+        int previousStart = -1;
+        for ( final GATKRead read : sorted ) {
+            if ( counts.isEmpty() || read.getStart() != previousStart ) {
+                counts.add(0);
+                previousStart = read.getStart();
+            }
+            counts.set(counts.size() - 1, counts.get(counts.size() - 1) + 1);
+        }
+        return counts;
+    }
+
+    private void downsample(final AssemblyRegion region, final int readsPerStart) {
+        final List<GATKRead> sorted = new ArrayList<>(region.getReads());
+        sorted.sort(new ReadCoordinateComparator(header));
+
+        final ReadsDownsampler downsampler = new PositionalDownsampler(readsPerStart, header);
+        downsampler.submit(sorted);
+        downsampler.signalEndOfInput();
+        final Set<GATKRead> kept = Collections.newSetFromMap(new IdentityHashMap<>());
+        kept.addAll(downsampler.consumeFinalizedItems());
+
+        final List<GATKRead> toRemove = new ArrayList<>(sorted.size() - kept.size());
+        for ( final GATKRead read : sorted ) {
+            if ( ! kept.contains(read) ) {
+                toRemove.add(read);
+            }
+        }
+        region.removeAll(toRemove);
+    }
+
+    public String getSummaryLine() {
+        return String.format("Assembly region budget: %d regions downsampled, %d with fewer haplotypes, %d not genotyped, %d with fewer haplotypes assembled",
+                downsampledRegions, haplotypeReducedRegions, skippedRegions, haplotypeLimitedRegions);
+    }
+}
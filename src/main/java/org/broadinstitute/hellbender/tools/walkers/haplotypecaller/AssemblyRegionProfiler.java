@@ -0,0 +1,323 @@
+package org.broadinstitute.hellbender.tools.walkers.haplotypecaller;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.broadinstitute.hellbender.engine.AssemblyRegion;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+/**
+ * Accumulates where the time of an assembly-based caller (HaplotypeCaller, Mutect2) goes, broken down by
+ * {@link Stage}, along with region, read and haplotype counts.
+ *
+ * A single profiler may be shared by several engines running on different threads (see
+ * {@link org.broadinstitute.hellbender.engine.AssemblyRegionWalker#ASSEMBLY_REGION_THREADS_LONG_NAME}); all
+ * accumulation is thread-safe. Each call to an engine's callRegion() is measured by its own {@link RegionProfile},
+ * which must only be used by the thread processing that region.
+ *
+ * If requested, the totals are written at {@link #close} as a two-column (metric, value) tab-separated summary, and
+ * one tab-separated row is written per region as soon as it has been processed. With multi-threaded region
+ * processing the per-region rows are written in the order in which regions finish, which is not necessarily
+ * genomic order.
+ *
+ * When allocation tracking is requested (and supported by the JVM), the bytes allocated by the measuring thread
+ * during each stage are accumulated as well.
+ *
+ * {@link #DISABLED} measures nothing and adds no overhead beyond a method call per stage.
+ */
+public final class AssemblyRegionProfiler implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(AssemblyRegionProfiler.class);
+
+    /**
+     * The stages of assembly-based calling that are measured separately
+     */
+    public enum Stage {
+        /** isActive() evaluation of each locus, used to determine the assembly regions */
+        ACTIVITY_PROFILE,
+        /** local assembly of the region, including haplotype generation */
+        ASSEMBLY,
+        /** PairHMM read likelihoods and realignment of the reads to their best haplotype */
+        READ_LIKELIHOODS,
+        /** genotyping and annotation of the called variants */
+        GENOTYPING,
+        /** reference confidence calculation in GVCF/BP_RESOLUTION mode */
+        REFERENCE_CONFIDENCE,
+        /** writing the calls to the output */
+        OUTPUT
+    }
+
+    private static final Stage[] STAGES = Stage.values();
+    private static final double NANOS_PER_SECOND = 1e9;
+    private static final double NANOS_PER_MILLISECOND = 1e6;
+
+    /**
+     * A profiler that measures nothing
+     */
+    public static final AssemblyRegionProfiler DISABLED = new AssemblyRegionProfiler();
+
+    private final boolean enabled;
+    private final com.sun.management.ThreadMXBean allocationBean;
+    private final String summaryOutput;
+    private final PrintStream regionOutputStream;
+
+    private final AtomicLongArray stageCounts = new AtomicLongArray(STAGES.length);
+    private final AtomicLongArray stageNanos = new AtomicLongArray(STAGES.length);
+    private final AtomicLongArray stageAllocatedBytes = new AtomicLongArray(STAGES.length);
+    private final AtomicLong regionCount = new AtomicLong();
+    private final AtomicLong activeRegionCount = new AtomicLong();
+    private final AtomicLong readCount = new AtomicLong();
+    private final AtomicLong haplotypeCount = new AtomicLong();
+    private final AtomicLong regionNanos = new AtomicLong();
+
+    private AssemblyRegionProfiler() {
+        enabled = false;
+        allocationBean = null;
+        summaryOutput = null;
+        regionOutputStream = null;
+    }
+
+    /**
+     * @param summaryOutput file to which to write the summary at {@link #close}, or null for no summary file
+     *                      (the totals are always logged)
+     * @param regionOutput file to which to write one row per region, or null for no per-region output
+     * @param trackAllocations true to also measure the bytes allocated by each stage
+     */
+    public AssemblyRegionProfiler(final String summaryOutput, final String regionOutput, final boolean trackAllocations) {
+        this.enabled = true;
+        this.allocationBean = trackAllocations ? getAllocationBean() : null;
+        this.summaryOutput = summaryOutput;
+
+        if ( regionOutput != null ) {
+            try {
+                regionOutputStream = new PrintStream(regionOutput);
+            } catch ( final IOException e ) {
+                throw new UserException.CouldNotCreateOutputFile(regionOutput, "Error writing region profile to output file", e);
+            }
+            regionOutputStream.println(String.join("\t", "contig", "start", "end", "active", "reads", "haplotypes",
+                    stageColumn(Stage.ASSEMBLY), stageColumn(Stage.READ_LIKELIHOODS), stageColumn(Stage.GENOTYPING),
+                    stageColumn(Stage.REFERENCE_CONFIDENCE), "total_ms", "allocated_bytes"));
+        } else {
+            regionOutputStream = null;
+        }
+    }
+
+    /**
+     * @return a profiler for the profiling arguments in args, or {@link #DISABLED} if no profiling was requested
+     */
+    public static AssemblyRegionProfiler fromArguments(final AssemblyBasedCallerArgumentCollection args) {
+        Utils.nonNull(args);
+        if ( args.stageProfileOutput == null && args.regionProfileOutput == null ) {
+            return DISABLED;
+        }
+        return new AssemblyRegionProfiler(args.stageProfileOutput, args.regionProfileOutput, args.profileAllocations);
+    }
+
+    private static com.sun.management.ThreadMXBean getAllocationBean() {
+        final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if ( bean instanceof com.sun.management.ThreadMXBean && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported() ) {
+            final com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) bean;
+            allocationBean.setThreadAllocatedMemoryEnabled(true);
+            return allocationBean;
+        }
+        logger.warn("This JVM does not support measuring per-thread allocations; allocated bytes will not be profiled");
+        return null;
+    }
+
+    private static String stageColumn(final Stage stage) {
+        return stage.name().toLowerCase() + "_ms";
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    private long allocatedBytes() {
+        return allocationBean == null ? 0 : allocationBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Measure a stage that is not attributed to any single region (eg., activity profiling of one locus)
+     *
+     * @return the result of work
+     */
+    public <T> T time(final Stage stage, final Supplier<T> work) {
+        if ( ! enabled ) {
+            return work.get();
+        }
+        final long startBytes = allocatedBytes();
+        final long startNanos = System.nanoTime();
+        final T result = work.get();
+        record(stage, System.nanoTime() - startNanos, allocatedBytes() - startBytes);
+        return result;
+    }
+
+    /**
+     * Measure a stage that is not attributed to any single region (eg., writing the calls of a region)
+     */
+    public void run(final Stage stage, final Runnable work) {
+        time(stage, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    private void record(final Stage stage, final long nanos, final long allocated) {
+        stageCounts.incrementAndGet(stage.ordinal());
+        stageNanos.addAndGet(stage.ordinal(), nanos);
+        stageAllocatedBytes.addAndGet(stage.ordinal(), allocated);
+    }
+
+    /**
+     * Start measuring the processing of region. {@link RegionProfile#finish} must be called once the region is done.
+     */
+    public RegionProfile startRegion(final AssemblyRegion region) {
+        return enabled ? new RegionProfile(this, Utils.nonNull(region)) : RegionProfile.NONE;
+    }
+
+    /**
+     * Measures the stages of the processing of a single region
+     */
+    public static final class RegionProfile {
+        private static final RegionProfile NONE = new RegionProfile();
+
+        private final AssemblyRegionProfiler profiler;
+        private final AssemblyRegion region;
+        private final int reads;
+        private final long startNanos;
+        private final long startBytes;
+        private final long[] nanosByStage = new long[STAGES.length];
+        private int haplotypes = 0;
+
+        private RegionProfile() {
+            profiler = null;
+            region = null;
+            reads = 0;
+            startNanos = 0;
+            startBytes = 0;
+        }
+
+        private RegionProfile(final AssemblyRegionProfiler profiler, final AssemblyRegion region) {
+            this.profiler = profiler;
+            this.region = region;
+            this.reads = region.getReads().size();
+            this.startBytes = profiler.allocatedBytes();
+            this.startNanos = System.nanoTime();
+        }
+
+        /**
+         * Measure one stage of the processing of this region
+         *
+         * @return the result of work
+         */
+        public <T> T time(final Stage stage, final Supplier<T> work) {
+            if ( profiler == null ) {
+                return work.get();
+            }
+            final long stageStartBytes = profiler.allocatedBytes();
+            final long stageStartNanos = System.nanoTime();
+            final T result = work.get();
+            final long nanos = System.nanoTime() - stageStartNanos;
+            nanosByStage[stage.ordinal()] += nanos;
+            profiler.record(stage, nanos, profiler.allocatedBytes() - stageStartBytes);
+            return result;
+        }
+
+        /**
+         * Record the number of haplotypes assembled for this region
+         */
+        public void setHaplotypeCount(final int haplotypes) {
+            this.haplotypes = haplotypes;
+        }
+
+        /**
+         * Finish measuring this region, adding it to the totals of the profiler and to the per-region output
+         */
+        public void finish() {
+            if ( profiler != null ) {
+                profiler.finishRegion(this, System.nanoTime() - startNanos, profiler.allocatedBytes() - startBytes);
+            }
+        }
+    }
+
+    private void finishRegion(final RegionProfile profile, final long nanos, final long allocated) {
+        regionCount.incrementAndGet();
+        if ( profile.region.isActive() ) {
+            activeRegionCount.incrementAndGet();
+        }
+        readCount.addAndGet(profile.reads);
+        haplotypeCount.addAndGet(profile.haplotypes);
+        regionNanos.addAndGet(nanos);
+
+        if ( regionOutputStream != null ) {
+            final String row = String.join("\t", profile.region.getContig(), String.valueOf(profile.region.getStart()),
+                    String.valueOf(profile.region.getEnd()), String.valueOf(profile.region.isActive()),
+                    String.valueOf(profile.reads), String.valueOf(profile.haplotypes),
+                    millis(profile.nanosByStage[Stage.ASSEMBLY.ordinal()]),
+                    millis(profile.nanosByStage[Stage.READ_LIKELIHOODS.ordinal()]),
+                    millis(profile.nanosByStage[Stage.GENOTYPING.ordinal()]),
+                    millis(profile.nanosByStage[Stage.REFERENCE_CONFIDENCE.ordinal()]),
+                    millis(nanos), String.valueOf(allocated));
+            synchronized ( regionOutputStream ) {
+                regionOutputStream.println(row);
+            }
+        }
+    }
+
+    private static String millis(final long nanos) {
+        return String.format("%.3f", nanos / NANOS_PER_MILLISECOND);
+    }
+
+    private static String seconds(final long nanos) {
+        return String.format("%.3f", nanos / NANOS_PER_SECOND);
+    }
+
+    /**
+     * Log the totals and write the summary and per-region outputs, if requested. Must only be called once all
+     * regions have been processed.
+     */
+    @Override
+    public void close() {
+        if ( ! enabled ) {
+            return;
+        }
+
+        if ( regionOutputStream != null ) {
+            regionOutputStream.close();
+        }
+
+        final StringBuilder log = new StringBuilder(String.format("Processed %d assembly regions (%d active) in %s s:",
+                regionCount.get(), activeRegionCount.get(), seconds(regionNanos.get())));
+        for ( final Stage stage : STAGES ) {
+            log.append(' ').append(stage.name().toLowerCase()).append('=').append(seconds(stageNanos.get(stage.ordinal()))).append('s');
+        }
+        logger.info(log.toString());
+
+        if ( summaryOutput != null ) {
+            try ( final PrintStream summary = new PrintStream(summaryOutput) ) {
+                summary.println("metric\tvalue");
+                summary.println("regions\t" + regionCount.get());
+                summary.println("active_regions\t" + activeRegionCount.get());
+                summary.println("reads\t" + readCount.get());
+                summary.println("haplotypes\t" + haplotypeCount.get());
+                summary.println("region_seconds\t" + seconds(regionNanos.get()));
+                for ( final Stage stage : STAGES ) {
+                    final String name = stage.name().toLowerCase();
+                    summary.println(name + "_count\t" + stageCounts.get(stage.ordinal()));
+                    summary.println(name + "_seconds\t" + seconds(stageNanos.get(stage.ordinal())));
+                    if ( allocationBean != null ) {
+                        summary.println(name + "_allocated_bytes\t" + stageAllocatedBytes.get(stage.ordinal()));
+                    }
+                }
+            } catch ( final IOException e ) {
+                throw new UserException.CouldNotCreateOutputFile(summaryOutput, "Error writing stage profile to output file", e);
+            }
+        }
+    }
+}
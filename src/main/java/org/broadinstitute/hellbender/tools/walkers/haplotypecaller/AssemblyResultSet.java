@@ -16,6 +16,7 @@ import org.broadinstitute.hellbender.utils.param.ParamUtils;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.util.*;
+import java.util.stream.Collectors;
 
 /**
  * Collection of read assembly using several kmerSizes.
@@ -100,6 +101,57 @@ public final class AssemblyResultSet {
         return result;
     }
 
+    /**
+     * Returns a copy of this set that keeps only the reference haplotype and the highest-scoring other haplotypes,
+     * up to maxHaplotypes in total. The haplotypes kept retain their original order.
+     *
+     * Haplotypes without a score (a NaN score, as for haplotypes that were not found in an assembly graph) rank below
+     * every scored haplotype, and haplotypes with the same score are kept in their original order.
+     *
+     * @param maxHaplotypes the maximum number of haplotypes to keep, including the reference haplotype
+     *
+     * @throws IllegalArgumentException if maxHaplotypes is less than 1.
+     * @throws IllegalStateException if there is no reference haplotype in this set.
+     *
+     * @return never {@code null}, a new assembly result set.
+     */
+    public AssemblyResultSet subsetToBestHaplotypes(final int maxHaplotypes) {
+        Utils.validateArg(maxHaplotypes >= 1, "maxHaplotypes must be at least 1");
+        if (refHaplotype == null) {
+            throw new IllegalStateException("refHaplotype is null");
+        }
+
+        final Set<Haplotype> best = haplotypes.stream()
+                .filter(h -> h != refHaplotype)
+                .sorted(Comparator.comparingDouble(AssemblyResultSet::scoreForRanking).reversed())
+                .limit(maxHaplotypes - 1)
+                .collect(Collectors.toSet());
+
+        final AssemblyResultSet result = new AssemblyResultSet();
+        for (final Haplotype haplotype : haplotypes) {
+            if (haplotype == refHaplotype || best.contains(haplotype)) {
+                final AssemblyResult as = assemblyResultByHaplotype.get(haplotype);
+                if (as == null) {
+                    result.add(haplotype);
+                } else {
+                    result.add(haplotype, as);
+                }
+            }
+        }
+
+        result.setRegionForGenotyping(regionForGenotyping);
+        result.setFullReferenceWithPadding(fullReferenceWithPadding);
+        result.setPaddedReferenceLoc(paddedReferenceLoc);
+        result.wasTrimmed = wasTrimmed;
+        result.debug = debug;
+        return result;
+    }
+
+    // NaN would otherwise compare greater than any score and be ranked first
+    private static double scoreForRanking(final Haplotype haplotype) {
+        return Double.isNaN(haplotype.getScore()) ? Double.NEGATIVE_INFINITY : haplotype.getScore();
+    }
+
     private Map<Haplotype, Haplotype> calculateOriginalByTrimmedHaplotypes(final AssemblyRegion trimmedAssemblyRegion) {
         if ( debug ) {
             logger.info("Trimming active region " + getRegionForGenotyping() + " with " + getHaplotypeCount() + " haplotypes");
@@ -1,6 +1,7 @@
 package org.broadinstitute.hellbender.tools.walkers.haplotypecaller;
 
 import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.variant.variantcontext.VariantContext;
 import htsjdk.variant.variantcontext.writer.VariantContextWriter;
 import org.broadinstitute.barclay.argparser.Argument;
 import org.broadinstitute.barclay.argparser.ArgumentCollection;
@@ -158,6 +159,8 @@ public final class HaplotypeCaller extends AssemblyRegionWalker {
 
     private HaplotypeCallerEngine hcEngine;
 
+    private AssemblyRegionProfiler profiler = AssemblyRegionProfiler.DISABLED;
+
     @Override
     protected int defaultMinAssemblyRegionSize() { return DEFAULT_MIN_ASSEMBLY_REGION_SIZE; }
 
@@ -220,9 +223,9 @@ public final class HaplotypeCaller extends AssemblyRegionWalker {
             logger.warn("*************************************************************************");
         }
 
-        final VariantAnnotatorEngine variantAnnotatorEngine = new VariantAnnotatorEngine(makeVariantAnnotations(),
-                hcArgs.dbsnp.dbsnp, hcArgs.comps,  hcArgs.emitReferenceConfidence != ReferenceConfidenceMode.NONE);
-        hcEngine = new HaplotypeCallerEngine(hcArgs, createOutputBamIndex, createOutputBamMD5, getHeaderForReads(), getReferenceReader(referenceArguments), variantAnnotatorEngine);
+        profiler = AssemblyRegionProfiler.fromArguments(hcArgs);
+        hcEngine = new HaplotypeCallerEngine(hcArgs, createOutputBamIndex, createOutputBamMD5, getHeaderForReads(), getReferenceReader(referenceArguments), makeVariantAnnotatorEngine());
+        hcEngine.setProfiler(profiler);
 
         // The HC engine will make the right kind (VCF or GVCF) of writer for us
         final SAMSequenceDictionary sequenceDictionary = getHeaderForReads().getSequenceDictionary();
@@ -230,6 +233,11 @@ public final class HaplotypeCaller extends AssemblyRegionWalker {
         hcEngine.writeHeader(vcfWriter, sequenceDictionary, getDefaultToolVCFHeaderLines());
     }
 
+    private VariantAnnotatorEngine makeVariantAnnotatorEngine() {
+        return new VariantAnnotatorEngine(makeVariantAnnotations(),
+                hcArgs.dbsnp.dbsnp, hcArgs.comps,  hcArgs.emitReferenceConfidence != ReferenceConfidenceMode.NONE);
+    }
+
     private static CachingIndexedFastaSequenceFile getReferenceReader(ReferenceInputArgumentCollection referenceArguments) {
         final Path reference = IOUtils.getPath(referenceArguments.getReferenceFileName());
         return new CachingIndexedFastaSequenceFile(reference);
@@ -237,7 +245,36 @@ public final class HaplotypeCaller extends AssemblyRegionWalker {
 
     @Override
     public void apply(final AssemblyRegion region, final ReferenceContext referenceContext, final FeatureContext featureContext ) {
-        hcEngine.callRegion(region, featureContext).forEach(vcfWriter::add);
+        final List<VariantContext> calls = hcEngine.callRegion(region, featureContext);
+        profiler.run(AssemblyRegionProfiler.Stage.OUTPUT, () -> calls.forEach(vcfWriter::add));
+    }
+
+    /**
+     * Each worker gets its own {@link HaplotypeCallerEngine} (and therefore its own reference reader, assembler,
+     * likelihood and genotyping engines). Calls are added to the shared writer on the traversal thread, in order.
+     */
+    @Override
+    protected AssemblyRegionWorker makeAssemblyRegionWorker() {
+        if ( hcArgs.bamOutputPath != null ) {
+            throw new CommandLineException.BadArgumentValue(ASSEMBLY_REGION_THREADS_LONG_NAME,
+                    "multi-threaded assembly region processing is not supported together with --" + AssemblyBasedCallerArgumentCollection.BAM_OUTPUT_LONG_NAME);
+        }
+
+        final HaplotypeCallerEngine workerEngine = new HaplotypeCallerEngine(hcArgs, createOutputBamIndex, createOutputBamMD5, getHeaderForReads(), getReferenceReader(referenceArguments), makeVariantAnnotatorEngine());
+        workerEngine.setProfiler(profiler);
+        workerEngine.shareLikelihoodCache(hcEngine);
+        return new AssemblyRegionWorker() {
+            @Override
+            public Runnable process(final AssemblyRegion region, final ReferenceContext referenceContext, final FeatureContext featureContext) {
+                final List<VariantContext> calls = workerEngine.callRegion(region, featureContext);
+                return () -> profiler.run(AssemblyRegionProfiler.Stage.OUTPUT, () -> calls.forEach(vcfWriter::add));
+            }
+
+            @Override
+            public void close() {
+                workerEngine.shutdown();
+            }
+        };
     }
 
     @Override
@@ -250,5 +287,7 @@ public final class HaplotypeCaller extends AssemblyRegionWalker {
             hcEngine.shutdown();
         }
 
+        profiler.close();
+
     }
 }
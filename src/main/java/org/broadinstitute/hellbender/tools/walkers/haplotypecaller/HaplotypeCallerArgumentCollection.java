@@ -24,6 +24,8 @@ public class HaplotypeCallerArgumentCollection extends AssemblyBasedCallerArgume
     public static final String MAX_MNP_DISTANCE_SHORT_NAME = "mnp-dist";
     public static final String GQ_BAND_LONG_NAME = "gvcf-gq-bands";
     public static final String GQ_BAND_SHORT_NAME = "GQB";
+    public static final String MAX_READ_HAPLOTYPE_PRODUCT_LONG_NAME = "max-read-haplotype-product";
+    public static final String MAX_ASSEMBLY_SECONDS_LONG_NAME = "max-assembly-seconds-per-region";
 
     /**
      * You can use this argument to specify that HC should process a single sample out of a multisample BAM file. This
@@ -138,4 +140,28 @@ public class HaplotypeCallerArgumentCollection extends AssemblyBasedCallerArgume
             doc = "Two or more phased substitutions separated by this distance or less are merged into MNPs. " +
             "WARNING: When used in GVCF mode, resulting GVCFs cannot be joint-genotyped.", optional = true)
     public int maxMnpDistance = 0;
+
+    /**
+     * Bounds the cost of computing read likelihoods in pathological regions (eg., centromeres and high-copy repeats),
+     * which would otherwise dominate the running time. The assembler finds only as many of the best haplotypes of each
+     * assembly graph as could be genotyped within this budget with one read per start position. When the number of
+     * reads times the number of assembled haplotypes in a region still exceeds this value, the reads of the region are
+     * first downsampled, progressively halving the number of reads allowed to start at any one position. If that is
+     * not enough, only the reference and the best-scoring assembled haplotypes are kept. If the region is still over
+     * budget, it is not genotyped and only a reference model (or nothing) is emitted for it. Degraded regions are
+     * logged, and the calls made in them are flagged with the REGION_BUDGET INFO field.
+     */
+    @Advanced
+    @Argument(fullName = MAX_READ_HAPLOTYPE_PRODUCT_LONG_NAME, doc = "Maximum number of reads x haplotypes for which to compute likelihoods in a single region, above which the region is downsampled (0 for no limit)", optional = true)
+    public long maxReadHaplotypeProduct = 0;
+
+    /**
+     * Once a region has been processed for longer than this, the assembler stops trying further kmer sizes for it (the
+     * graph being built for the current kmer size is finished first), and the region is not genotyped: only a reference
+     * model (or nothing) is emitted for it. Since the outcome depends on timing, output may differ between runs when this is used.
+     * Skipped regions are logged.
+     */
+    @Advanced
+    @Argument(fullName = MAX_ASSEMBLY_SECONDS_LONG_NAME, doc = "Maximum time in seconds that assembling a region may take, above which the region is not genotyped (0 for no limit)", optional = true)
+    public double maxAssemblySecondsPerRegion = 0;
 }
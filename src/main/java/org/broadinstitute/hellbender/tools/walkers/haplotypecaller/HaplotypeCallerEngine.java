@@ -97,6 +97,10 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
 
     private SmithWatermanAligner aligner;
 
+    private AssemblyRegionProfiler profiler = AssemblyRegionProfiler.DISABLED;
+
+    private AssemblyRegionBudget regionBudget;
+
     public static final byte MIN_TAIL_QUALITY_WITH_ERROR_CORRECTION = 6;
 
     /**
@@ -213,6 +217,7 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
         haplotypeBAMWriter = AssemblyBasedCallerUtils.createBamWriter(hcArgs, createBamOutIndex, createBamOutMD5, readsHeader);
         assemblyEngine = AssemblyBasedCallerUtils.createReadThreadingAssembler(hcArgs);
         likelihoodCalculationEngine = AssemblyBasedCallerUtils.createLikelihoodCalculationEngine(hcArgs.likelihoodArgs);
+        regionBudget = new AssemblyRegionBudget(hcArgs.maxReadHaplotypeProduct, hcArgs.maxAssemblySecondsPerRegion, readsHeader);
 
         trimmer.initialize(hcArgs.assemblyRegionTrimmerArgs, readsHeader.getSequenceDictionary(), hcArgs.debug,
                 hcArgs.genotypingOutputMode == GenotypingOutputMode.GENOTYPE_GIVEN_ALLELES, emitReferenceConfidence());
@@ -269,6 +274,13 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
 
         Utils.validateArg(hcArgs.likelihoodArgs.BASE_QUALITY_SCORE_THRESHOLD >= QualityUtils.MIN_USABLE_Q_SCORE, "BASE_QUALITY_SCORE_THRESHOLD must be greater than or equal to " + QualityUtils.MIN_USABLE_Q_SCORE + " (QualityUtils.MIN_USABLE_Q_SCORE)");
 
+        if ( hcArgs.maxReadHaplotypeProduct < 0 ) {
+            throw new CommandLineException.BadArgumentValue(HaplotypeCallerArgumentCollection.MAX_READ_HAPLOTYPE_PRODUCT_LONG_NAME, "must be >= 0");
+        }
+        if ( hcArgs.maxAssemblySecondsPerRegion < 0 ) {
+            throw new CommandLineException.BadArgumentValue(HaplotypeCallerArgumentCollection.MAX_ASSEMBLY_SECONDS_LONG_NAME, "must be >= 0");
+        }
+
         if ( emitReferenceConfidence() && samplesList.numberOfSamples() != 1 ) {
             throw new CommandLineException.BadArgumentValue("--emit-ref-confidence", "Can only be used in single sample mode currently. Use the --sample-name argument to run on a single sample out of a multi-sample BAM file.");
         }
@@ -381,6 +393,9 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
         headerInfo.addAll(annotationEngine.getVCFAnnotationDescriptions(emitReferenceConfidence()));
         // all callers need to add these standard annotation header lines
         headerInfo.add(GATKVCFHeaderLines.getInfoLine(GATKVCFConstants.DOWNSAMPLED_KEY));
+        if ( regionBudget.hasReadHaplotypeLimit() ) {
+            headerInfo.add(GATKVCFHeaderLines.getInfoLine(GATKVCFConstants.ASSEMBLY_REGION_BUDGET_KEY));
+        }
         headerInfo.add(GATKVCFHeaderLines.getInfoLine(GATKVCFConstants.MLE_ALLELE_COUNT_KEY));
         headerInfo.add(GATKVCFHeaderLines.getInfoLine(GATKVCFConstants.MLE_ALLELE_FREQUENCY_KEY));
         // all callers need to add these standard FORMAT field header lines
@@ -442,7 +457,10 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
      */
     @Override
     public ActivityProfileState isActive( final AlignmentContext context, final ReferenceContext ref, final FeatureContext features ) {
+        return profiler.time(AssemblyRegionProfiler.Stage.ACTIVITY_PROFILE, () -> computeActivityProfileState(context, ref, features));
+    }
 
+    private ActivityProfileState computeActivityProfileState( final AlignmentContext context, final ReferenceContext ref, final FeatureContext features ) {
         if ( hcArgs.genotypingOutputMode == GenotypingOutputMode.GENOTYPE_GIVEN_ALLELES ) {
             final VariantContext vcFromGivenAlleles = GenotypingGivenAllelesUtils.composeGivenAllelesVariantContextFromVariantList(features,
                     ref.getInterval(), hcArgs.genotypeFilteredAlleles, hcArgs.alleles);
@@ -502,11 +520,20 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
      * @return List of variants discovered in the region (may be empty)
      */
     public List<VariantContext> callRegion(final AssemblyRegion region, final FeatureContext features) {
+        final AssemblyRegionProfiler.RegionProfile regionProfile = profiler.startRegion(region);
+        final List<VariantContext> calls = callRegion(region, features, regionProfile);
+        regionProfile.finish();
+        return calls;
+    }
+
+    private List<VariantContext> callRegion(final AssemblyRegion region, final FeatureContext features, final AssemblyRegionProfiler.RegionProfile regionProfile) {
         if ( hcArgs.justDetermineActiveRegions ) {
             // we're benchmarking ART and/or the active region determination code in the HC, just leave without doing any work
             return NO_CALLS;
         }
 
+        final long regionStartNanos = System.nanoTime();
+
         final List<VariantContext> VCpriors = new ArrayList<>();
         if (hcArgs.genotypeArgs.supportVariants != null) {
             features.getValues(hcArgs.genotypeArgs.supportVariants).stream().forEach(VCpriors::add);
@@ -518,7 +545,7 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
 
         if( ! region.isActive() ) {
             // Not active so nothing to do!
-            return referenceModelForNoVariation(region, true, VCpriors);
+            return referenceModelForNoVariation(region, true, VCpriors, regionProfile);
         }
 
         final List<VariantContext> givenAlleles = new ArrayList<>();
@@ -527,15 +554,28 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
 
             // No alleles found in this region so nothing to do!
             if ( givenAlleles.isEmpty() ) {
-                return referenceModelForNoVariation(region, true, VCpriors);
+                return referenceModelForNoVariation(region, true, VCpriors, regionProfile);
             }
         } else if( region.size() == 0 ) {
             // No reads here so nothing to do!
-            return referenceModelForNoVariation(region, true, VCpriors);
+            return referenceModelForNoVariation(region, true, VCpriors, regionProfile);
+        }
+
+        if ( regionBudget.hasAssemblyTimeLimit() ) {
+            assemblyEngine.setAssemblyDeadline(regionBudget.getAssemblyDeadline(regionStartNanos));
+        }
+        if ( regionBudget.hasReadHaplotypeLimit() ) {
+            // don't spend time finding haplotypes that couldn't be genotyped within the budget
+            assemblyEngine.setMaxHaplotypesPerGraph(regionBudget.getMaxHaplotypesPerGraph(region));
         }
 
         // run the local assembler, getting back a collection of information on how we should proceed
-        final AssemblyResultSet untrimmedAssemblyResult =  AssemblyBasedCallerUtils.assembleReads(region, givenAlleles, hcArgs, readsHeader, samplesList, logger, referenceReader, assemblyEngine, aligner);
+        final AssemblyResultSet untrimmedAssemblyResult = regionProfile.time(AssemblyRegionProfiler.Stage.ASSEMBLY, () ->
+                AssemblyBasedCallerUtils.assembleReads(region, givenAlleles, hcArgs, readsHeader, samplesList, logger, referenceReader, assemblyEngine, aligner));
+
+        if ( regionBudget.isAssemblyOverTime(region, regionStartNanos) ) {
+            return referenceModelForNoVariation(region, false, VCpriors, regionProfile);
+        }
 
         final SortedSet<VariantContext> allVariationEvents = untrimmedAssemblyResult.getVariationEvents(hcArgs.maxMnpDistance);
         // TODO - line bellow might be unnecessary : it might be that assemblyResult will always have those alleles anyway
@@ -545,13 +585,13 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
         final AssemblyRegionTrimmer.Result trimmingResult = trimmer.trim(region, allVariationEvents);
 
         if ( ! trimmingResult.isVariationPresent() && ! hcArgs.disableOptimizations ) {
-            return referenceModelForNoVariation(region, false, VCpriors);
+            return referenceModelForNoVariation(region, false, VCpriors, regionProfile);
         }
 
-        final AssemblyResultSet assemblyResult =
+        final AssemblyResultSet trimmedAssemblyResult =
                 trimmingResult.needsTrimming() ? untrimmedAssemblyResult.trimTo(trimmingResult.getCallableRegion()) : untrimmedAssemblyResult;
 
-        final AssemblyRegion regionForGenotyping = assemblyResult.getRegionForGenotyping();
+        final AssemblyRegion regionForGenotyping = trimmedAssemblyResult.getRegionForGenotyping();
 
         // filter out reads from genotyping which fail mapping quality based criteria
         //TODO - why don't do this before any assembly is done? Why not just once at the beginning of this method
@@ -563,8 +603,8 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
 
         // abort early if something is out of the acceptable range
         // TODO is this ever true at this point??? perhaps GGA. Need to check.
-        if( ! assemblyResult.isVariationPresent() && ! hcArgs.disableOptimizations ) {
-            return referenceModelForNoVariation(region, false, VCpriors);
+        if( ! trimmedAssemblyResult.isVariationPresent() && ! hcArgs.disableOptimizations ) {
+            return referenceModelForNoVariation(region, false, VCpriors, regionProfile);
         }
 
         // For sure this is not true if gVCF is on.
@@ -575,20 +615,36 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
         // TODO is this ever true at this point??? perhaps GGA. Need to check.
         if ( regionForGenotyping.size() == 0 && ! hcArgs.disableOptimizations ) {
             // no reads remain after filtering so nothing else to do!
-            return referenceModelForNoVariation(region, false, VCpriors);
+            return referenceModelForNoVariation(region, false, VCpriors, regionProfile);
+        }
+
+        // keep the cost of pathological regions within the budget, downsampling their reads and/or haplotypes
+        final boolean haplotypeLimitReached = regionBudget.hasReadHaplotypeLimit() && assemblyEngine.wasHaplotypeLimitReached();
+        if ( haplotypeLimitReached ) {
+            regionBudget.recordHaplotypeLimitReached(region);
+        }
+        final int numReadsBeforeBudget = regionForGenotyping.size();
+        final AssemblyResultSet assemblyResult = regionBudget.apply(trimmedAssemblyResult);
+        if ( assemblyResult == null ) {
+            return referenceModelForNoVariation(region, false, VCpriors, regionProfile);
         }
+        final boolean degradedByBudget = haplotypeLimitReached || assemblyResult != trimmedAssemblyResult
+                || regionForGenotyping.size() < numReadsBeforeBudget;
 
         // evaluate each sample's reads against all haplotypes
         final List<Haplotype> haplotypes = assemblyResult.getHaplotypeList();
         final Map<String,List<GATKRead>> reads = splitReadsBySample(regionForGenotyping.getReads());
+        regionProfile.setHaplotypeCount(haplotypes.size());
 
         // Calculate the likelihoods: CPU intensive part.
-        final ReadLikelihoods<Haplotype> readLikelihoods =
-                likelihoodCalculationEngine.computeReadLikelihoods(assemblyResult, samplesList, reads);
+        final ReadLikelihoods<Haplotype> readLikelihoods = regionProfile.time(AssemblyRegionProfiler.Stage.READ_LIKELIHOODS, () -> {
+            final ReadLikelihoods<Haplotype> likelihoods = likelihoodCalculationEngine.computeReadLikelihoods(assemblyResult, samplesList, reads);
 
-        // Realign reads to their best haplotype.
-        final Map<GATKRead, GATKRead> readRealignments = AssemblyBasedCallerUtils.realignReadsToTheirBestHaplotype(readLikelihoods, assemblyResult.getReferenceHaplotype(), assemblyResult.getPaddedReferenceLoc(), aligner);
-        readLikelihoods.changeReads(readRealignments);
+            // Realign reads to their best haplotype.
+            final Map<GATKRead, GATKRead> readRealignments = AssemblyBasedCallerUtils.realignReadsToTheirBestHaplotype(likelihoods, assemblyResult.getReferenceHaplotype(), assemblyResult.getPaddedReferenceLoc(), aligner);
+            likelihoods.changeReads(readRealignments);
+            return likelihoods;
+        });
 
         // Note: we used to subset down at this point to only the "best" haplotypes in all samples for genotyping, but there
         //  was a bad interaction between that selection and the marginalization that happens over each event when computing
@@ -596,7 +652,7 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
         //  haplotype containing C as reference (and vice versa).  Now this is fine if all possible haplotypes are included
         //  in the genotyping, but we lose information if we select down to a few haplotypes.  [EB]
 
-        final HaplotypeCallerGenotypingEngine.CalledHaplotypes calledHaplotypes = genotypingEngine.assignGenotypeLikelihoods(
+        final HaplotypeCallerGenotypingEngine.CalledHaplotypes calledHaplotypes = regionProfile.time(AssemblyRegionProfiler.Stage.GENOTYPING, () -> genotypingEngine.assignGenotypeLikelihoods(
                 haplotypes,
                 readLikelihoods,
                 perSampleFilteredReadList,
@@ -608,7 +664,9 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
                 emitReferenceConfidence(),
                 hcArgs.maxMnpDistance,
                 readsHeader,
-                haplotypeBAMWriter.isPresent());
+                haplotypeBAMWriter.isPresent()));
+
+        final List<VariantContext> calls = degradedByBudget ? flagDegradedByBudget(calledHaplotypes.getCalls()) : calledHaplotypes.getCalls();
 
         if ( haplotypeBAMWriter.isPresent() ) {
             final Set<Haplotype> calledHaplotypeSet = new HashSet<>(calledHaplotypes.getCalledHaplotypes());
@@ -626,35 +684,45 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
         if ( emitReferenceConfidence() ) {
             if ( !containsCalls(calledHaplotypes) ) {
                 // no called all of the potential haplotypes
-                return referenceModelForNoVariation(region, false, VCpriors);
+                return referenceModelForNoVariation(region, false, VCpriors, regionProfile);
             }
             else {
                 final List<VariantContext> result = new LinkedList<>();
                 // output left-flanking non-variant section:
                 if (trimmingResult.hasLeftFlankingRegion()) {
-                    result.addAll(referenceModelForNoVariation(trimmingResult.nonVariantLeftFlankRegion(), false, VCpriors));
+                    result.addAll(referenceModelForNoVariation(trimmingResult.nonVariantLeftFlankRegion(), false, VCpriors, regionProfile));
                 }
                 // output variant containing region.
-                result.addAll(referenceConfidenceModel.calculateRefConfidence(assemblyResult.getReferenceHaplotype(),
+                result.addAll(regionProfile.time(AssemblyRegionProfiler.Stage.REFERENCE_CONFIDENCE, () ->
+                        referenceConfidenceModel.calculateRefConfidence(assemblyResult.getReferenceHaplotype(),
                         calledHaplotypes.getCalledHaplotypes(), assemblyResult.getPaddedReferenceLoc(), regionForGenotyping,
-                        readLikelihoods, genotypingEngine.getPloidyModel(), calledHaplotypes.getCalls(), hcArgs.genotypeArgs.supportVariants != null,
-                        VCpriors));
+                        readLikelihoods, genotypingEngine.getPloidyModel(), calls, hcArgs.genotypeArgs.supportVariants != null,
+                        VCpriors)));
                 // output right-flanking non-variant section:
                 if (trimmingResult.hasRightFlankingRegion()) {
-                    result.addAll(referenceModelForNoVariation(trimmingResult.nonVariantRightFlankRegion(), false, VCpriors));
+                    result.addAll(referenceModelForNoVariation(trimmingResult.nonVariantRightFlankRegion(), false, VCpriors, regionProfile));
                 }
                 return result;
             }
         }
         else {
             //TODO this should be updated once reducible annotations are handled properly.
-            return calledHaplotypes.getCalls()
+            return calls
                     .stream()
                     .map(RMSMappingQuality.getInstance()::finalizeRawMQ)
                     .collect(Collectors.toList());
         }
     }
 
+    /**
+     * Flag the calls of a region whose reads or haplotypes were reduced to fit the {@link AssemblyRegionBudget}
+     */
+    private static List<VariantContext> flagDegradedByBudget(final List<VariantContext> calls) {
+        return calls.stream()
+                .map(call -> new VariantContextBuilder(call).attribute(GATKVCFConstants.ASSEMBLY_REGION_BUDGET_KEY, true).make())
+                .collect(Collectors.toList());
+    }
+
     private boolean containsCalls(final HaplotypeCallerGenotypingEngine.CalledHaplotypes calledHaplotypes) {
         return calledHaplotypes.getCalls().stream()
                 .flatMap(call -> call.getGenotypes().stream())
@@ -667,23 +735,27 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
      *
      * @param region the region to return a no-variation result
      * @param needsToBeFinalized should the region be finalized before computing the ref model (should be false if already done)
+     * @param regionProfile profile of the region being called, to which the time spent here is attributed
      * @return a list of variant contexts (can be empty) to emit for this ref region
      */
-    private List<VariantContext> referenceModelForNoVariation(final AssemblyRegion region, final boolean needsToBeFinalized, final List<VariantContext> VCpriors) {
+    private List<VariantContext> referenceModelForNoVariation(final AssemblyRegion region, final boolean needsToBeFinalized, final List<VariantContext> VCpriors,
+                                                              final AssemblyRegionProfiler.RegionProfile regionProfile) {
         if ( emitReferenceConfidence() ) {
-            //TODO - why the activeRegion cannot manage its own one-time finalization and filtering?
-            //TODO - perhaps we can remove the last parameter of this method and the three lines bellow?
-            if ( needsToBeFinalized ) {
-                AssemblyBasedCallerUtils.finalizeRegion(region, hcArgs.errorCorrectReads, hcArgs.dontUseSoftClippedBases, minTailQuality, readsHeader, samplesList, ! hcArgs.doNotCorrectOverlappingBaseQualities);
-            }
-            filterNonPassingReads(region);
+            return regionProfile.time(AssemblyRegionProfiler.Stage.REFERENCE_CONFIDENCE, () -> {
+                //TODO - why the activeRegion cannot manage its own one-time finalization and filtering?
+                //TODO - perhaps we can remove the last parameter of this method and the three lines bellow?
+                if ( needsToBeFinalized ) {
+                    AssemblyBasedCallerUtils.finalizeRegion(region, hcArgs.errorCorrectReads, hcArgs.dontUseSoftClippedBases, minTailQuality, readsHeader, samplesList, ! hcArgs.doNotCorrectOverlappingBaseQualities);
+                }
+                filterNonPassingReads(region);
 
-            final SimpleInterval paddedLoc = region.getExtendedSpan();
-            final Haplotype refHaplotype = AssemblyBasedCallerUtils.createReferenceHaplotype(region, paddedLoc, referenceReader);
-            final List<Haplotype> haplotypes = Collections.singletonList(refHaplotype);
-            return referenceConfidenceModel.calculateRefConfidence(refHaplotype, haplotypes,
-                    paddedLoc, region, createDummyStratifiedReadMap(refHaplotype, samplesList, region),
-                    genotypingEngine.getPloidyModel(), Collections.emptyList(), hcArgs.genotypeArgs.supportVariants != null, VCpriors);
+                final SimpleInterval paddedLoc = region.getExtendedSpan();
+                final Haplotype refHaplotype = AssemblyBasedCallerUtils.createReferenceHaplotype(region, paddedLoc, referenceReader);
+                final List<Haplotype> haplotypes = Collections.singletonList(refHaplotype);
+                return referenceConfidenceModel.calculateRefConfidence(refHaplotype, haplotypes,
+                        paddedLoc, region, createDummyStratifiedReadMap(refHaplotype, samplesList, region),
+                        genotypingEngine.getPloidyModel(), Collections.emptyList(), hcArgs.genotypeArgs.supportVariants != null, VCpriors);
+            });
         }
         else {
             return NO_CALLS;
@@ -704,11 +776,35 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
                                      splitReadsBySample(samples, region.getReads()));
     }
 
+    /**
+     * Set the profiler to which this engine reports the time spent in each stage of calling. The same profiler
+     * may be shared by several engines. By default nothing is profiled.
+     *
+     * @param profiler profiler to report to, not closed by this engine
+     */
+    public void setProfiler(final AssemblyRegionProfiler profiler) {
+        this.profiler = Utils.nonNull(profiler);
+    }
+
+    /**
+     * Use the cache of PairHMM results of another engine instead of a cache of our own, so that the engines of
+     * several threads share a single cache bounded by the configured size. Does nothing if results are not cached.
+     *
+     * @param other engine owning the cache, which reports its statistics on shutdown
+     */
+    public void shareLikelihoodCache(final HaplotypeCallerEngine other) {
+        AssemblyBasedCallerUtils.shareLikelihoodCache(likelihoodCalculationEngine, Utils.nonNull(other).likelihoodCalculationEngine);
+    }
+
     /**
      * Shutdown this HC engine, closing resources as appropriate
      */
     public void shutdown() {
+        if ( regionBudget.isEnabled() ) {
+            logger.info(regionBudget.getSummaryLine());
+        }
         likelihoodCalculationEngine.close();
+        assemblyEngine.close();
         aligner.close();
         if ( haplotypeBAMWriter.isPresent() ) {
             haplotypeBAMWriter.get().close();
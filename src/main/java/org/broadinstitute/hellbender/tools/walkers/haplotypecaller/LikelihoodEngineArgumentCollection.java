@@ -68,6 +68,18 @@ public final class LikelihoodEngineArgumentCollection implements Serializable {
     @Argument(fullName="phred-scaled-global-read-mismapping-rate", doc="The global assumed mismapping rate for reads", optional = true)
     public int phredScaledGlobalReadMismappingRate = 45;
 
+    /**
+     * If greater than zero, remember the PairHMM likelihood of each read given each haplotype, keyed on the read's
+     * bases, qualities and gap penalties and on the haplotype's bases, so that it need not be recomputed when the same
+     * read and haplotype appear again in an overlapping assembly region. Cached results are only reused for identical
+     * inputs, so this does not change the output. The value is an approximate bound on the memory used by the cache,
+     * in megabytes. When assembly regions are processed on several threads, the threads share a single cache, so the
+     * bound applies to all of them together. Hit and miss counts are reported at the end of the run.
+     */
+    @Advanced
+    @Argument(fullName = "pair-hmm-results-cache-size", doc = "Approximate maximum size in MB of a cache of PairHMM results shared across assembly regions and threads (0 to disable)", optional = true)
+    public int pairHMMResultsCacheSizeMB = 0;
+
     @ArgumentCollection
     public PairHMMNativeArgumentCollection pairHMMNativeArgs = new PairHMMNativeArgumentCollection();
 
@@ -13,6 +13,7 @@ import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.genotyper.*;
 import org.broadinstitute.hellbender.utils.haplotype.Haplotype;
 import org.broadinstitute.hellbender.utils.pairhmm.PairHMM;
+import org.broadinstitute.hellbender.utils.pairhmm.PairHMMLikelihoodCache;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
 import org.broadinstitute.hellbender.utils.read.ReadUtils;
 import org.broadinstitute.hellbender.utils.variant.GATKVariantContextUtils;
@@ -43,6 +44,9 @@ public final class PairHMMLikelihoodCalculationEngine implements ReadLikelihoodC
 
     private final PairHMM pairHMM;
 
+    // false once the cache of PairHMM results of another engine is shared
+    private boolean ownsLikelihoodCache = true;
+
     @VisibleForTesting
     static boolean writeLikelihoodsToFile = false;
 
@@ -126,6 +130,35 @@ public final class PairHMMLikelihoodCalculationEngine implements ReadLikelihoodC
                                               final double log10globalReadMismappingRate,
                                               final PCRErrorModel pcrErrorModel,
                                               final byte baseQualityScoreThreshold) {
+        this( constantGCP, arguments, hmmType, log10globalReadMismappingRate, pcrErrorModel, baseQualityScoreThreshold, 0 );
+    }
+
+    /**
+     * Create a new PairHMMLikelihoodCalculationEngine using provided parameters and hmm to do its calculations
+     *
+     * @param constantGCP the gap continuation penalty to use with the PairHMM
+     * @param hmmType the type of the HMM to use
+     * @param log10globalReadMismappingRate the global mismapping probability, in log10(prob) units.  A value of
+     *                                      -3 means that the chance that a read doesn't actually belong at this
+     *                                      location in the genome is 1 in 1000.  The effect of this parameter is
+     *                                      to cap the maximum likelihood difference between the reference haplotype
+     *                                      and the best alternative haplotype by -3 log units.  So if the best
+     *                                      haplotype is at -10 and this parameter has a value of -3 then even if the
+     *                                      reference haplotype gets a score of -100 from the pairhmm it will be
+     *                                      assigned a likelihood of -13.
+     * @param pcrErrorModel model to correct for PCR indel artifacts
+     * @param baseQualityScoreThreshold Base qualities below this threshold will be reduced to the minimum usable base
+     *                                  quality.
+     * @param resultsCacheSizeMB approximate size in MB of the cache of PairHMM results kept across calls, or 0 to
+     *                           disable the cache
+     */
+    public PairHMMLikelihoodCalculationEngine(final byte constantGCP,
+                                              final PairHMMNativeArguments arguments,
+                                              final PairHMM.Implementation hmmType,
+                                              final double log10globalReadMismappingRate,
+                                              final PCRErrorModel pcrErrorModel,
+                                              final byte baseQualityScoreThreshold,
+                                              final int resultsCacheSizeMB) {
         Utils.nonNull(hmmType, "hmmType is null");
         Utils.nonNull(pcrErrorModel, "pcrErrorModel is null");
         if (constantGCP < 0){
@@ -147,6 +180,13 @@ public final class PairHMMLikelihoodCalculationEngine implements ReadLikelihoodC
             throw new IllegalArgumentException("baseQualityScoreThreshold must be greater than or equal to " + QualityUtils.MIN_USABLE_Q_SCORE + " (QualityUtils.MIN_USABLE_Q_SCORE)");
         }
         this.baseQualityScoreThreshold = baseQualityScoreThreshold;
+
+        if (resultsCacheSizeMB < 0) {
+            throw new IllegalArgumentException("resultsCacheSizeMB must be non-negative");
+        }
+        if (resultsCacheSizeMB > 0) {
+            pairHMM.setLikelihoodCache(new PairHMMLikelihoodCache(resultsCacheSizeMB * 1024L * 1024L));
+        }
     }
 
     private PrintStream makeLikelihoodStream() {
@@ -157,11 +197,31 @@ public final class PairHMMLikelihoodCalculationEngine implements ReadLikelihoodC
         }
     }
 
+    /**
+     * Have this engine use the cache of PairHMM results of another engine instead of its own, so that the engines of
+     * several threads share a single cache, bounded by the size given to the other engine. The statistics of the
+     * cache are reported when the other engine is closed. Does nothing if the other engine does not cache results.
+     *
+     * @param other engine owning the cache to share
+     */
+    public void shareLikelihoodCache(final PairHMMLikelihoodCalculationEngine other) {
+        Utils.nonNull(other);
+        final PairHMMLikelihoodCache sharedCache = other.pairHMM.getLikelihoodCache();
+        if ( sharedCache != null ) {
+            pairHMM.setLikelihoodCache(sharedCache);
+            ownsLikelihoodCache = false;
+        }
+    }
+
     @Override
     public void close() {
         if ( likelihoodsStream != null ) {
             likelihoodsStream.close();
         }
+        if ( ! ownsLikelihoodCache ) {
+            // reported by the engine owning the cache
+            pairHMM.setLikelihoodCache(null);
+        }
         pairHMM.close();
     }
 
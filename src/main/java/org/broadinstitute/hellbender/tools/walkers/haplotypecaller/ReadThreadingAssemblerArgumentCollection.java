@@ -91,6 +91,19 @@ public final class ReadThreadingAssemblerArgumentCollection implements Serializa
     @Argument(fullName="max-num-haplotypes-in-population", doc="Maximum number of haplotypes to consider for your population", optional = true)
     public int maxNumHaplotypesInPopulation = 128;
 
+    /**
+     * Build the assembly graphs for the different kmer sizes (including the larger kmer sizes tried when graph cycles
+     * are detected) concurrently, using up to this many threads. Each assembly engine has its own threads, so tools
+     * processing assembly regions on several threads use this many threads per region thread. This mostly speeds up
+     * difficult regions such as STRs and segmental duplications, where each graph is expensive to build; the assembly
+     * results are identical to those of the default single-threaded behavior.
+     */
+    @Advanced
+    @Argument(fullName="kmer-size-threads",
+            doc="Number of threads to use for building the assembly graphs of different kmer sizes concurrently, per assembly engine",
+            optional = true, minValue = 1)
+    public int kmerSizeThreads = 1;
+
     /**
      * Enabling this argument may cause fundamental problems with the assembly graph itself.
      */
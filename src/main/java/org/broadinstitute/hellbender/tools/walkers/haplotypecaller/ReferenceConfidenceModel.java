@@ -24,6 +24,7 @@ import org.broadinstitute.hellbender.utils.pileup.ReadPileup;
 import org.broadinstitute.hellbender.utils.read.AlignmentUtils;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
 import org.broadinstitute.hellbender.utils.read.ReadCoordinateComparator;
+import org.broadinstitute.hellbender.utils.read.ReadUtils;
 import org.broadinstitute.hellbender.utils.variant.GATKVCFConstants;
 import org.broadinstitute.hellbender.utils.variant.GATKVariantContextUtils;
 import org.broadinstitute.hellbender.utils.variant.HomoSapiensConstants;
@@ -248,12 +249,17 @@ public final class ReferenceConfidenceModel {
         final int ploidy = ploidyModel.samplePloidy(0); // the first sample = the only sample in reference-confidence mode.
 
         final SimpleInterval refSpan = activeRegion.getSpan();
-        final List<ReadPileup> refPileups = getPileupsOverReference(refHaplotype, calledHaplotypes, paddedReferenceLoc, activeRegion, refSpan, readLikelihoods);
         final byte[] ref = refHaplotype.getBases();
-        final List<VariantContext> results = new ArrayList<>(refSpan.size());
         final String sampleName = readLikelihoods.getSample(0);
-
         final int globalRefOffset = refSpan.getStart() - activeRegion.getExtendedSpan().getStart();
+
+        if ( variantCalls.isEmpty() ) {
+            // the common case: a stretch without any calls, which doesn't need full pileups
+            return calculateRefConfidenceWithoutPileups(ploidy, ref, sampleName, globalRefOffset, activeRegion, readLikelihoods, applyPriors, VCpriors);
+        }
+
+        final List<ReadPileup> refPileups = getPileupsOverReference(refHaplotype, calledHaplotypes, paddedReferenceLoc, activeRegion, refSpan, readLikelihoods);
+        final List<VariantContext> results = new ArrayList<>(refSpan.size());
         for ( final ReadPileup pileup : refPileups ) {
             final Locatable curPos = pileup.getLocation();
             final int offset = curPos.getStart() - refSpan.getStart();
@@ -291,7 +297,18 @@ public final class ReferenceConfidenceModel {
         final int refOffset = offset + globalRefOffset;
         final byte refBase = ref[refOffset];
         final RefVsAnyResult homRefCalc = calcGenotypeLikelihoodsOfRefVsAny(ploidy, pileup, refBase, BASE_QUAL_THRESHOLD, null, true);
+        final int nIndelInformativeReads = calcNIndelInformativeReads(pileup, refOffset, ref, indelInformativeDepthIndelSize);
+        return makeReferenceConfidenceVariantContext(ploidy, refBase, sampleName, curPos, homRefCalc, nIndelInformativeReads, applyPriors, VCpriors);
+    }
 
+    private VariantContext makeReferenceConfidenceVariantContext(final int ploidy,
+                                                                 final byte refBase,
+                                                                 final String sampleName,
+                                                                 final Locatable curPos,
+                                                                 final RefVsAnyResult homRefCalc,
+                                                                 final int nIndelInformativeReads,
+                                                                 final boolean applyPriors,
+                                                                 final List<VariantContext> VCpriors) {
         final Allele refAllele = Allele.create(refBase, true);
         final List<Allele> refSiteAlleles = Arrays.asList(refAllele, Allele.NON_REF_ALLELE);
         final VariantContextBuilder vcb = new VariantContextBuilder("HC", curPos.getContig(), curPos.getStart(), curPos.getStart(), refSiteAlleles);
@@ -301,7 +318,6 @@ public final class ReferenceConfidenceModel {
 
         // genotype likelihood calculation
         final GenotypeLikelihoods snpGLs = GenotypeLikelihoods.fromLog10Likelihoods(homRefCalc.getGenotypeLikelihoodsCappedByHomRefLikelihood());
-        final int nIndelInformativeReads = calcNIndelInformativeReads(pileup, refOffset, ref, indelInformativeDepthIndelSize);
         final GenotypeLikelihoods indelGLs = getIndelPLs(ploidy,nIndelInformativeReads);
 
         // now that we have the SNP and indel GLs, we take the one with the least confidence,
@@ -360,7 +376,8 @@ public final class ReferenceConfidenceModel {
         return initializeIndelPLCache(ploidy)[nInformativeReads];
     }
 
-    private GenotypeLikelihoods[] initializeIndelPLCache(final int ploidy) {
+    // the cache is shared by all instances, which may be used concurrently by multi-threaded tools
+    private static synchronized GenotypeLikelihoods[] initializeIndelPLCache(final int ploidy) {
 
         if (indelPLCache.length <= ploidy) {
             indelPLCache = Arrays.copyOf(indelPLCache, ploidy << 1);
@@ -463,6 +480,227 @@ public final class ReferenceConfidenceModel {
         return element.getBase() != refBase || element.isDeletion(); //we shouldn't have soft clips after assembly
     }
 
+    /**
+     * Calculate the reference confidence over the span of activeRegion, when there are no variant calls in it,
+     * without building pileups.
+     *
+     * Rather than iterating over the reads position by position, each read is walked along its cigar once, adding
+     * its contribution to compact per-position accumulators (likelihood sums, ref/non-ref depths and the number of
+     * indel-informative reads). The per-element likelihood terms only depend on the base quality and on whether the
+     * base matches the reference, so they are looked up in a per-quality table instead of being recomputed for every
+     * base. Reads are visited in the same coordinate order as by the pileup-based calculation, so the per-position
+     * sums are accumulated in the same order and the results are identical to it.
+     */
+    private List<VariantContext> calculateRefConfidenceWithoutPileups(final int ploidy,
+                                                                      final byte[] ref,
+                                                                      final String sampleName,
+                                                                      final int globalRefOffset,
+                                                                      final AssemblyRegion activeRegion,
+                                                                      final ReadLikelihoods<Haplotype> readLikelihoods,
+                                                                      final boolean applyPriors,
+                                                                      final List<VariantContext> VCpriors) {
+        final SimpleInterval refSpan = activeRegion.getSpan();
+        final RefVsAnyAccumulator accumulator = new RefVsAnyAccumulator(ploidy, refSpan, ref, globalRefOffset);
+
+        final List<GATKRead> reads = new ArrayList<>(readLikelihoods.sampleReads(0));
+        reads.sort(new ReadCoordinateComparator(activeRegion.getHeader()));
+        for ( final GATKRead read : reads ) {
+            accumulator.add(read);
+        }
+
+        final List<VariantContext> results = new ArrayList<>(refSpan.size());
+        for ( int i = 0; i < refSpan.size(); i++ ) {
+            final SimpleInterval curPos = new SimpleInterval(refSpan.getContig(), refSpan.getStart() + i, refSpan.getStart() + i);
+            results.add(makeReferenceConfidenceVariantContext(ploidy, ref[i + globalRefOffset], sampleName, curPos,
+                    accumulator.getResult(i), accumulator.getNIndelInformativeReads(i), applyPriors, getMatchingPriors(curPos, null, VCpriors)));
+        }
+        return results;
+    }
+
+    /**
+     * Accumulates, read by read, the same quantities that {@link #calcGenotypeLikelihoodsOfRefVsAny} (for realigned
+     * reads and without soft-clip tracking) and {@link #calcNIndelInformativeReads} compute from a pileup, for every
+     * position of a span.
+     */
+    private final class RefVsAnyAccumulator {
+        private final int likelihoodCount;
+        private final double log10Ploidy;
+        private final int spanStart;
+        private final int spanEnd;
+        private final byte[] ref;
+        private final int globalRefOffset;
+
+        // likelihood sums, indexed by position in the span * likelihoodCount + genotype
+        private final double[] likelihoodSums;
+        private final int[] refDepths;
+        private final int[] nonRefDepths;
+        private final int[] nIndelInformativeReads;
+
+        // per-quality likelihood terms, lazily filled in; indexed by [isAlt ? 1 : 0][qual]
+        private final double[][][] likelihoodTerms = new double[2][Byte.MAX_VALUE + 1][];
+
+        RefVsAnyAccumulator(final int ploidy, final SimpleInterval span, final byte[] ref, final int globalRefOffset) {
+            this.likelihoodCount = ploidy + 1;
+            this.log10Ploidy = MathUtils.log10(ploidy);
+            this.spanStart = span.getStart();
+            this.spanEnd = span.getEnd();
+            this.ref = ref;
+            this.globalRefOffset = globalRefOffset;
+            this.likelihoodSums = new double[span.size() * likelihoodCount];
+            this.refDepths = new int[span.size()];
+            this.nonRefDepths = new int[span.size()];
+            this.nIndelInformativeReads = new int[span.size()];
+        }
+
+        /**
+         * @return the terms added to the hom-ref, hom-non-ref and then each het genotype likelihood by a base of this
+         *         quality, computed exactly as in {@link #applyPileupElementRefVsNonRefLikelihoodAndCount}
+         */
+        private double[] getLikelihoodTerms(final boolean isAlt, final byte qual) {
+            final double[][] termsByQual = likelihoodTerms[isAlt ? 1 : 0];
+            if ( termsByQual[qual] == null ) {
+                final double referenceLikelihood = isAlt ? QualityUtils.qualToErrorProbLog10(qual) + MathUtils.LOG10_ONE_THIRD : QualityUtils.qualToProbLog10(qual);
+                final double nonRefLikelihood = isAlt ? QualityUtils.qualToProbLog10(qual) : QualityUtils.qualToErrorProbLog10(qual) + MathUtils.LOG10_ONE_THIRD;
+                final double[] terms = new double[likelihoodCount + 1];
+                terms[0] = referenceLikelihood + log10Ploidy;
+                terms[1] = nonRefLikelihood + log10Ploidy;
+                for (int i = 1, j = likelihoodCount - 2; i < likelihoodCount - 1; i++, j--) {
+                    terms[i + 1] = MathUtils.approximateLog10SumLog10(referenceLikelihood + MathUtils.log10(j), nonRefLikelihood + MathUtils.log10(i));
+                }
+                termsByQual[qual] = terms;
+            }
+            return termsByQual[qual];
+        }
+
+        /**
+         * Add the bases (and deletions) of read that fall within the span, following the same rules as the pileups
+         * produced by {@link LocusIteratorByState} (no N's, no bases within the adaptor)
+         */
+        void add(final GATKRead read) {
+            final byte[] bases = read.getBasesNoCopy();
+            final byte[] quals = read.getBaseQualitiesNoCopy();
+            final List<CigarElement> cigarElements = read.getCigarElements();
+            final int nCigarElements = cigarElements.size();
+
+            byte[] alignedBases = null;
+            byte[] alignedQuals = null;
+
+            int refPos = read.getStart();
+            int readOffset = 0;
+            // the offset into the read bases aligned one-to-one with the reference; see getCigarModifiedOffset
+            int cigarModifiedOffset = 0;
+            for ( int cigarIndex = 0; cigarIndex < nCigarElements && refPos <= spanEnd; cigarIndex++ ) {
+                final CigarElement element = cigarElements.get(cigarIndex);
+                final CigarOperator op = element.getOperator();
+                final int length = element.getLength();
+                switch ( op ) {
+                    case M:
+                    case EQ:
+                    case X:
+                    case D:
+                        final boolean isDeletion = op == CigarOperator.D;
+                        // whether the last base of this element is followed by an indel, in which case it is not indel-informative
+                        final boolean endsBeforeIndel = ! isDeletion && (isNextOnGenomeDeletion(cigarElements, cigarIndex) ||
+                                (cigarIndex + 1 < nCigarElements && cigarElements.get(cigarIndex + 1).getOperator() == CigarOperator.I));
+                        final int first = Math.max(0, spanStart - refPos);
+                        final int last = Math.min(length, spanEnd - refPos + 1);
+                        for ( int k = first; k < last; k++ ) {
+                            final int pos = refPos + k;
+                            if ( ReadUtils.isBaseInsideAdaptor(read, pos) ) {
+                                continue;
+                            }
+                            final int spanOffset = pos - spanStart;
+                            final int refOffset = spanOffset + globalRefOffset;
+
+                            final byte qual = isDeletion ? REF_MODEL_DELETION_QUAL : quals[readOffset + k];
+                            if ( isDeletion || qual > BASE_QUAL_THRESHOLD ) {
+                                final boolean isAlt = isDeletion || bases[readOffset + k] != ref[refOffset];
+                                if ( isAlt ) {
+                                    nonRefDepths[spanOffset]++;
+                                } else {
+                                    refDepths[spanOffset]++;
+                                }
+                                final double[] terms = getLikelihoodTerms(isAlt, qual);
+                                final int sumsOffset = spanOffset * likelihoodCount;
+                                likelihoodSums[sumsOffset] += terms[0];
+                                likelihoodSums[sumsOffset + likelihoodCount - 1] += terms[1];
+                                for ( int i = 1; i < likelihoodCount - 1; i++ ) {
+                                    likelihoodSums[sumsOffset + i] += terms[i + 1];
+                                }
+                            }
+
+                            if ( ! isDeletion && ! (endsBeforeIndel && k == length - 1) && nIndelInformativeReads[spanOffset] < MAX_N_INDEL_INFORMATIVE_READS ) {
+                                final int offset = cigarModifiedOffset + k;
+                                if ( read.getLength() - offset < indelInformativeDepthIndelSize || ref.length - refOffset < indelInformativeDepthIndelSize ) {
+                                    continue;
+                                }
+                                if ( alignedBases == null ) {
+                                    alignedBases = AlignmentUtils.getBasesAlignedOneToOne(read);
+                                    alignedQuals = AlignmentUtils.getBaseQualsAlignedOneToOne(read);
+                                }
+                                if ( isAlignedReadInformativeAboutIndelsOfSize(alignedBases, alignedQuals, offset, ref, refOffset, indelInformativeDepthIndelSize) ) {
+                                    nIndelInformativeReads[spanOffset]++;
+                                }
+                            }
+                        }
+                        refPos += length;
+                        cigarModifiedOffset += length;
+                        if ( ! isDeletion ) {
+                            readOffset += length;
+                        }
+                        break;
+                    case N:
+                        refPos += length;
+                        cigarModifiedOffset += length;
+                        break;
+                    case S:
+                        readOffset += length;
+                        cigarModifiedOffset += length;
+                        break;
+                    case I:
+                        readOffset += length;
+                        break;
+                    default:
+                        // H and P consume neither read nor reference bases
+                        break;
+                }
+            }
+        }
+
+        /**
+         * @return the genotype likelihoods and depths at the spanOffset-th position of the span
+         */
+        RefVsAnyResult getResult(final int spanOffset) {
+            final RefVsAnyResult result = new RefVsAnyResult(likelihoodCount);
+            result.refDepth = refDepths[spanOffset];
+            result.nonRefDepth = nonRefDepths[spanOffset];
+            final double denominator = result.getDP() * log10Ploidy;
+            for ( int i = 0; i < likelihoodCount; i++ ) {
+                result.genotypeLikelihoods[i] = likelihoodSums[spanOffset * likelihoodCount + i];
+                result.genotypeLikelihoods[i] -= denominator;
+            }
+            return result;
+        }
+
+        int getNIndelInformativeReads(final int spanOffset) {
+            return nIndelInformativeReads[spanOffset];
+        }
+    }
+
+    /**
+     * @return true if the first on-genome cigar element after the cigarIndex-th one is a deletion, as in
+     *         {@link PileupElement#isBeforeDeletionStart}
+     */
+    private static boolean isNextOnGenomeDeletion(final List<CigarElement> cigarElements, final int cigarIndex) {
+        for ( int i = cigarIndex + 1; i < cigarElements.size(); i++ ) {
+            final CigarOperator op = cigarElements.get(i).getOperator();
+            if ( op == CigarOperator.M || op == CigarOperator.EQ || op == CigarOperator.X || op == CigarOperator.D ) {
+                return op == CigarOperator.D;
+            }
+        }
+        return false;
+    }
+
     /**
      * Get a list of pileups that span the entire active region span, in order, one for each position
      */
@@ -593,7 +831,19 @@ public final class ReferenceConfidenceModel {
         final byte[] readBases = AlignmentUtils.getBasesAlignedOneToOne(read);  //calls getBasesNoCopy if CIGAR is all match
         final byte[] readQuals = AlignmentUtils.getBaseQualsAlignedOneToOne(read);
 
+        return isAlignedReadInformativeAboutIndelsOfSize(readBases, readQuals, readStart, refBases, refStart, maxIndelSize);
+    }
 
+    /**
+     * As {@link #isReadInformativeAboutIndelsOfSize}, given the read bases and qualities already aligned one-to-one
+     * with the reference, and without the fast exit on the length of the read
+     */
+    private boolean isAlignedReadInformativeAboutIndelsOfSize(final byte[] readBases,
+                                                              final byte[] readQuals,
+                                                              final int readStart,
+                                                              final byte[] refBases,
+                                                              final int refStart,
+                                                              final int maxIndelSize) {
         final int baselineMMSum = sumMismatchingQualities(readBases, readQuals, readStart, refBases, refStart, Integer.MAX_VALUE);
 
         // consider each indel size up to max in term, checking if an indel that deletes either the ref bases (deletion
@@ -0,0 +1,255 @@
+package org.broadinstitute.hellbender.tools.walkers.haplotypecaller.readthreading;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.Kmer;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A map from fixed-size kmers to values, used by {@link ReadThreadingGraph} to look up the vertex for a kmer
+ * while threading reads.
+ *
+ * Kmers are addressed directly by their position in a sequence, so that looking one up does not require
+ * allocating a {@link Kmer}. Kmers of up to {@link #MAX_PACKED_KMER_SIZE} bases made up of only
+ * upper-case A, C, G and T are packed two bits per base into a {@code long} and stored in a primitive
+ * open-addressing (linear probing) table. Any other kmer (eg., containing an N, or when the kmer size
+ * is larger than a long can hold) falls back to a regular hash map keyed on {@link Kmer}.
+ *
+ * Kmers are compared base-for-base, exactly as {@link Kmer#equals} does. Iteration order of {@link #values()}
+ * is unspecified. Values may not be {@code null}.
+ */
+final class PackedKmerMap<V> {
+
+    /**
+     * The largest kmer size for which kmers can be packed into a single long (2 bits per base, sign bit unused)
+     */
+    static final int MAX_PACKED_KMER_SIZE = 31;
+
+    private static final int MIN_CAPACITY = 16;
+    private static final long UNPACKABLE = -1L;
+
+    private final int kmerSize;
+
+    // open-addressing table for packable kmers; a slot is empty iff its value is null
+    private long[] keys;
+    private Object[] values;
+    private int mask;
+    private int packedSize = 0;
+
+    // kmers that cannot be packed
+    private final Map<Kmer, V> unpacked = new HashMap<>();
+
+    PackedKmerMap(final int kmerSize) {
+        this(kmerSize, MIN_CAPACITY);
+    }
+
+    /**
+     * @param kmerSize the size of every kmer in this map, must be > 0
+     * @param expectedSize the number of kmers we expect to store, used to size the table up front
+     */
+    PackedKmerMap(final int kmerSize, final int expectedSize) {
+        Utils.validateArg(kmerSize > 0, () -> "kmerSize must be > 0 but got " + kmerSize);
+        Utils.validateArg(expectedSize >= 0, () -> "expectedSize must be >= 0 but got " + expectedSize);
+        this.kmerSize = kmerSize;
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    private static int tableSizeFor(final int expectedSize) {
+        // keep the load factor at or below 1/2
+        final int target = Math.max(MIN_CAPACITY, expectedSize * 2);
+        return Integer.highestOneBit(target - 1) << 1;
+    }
+
+    private void allocate(final int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * Pack the kmer starting at start in sequence into a long, or return {@link #UNPACKABLE} if that's not possible
+     */
+    @VisibleForTesting
+    static long pack(final byte[] sequence, final int start, final int kmerSize) {
+        if ( kmerSize > MAX_PACKED_KMER_SIZE ) {
+            return UNPACKABLE;
+        }
+        long key = 0;
+        for ( int i = start, stop = start + kmerSize; i < stop; i++ ) {
+            final long code;
+            switch ( sequence[i] ) {
+                case 'A': code = 0; break;
+                case 'C': code = 1; break;
+                case 'G': code = 2; break;
+                case 'T': code = 3; break;
+                default: return UNPACKABLE;
+            }
+            key = (key << 2) | code;
+        }
+        return key;
+    }
+
+    private static int hash(final long key) {
+        // murmur3 64-bit finalizer, to spread the low bits of similar kmers across the table
+        long h = key;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+
+    private int slotOf(final long key) {
+        int slot = hash(key) & mask;
+        while ( values[slot] != null && keys[slot] != key ) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void checkKmerBounds(final byte[] sequence, final int start) {
+        Utils.nonNull(sequence, "sequence cannot be null");
+        Utils.validateArg(start >= 0 && start + kmerSize <= sequence.length, () -> "kmer at " + start + " of size " + kmerSize + " is out of bounds for sequence of length " + sequence.length);
+    }
+
+    /**
+     * @return the value for the kmer of this map's kmer size starting at start in sequence, or null if there is none
+     */
+    @SuppressWarnings("unchecked")
+    V get(final byte[] sequence, final int start) {
+        checkKmerBounds(sequence, start);
+        final long key = pack(sequence, start, kmerSize);
+        if ( key == UNPACKABLE ) {
+            return unpacked.isEmpty() ? null : unpacked.get(new Kmer(sequence, start, kmerSize));
+        }
+        return (V) values[slotOf(key)];
+    }
+
+    V get(final Kmer kmer) {
+        Utils.validateArg(kmer.length() == kmerSize, () -> "kmer " + kmer + " is not of size " + kmerSize);
+        return get(kmer.bases(), 0);
+    }
+
+    boolean containsKey(final byte[] sequence, final int start) {
+        return get(sequence, start) != null;
+    }
+
+    boolean containsKey(final Kmer kmer) {
+        return get(kmer) != null;
+    }
+
+    /**
+     * Associate value with the kmer of this map's kmer size starting at start in sequence
+     *
+     * @return the previous value for the kmer, or null if there was none
+     */
+    @SuppressWarnings("unchecked")
+    V put(final byte[] sequence, final int start, final V value) {
+        checkKmerBounds(sequence, start);
+        Utils.nonNull(value, "value cannot be null");
+        final long key = pack(sequence, start, kmerSize);
+        if ( key == UNPACKABLE ) {
+            return unpacked.put(new Kmer(sequence, start, kmerSize), value);
+        }
+
+        final int slot = slotOf(key);
+        final V previous = (V) values[slot];
+        keys[slot] = key;
+        values[slot] = value;
+        if ( previous == null && ++packedSize * 2 > keys.length ) {
+            rehash(keys.length * 2);
+        }
+        return previous;
+    }
+
+    V put(final Kmer kmer, final V value) {
+        Utils.validateArg(kmer.length() == kmerSize, () -> "kmer " + kmer + " is not of size " + kmerSize);
+        return put(kmer.bases(), 0, value);
+    }
+
+    /**
+     * Remove the kmer of this map's kmer size starting at start in sequence
+     *
+     * @return the removed value, or null if the kmer was not present
+     */
+    @SuppressWarnings("unchecked")
+    V remove(final byte[] sequence, final int start) {
+        checkKmerBounds(sequence, start);
+        final long key = pack(sequence, start, kmerSize);
+        if ( key == UNPACKABLE ) {
+            return unpacked.isEmpty() ? null : unpacked.remove(new Kmer(sequence, start, kmerSize));
+        }
+
+        int slot = slotOf(key);
+        final V previous = (V) values[slot];
+        if ( previous == null ) {
+            return null;
+        }
+
+        // backward-shift deletion: move later entries of the probe run into the hole so that lookups stay correct
+        int hole = slot;
+        values[hole] = null;
+        packedSize--;
+        slot = (slot + 1) & mask;
+        while ( values[slot] != null ) {
+            final int home = hash(keys[slot]) & mask;
+            // move the entry if its home slot is not cyclically within (hole, slot]
+            if ( ((slot - home) & mask) >= ((slot - hole) & mask) ) {
+                keys[hole] = keys[slot];
+                values[hole] = values[slot];
+                values[slot] = null;
+                hole = slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return previous;
+    }
+
+    private void rehash(final int newCapacity) {
+        final long[] oldKeys = keys;
+        final Object[] oldValues = values;
+        allocate(newCapacity);
+        for ( int i = 0; i < oldKeys.length; i++ ) {
+            if ( oldValues[i] != null ) {
+                final int slot = slotOf(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    int size() {
+        return packedSize + unpacked.size();
+    }
+
+    boolean isEmpty() {
+        return size() == 0;
+    }
+
+    void clear() {
+        Arrays.fill(values, null);
+        packedSize = 0;
+        unpacked.clear();
+    }
+
+    /**
+     * @return a new list of all of the values in this map, in no particular order
+     */
+    @SuppressWarnings("unchecked")
+    List<V> values() {
+        final List<V> result = new ArrayList<>(size());
+        for ( final Object value : values ) {
+            if ( value != null ) {
+                result.add((V) value);
+            }
+        }
+        result.addAll(unpacked.values());
+        return result;
+    }
+}
@@ -8,6 +8,8 @@ import htsjdk.variant.variantcontext.Allele;
 import htsjdk.variant.variantcontext.VariantContext;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.broadinstitute.gatk.nativebindings.smithwaterman.SWOverhangStrategy;
+import org.broadinstitute.gatk.nativebindings.smithwaterman.SWParameters;
 import org.broadinstitute.hellbender.engine.AssemblyRegion;
 import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.AssemblyResult;
@@ -21,11 +23,14 @@ import org.broadinstitute.hellbender.utils.param.ParamUtils;
 import org.broadinstitute.hellbender.utils.read.CigarUtils;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
 import org.broadinstitute.hellbender.utils.smithwaterman.SmithWatermanAligner;
+import org.broadinstitute.hellbender.utils.smithwaterman.SmithWatermanAlignment;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 public final class ReadThreadingAssembler {
     private static final Logger logger = LogManager.getLogger(ReadThreadingAssembler.class);
@@ -65,6 +70,27 @@ public final class ReadThreadingAssembler {
     private File debugGraphOutputPath = null;  //Where to write debug graphs, if unset it defaults to the current working dir
     private File graphOutputPath = null;
 
+    private int kmerSizeThreads = 1;
+
+    /**
+     * Pool used to build the graphs for different kmer sizes concurrently, owned by this assembler. Created on first
+     * use and shut down by {@link #close}.
+     */
+    private ForkJoinPool kmerSizePool = null;
+
+    /**
+     * Time (as given by {@link System#nanoTime}) after which no further kmer sizes are tried, if hasAssemblyDeadline
+     */
+    private boolean hasAssemblyDeadline = false;
+    private long assemblyDeadlineNanos = 0;
+
+    /**
+     * Maximum number of best paths to find in each graph, when lower than numBestHaplotypesPerGraph (see
+     * {@link #setMaxHaplotypesPerGraph}), and whether the last assembly had more paths than that in any graph
+     */
+    private int maxHaplotypesPerGraph = Integer.MAX_VALUE;
+    private boolean haplotypeLimitReached = false;
+
     public ReadThreadingAssembler(final int maxAllowedPathsForReadThreadingAssembler, final List<Integer> kmerSizes, final boolean dontIncreaseKmerSizesForCycles, final boolean allowNonUniqueKmersInRef, final int numPruningSamples) {
         Utils.validateArg( maxAllowedPathsForReadThreadingAssembler >= 1, "numBestHaplotypesPerGraph should be >= 1 but got " + maxAllowedPathsForReadThreadingAssembler);
         this.kmerSizes = kmerSizes;
@@ -111,6 +137,7 @@ public final class ReadThreadingAssembler {
         Utils.nonNull(aligner, "aligner");
         Utils.validateArg( fullReferenceWithPadding.length == refLoc.size(), "Reference bases and reference loc must be the same size.");
         ParamUtils.isPositiveOrZero(pruneFactor, "Pruning factor cannot be negative");
+        haplotypeLimitReached = false;
 
         // create the list of artificial haplotypes that should be added to the graph for GGA mode
         final List<Haplotype> givenHaplotypes = composeGivenHaplotypes(refHaplotype, givenAlleles, assemblyRegion.getExtendedSpan());
@@ -148,6 +175,11 @@ public final class ReadThreadingAssembler {
 
         }
 
+        if ( isPastAssemblyDeadline() ) {
+            // the caller won't use the haplotypes of a region that took too long, so don't spend more time finding them
+            return resultSet;
+        }
+
         findBestPaths(nonRefGraphs, refHaplotype, refLoc, activeRegionExtendedLocation, assemblyResultByGraph, resultSet, aligner);
 
         // print the graphs if the appropriate debug option has been turned on
@@ -202,9 +234,16 @@ public final class ReadThreadingAssembler {
             Utils.validateArg( source != null && sink != null, () -> "Both source and sink cannot be null but got " + source + " and sink " + sink + " for graph " + graph);
             final KBestHaplotypeFinder haplotypeFinder = new KBestHaplotypeFinder(graph,source,sink);
             finders.add(haplotypeFinder);
-            final Iterator<KBestHaplotype> bestHaplotypes = haplotypeFinder.iterator(numBestHaplotypesPerGraph);
+            // when limited below numBestHaplotypesPerGraph, ask for one more path to tell whether the limit was reached
+            final int maxPaths = Math.min(numBestHaplotypesPerGraph, maxHaplotypesPerGraph);
+            final Iterator<KBestHaplotype> bestHaplotypes = haplotypeFinder.iterator(maxPaths < numBestHaplotypesPerGraph ? maxPaths + 1 : maxPaths);
 
+            int numPaths = 0;
             while (bestHaplotypes.hasNext()) {
+                if ( numPaths++ == maxPaths ) {
+                    haplotypeLimitReached = true;
+                    break;
+                }
                 final KBestHaplotype kBestHaplotype = bestHaplotypes.next();
                 final Haplotype h = kBestHaplotype.haplotype();
                 if( !returnHaplotypes.contains(h) ) {
@@ -382,10 +421,17 @@ public final class ReadThreadingAssembler {
      */
     @VisibleForTesting
     List<AssemblyResult> assemble(final List<GATKRead> reads, final Haplotype refHaplotype, final List<Haplotype> givenHaplotypes, final SAMFileHeader header, final SmithWatermanAligner aligner) {
+        if ( kmerSizeThreads > 1 ) {
+            return assembleConcurrently(reads, refHaplotype, givenHaplotypes, header, aligner);
+        }
+
         final List<AssemblyResult> results = new LinkedList<>();
 
         // first, try using the requested kmer sizes
         for ( final int kmerSize : kmerSizes ) {
+            if ( isPastAssemblyDeadline() ) {
+                return results;
+            }
             addResult(results, createGraph(reads, refHaplotype, kmerSize, givenHaplotypes, dontIncreaseKmerSizesForCycles, allowNonUniqueKmersInRef, header, aligner));
         }
 
@@ -393,7 +439,7 @@ public final class ReadThreadingAssembler {
         if ( results.isEmpty() && !dontIncreaseKmerSizesForCycles ) {
             int kmerSize = arrayMaxInt(kmerSizes) + KMER_SIZE_ITERATION_INCREASE;
             int numIterations = 1;
-            while ( results.isEmpty() && numIterations <= MAX_KMER_ITERATIONS_TO_ATTEMPT ) {
+            while ( results.isEmpty() && numIterations <= MAX_KMER_ITERATIONS_TO_ATTEMPT && !isPastAssemblyDeadline() ) {
                 // on the last attempt we will allow low complexity graphs
                 final boolean lastAttempt = numIterations == MAX_KMER_ITERATIONS_TO_ATTEMPT;
                 addResult(results, createGraph(reads, refHaplotype, kmerSize, givenHaplotypes, lastAttempt, lastAttempt, header, aligner));
@@ -405,6 +451,103 @@ public final class ReadThreadingAssembler {
         return results;
     }
 
+    /**
+     * Same as {@link #assemble}, but builds the graphs for the different kmer sizes concurrently on the kmer size pool
+     * of this assembler ({@link #kmerSizePool}), which is not shared with other assemblers.
+     *
+     * Results are collected in kmer size order, and the larger kmer sizes used to recover from cycles are tried speculatively
+     * in batches of {@link #kmerSizeThreads}, keeping only the first one (in kmer size order) that produces a result.
+     * The returned results are therefore identical to those of the serial implementation.
+     */
+    private List<AssemblyResult> assembleConcurrently(final List<GATKRead> reads, final Haplotype refHaplotype, final List<Haplotype> givenHaplotypes, final SAMFileHeader header, final SmithWatermanAligner sharedAligner) {
+        final ForkJoinPool pool = getKmerSizePool();
+        // aligners are not required to be thread-safe (the native ones hold native state), so the graphs for the
+        // different kmer sizes take turns using the aligner, which is only needed to recover dangling branches
+        final SmithWatermanAligner aligner = new SynchronizedAligner(sharedAligner);
+        final List<AssemblyResult> results = new LinkedList<>();
+
+        // first, try using the requested kmer sizes
+        final List<ForkJoinTask<AssemblyResult>> tasks = new ArrayList<>(kmerSizes.size());
+        for ( final int kmerSize : kmerSizes ) {
+            tasks.add(pool.submit(() -> createGraph(reads, refHaplotype, kmerSize, givenHaplotypes, dontIncreaseKmerSizesForCycles, allowNonUniqueKmersInRef, header, aligner)));
+        }
+        for ( final ForkJoinTask<AssemblyResult> task : tasks ) {
+            if ( isPastAssemblyDeadline() ) {
+                task.cancel(false);
+            } else {
+                addResult(results, task.join());
+            }
+        }
+
+        // if none of those worked, iterate over larger sizes if allowed to do so
+        if ( results.isEmpty() && !dontIncreaseKmerSizesForCycles ) {
+            int kmerSize = arrayMaxInt(kmerSizes) + KMER_SIZE_ITERATION_INCREASE;
+            int numIterations = 1;
+            while ( results.isEmpty() && numIterations <= MAX_KMER_ITERATIONS_TO_ATTEMPT && !isPastAssemblyDeadline() ) {
+                final List<ForkJoinTask<AssemblyResult>> batch = new ArrayList<>(kmerSizeThreads);
+                for ( int i = 0; i < kmerSizeThreads && numIterations <= MAX_KMER_ITERATIONS_TO_ATTEMPT; i++ ) {
+                    // on the last attempt we will allow low complexity graphs
+                    final boolean lastAttempt = numIterations == MAX_KMER_ITERATIONS_TO_ATTEMPT;
+                    final int batchKmerSize = kmerSize;
+                    batch.add(pool.submit(() -> createGraph(reads, refHaplotype, batchKmerSize, givenHaplotypes, lastAttempt, lastAttempt, header, aligner)));
+                    kmerSize += KMER_SIZE_ITERATION_INCREASE;
+                    numIterations++;
+                }
+                for ( final ForkJoinTask<AssemblyResult> task : batch ) {
+                    if ( results.isEmpty() ) {
+                        addResult(results, task.join());
+                    } else {
+                        // a smaller kmer size already worked, so the serial implementation would never have tried this one
+                        task.cancel(false);
+                    }
+                }
+            }
+        }
+
+        return results;
+    }
+
+    private boolean isPastAssemblyDeadline() {
+        return hasAssemblyDeadline && System.nanoTime() - assemblyDeadlineNanos > 0;
+    }
+
+    private ForkJoinPool getKmerSizePool() {
+        if ( kmerSizePool == null ) {
+            kmerSizePool = new ForkJoinPool(kmerSizeThreads);
+        }
+        return kmerSizePool;
+    }
+
+    /**
+     * Shut down the threads used to build the graphs for different kmer sizes concurrently, if any. The assembler
+     * must not be used afterwards.
+     */
+    public void close() {
+        if ( kmerSizePool != null ) {
+            kmerSizePool.shutdownNow();
+            kmerSizePool = null;
+        }
+    }
+
+    /**
+     * Serializes the alignments of an aligner used by several kmer size tasks at once. Closing it leaves the
+     * underlying aligner open, as it belongs to the caller.
+     */
+    private static final class SynchronizedAligner implements SmithWatermanAligner {
+        private final SmithWatermanAligner aligner;
+
+        SynchronizedAligner(final SmithWatermanAligner aligner) {
+            this.aligner = aligner;
+        }
+
+        @Override
+        public SmithWatermanAlignment align(final byte[] ref, final byte[] alt, final SWParameters parameters, final SWOverhangStrategy overhangStrategy) {
+            synchronized ( aligner ) {
+                return aligner.align(ref, alt, parameters, overhangStrategy);
+            }
+        }
+    }
+
     private static int arrayMaxInt(final List<Integer> array) {
         return array.stream().mapToInt(Integer::intValue).max().orElseThrow(() -> new IllegalArgumentException("Array size cannot be 0!"));
     }
@@ -624,6 +767,61 @@ public final class ReadThreadingAssembler {
         this.minDanglingBranchLength = minDanglingBranchLength;
     }
 
+    public int getKmerSizeThreads() {
+        return kmerSizeThreads;
+    }
+
+    /**
+     * Set the number of kmer sizes whose graphs may be built concurrently. If > 1, graphs are built on a fork-join pool
+     * owned by this assembler, which must then be shut down with {@link #close}; the assembly results are the same
+     * either way. Calls to the {@link SmithWatermanAligner} passed to {@link #runLocalAssembly} are serialized.
+     */
+    public void setKmerSizeThreads(final int kmerSizeThreads) {
+        Utils.validateArg(kmerSizeThreads >= 1, () -> "kmerSizeThreads must be >= 1 but got " + kmerSizeThreads);
+        // the pool is sized on first use, so drop any pool of the previous size
+        close();
+        this.kmerSizeThreads = kmerSizeThreads;
+    }
+
+    /**
+     * Stop trying further kmer sizes in {@link #runLocalAssembly} once {@link System#nanoTime} passes deadlineNanos,
+     * keeping only the graphs built so far, and skip finding their haplotypes. The graph for a single kmer size is
+     * always built to completion, so the deadline may be overrun by the time it takes to build one graph.
+     *
+     * @param deadlineNanos a time as given by {@link System#nanoTime}
+     */
+    public void setAssemblyDeadline(final long deadlineNanos) {
+        this.hasAssemblyDeadline = true;
+        this.assemblyDeadlineNanos = deadlineNanos;
+    }
+
+    /**
+     * Remove any deadline set by {@link #setAssemblyDeadline}
+     */
+    public void clearAssemblyDeadline() {
+        this.hasAssemblyDeadline = false;
+    }
+
+    /**
+     * Find at most this many best paths in each graph in the next calls to {@link #runLocalAssembly}, if lower than the
+     * maximum number of paths per graph given to the constructor. The paths are enumerated lazily from best to worst,
+     * so the limit bounds the time spent finding and aligning the haplotypes, rather than only their number.
+     *
+     * @param maxHaplotypesPerGraph maximum number of paths per graph, >= 1, or Integer.MAX_VALUE for no further limit
+     */
+    public void setMaxHaplotypesPerGraph(final int maxHaplotypesPerGraph) {
+        Utils.validateArg(maxHaplotypesPerGraph >= 1, "maxHaplotypesPerGraph must be >= 1");
+        this.maxHaplotypesPerGraph = maxHaplotypesPerGraph;
+    }
+
+    /**
+     * @return true if any graph of the last call to {@link #runLocalAssembly} had more paths than the limit set by
+     *         {@link #setMaxHaplotypesPerGraph}, so that only the best of them were kept
+     */
+    public boolean wasHaplotypeLimitReached() {
+        return haplotypeLimitReached;
+    }
+
     @VisibleForTesting
     void setJustReturnRawGraph(final boolean justReturnRawGraph) {
         this.justReturnRawGraph = justReturnRawGraph;
@@ -1,8 +1,10 @@
 package org.broadinstitute.hellbender.tools.walkers.mutect;
 
+import htsjdk.variant.variantcontext.VariantContext;
 import htsjdk.variant.variantcontext.writer.VariantContextWriter;
 import org.broadinstitute.barclay.argparser.Argument;
 import org.broadinstitute.barclay.argparser.ArgumentCollection;
+import org.broadinstitute.barclay.argparser.CommandLineException;
 import org.broadinstitute.barclay.argparser.CommandLineProgramProperties;
 import org.broadinstitute.barclay.help.DocumentedFeature;
 import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
@@ -11,6 +13,8 @@ import org.broadinstitute.hellbender.engine.*;
 import org.broadinstitute.hellbender.engine.filters.ReadFilter;
 import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.tools.walkers.annotator.*;
+import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.AssemblyBasedCallerArgumentCollection;
+import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.AssemblyRegionProfiler;
 import org.broadinstitute.hellbender.transformers.ReadTransformer;
 import org.broadinstitute.hellbender.utils.downsampling.MutectDownsampler;
 import org.broadinstitute.hellbender.utils.downsampling.ReadsDownsampler;
@@ -135,6 +139,8 @@ public final class Mutect2 extends AssemblyRegionWalker {
 
     private Mutect2Engine m2Engine;
 
+    private AssemblyRegionProfiler profiler = AssemblyRegionProfiler.DISABLED;
+
     @Override
     protected int defaultMinAssemblyRegionSize() { return 50; }
 
@@ -199,12 +205,19 @@ public final class Mutect2 extends AssemblyRegionWalker {
             }
             MTAC.tumorSample = samples.iterator().next();
         }
-        VariantAnnotatorEngine annotatorEngine = new VariantAnnotatorEngine(makeVariantAnnotations(), null, Collections.emptyList(), false);
-        m2Engine = new Mutect2Engine(MTAC, createOutputBamIndex, createOutputBamMD5, getHeaderForReads(), referenceArguments.getReferenceFileName(), annotatorEngine);
+        profiler = AssemblyRegionProfiler.fromArguments(MTAC);
+        m2Engine = makeMutect2Engine();
         vcfWriter = createVCFWriter(outputVCF);
         m2Engine.writeHeader(vcfWriter, getDefaultToolVCFHeaderLines());
     }
 
+    private Mutect2Engine makeMutect2Engine() {
+        final VariantAnnotatorEngine annotatorEngine = new VariantAnnotatorEngine(makeVariantAnnotations(), null, Collections.emptyList(), false);
+        final Mutect2Engine engine = new Mutect2Engine(MTAC, createOutputBamIndex, createOutputBamMD5, getHeaderForReads(), referenceArguments.getReferenceFileName(), annotatorEngine);
+        engine.setProfiler(profiler);
+        return engine;
+    }
+
     @Override
     public Collection<Annotation> makeVariantAnnotations(){
         final Collection<Annotation> annotations = super.makeVariantAnnotations();
@@ -227,7 +240,34 @@ public final class Mutect2 extends AssemblyRegionWalker {
 
     @Override
     public void apply(final AssemblyRegion region, final ReferenceContext referenceContext, final FeatureContext featureContext ) {
-        m2Engine.callRegion(region, referenceContext, featureContext).forEach(vcfWriter::add);
+        final List<VariantContext> calls = m2Engine.callRegion(region, referenceContext, featureContext);
+        profiler.run(AssemblyRegionProfiler.Stage.OUTPUT, () -> calls.forEach(vcfWriter::add));
+    }
+
+    /**
+     * Each worker gets its own {@link Mutect2Engine}. Calls are added to the shared writer on the traversal thread, in order.
+     */
+    @Override
+    protected AssemblyRegionWorker makeAssemblyRegionWorker() {
+        if ( MTAC.bamOutputPath != null ) {
+            throw new CommandLineException.BadArgumentValue(ASSEMBLY_REGION_THREADS_LONG_NAME,
+                    "multi-threaded assembly region processing is not supported together with --" + AssemblyBasedCallerArgumentCollection.BAM_OUTPUT_LONG_NAME);
+        }
+
+        final Mutect2Engine workerEngine = makeMutect2Engine();
+        workerEngine.shareLikelihoodCache(m2Engine);
+        return new AssemblyRegionWorker() {
+            @Override
+            public Runnable process(final AssemblyRegion region, final ReferenceContext referenceContext, final FeatureContext featureContext) {
+                final List<VariantContext> calls = workerEngine.callRegion(region, referenceContext, featureContext);
+                return () -> profiler.run(AssemblyRegionProfiler.Stage.OUTPUT, () -> calls.forEach(vcfWriter::add));
+            }
+
+            @Override
+            public void close() {
+                workerEngine.shutdown();
+            }
+        };
     }
 
     @Override
@@ -238,5 +278,6 @@ public final class Mutect2 extends AssemblyRegionWalker {
         if (m2Engine != null) {
             m2Engine.shutdown();
         }
+        profiler.close();
     }
 }
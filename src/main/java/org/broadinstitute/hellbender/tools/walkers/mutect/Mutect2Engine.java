@@ -91,6 +91,7 @@ public final class Mutect2Engine implements AssemblyRegionEvaluator {
     private VariantAnnotatorEngine annotationEngine;
     private final SmithWatermanAligner aligner;
     private AssemblyRegionTrimmer trimmer = new AssemblyRegionTrimmer();
+    private AssemblyRegionProfiler profiler = AssemblyRegionProfiler.DISABLED;
 
     /**
      * Create and initialize a new HaplotypeCallerEngine given a collection of HaplotypeCaller arguments, a reads header,
@@ -182,7 +183,35 @@ public final class Mutect2Engine implements AssemblyRegionEvaluator {
         vcfWriter.writeHeader(vcfHeader);
     }
 
+    /**
+     * Set the profiler to which this engine reports the time spent in each stage of calling. The same profiler
+     * may be shared by several engines. By default nothing is profiled.
+     *
+     * @param profiler profiler to report to, not closed by this engine
+     */
+    public void setProfiler(final AssemblyRegionProfiler profiler) {
+        this.profiler = Utils.nonNull(profiler);
+    }
+
+    /**
+     * Use the cache of PairHMM results of another engine instead of a cache of our own, so that the engines of
+     * several threads share a single cache bounded by the configured size. Does nothing if results are not cached.
+     *
+     * @param other engine owning the cache, which reports its statistics on shutdown
+     */
+    public void shareLikelihoodCache(final Mutect2Engine other) {
+        AssemblyBasedCallerUtils.shareLikelihoodCache(likelihoodCalculationEngine, Utils.nonNull(other).likelihoodCalculationEngine);
+    }
+
     public List<VariantContext> callRegion(final AssemblyRegion originalAssemblyRegion, final ReferenceContext referenceContext, final FeatureContext featureContext ) {
+        final AssemblyRegionProfiler.RegionProfile regionProfile = profiler.startRegion(originalAssemblyRegion);
+        final List<VariantContext> calls = callRegion(originalAssemblyRegion, referenceContext, featureContext, regionProfile);
+        regionProfile.finish();
+        return calls;
+    }
+
+    private List<VariantContext> callRegion(final AssemblyRegion originalAssemblyRegion, final ReferenceContext referenceContext, final FeatureContext featureContext,
+                                            final AssemblyRegionProfiler.RegionProfile regionProfile) {
         if ( !originalAssemblyRegion.isActive() || originalAssemblyRegion.size() == 0 ) {
             return NO_CALLS;
         }
@@ -192,7 +221,8 @@ public final class Mutect2Engine implements AssemblyRegionEvaluator {
                 Collections.emptyList();
 
         final AssemblyRegion assemblyActiveRegion = AssemblyBasedCallerUtils.assemblyRegionWithWellMappedReads(originalAssemblyRegion, READ_QUALITY_FILTER_THRESHOLD, header);
-        final AssemblyResultSet untrimmedAssemblyResult = AssemblyBasedCallerUtils.assembleReads(assemblyActiveRegion, givenAlleles, MTAC, header, samplesList, logger, referenceReader, assemblyEngine, aligner);
+        final AssemblyResultSet untrimmedAssemblyResult = regionProfile.time(AssemblyRegionProfiler.Stage.ASSEMBLY, () ->
+                AssemblyBasedCallerUtils.assembleReads(assemblyActiveRegion, givenAlleles, MTAC, header, samplesList, logger, referenceReader, assemblyEngine, aligner));
         final SortedSet<VariantContext> allVariationEvents = untrimmedAssemblyResult.getVariationEvents(MTAC.maxMnpDistance);
         final AssemblyRegionTrimmer.Result trimmingResult = trimmer.trim(originalAssemblyRegion, allVariationEvents);
         if (!trimmingResult.isVariationPresent()) {
@@ -213,13 +243,17 @@ public final class Mutect2Engine implements AssemblyRegionEvaluator {
         regionForGenotyping.removeAll(readStubs);
 
         final Map<String,List<GATKRead>> reads = splitReadsBySample( regionForGenotyping.getReads() );
+        regionProfile.setHaplotypeCount(assemblyResult.getHaplotypeList().size());
 
-        final ReadLikelihoods<Haplotype> readLikelihoods = likelihoodCalculationEngine.computeReadLikelihoods(assemblyResult,samplesList,reads);
-        final Map<GATKRead,GATKRead> readRealignments = AssemblyBasedCallerUtils.realignReadsToTheirBestHaplotype(readLikelihoods, assemblyResult.getReferenceHaplotype(), assemblyResult.getPaddedReferenceLoc(), aligner);
-        readLikelihoods.changeReads(readRealignments);
+        final ReadLikelihoods<Haplotype> readLikelihoods = regionProfile.time(AssemblyRegionProfiler.Stage.READ_LIKELIHOODS, () -> {
+            final ReadLikelihoods<Haplotype> likelihoods = likelihoodCalculationEngine.computeReadLikelihoods(assemblyResult,samplesList,reads);
+            final Map<GATKRead,GATKRead> readRealignments = AssemblyBasedCallerUtils.realignReadsToTheirBestHaplotype(likelihoods, assemblyResult.getReferenceHaplotype(), assemblyResult.getPaddedReferenceLoc(), aligner);
+            likelihoods.changeReads(readRealignments);
+            return likelihoods;
+        });
 
-        final HaplotypeCallerGenotypingEngine.CalledHaplotypes calledHaplotypes = genotypingEngine.callMutations(
-                readLikelihoods, assemblyResult, referenceContext, regionForGenotyping.getSpan(), featureContext, givenAlleles, header, haplotypeBAMWriter.isPresent());
+        final HaplotypeCallerGenotypingEngine.CalledHaplotypes calledHaplotypes = regionProfile.time(AssemblyRegionProfiler.Stage.GENOTYPING, () -> genotypingEngine.callMutations(
+                readLikelihoods, assemblyResult, referenceContext, regionForGenotyping.getSpan(), featureContext, givenAlleles, header, haplotypeBAMWriter.isPresent()));
         writeBamOutput(assemblyResult, readLikelihoods, calledHaplotypes,regionForGenotyping.getSpan());
         return calledHaplotypes.getCalls();
     }
@@ -248,6 +282,7 @@ public final class Mutect2Engine implements AssemblyRegionEvaluator {
 
     public void shutdown() {
         likelihoodCalculationEngine.close();
+        assemblyEngine.close();
         aligner.close();
         haplotypeBAMWriter.ifPresent(writer -> writer.close());
         referenceReader.close();
@@ -255,6 +290,10 @@ public final class Mutect2Engine implements AssemblyRegionEvaluator {
 
     @Override
     public ActivityProfileState isActive(final AlignmentContext context, final ReferenceContext ref, final FeatureContext featureContext) {
+        return profiler.time(AssemblyRegionProfiler.Stage.ACTIVITY_PROFILE, () -> computeActivityProfileState(context, ref, featureContext));
+    }
+
+    private ActivityProfileState computeActivityProfileState(final AlignmentContext context, final ReferenceContext ref, final FeatureContext featureContext) {
         if ( MTAC.genotypingOutputMode == GenotypingOutputMode.GENOTYPE_GIVEN_ALLELES ) {
             final VariantContext vcFromGivenAlleles = GenotypingGivenAllelesUtils.composeGivenAllelesVariantContextFromVariantList(featureContext,
                     ref.getInterval(), MTAC.genotypeFilteredAlleles, MTAC.alleles);
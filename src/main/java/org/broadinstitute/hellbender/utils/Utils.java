@@ -58,7 +58,35 @@ public final class Utils {
     private static final Random randomGenerator = new Random(GATK_RANDOM_SEED);
     private static final RandomDataGenerator randomDataGenerator = new RandomDataGenerator(new Well19937c(GATK_RANDOM_SEED));
 
-    public static Random getRandomGenerator() { return randomGenerator; }
+    // generators overriding randomGenerator on some threads, see setThreadRandomGenerator
+    private static final ThreadLocal<Random> threadRandomGenerator = new ThreadLocal<>();
+
+    public static Random getRandomGenerator() {
+        final Random threadGenerator = threadRandomGenerator.get();
+        return threadGenerator != null ? threadGenerator : randomGenerator;
+    }
+
+    /**
+     * Makes {@link #getRandomGenerator()} return the given generator on the current thread, instead of the generator
+     * shared by all threads. Multi-threaded tools use this so that the random numbers drawn for a unit of work depend
+     * only on that unit of work, rather than on the order in which the threads draw from the shared generator.
+     *
+     * @param generator generator to use on the current thread, or {@code null} to use the shared generator again
+     */
+    public static void setThreadRandomGenerator(final Random generator) {
+        if (generator == null) {
+            threadRandomGenerator.remove();
+        } else {
+            threadRandomGenerator.set(generator);
+        }
+    }
+
+    /**
+     * @return a seed for a unit of work identified by the given values, derived from the GATK random seed
+     */
+    public static long getRandomSeed(final Object... keys) {
+        return GATK_RANDOM_SEED * 31 + Arrays.hashCode(keys);
+    }
     public static RandomDataGenerator getRandomDataGenerator() { return randomDataGenerator; }
 
     public static void resetRandomGenerator() {
@@ -1123,13 +1151,36 @@ public final class Utils {
         }
         // use an executor service for the multi-threaded case
         final ExecutorService executorService = Executors.newFixedThreadPool(numThreads);
+        return transformParallel(fromIterator, function, executorService, numThreads, true);
+    }
+
+    /**
+     * Like {@link #transformParallel(Iterator, Function, int)}, but runs the transformations on a caller-supplied
+     * {@link ExecutorService}, keeping at most {@code maxTasksInFlight} transformations outstanding at any time.
+     * Ordering of the output iterator matches the ordering of {@code fromIterator}. The executor service is
+     * not shut down when the input is exhausted, so it can be reused across several iterators.
+     *
+     * The input iterator is only ever advanced on the thread consuming the output iterator.
+     */
+    public static <F, T> Iterator<T> transformParallel(final Iterator<F> fromIterator, final Function<F, T> function,
+                                                       final ExecutorService executorService, final int maxTasksInFlight) {
+        Utils.nonNull(executorService, "executorService");
+        Utils.validateArg(maxTasksInFlight >= 1, "maxTasksInFlight must be at least 1");
+        return transformParallel(fromIterator, function, executorService, maxTasksInFlight, false);
+    }
+
+    private static <F, T> Iterator<T> transformParallel(final Iterator<F> fromIterator, final Function<F, T> function,
+                                                        final ExecutorService executorService, final int maxTasksInFlight,
+                                                        final boolean shutdownOnCompletion) {
+        Utils.nonNull(fromIterator, "fromIterator");
+        Utils.nonNull(function, "function");
         final Queue<Future<T>> futures = new LinkedList<>();
         return new AbstractIterator<T>() {
             @Override
             protected T computeNext() {
                 try {
                     while (fromIterator.hasNext()) {
-                        if (futures.size() == numThreads) {
+                        if (futures.size() == maxTasksInFlight) {
                             return futures.remove().get();
                         }
                         final F next = fromIterator.next();
@@ -1139,7 +1190,9 @@ public final class Utils {
                     if (!futures.isEmpty()) {
                         return futures.remove().get();
                     }
-                    executorService.shutdown();
+                    if (shutdownOnCompletion) {
+                        executorService.shutdown();
+                    }
                     return endOfData();
                 } catch (InterruptedException | ExecutionException e) {
                     throw new GATKException("Problem running task", e);
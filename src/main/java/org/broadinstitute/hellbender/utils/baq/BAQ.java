@@ -17,6 +17,7 @@ import org.broadinstitute.hellbender.utils.read.GATKRead;
 import org.broadinstitute.hellbender.utils.read.ReadUtils;
 
 import java.io.Serializable;
+import java.util.Arrays;
 
 /*
   The topology of the profile HMM:
@@ -42,6 +43,9 @@ import java.io.Serializable;
    lower two bits can be 0 (an alignment match) or 1 (an
    insertion). q[i] gives the phred scaled posterior probability of
    state[i] being wrong.
+
+   The forward and backward matrices of the HMM are kept between calls and reused, growing to the largest read seen,
+   so a BAQ object must not be shared between threads.
  */
 public final class BAQ implements Serializable {
     private static final long serialVersionUID = 1L;
@@ -62,6 +66,12 @@ public final class BAQ implements Serializable {
         DONT_MODIFY                 // do the BAQ, but don't modify the quality scores themselves, just return them in the function.
     }
 
+    /** the floating point precision of the HMM calculation */
+    public enum HMMPrecision {
+        DOUBLE,                     // the default, matching samtools
+        FLOAT                       // half the memory for the HMM matrices, but occasionally a slightly different BAQ
+    }
+
     public static final String BAQ_TAG = "BQ";
 
     private static final double[] qual2prob = new double[256];
@@ -88,6 +98,14 @@ public final class BAQ implements Serializable {
     public double cd = -1;      // gap open probability [1e-3]
     private double ce = 0.1;    // gap extension probability [0.1]
     private int cb = DEFAULT_BANDWIDTH;   // band width [7]
+    private HMMPrecision precision = HMMPrecision.DOUBLE;
+
+    // the forward and backward matrices and scaling factors of hmm_glocal and hmm_glocal_float, reused between reads
+    private transient double[][] forwardMatrix, backwardMatrix;
+    private transient double[] scalingFactors;
+    private transient float[][] forwardMatrixFloat, backwardMatrixFloat;
+    private transient float[] scalingFactorsFloat;
+    private transient byte[] referenceCodes;
 
     public byte getMinBaseQual() {
         return minBaseQual;
@@ -110,6 +128,10 @@ public final class BAQ implements Serializable {
         return cb;
     }
 
+    public HMMPrecision getPrecision() {
+        return precision;
+    }
+
     /**
      * Use defaults for everything
      */
@@ -121,7 +143,15 @@ public final class BAQ implements Serializable {
      * Use defaults for everything
      */
     public BAQ(final double gapOpenPenalty) {
+        this(gapOpenPenalty, HMMPrecision.DOUBLE);
+    }
+
+    /**
+     * Use defaults for everything but the gap open penalty and the precision of the HMM
+     */
+    public BAQ(final double gapOpenPenalty, final HMMPrecision precision) {
         cd = convertFromPhredScale(gapOpenPenalty);
+        this.precision = Utils.nonNull(precision);
         initializeCachedData();
     }
 
@@ -134,10 +164,24 @@ public final class BAQ implements Serializable {
      * @param minBaseQual All bases with Q < minBaseQual are up'd to this value
      */
 	public BAQ(final double d, final double e, final int b, final byte minBaseQual) {
-		cd = d; ce = e; cb = b;
+        this(d, e, b, minBaseQual, HMMPrecision.DOUBLE);
+	}
+
+    /**
+     * Create a new HmmGlocal object with specified parameters
+     *
+     * @param d gap open prob (not phred scaled!).
+     * @param e gap extension prob.
+     * @param b band width
+     * @param minBaseQual All bases with Q < minBaseQual are up'd to this value
+     * @param precision the floating point precision of the HMM
+     */
+    public BAQ(final double d, final double e, final int b, final byte minBaseQual, final HMMPrecision precision) {
+        cd = d; ce = e; cb = b;
         this.minBaseQual = minBaseQual;
+        this.precision = Utils.nonNull(precision);
         initializeCachedData();
-	}
+    }
 
     private static final double EM = 0.33333333333;
     private static final double EI = 0.25;
@@ -166,6 +210,47 @@ public final class BAQ implements Serializable {
         return EPSILONS[ref][read][qualB];
     }
 
+    // the bases for which calcEpsilon is not 1, by their code in encodeReference
+    private static final byte[] CODED_BASES = {'A', 'C', 'G', 'T', 'N'};
+    private static final byte[] BASE_CODES = new byte[256];
+    static {
+        Arrays.fill(BASE_CODES, (byte) 4);
+        for (byte code = 0; code < 4; code++) {
+            BASE_CODES[CODED_BASES[code]] = code;
+            BASE_CODES[Character.toLowerCase(CODED_BASES[code])] = code;
+        }
+    }
+
+    /**
+     * @return the codes of the reference bases, in a buffer that may be longer than ref and is reused between calls:
+     *         0 to 3 for ACGT in either case and 4 for anything else, the same as for 'N'
+     */
+    private byte[] encodeReference(final byte[] ref) {
+        if (referenceCodes == null || referenceCodes.length < ref.length) {
+            referenceCodes = new byte[ref.length];
+        }
+        for (int k = 0; k < ref.length; k++) {
+            referenceCodes[k] = BASE_CODES[ref[k] & 0xFF];
+        }
+        return referenceCodes;
+    }
+
+    /**
+     * Fill epsilons with the epsilon of the read base against each reference base code of encodeReference, so that
+     * the epsilons of a row of the HMM are looked up in a small array rather than in EPSILONS
+     */
+    private void rowEpsilons(final byte read, final byte qualB, final double[] epsilons) {
+        for (int code = 0; code < CODED_BASES.length; code++) {
+            epsilons[code] = calcEpsilon(CODED_BASES[code], read, qualB);
+        }
+    }
+
+    private void rowEpsilons(final byte read, final byte qualB, final float[] epsilons) {
+        for (int code = 0; code < CODED_BASES.length; code++) {
+            epsilons[code] = (float) calcEpsilon(CODED_BASES[code], read, qualB);
+        }
+    }
+
     // ####################################################################################################
     //
     // NOTE -- THIS CODE IS SYNCHRONIZED WITH CODE IN THE SAMTOOLS REPOSITORY.  CHANGES TO THIS CODE SHOULD BE
@@ -204,10 +289,12 @@ public final class BAQ implements Serializable {
         //System.out.printf("c->bw = %d, bw = %d, l_ref = %d, l_query = %d\n", cb, bw, l_ref, l_query);
 		bw2 = bw * 2 + 1;
 
-        // allocate the forward and backward matrices f[][] and b[][] and the scaling array s[]
-		double[][] f = new double[l_query+1][bw2*3 + 6];
-		double[][] b = new double[l_query+1][bw2*3 + 6];
-		double[] s = new double[l_query+2];
+        // get the cleared forward and backward matrices f[][] and b[][] and the scaling array s[]
+		final double[][] f = forwardMatrix = reuseMatrix(forwardMatrix, l_query+1, bw2*3 + 6);
+		final double[][] b = backwardMatrix = reuseMatrix(backwardMatrix, l_query+1, bw2*3 + 6);
+		final double[] s = scalingFactors = scalingFactors != null && scalingFactors.length >= l_query+2 ? scalingFactors : new double[l_query+2];
+		final byte[] refCodes = encodeReference(ref);
+		final double[] eps = new double[CODED_BASES.length]; // the epsilons of the current row, by reference base code
 
 		// initialize transition probabilities
 		double sM, sI, bM, bI;
@@ -227,9 +314,10 @@ public final class BAQ implements Serializable {
 			double[] fi = f[1];
 			double sum;
 			int beg = 1, end = l_ref < bw + 1? l_ref : bw + 1, _beg, _end;
+			rowEpsilons(query[qstart], _iqual[qstart], eps);
 			for (k = beg, sum = 0.; k <= end; ++k) {
 				int u;
-                double e = calcEpsilon(ref[k-1], query[qstart], _iqual[qstart]);
+                double e = eps[refCodes[k-1]];
 				u = set_u(bw, 1, k);
 				fi[u+0] = e * bM; fi[u+1] = EI * bI;
 				sum += fi[u] + fi[u+1];
@@ -248,9 +336,10 @@ public final class BAQ implements Serializable {
 			byte qyi = query[qstart+i-1];
 			x = i - bw; beg = beg > x? beg : x; // band start
 			x = i + bw; end = end < x? end : x; // band end
+			rowEpsilons(qyi, _iqual[qstart+i-1], eps);
 			for (k = beg, sum = 0.; k <= end; ++k) {
 				int u, v11, v01, v10;
-                double e = calcEpsilon(ref[k-1], qyi, _iqual[qstart+i-1]);
+                double e = eps[refCodes[k-1]];
 				u = set_u(bw, i, k); v11 = set_u(bw, i-1, k-1); v10 = set_u(bw, i-1, k); v01 = set_u(bw, i, k-1);
 				fi[u+0] = e * (m[0] * fi1[v11+0] + m[3] * fi1[v11+1] + m[6] * fi1[v11+2]);
 				fi[u+1] = EI * (m[1] * fi1[v10+0] + m[4] * fi1[v10+1]);
@@ -289,10 +378,11 @@ public final class BAQ implements Serializable {
 			byte qyi1 = query[qstart+i];
 			x = i - bw; beg = beg > x? beg : x;
 			x = i + bw; end = end < x? end : x;
+			rowEpsilons(qyi1, _iqual[qstart+i], eps);
 			for (k = end; k >= beg; --k) {
 				int u, v11, v01, v10;
 				u = set_u(bw, i, k); v11 = set_u(bw, i+1, k+1); v10 = set_u(bw, i+1, k); v01 = set_u(bw, i, k+1);
-                final double e = (k >= l_ref? 0 : calcEpsilon(ref[k], qyi1, _iqual[qstart+i])) * bi1[v11];
+                final double e = (k >= l_ref? 0 : eps[refCodes[k]]) * bi1[v11];
                 bi[u+0] = e * m[0] + EI * m[1] * bi1[v10+1] + m[2] * bi[v01+2]; // bi1[v11] has been folded into e.
 				bi[u+1] = e * m[3] + EI * m[4] * bi1[v10+1];
 				bi[u+2] = (e * m[6] + m[8] * bi[v01+2]) * y;
@@ -306,9 +396,10 @@ public final class BAQ implements Serializable {
 		{ // b[0]
 			int beg = 1, end = l_ref < bw + 1? l_ref : bw + 1;
 			double sum = 0.;
+			rowEpsilons(query[qstart], _iqual[qstart], eps);
 			for (k = end; k >= beg; --k) {
 				int u = set_u(bw, 1, k);
-                double e = calcEpsilon(ref[k-1], query[qstart], _iqual[qstart]);
+                double e = eps[refCodes[k-1]];
                 if (u < 3 || u >= bw2*3+3) continue;
 				sum += e * b[1][u+0] * bM + EI * b[1][u+1] * bI;
 			}
@@ -341,6 +432,185 @@ public final class BAQ implements Serializable {
 		return 0;
 	}
 
+    /**
+     * Same as {@link #hmm_glocal}, in single precision, which halves the size of the matrices.
+     *
+     * The rows are rescaled as in double precision, so their values stay within the range of a float, and the
+     * probability of error of each base is computed as the sum of the posteriors of all the other states rather than
+     * as 1 - max, which keeps its precision for confident bases. The BAQ only differs from the double precision one
+     * when the posterior probability of the best state is within float precision of a rounding boundary of its
+     * phred score.
+     */
+    public int hmm_glocal_float(final byte[] ref, final byte[] query, int qstart, int l_query, final byte[] _iqual, int[] state, byte[] q) {
+        if ( ref == null ) throw new GATKException("BUG: ref sequence is null");
+        if ( query == null ) throw new GATKException("BUG: query sequence is null");
+        if ( _iqual == null ) throw new GATKException("BUG: query quality vector is null");
+        if ( query.length != _iqual.length ) throw new GATKException("BUG: read sequence length != qual length");
+        if ( l_query < 1 ) throw new GATKException("BUG: length of query sequence < 0: " + l_query);
+        if ( qstart < 0 ) throw new GATKException("BUG: query sequence start < 0: " + qstart);
+
+        int i, k;
+
+        /*** initialization ***/
+        final int l_ref = ref.length;
+
+        // set band width, exactly as in hmm_glocal
+        int bw2, bw = l_ref > l_query? l_ref : l_query;
+        if (cb < Math.abs(l_ref - l_query)) {
+            bw = Math.abs(l_ref - l_query) + 3;
+        }
+        if (bw > cb) bw = cb;
+        if (bw < Math.abs(l_ref - l_query)) {
+            bw = Math.abs(l_ref - l_query);
+        }
+        bw2 = bw * 2 + 1;
+
+        // get the cleared forward and backward matrices f[][] and b[][] and the scaling array s[]
+        final float[][] f = forwardMatrixFloat = reuseMatrix(forwardMatrixFloat, l_query+1, bw2*3 + 6);
+        final float[][] b = backwardMatrixFloat = reuseMatrix(backwardMatrixFloat, l_query+1, bw2*3 + 6);
+        final float[] s = scalingFactorsFloat = scalingFactorsFloat != null && scalingFactorsFloat.length >= l_query+2 ? scalingFactorsFloat : new float[l_query+2];
+        final byte[] refCodes = encodeReference(ref);
+        final float[] eps = new float[CODED_BASES.length]; // the epsilons of the current row, by reference base code
+
+        // initialize transition probabilities
+        final float sM, sI, bM, bI;
+        sM = sI = (float) (1. / (2 * l_query + 2));
+        bM = (float) ((1 - cd) / l_ref); bI = (float) (cd / l_ref);
+
+        final float m0 = (float) ((1 - cd - cd) * (1 - sM)), m1 = (float) (cd * (1 - sM)), m2 = m1;
+        final float m3 = (float) ((1 - ce) * (1 - sI)), m4 = (float) (ce * (1 - sI));
+        final float m6 = (float) (1 - ce), m8 = (float) ce;
+        final float ei = (float) EI, eim1 = ei * m1, eim4 = ei * m4;
+
+        /*** forward ***/
+        // f[0]
+        f[0][set_u(bw, 0, 0)] = s[0] = 1.f;
+        { // f[1]
+            final float[] fi = f[1];
+            float sum;
+            int beg = 1, end = l_ref < bw + 1? l_ref : bw + 1, _beg, _end;
+            rowEpsilons(query[qstart], _iqual[qstart], eps);
+            for (k = beg, sum = 0.f; k <= end; ++k) {
+                final float e = eps[refCodes[k-1]];
+                final int u = set_u(bw, 1, k);
+                fi[u+0] = e * bM; fi[u+1] = ei * bI;
+                sum += fi[u] + fi[u+1];
+            }
+            // rescale
+            s[1] = sum;
+            _beg = set_u(bw, 1, beg); _end = set_u(bw, 1, end); _end += 2;
+            for (k = _beg, sum = 1.f/sum; k <= _end; ++k) fi[k] *= sum;
+        }
+
+        // f[2..l_query]
+        for (i = 2; i <= l_query; ++i) {
+            final float[] fi = f[i], fi1 = f[i-1];
+            float sum;
+            int beg = 1, end = l_ref, x, _beg, _end;
+            x = i - bw; beg = beg > x? beg : x; // band start
+            x = i + bw; end = end < x? end : x; // band end
+            rowEpsilons(query[qstart+i-1], _iqual[qstart+i-1], eps);
+            for (k = beg, sum = 0.f; k <= end; ++k) {
+                final float e = eps[refCodes[k-1]];
+                final int u = set_u(bw, i, k), v11 = set_u(bw, i-1, k-1), v10 = set_u(bw, i-1, k), v01 = set_u(bw, i, k-1);
+                fi[u+0] = e * (m0 * fi1[v11+0] + m3 * fi1[v11+1] + m6 * fi1[v11+2]);
+                fi[u+1] = ei * (m1 * fi1[v10+0] + m4 * fi1[v10+1]);
+                fi[u+2] = m2 * fi[v01+0] + m8 * fi[v01+2];
+                sum += fi[u] + fi[u+1] + fi[u+2];
+            }
+            // rescale
+            s[i] = sum;
+            _beg = set_u(bw, i, beg); _end = set_u(bw, i, end); _end += 2;
+            for (k = _beg, sum = 1.f/sum; k <= _end; ++k) fi[k] *= sum;
+        }
+        { // f[l_query+1]
+            float sum;
+            for (k = 1, sum = 0.f; k <= l_ref; ++k) {
+                final int u = set_u(bw, l_query, k);
+                if (u < 3 || u >= bw2*3+3) continue;
+                sum += f[l_query][u+0] * sM + f[l_query][u+1] * sI;
+            }
+            s[l_query+1] = sum; // the last scaling factor
+        }
+
+        /*** backward ***/
+        // b[l_query]
+        for (k = 1; k <= l_ref; ++k) {
+            final int u = set_u(bw, l_query, k);
+            final float[] bi = b[l_query];
+            if (u < 3 || u >= bw2*3+3) continue;
+            bi[u+0] = sM / s[l_query] / s[l_query+1]; bi[u+1] = sI / s[l_query] / s[l_query+1];
+        }
+        // b[l_query-1..1]
+        for (i = l_query - 1; i >= 1; --i) {
+            int beg = 1, end = l_ref, x, _beg, _end;
+            final float[] bi = b[i], bi1 = b[i+1];
+            float y = (i > 1)? 1.f : 0.f;
+            x = i - bw; beg = beg > x? beg : x;
+            x = i + bw; end = end < x? end : x;
+            rowEpsilons(query[qstart+i], _iqual[qstart+i], eps);
+            for (k = end; k >= beg; --k) {
+                final int u = set_u(bw, i, k), v11 = set_u(bw, i+1, k+1), v10 = set_u(bw, i+1, k), v01 = set_u(bw, i, k+1);
+                final float e = (k >= l_ref? 0.f : eps[refCodes[k]]) * bi1[v11];
+                bi[u+0] = e * m0 + eim1 * bi1[v10+1] + m2 * bi[v01+2]; // bi1[v11] has been folded into e.
+                bi[u+1] = e * m3 + eim4 * bi1[v10+1];
+                bi[u+2] = (e * m6 + m8 * bi[v01+2]) * y;
+            }
+            // rescale
+            _beg = set_u(bw, i, beg); _end = set_u(bw, i, end); _end += 2;
+            for (k = _beg, y = 1.f/s[i]; k <= _end; ++k) bi[k] *= y;
+        }
+
+        /*** MAP ***/
+        for (i = 1; i <= l_query; ++i) {
+            // rest is the sum of the posteriors of all the states but the best one
+            float rest = 0.f, max = 0.f;
+            final float[] fi = f[i], bi = b[i];
+            int beg = 1, end = l_ref, x, max_k = -1;
+            x = i - bw; beg = beg > x? beg : x;
+            x = i + bw; end = end < x? end : x;
+            for (k = beg; k <= end; ++k) {
+                final int u = set_u(bw, i, k);
+                float z;
+                z = fi[u+0] * bi[u+0]; if (z > max) { rest += max; max = z; max_k = (k-1)<<2 | 0; } else rest += z;
+                z = fi[u+1] * bi[u+1]; if (z > max) { rest += max; max = z; max_k = (k-1)<<2 | 1; } else rest += z;
+            }
+            if (state != null) state[qstart+i-1] = max_k;
+            if (q != null) {
+                k = (int)(-4.343 * Math.log(rest / ((double) rest + max)) + .499); // = 10*log10(1-max/sum)
+                q[qstart+i-1] = (byte)(k > 100? 99 : (k < minBaseQual ? minBaseQual : k));
+            }
+        }
+
+        return 0;
+    }
+
+    /**
+     * @return a matrix with at least the given number of rows and columns, all zero in the first rows and columns:
+     *         matrix if it is large enough, or a new one
+     */
+    private static double[][] reuseMatrix(final double[][] matrix, final int rows, final int columns) {
+        if (matrix == null || matrix.length < rows || matrix[0].length < columns) {
+            final int oldRows = matrix == null ? 0 : matrix.length, oldColumns = matrix == null ? 0 : matrix[0].length;
+            return new double[Math.max(rows, oldRows)][Math.max(columns, oldColumns)];
+        }
+        for (int i = 0; i < rows; i++) {
+            Arrays.fill(matrix[i], 0, columns, 0.);
+        }
+        return matrix;
+    }
+
+    private static float[][] reuseMatrix(final float[][] matrix, final int rows, final int columns) {
+        if (matrix == null || matrix.length < rows || matrix[0].length < columns) {
+            final int oldRows = matrix == null ? 0 : matrix.length, oldColumns = matrix == null ? 0 : matrix[0].length;
+            return new float[Math.max(rows, oldRows)][Math.max(columns, oldColumns)];
+        }
+        for (int i = 0; i < rows; i++) {
+            Arrays.fill(matrix[i], 0, columns, 0.f);
+        }
+        return matrix;
+    }
+
     // ---------------------------------------------------------------------------------------------------------------
     //
     // Helper routines
@@ -526,7 +796,11 @@ public final class BAQ implements Serializable {
         // note -- assumes ref is offset from the *CLIPPED* start
         BAQCalculationResult baqResult = new BAQCalculationResult(query, quals, ref);
         int queryLen = queryEnd - queryStart;
-        hmm_glocal(baqResult.refBases, baqResult.readBases, queryStart, queryLen, baqResult.rawQuals, baqResult.state, baqResult.bq);
+        if ( precision == HMMPrecision.FLOAT ) {
+            hmm_glocal_float(baqResult.refBases, baqResult.readBases, queryStart, queryLen, baqResult.rawQuals, baqResult.state, baqResult.bq);
+        } else {
+            hmm_glocal(baqResult.refBases, baqResult.readBases, queryStart, queryLen, baqResult.rawQuals, baqResult.state, baqResult.bq);
+        }
         return baqResult;
     }
 
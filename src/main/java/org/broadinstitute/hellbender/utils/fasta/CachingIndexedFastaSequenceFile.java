@@ -16,6 +16,7 @@ import org.broadinstitute.hellbender.exceptions.GATKException;
 import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.utils.BaseUtils;
 import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.reference.ReferenceBasesView;
 
 import java.io.IOException;
 import java.nio.file.Files;
@@ -301,42 +302,19 @@ public final class CachingIndexedFastaSequenceFile implements ReferenceSequenceF
         final ReferenceSequence result;
 
         if ( (stop - start + 1) > cacheSize ) {
-            cacheMisses++;
-            result = sequenceFile.getSubsequenceAt(contig, start, stop);
-            if ( ! preserveCase ) StringUtil.toUpperCase(result.getBases());
-            if ( ! preserveIUPAC ) BaseUtils.convertIUPACtoN(result.getBases(), true, start < 1);
+            result = getUncachedSubsequenceAt(contig, start, stop);
         } else {
-            // todo -- potential optimization is to check if contig.name == contig, as this in general will be true
-            SAMSequenceRecord contigInfo = sequenceFile.getSequenceDictionary().getSequence(contig);
-            if (contigInfo == null){
-                throw new UserException.MissingContigInSequenceDictionary(contig, sequenceFile.getSequenceDictionary());
-            }
-
-            if (stop > contigInfo.getSequenceLength())
-                throw new SAMException("Query asks for data past end of contig. Query contig " + contig + " start:" + start + " stop:" + stop + " contigLength:" +  contigInfo.getSequenceLength());
-
-            if ( start < cache.start || stop > cache.stop || cache.seq == null || cache.seq.getContigIndex() != contigInfo.getSequenceIndex() ) {
-                cacheMisses++;
-                cache.start = Math.max(start - cacheMissBackup, 0);
-                cache.stop  = Math.min(start + cacheSize + cacheMissBackup, contigInfo.getSequenceLength());
-                cache.seq   = sequenceFile.getSubsequenceAt(contig, cache.start, cache.stop);
-
-                // convert all of the bases in the sequence to upper case if we aren't preserving cases
-                if ( ! preserveCase ) StringUtil.toUpperCase(cache.seq.getBases());
-                if ( ! preserveIUPAC ) BaseUtils.convertIUPACtoN(cache.seq.getBases(), true, cache.start == 0);
-            } else {
-                cacheHits++;
-            }
+            final ReferenceSequence cachedSequence = getCachedSequenceSpanning(contig, start, stop);
 
             // at this point we determine where in the cache we want to extract the requested subsequence
             final int cacheOffsetStart = (int)(start - cache.start);
             final int cacheOffsetStop = (int)(stop - start + cacheOffsetStart + 1);
 
             try {
-                result = new ReferenceSequence(cache.seq.getName(), cache.seq.getContigIndex(), Arrays.copyOfRange(cache.seq.getBases(), cacheOffsetStart, cacheOffsetStop));
+                result = new ReferenceSequence(cachedSequence.getName(), cachedSequence.getContigIndex(), Arrays.copyOfRange(cachedSequence.getBases(), cacheOffsetStart, cacheOffsetStop));
             } catch ( ArrayIndexOutOfBoundsException e ) {
                 throw new GATKException(String.format("BUG: bad array indexing.  Cache start %d and end %d, request start %d end %d, offset start %d and end %d, base size %d",
-                        cache.start, cache.stop, start, stop, cacheOffsetStart, cacheOffsetStop, cache.seq.getBases().length), e);
+                        cache.start, cache.stop, start, stop, cacheOffsetStart, cacheOffsetStop, cachedSequence.getBases().length), e);
             }
         }
 
@@ -347,6 +325,77 @@ public final class CachingIndexedFastaSequenceFile implements ReferenceSequenceF
         return result;
     }
 
+    /**
+     * Gets a view of the subsequence of the contig in the range [start,stop], without copying the bases
+     *
+     * Like {@link #getSubsequenceAt}, but the view is over the bases of the cache when the range fits in the cache.
+     * The cached bases are never modified, so the view stays valid after the cache moves on.
+     *
+     * @param contig Contig whose subsequence to retrieve.
+     * @param start inclusive, 1-based start of region.
+     * @param stop inclusive, 1-based stop of region.
+     * @return A view of the bases of the range.  If preserveCase is false, then all of the bases are upper cased.
+     */
+    public ReferenceBasesView getSubsequenceView( final String contig, final long start, final long stop ) {
+        final ReferenceBasesView result;
+
+        if ( (stop - start + 1) > cacheSize ) {
+            final ReferenceSequence sequence = getUncachedSubsequenceAt(contig, start, stop);
+            result = new ReferenceBasesView(contig, (int)start, sequence.getBases(), 0, sequence.length());
+        } else {
+            final ReferenceSequence cachedSequence = getCachedSequenceSpanning(contig, start, stop);
+            result = new ReferenceBasesView(contig, (int)start, cachedSequence.getBases(), (int)(start - cache.start), (int)(stop - start + 1));
+        }
+
+        if ( PRINT_EFFICIENCY && (getCacheHits() + getCacheMisses()) % PRINT_FREQUENCY == 0 )
+            printEfficiency(Level.INFO);
+
+        return result;
+    }
+
+    /**
+     * Loads a range too large for the cache directly, without changing the cache
+     */
+    private ReferenceSequence getUncachedSubsequenceAt( final String contig, final long start, final long stop ) {
+        cacheMisses++;
+        final ReferenceSequence result = sequenceFile.getSubsequenceAt(contig, start, stop);
+        if ( ! preserveCase ) StringUtil.toUpperCase(result.getBases());
+        if ( ! preserveIUPAC ) BaseUtils.convertIUPACtoN(result.getBases(), true, start < 1);
+        return result;
+    }
+
+    /**
+     * Updates the cache, if needed, so that it spans the range [start,stop] of the contig, which must not be larger
+     * than the cache
+     *
+     * @return the cached sequence, which starts at cache.start
+     */
+    private ReferenceSequence getCachedSequenceSpanning( final String contig, final long start, final long stop ) {
+        // todo -- potential optimization is to check if contig.name == contig, as this in general will be true
+        SAMSequenceRecord contigInfo = sequenceFile.getSequenceDictionary().getSequence(contig);
+        if (contigInfo == null){
+            throw new UserException.MissingContigInSequenceDictionary(contig, sequenceFile.getSequenceDictionary());
+        }
+
+        if (stop > contigInfo.getSequenceLength())
+            throw new SAMException("Query asks for data past end of contig. Query contig " + contig + " start:" + start + " stop:" + stop + " contigLength:" +  contigInfo.getSequenceLength());
+
+        if ( start < cache.start || stop > cache.stop || cache.seq == null || cache.seq.getContigIndex() != contigInfo.getSequenceIndex() ) {
+            cacheMisses++;
+            cache.start = Math.max(start - cacheMissBackup, 0);
+            cache.stop  = Math.min(start + cacheSize + cacheMissBackup, contigInfo.getSequenceLength());
+            // the cached bases are replaced rather than overwritten, since views over them may still be in use
+            cache.seq   = sequenceFile.getSubsequenceAt(contig, cache.start, cache.stop);
+
+            // convert all of the bases in the sequence to upper case if we aren't preserving cases
+            if ( ! preserveCase ) StringUtil.toUpperCase(cache.seq.getBases());
+            if ( ! preserveIUPAC ) BaseUtils.convertIUPACtoN(cache.seq.getBases(), true, cache.start == 0);
+        } else {
+            cacheHits++;
+        }
+        return cache.seq;
+    }
+
     /**
      * Close the backing {@link ReferenceSequenceFile}
      */
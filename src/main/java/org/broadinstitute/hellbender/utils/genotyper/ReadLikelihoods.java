@@ -41,12 +41,16 @@ public class ReadLikelihoods<A extends Allele> implements SampleList, AlleleList
     protected final GATKRead[][] readsBySampleIndex;
 
     /**
-     * Indexed per sample, allele and finally read (within sample).
+     * Indexed per sample, and then by read (within sample) and allele in a single flat array per sample.
      * <p>
-     *     valuesBySampleIndex[s][a][r] == lnLk(R_r | A_a) where R_r comes from Sample s.
+     *     valuesBySampleIndex[s][r * alleleCount + a] == lnLk(R_r | A_a) where R_r comes from Sample s.
+     * </p>
+     * <p>
+     *     Keeping all the likelihoods of a read next to each other needs a single allocation per sample and makes the
+     *     per-read scans over alleles (best allele search, marginalization, normalization) cache-friendly.
      * </p>
      */
-    protected final double[][][] valuesBySampleIndex;
+    protected final double[][] valuesBySampleIndex;
 
     /**
      * Sample list
@@ -130,7 +134,7 @@ public class ReadLikelihoods<A extends Allele> implements SampleList, AlleleList
 
         readsBySampleIndex = new GATKRead[sampleCount][];
         readListBySampleIndex = (List<GATKRead>[])new List[sampleCount];
-        valuesBySampleIndex = new double[sampleCount][][];
+        valuesBySampleIndex = new double[sampleCount][];
         referenceAlleleIndex = findReferenceAllele(alleles);
 
         readIndexBySampleIndex = new Object2IntMap[sampleCount];
@@ -147,7 +151,7 @@ public class ReadLikelihoods<A extends Allele> implements SampleList, AlleleList
                             final SampleList samples,
                             final GATKRead[][] readsBySampleIndex,
                             final Object2IntMap<GATKRead>[] readIndex,
-                            final double[][][] values) {
+                            final double[][] values) {
         this.samples = samples;
         this.alleles = alleles;
         this.readsBySampleIndex = readsBySampleIndex;
@@ -179,8 +183,7 @@ public class ReadLikelihoods<A extends Allele> implements SampleList, AlleleList
                 : reads.toArray(new GATKRead[reads.size()]);
         final int sampleReadCount = readsBySampleIndex[sampleIndex].length;
 
-        final double[][] sampleValues = new double[alleleCount][sampleReadCount];
-        valuesBySampleIndex[sampleIndex] = sampleValues;
+        valuesBySampleIndex[sampleIndex] = new double[alleleCount * sampleReadCount];
     }
 
     /**
@@ -190,9 +193,8 @@ public class ReadLikelihoods<A extends Allele> implements SampleList, AlleleList
     ReadLikelihoods<A> copy() {
 
         final int sampleCount = samples.numberOfSamples();
-        final int alleleCount = alleles.numberOfAlleles();
 
-        final double[][][] newLikelihoodValues = new double[sampleCount][alleleCount][];
+        final double[][] newLikelihoodValues = new double[sampleCount][];
 
         @SuppressWarnings({"unchecked", "rawtypes"})
         final Object2IntMap<GATKRead>[] newReadIndexBySampleIndex = new Object2IntMap[sampleCount];
@@ -200,9 +202,7 @@ public class ReadLikelihoods<A extends Allele> implements SampleList, AlleleList
 
         for (int s = 0; s < sampleCount; s++) {
             newReadsBySampleIndex[s] = readsBySampleIndex[s].clone();
-            for (int a = 0; a < alleleCount; a++) {
-                newLikelihoodValues[s][a] = valuesBySampleIndex[s][a].clone();
-            }
+            newLikelihoodValues[s] = valuesBySampleIndex[s].clone();
         }
 
         // Finally we create the new read-likelihood
@@ -354,7 +354,7 @@ public class ReadLikelihoods<A extends Allele> implements SampleList, AlleleList
         }
 
         for (int s = 0; s < valuesBySampleIndex.length; s++) {
-            final double[][] sampleValues = valuesBySampleIndex[s];
+            final double[] sampleValues = valuesBySampleIndex[s];
             final int readCount = readsBySampleIndex[s].length;
             for (int r = 0; r < readCount; r++) {
                 normalizeLikelihoodsPerRead(maximumLikelihoodDifferenceCap, sampleValues, s, r);
@@ -364,7 +364,7 @@ public class ReadLikelihoods<A extends Allele> implements SampleList, AlleleList
 
     // Does the normalizeLikelihoods job for each read.
     private void normalizeLikelihoodsPerRead(final double maximumBestAltLikelihoodDifference,
-                                             final double[][] sampleValues, final int sampleIndex, final int readIndex) {
+                                             final double[] sampleValues, final int sampleIndex, final int readIndex) {
 
         final BestAllele bestAlternativeAllele = searchBestAllele(sampleIndex,readIndex,false, false);
 
@@ -373,9 +373,10 @@ public class ReadLikelihoods<A extends Allele> implements SampleList, AlleleList
         final int alleleCount = alleles.numberOfAlleles();
 
         // Guarantee to be the case by enclosing code.
+        final int offset = readIndex * alleleCount;
         for (int a = 0; a < alleleCount; a++) {
-            if (sampleValues[a][readIndex] < worstLikelihoodCap) {
-                sampleValues[a][readIndex] = worstLikelihoodCap;
+            if (sampleValues[offset + a] < worstLikelihoodCap) {
+                sampleValues[offset + a] = worstLikelihoodCap;
             }
         }
 
@@ -431,16 +432,17 @@ public class ReadLikelihoods<A extends Allele> implements SampleList, AlleleList
             return new BestAllele(sampleIndex, readIndex, -1, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY);
         }
 
-        final double[][] sampleValues = valuesBySampleIndex[sampleIndex];
+        final double[] sampleValues = valuesBySampleIndex[sampleIndex];
+        final int offset = readIndex * alleleCount;
         int bestAlleleIndex = canBeReference || referenceAlleleIndex != 0 ? 0 : 1;
 
-        double bestLikelihood = sampleValues[bestAlleleIndex][readIndex];
+        double bestLikelihood = sampleValues[offset + bestAlleleIndex];
         double secondBestLikelihood = Double.NEGATIVE_INFINITY;
         for (int a = bestAlleleIndex + 1; a < alleleCount; a++) {
             if (!canBeReference && referenceAlleleIndex == a) {
                 continue;
             }
-            final double candidateLikelihood = sampleValues[a][readIndex];
+            final double candidateLikelihood = sampleValues[offset + a];
             if (candidateLikelihood > bestLikelihood) {
                 bestAlleleIndex = a;
                 secondBestLikelihood = bestLikelihood;
@@ -453,7 +455,7 @@ public class ReadLikelihoods<A extends Allele> implements SampleList, AlleleList
         // if our read is not informative against the ref we set the ref as the best allele.  This is so that bamouts don't
         // spuriously show deletions in ref reads that end in STRs
         if (useReferenceIfUninformative && canBeReference && referenceAlleleIndex != MISSING_REF && bestAlleleIndex != referenceAlleleIndex) {
-            final double referenceLikelihood = sampleValues[referenceAlleleIndex][readIndex];
+            final double referenceLikelihood = sampleValues[offset + referenceAlleleIndex];
             if ( bestLikelihood - referenceLikelihood < BestAllele.INFORMATIVE_THRESHOLD ) {
                 secondBestLikelihood = bestLikelihood;
                 bestAlleleIndex = referenceAlleleIndex;
@@ -532,14 +534,16 @@ public class ReadLikelihoods<A extends Allele> implements SampleList, AlleleList
         //copy old allele likelihoods and set new allele likelihoods to the default value
         for (int s = 0; s < samples.numberOfSamples(); s++) {
             final int sampleReadCount = readsBySampleIndex[s].length;
-            final double[][] newValuesBySampleIndex = Arrays.copyOf(valuesBySampleIndex[s], newAlleleCount);
-            for (int a = oldAlleleCount; a < newAlleleCount; a++) {
-                newValuesBySampleIndex[a] = new double[sampleReadCount];
+            final double[] oldSampleValues = valuesBySampleIndex[s];
+            final double[] newSampleValues = new double[sampleReadCount * newAlleleCount];
+            for (int r = 0; r < sampleReadCount; r++) {
+                final int newOffset = r * newAlleleCount;
+                System.arraycopy(oldSampleValues, r * oldAlleleCount, newSampleValues, newOffset, oldAlleleCount);
                 if (defaultLikelihood != 0.0) {
-                    Arrays.fill(newValuesBySampleIndex[a], defaultLikelihood);
+                    Arrays.fill(newSampleValues, newOffset + oldAlleleCount, newOffset + newAlleleCount, defaultLikelihood);
                 }
             }
-            valuesBySampleIndex[s] = newValuesBySampleIndex;
+            valuesBySampleIndex[s] = newSampleValues;
         }
         return true;
     }
@@ -570,7 +574,7 @@ public class ReadLikelihoods<A extends Allele> implements SampleList, AlleleList
         final int[] oldToNewAlleleIndexMap = oldToNewAlleleIndexMap(newToOldAlleleMap, oldAlleleCount, newAlleles);
 
         // We calculate the marginal likelihoods.
-        final double[][][] newLikelihoodValues = marginalLikelihoods(oldAlleleCount, newAlleleCount, oldToNewAlleleIndexMap, null);
+        final double[][] newLikelihoodValues = marginalLikelihoods(oldAlleleCount, newAlleleCount, oldToNewAlleleIndexMap, null);
 
         final int sampleCount = samples.numberOfSamples();
 
@@ -624,7 +628,7 @@ public class ReadLikelihoods<A extends Allele> implements SampleList, AlleleList
         final int[][] readsToKeep = overlappingReadIndicesBySampleIndex(overlap);
         // We calculate the marginal likelihoods.
 
-        final double[][][] newLikelihoodValues = marginalLikelihoods(oldAlleleCount, newAlleleCount, oldToNewAlleleIndexMap, readsToKeep);
+        final double[][] newLikelihoodValues = marginalLikelihoods(oldAlleleCount, newAlleleCount, oldToNewAlleleIndexMap, readsToKeep);
 
         final int sampleCount = samples.numberOfSamples();
 
@@ -677,32 +681,32 @@ public class ReadLikelihoods<A extends Allele> implements SampleList, AlleleList
     }
 
     // Calculate the marginal likelihoods considering the old -> new allele index mapping.
-    private double[][][] marginalLikelihoods(final int oldAlleleCount, final int newAlleleCount, final int[] oldToNewAlleleIndexMap, final int[][] readsToKeep) {
+    private double[][] marginalLikelihoods(final int oldAlleleCount, final int newAlleleCount, final int[] oldToNewAlleleIndexMap, final int[][] readsToKeep) {
 
         final int sampleCount = samples.numberOfSamples();
-        final double[][][] result = new double[sampleCount][][];
+        final double[][] result = new double[sampleCount][];
 
         for (int s = 0; s < sampleCount; s++) {
             final int sampleReadCount = readsBySampleIndex[s].length;
-            final double[][] oldSampleValues = valuesBySampleIndex[s];
+            final double[] oldSampleValues = valuesBySampleIndex[s];
             final int[] sampleReadToKeep = readsToKeep == null || readsToKeep[s].length == sampleReadCount ? null : readsToKeep[s];
             final int newSampleReadCount = sampleReadToKeep == null ? sampleReadCount : sampleReadToKeep.length;
-            final double[][] newSampleValues = result[s] = new double[newAlleleCount][newSampleReadCount];
+            final double[] newSampleValues = result[s] = new double[newAlleleCount * newSampleReadCount];
             // We initiate all likelihoods to -Inf.
-            for (int a = 0; a < newAlleleCount; a++) {
-                Arrays.fill(newSampleValues[a], Double.NEGATIVE_INFINITY);
-            }
-            // For each old allele and read we update the new table keeping the maximum likelihood.
+            Arrays.fill(newSampleValues, Double.NEGATIVE_INFINITY);
+            // For each read and old allele we update the new table keeping the maximum likelihood.
             for (int r = 0; r < newSampleReadCount; r++) {
+                final int oldReadIndex = sampleReadToKeep == null ? r : sampleReadToKeep[r];
+                final int oldOffset = oldReadIndex * oldAlleleCount;
+                final int newOffset = r * newAlleleCount;
                 for (int a = 0; a < oldAlleleCount; a++) {
-                    final int oldReadIndex = newSampleReadCount == sampleReadCount ? r : sampleReadToKeep[r];
                     final int newAlleleIndex = oldToNewAlleleIndexMap[a];
                     if (newAlleleIndex == -1) {
                         continue;
                     }
-                    final double likelihood = oldSampleValues[a][oldReadIndex];
-                    if (likelihood > newSampleValues[newAlleleIndex][r]) {
-                        newSampleValues[newAlleleIndex][r] = likelihood;
+                    final double likelihood = oldSampleValues[oldOffset + a];
+                    if (likelihood > newSampleValues[newOffset + newAlleleIndex]) {
+                        newSampleValues[newOffset + newAlleleIndex] = likelihood;
                     }
                 }
             }
@@ -768,9 +772,10 @@ public class ReadLikelihoods<A extends Allele> implements SampleList, AlleleList
         final double log10MaxLikelihoodForTrueAllele = maxErrorsForRead * log10QualPerBase;
 
         final int alleleCount = alleles.numberOfAlleles();
-        final double[][] sampleValues = valuesBySampleIndex[sampleIndex];
+        final double[] sampleValues = valuesBySampleIndex[sampleIndex];
+        final int offset = readIndex * alleleCount;
         for (int a = 0; a < alleleCount; a++) {
-            if (sampleValues[a][readIndex] >= log10MaxLikelihoodForTrueAllele) {
+            if (sampleValues[offset + a] >= log10MaxLikelihoodForTrueAllele) {
                 return false;
             }
         }
@@ -812,16 +817,13 @@ public class ReadLikelihoods<A extends Allele> implements SampleList, AlleleList
 
     // Extends the likelihood arrays-matrices.
     private void extendsLikelihoodArrays(final double initialLikelihood, final int sampleIndex, final int sampleReadCount, final int newSampleReadCount) {
-        final double[][] sampleValues = valuesBySampleIndex[sampleIndex];
         final int alleleCount = alleles.numberOfAlleles();
-        for (int a = 0; a < alleleCount; a++) {
-            sampleValues[a] = Arrays.copyOf(sampleValues[a], newSampleReadCount);
-        }
+        // new reads go at the end of the read-major array, so the existing values stay where they are.
+        final double[] sampleValues = valuesBySampleIndex[sampleIndex] =
+                Arrays.copyOf(valuesBySampleIndex[sampleIndex], newSampleReadCount * alleleCount);
         if (initialLikelihood != 0.0) // the default array new value.
         {
-            for (int a = 0; a < alleleCount; a++) {
-                Arrays.fill(sampleValues[a], sampleReadCount, newSampleReadCount, initialLikelihood);
-            }
+            Arrays.fill(sampleValues, sampleReadCount * alleleCount, newSampleReadCount * alleleCount, initialLikelihood);
         }
     }
 
@@ -900,13 +902,14 @@ public class ReadLikelihoods<A extends Allele> implements SampleList, AlleleList
         final double[] qualifiedAlleleLikelihoods = new double[nonSymbolicAlleleCount];
         final Median medianCalculator = new Median();
         for (int s = 0; s < samples.numberOfSamples(); s++) {
-            final double[][] sampleValues = valuesBySampleIndex[s];
-            final int readCount = sampleValues[0].length;
+            final double[] sampleValues = valuesBySampleIndex[s];
+            final int readCount = readsBySampleIndex[s].length;
             for (int r = 0; r < readCount; r++) {
                 final BestAllele bestAllele = searchBestAllele(s, r, true, false);
+                final int offset = r * alleleCount;
                 int numberOfQualifiedAlleleLikelihoods = 0;
                 for (int i = 0; i < alleleCount; i++) {
-                    final double alleleLikelihood = sampleValues[i][r];
+                    final double alleleLikelihood = sampleValues[offset + i];
                     if (i != nonRefAlleleIndex && alleleLikelihood < bestAllele.likelihood
                             && !Double.isNaN(alleleLikelihood) && allelesToConsider.indexOfAllele(alleles.getAllele(i)) != -1) {
                         qualifiedAlleleLikelihoods[numberOfQualifiedAlleleLikelihoods++] = alleleLikelihood;
@@ -917,7 +920,7 @@ public class ReadLikelihoods<A extends Allele> implements SampleList, AlleleList
                 // so the read is not informative at all given the existing alleles. Unless there is only one (or zero) concrete
                 // alleles with give the same (the best) likelihood to the NON-REF. When there is only one (or zero) concrete
                 // alleles we set the NON-REF likelihood to NaN.
-                sampleValues[nonRefAlleleIndex][r] = !Double.isNaN(nonRefLikelihood) ? nonRefLikelihood
+                sampleValues[offset + nonRefAlleleIndex] = !Double.isNaN(nonRefLikelihood) ? nonRefLikelihood
                         : nonSymbolicAlleleCount <= 1 ? Double.NaN : bestAllele.likelihood;
             }
         }
@@ -1195,13 +1198,7 @@ public class ReadLikelihoods<A extends Allele> implements SampleList, AlleleList
         Utils.skimArray(oldSampleReads,firstDeleted, newSampleReads, firstDeleted, removeIndex, firstDeleted);
 
         // Then we skim out the likelihoods of the removed reads.
-        final double[][] oldSampleValues = valuesBySampleIndex[sampleIndex];
-        final double[][] newSampleValues = new double[alleleCount][newSampleReadCount];
-        for (int a = 0; a < alleleCount; a++) {
-            System.arraycopy(oldSampleValues[a], 0, newSampleValues[a], 0, firstDeleted);
-            Utils.skimArray(oldSampleValues[a], firstDeleted, newSampleValues[a], firstDeleted, removeIndex, firstDeleted);
-        }
-        valuesBySampleIndex[sampleIndex] = newSampleValues;
+        removeSampleValues(sampleIndex, removeIndex, firstDeleted, newSampleReadCount, alleleCount);
         readsBySampleIndex[sampleIndex] = newSampleReads;
         readListBySampleIndex[sampleIndex] = null; // reset the unmodifiable list.
     }
@@ -1253,18 +1250,28 @@ public class ReadLikelihoods<A extends Allele> implements SampleList, AlleleList
         }
 
         // Then we skim out the likelihoods of the removed reads.
-        final double[][] oldSampleValues = valuesBySampleIndex[sampleIndex];
-        final double[][] newSampleValues = new double[alleleCount][newSampleReadCount];
-        for (int a = 0; a < alleleCount; a++) {
-            System.arraycopy(oldSampleValues[a],0,newSampleValues[a],0,firstDeleted);
-            Utils.skimArray(oldSampleValues[a], firstDeleted, newSampleValues[a], firstDeleted, removeIndex, firstDeleted);
-        }
-        valuesBySampleIndex[sampleIndex] = newSampleValues;
+        removeSampleValues(sampleIndex, removeIndex, firstDeleted, newSampleReadCount, alleleCount);
         readsBySampleIndex[sampleIndex] = newSampleReads;
         readListBySampleIndex[sampleIndex] = null; // reset the unmodifiable list.
     }
 
 
+    // Skims out the likelihoods of the reads marked in removeIndex (none before firstDeleted) from a sample's values.
+    private void removeSampleValues(final int sampleIndex, final boolean[] removeIndex, final int firstDeleted,
+                                    final int newSampleReadCount, final int alleleCount) {
+        final double[] oldSampleValues = valuesBySampleIndex[sampleIndex];
+        final double[] newSampleValues = new double[newSampleReadCount * alleleCount];
+        System.arraycopy(oldSampleValues, 0, newSampleValues, 0, firstDeleted * alleleCount);
+        int newOffset = firstDeleted * alleleCount;
+        for (int r = firstDeleted; r < removeIndex.length; r++) {
+            if (!removeIndex[r]) {
+                System.arraycopy(oldSampleValues, r * alleleCount, newSampleValues, newOffset, alleleCount);
+                newOffset += alleleCount;
+            }
+        }
+        valuesBySampleIndex[sampleIndex] = newSampleValues;
+    }
+
     private Object2IntMap<GATKRead> readIndexBySampleIndex(final int sampleIndex) {
         if (readIndexBySampleIndex[sampleIndex] == null) {
             final GATKRead[] sampleReads = readsBySampleIndex[sampleIndex];
@@ -1312,16 +1319,18 @@ public class ReadLikelihoods<A extends Allele> implements SampleList, AlleleList
 
         @Override
         public void set(final int alleleIndex, final int readIndex, final double value) {
-            Utils.validIndex(alleleIndex, valuesBySampleIndex[sampleIndex].length);
-            Utils.validIndex(readIndex, valuesBySampleIndex[sampleIndex][alleleIndex].length);
-            valuesBySampleIndex[sampleIndex][alleleIndex][readIndex] = value;
+            final int alleleCount = alleles.numberOfAlleles();
+            Utils.validIndex(alleleIndex, alleleCount);
+            Utils.validIndex(readIndex, readsBySampleIndex[sampleIndex].length);
+            valuesBySampleIndex[sampleIndex][readIndex * alleleCount + alleleIndex] = value;
         }
 
         @Override
         public double get(final int alleleIndex, final int readIndex) {
-            Utils.validIndex(alleleIndex, valuesBySampleIndex[sampleIndex].length);
-            Utils.validIndex(readIndex, valuesBySampleIndex[sampleIndex][alleleIndex].length);
-            return valuesBySampleIndex[sampleIndex][alleleIndex][readIndex];
+            final int alleleCount = alleles.numberOfAlleles();
+            Utils.validIndex(alleleIndex, alleleCount);
+            Utils.validIndex(readIndex, readsBySampleIndex[sampleIndex].length);
+            return valuesBySampleIndex[sampleIndex][readIndex * alleleCount + alleleIndex];
         }
 
         @Override
@@ -1361,8 +1370,13 @@ public class ReadLikelihoods<A extends Allele> implements SampleList, AlleleList
         @Override
         public void copyAlleleLikelihoods(final int alleleIndex, final double[] dest, final int offset) {
             Utils.nonNull(dest);
-            Utils.validIndex(alleleIndex, valuesBySampleIndex[sampleIndex].length);
-            System.arraycopy(valuesBySampleIndex[sampleIndex][alleleIndex], 0, dest, offset, numberOfReads());
+            final int alleleCount = alleles.numberOfAlleles();
+            Utils.validIndex(alleleIndex, alleleCount);
+            final double[] sampleValues = valuesBySampleIndex[sampleIndex];
+            final int readCount = numberOfReads();
+            for (int r = 0, i = alleleIndex; r < readCount; r++, i += alleleCount) {
+                dest[offset + r] = sampleValues[i];
+            }
         }
     }
 }
@@ -50,7 +50,7 @@ public class UnfilledReadsLikelihoods<A extends Allele> extends ReadLikelihoods<
                             final SampleList samples,
                             final GATKRead[][] readsBySampleIndex,
                             final Object2IntMap<GATKRead>[] readIndex,
-                            final double[][][] values) {
+                            final double[][] values) {
        super(alleles, samples, readsBySampleIndex, readIndex, values);
     }
 
@@ -88,9 +88,8 @@ public class UnfilledReadsLikelihoods<A extends Allele> extends ReadLikelihoods<
     ReadLikelihoods<A> copy() {
 
         final int sampleCount = samples.numberOfSamples();
-        final int alleleCount = alleles.numberOfAlleles();
 
-        final double[][][] newLikelihoodValues = new double[sampleCount][alleleCount][];
+        final double[][] newLikelihoodValues = new double[sampleCount][];
 
         @SuppressWarnings({"unchecked", "rawtypes"})
         final Object2IntMap<GATKRead>[] newReadIndexBySampleIndex = new Object2IntMap[sampleCount];
@@ -98,9 +97,7 @@ public class UnfilledReadsLikelihoods<A extends Allele> extends ReadLikelihoods<
 
         for (int s = 0; s < sampleCount; s++) {
             newReadsBySampleIndex[s] = readsBySampleIndex[s].clone();
-            for (int a = 0; a < alleleCount; a++) {
-                newLikelihoodValues[s][a] = valuesBySampleIndex[s][a].clone();
-            }
+            newLikelihoodValues[s] = valuesBySampleIndex[s].clone();
         }
 
         // Finally we create the new read-likelihood
@@ -0,0 +1,282 @@
+package org.broadinstitute.hellbender.utils.io;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import htsjdk.samtools.util.BlockCompressedStreamConstants;
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes BGZF (block compressed gzip) data like htsjdk's {@link htsjdk.samtools.util.BlockCompressedOutputStream},
+ * but with the blocks compressed on a pool of threads rather than on the writing thread. Blocks are compressed as
+ * soon as they are full, and written to the underlying stream in order; at most a few blocks per thread are
+ * waiting to be compressed or written at any time, and the writing thread waits when there are more.
+ *
+ * Blocks are compressed like BlockCompressedOutputStream compresses them, and can be read by any BGZF reader.
+ *
+ * The compressed address of a block is only known once the blocks before it have been compressed, so instead of
+ * virtual file pointers this stream gives the number of the current block and the offset in it, and a
+ * {@link BlockListener} is told the address of each block as it becomes known.
+ *
+ * Not thread-safe: the stream must be written to from a single thread.
+ */
+public final class ParallelBlockCompressedOutputStream extends OutputStream {
+    private static final int BLOCKS_IN_FLIGHT_PER_THREAD = 4;
+    // the largest compressed data that fits in a BGZF block, with its header and footer
+    private static final int MAX_COMPRESSED_DATA_SIZE = BlockCompressedStreamConstants.MAX_COMPRESSED_BLOCK_SIZE
+            - BlockCompressedStreamConstants.BLOCK_HEADER_LENGTH - BlockCompressedStreamConstants.BLOCK_FOOTER_LENGTH;
+    // small enough that data which does not compress still fits in a block, stored in a single deflate block with a
+    // 5 byte header
+    private static final int UNCOMPRESSED_BLOCK_SIZE = MAX_COMPRESSED_DATA_SIZE - 5;
+
+    /**
+     * Told the address of the blocks of a {@link ParallelBlockCompressedOutputStream} as they are written
+     */
+    @FunctionalInterface
+    public interface BlockListener {
+        /**
+         * Called on the writing thread after each block is written to the underlying stream
+         *
+         * @param numBlocksWritten number of blocks written so far, which is also the number of the next block
+         * @param nextBlockAddress address in the underlying stream at which the next block will be written
+         */
+        void blocksWritten(long numBlocksWritten, long nextBlockAddress);
+    }
+
+    private final OutputStream out;
+    private final BlockListener listener;
+    private final ExecutorService executor;
+    private final int maxBlocksInFlight;
+    private final ThreadLocal<BlockCompressor> compressors;
+
+    // blocks submitted for compression, in order
+    private final ArrayDeque<Future<byte[]>> blocksInFlight = new ArrayDeque<>();
+    // uncompressed buffers not in use, for reuse once their block is compressed
+    private final BlockingQueue<byte[]> freeBuffers;
+
+    private byte[] uncompressedBuffer;
+    private int numUncompressedBytes = 0;
+    private long blockNumber = 0;
+    private long numBlocksWritten = 0;
+    private long numBytesWritten = 0;
+    private boolean closed = false;
+
+    /**
+     * @param out the stream to which to write the compressed blocks, closed with this stream
+     * @param compressionLevel deflate compression level of the blocks
+     * @param numThreads number of threads compressing the blocks
+     * @param listener told the address of each block as it is written, may be null
+     */
+    public ParallelBlockCompressedOutputStream(final OutputStream out, final int compressionLevel, final int numThreads,
+                                               final BlockListener listener) {
+        Utils.validateArg(compressionLevel >= Deflater.NO_COMPRESSION && compressionLevel <= Deflater.BEST_COMPRESSION,
+                () -> "Invalid compression level " + compressionLevel);
+        Utils.validateArg(numThreads > 0, "numThreads must be > 0");
+        this.out = Utils.nonNull(out);
+        this.listener = listener;
+        this.executor = Executors.newFixedThreadPool(numThreads, new ThreadFactoryBuilder()
+                .setNameFormat("block-compression-%d")
+                .setDaemon(true)
+                .build());
+        this.maxBlocksInFlight = BLOCKS_IN_FLIGHT_PER_THREAD * numThreads;
+        this.compressors = ThreadLocal.withInitial(() -> new BlockCompressor(compressionLevel));
+        this.freeBuffers = new ArrayBlockingQueue<>(maxBlocksInFlight + 1);
+        this.uncompressedBuffer = new byte[UNCOMPRESSED_BLOCK_SIZE];
+    }
+
+    /**
+     * @return the number of the block to which the next byte will be written
+     */
+    public long getBlockNumber() {
+        return blockNumber;
+    }
+
+    /**
+     * @return the offset in its uncompressed block at which the next byte will be written
+     */
+    public int getBlockOffset() {
+        return numUncompressedBytes;
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+        uncompressedBuffer[numUncompressedBytes++] = (byte) b;
+        if (numUncompressedBytes == uncompressedBuffer.length) {
+            endBlock();
+        }
+    }
+
+    @Override
+    public void write(final byte[] bytes, int offset, int length) throws IOException {
+        while (length > 0) {
+            final int copied = Math.min(uncompressedBuffer.length - numUncompressedBytes, length);
+            System.arraycopy(bytes, offset, uncompressedBuffer, numUncompressedBytes, copied);
+            numUncompressedBytes += copied;
+            offset += copied;
+            length -= copied;
+            // as in BlockCompressedOutputStream, a full block is compressed right away, so the next byte always
+            // starts a new block
+            if (numUncompressedBytes == uncompressedBuffer.length) {
+                endBlock();
+            }
+        }
+    }
+
+    /**
+     * Ends the current block, if it is not empty, so that the next byte starts a new block. Like
+     * {@link htsjdk.samtools.util.BlockCompressedOutputStream#flush}, but does not wait for the block to be written.
+     */
+    public void endBlock() throws IOException {
+        if (numUncompressedBytes == 0) {
+            return;
+        }
+        if (blocksInFlight.size() >= maxBlocksInFlight) {
+            writeOldestBlock();
+        }
+        final byte[] buffer = uncompressedBuffer;
+        final int length = numUncompressedBytes;
+        blocksInFlight.add(executor.submit(() -> {
+            final byte[] block = compressors.get().compress(buffer, length);
+            freeBuffers.offer(buffer);
+            return block;
+        }));
+        final byte[] freeBuffer = freeBuffers.poll();
+        uncompressedBuffer = freeBuffer != null ? freeBuffer : new byte[UNCOMPRESSED_BLOCK_SIZE];
+        numUncompressedBytes = 0;
+        blockNumber++;
+    }
+
+    private void writeOldestBlock() throws IOException {
+        final byte[] block;
+        try {
+            block = blocksInFlight.removeFirst().get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while compressing");
+        } catch (final ExecutionException e) {
+            throw new GATKException("Error while compressing", e.getCause());
+        }
+        out.write(block);
+        numBlocksWritten++;
+        numBytesWritten += block.length;
+        if (listener != null) {
+            listener.blocksWritten(numBlocksWritten, numBytesWritten);
+        }
+    }
+
+    /**
+     * Ends the current block and waits for all the blocks to be written to the underlying stream, which is flushed
+     */
+    @Override
+    public void flush() throws IOException {
+        endBlock();
+        while (!blocksInFlight.isEmpty()) {
+            writeOldestBlock();
+        }
+        out.flush();
+    }
+
+    /**
+     * Writes the remaining blocks, followed by the empty block that marks the end of BGZF data, and closes the
+     * underlying stream
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            flush();
+            out.write(BlockCompressedStreamConstants.EMPTY_GZIP_BLOCK);
+            out.close();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Compresses blocks like BlockCompressedOutputStream. One per compression thread.
+     */
+    private static final class BlockCompressor {
+        private final Deflater deflater;
+        // used when the data is not compressible enough to fit in a block
+        private final Deflater noCompressionDeflater = new Deflater(Deflater.NO_COMPRESSION, true);
+        private final CRC32 crc32 = new CRC32();
+        private final byte[] compressedBuffer = new byte[MAX_COMPRESSED_DATA_SIZE];
+
+        BlockCompressor(final int compressionLevel) {
+            deflater = new Deflater(compressionLevel, true);
+        }
+
+        byte[] compress(final byte[] uncompressed, final int length) {
+            crc32.reset();
+            crc32.update(uncompressed, 0, length);
+
+            deflater.reset();
+            deflater.setInput(uncompressed, 0, length);
+            deflater.finish();
+            int compressedSize = deflater.deflate(compressedBuffer, 0, compressedBuffer.length);
+            if (!deflater.finished()) {
+                noCompressionDeflater.reset();
+                noCompressionDeflater.setInput(uncompressed, 0, length);
+                noCompressionDeflater.finish();
+                compressedSize = noCompressionDeflater.deflate(compressedBuffer, 0, compressedBuffer.length);
+                if (!noCompressionDeflater.finished()) {
+                    throw new GATKException("Could not fit uncompressed data in a block");
+                }
+            }
+            return gzipBlock(compressedSize, length, crc32.getValue());
+        }
+
+        // the gzip header with the BGZF extra field, the compressed data, and the gzip footer
+        private byte[] gzipBlock(final int compressedSize, final int uncompressedSize, final long crc) {
+            final int blockSize = compressedSize + BlockCompressedStreamConstants.BLOCK_HEADER_LENGTH + BlockCompressedStreamConstants.BLOCK_FOOTER_LENGTH;
+            final byte[] block = new byte[blockSize];
+            int i = 0;
+            block[i++] = (byte) BlockCompressedStreamConstants.GZIP_ID1;
+            block[i++] = (byte) BlockCompressedStreamConstants.GZIP_ID2;
+            block[i++] = (byte) BlockCompressedStreamConstants.GZIP_CM_DEFLATE;
+            block[i++] = (byte) BlockCompressedStreamConstants.GZIP_FLG;
+            i = putInt(block, i, 0); // modification time
+            block[i++] = (byte) BlockCompressedStreamConstants.GZIP_XFL;
+            block[i++] = (byte) BlockCompressedStreamConstants.GZIP_OS_UNKNOWN;
+            i = putShort(block, i, BlockCompressedStreamConstants.GZIP_XLEN);
+            block[i++] = (byte) BlockCompressedStreamConstants.BGZF_ID1;
+            block[i++] = (byte) BlockCompressedStreamConstants.BGZF_ID2;
+            i = putShort(block, i, BlockCompressedStreamConstants.BGZF_LEN);
+            i = putShort(block, i, blockSize - 1);
+            System.arraycopy(compressedBuffer, 0, block, i, compressedSize);
+            i += compressedSize;
+            i = putInt(block, i, (int) crc);
+            putInt(block, i, uncompressedSize);
+            return block;
+        }
+
+        private static int putShort(final byte[] bytes, final int offset, final int value) {
+            bytes[offset] = (byte) value;
+            bytes[offset + 1] = (byte) (value >>> 8);
+            return offset + 2;
+        }
+
+        private static int putInt(final byte[] bytes, final int offset, final int value) {
+            bytes[offset] = (byte) value;
+            bytes[offset + 1] = (byte) (value >>> 8);
+            bytes[offset + 2] = (byte) (value >>> 16);
+            bytes[offset + 3] = (byte) (value >>> 24);
+            return offset + 4;
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package org.broadinstitute.hellbender.utils.iterators;
+
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.util.CloseableIterator;
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.read.SAMRecordToGATKReadAdapter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wraps a SAMRecord iterator within an iterator of GATKReads whose records are read and decoded ahead of the consumer,
+ * on other threads, so that the consumer does not wait for the decompression and decoding of the input.
+ *
+ * A producer thread pulls the records from the source in batches, and each batch is decoded (see
+ * {@link SAMRecord#eagerDecode}) on a pool of decoding threads. At most {@code maxBatchesAhead} batches are read ahead
+ * of the consumer, and the reads are returned in the order of the source.
+ *
+ * The source must not be used by any other thread until this iterator is closed, which waits for the producer thread
+ * to stop.
+ * Closing this iterator does not close the source.
+ */
+public final class ReadAheadDecodingIterator implements CloseableIterator<GATKRead> {
+    // how often a producer waiting for the consumer checks whether the iterator was closed
+    private static final long CLOSED_CHECK_INTERVAL_MILLIS = 100;
+
+    // marks the end of the source in the queue of batches
+    private static final Future<List<GATKRead>> END_OF_READS = CompletableFuture.completedFuture(Collections.emptyList());
+
+    private final Iterator<SAMRecord> source;
+    private final ExecutorService decodingExecutor;
+    private final int batchSize;
+    private final BlockingQueue<Future<List<GATKRead>>> batches;
+    private final Thread producer;
+
+    private volatile boolean closed = false;
+    private boolean finished = false;
+    private Iterator<GATKRead> currentBatch = Collections.emptyIterator();
+
+    /**
+     * @param source the records to iterate over, used only by the producer thread until this iterator is closed
+     * @param decodingExecutor the threads on which to decode the records, not owned by this iterator
+     * @param batchSize number of records decoded together
+     * @param maxBatchesAhead maximum number of batches read ahead of the consumer
+     */
+    public ReadAheadDecodingIterator(final Iterator<SAMRecord> source, final ExecutorService decodingExecutor,
+                                     final int batchSize, final int maxBatchesAhead) {
+        Utils.validateArg(batchSize > 0, "batchSize must be > 0");
+        Utils.validateArg(maxBatchesAhead > 0, "maxBatchesAhead must be > 0");
+        this.source = Utils.nonNull(source);
+        this.decodingExecutor = Utils.nonNull(decodingExecutor);
+        this.batchSize = batchSize;
+        this.batches = new ArrayBlockingQueue<>(maxBatchesAhead);
+        this.producer = new Thread(this::produce, "read-ahead-producer");
+        producer.setDaemon(true);
+        producer.start();
+    }
+
+    private void produce() {
+        try {
+            while (!closed) {
+                final List<SAMRecord> batch = new ArrayList<>(batchSize);
+                while (batch.size() < batchSize && source.hasNext()) {
+                    batch.add(source.next());
+                }
+                if (batch.isEmpty()) {
+                    break;
+                }
+                enqueue(decodingExecutor.submit(() -> decode(batch)));
+            }
+            enqueue(END_OF_READS);
+        } catch (final Throwable t) {
+            final CompletableFuture<List<GATKRead>> failure = new CompletableFuture<>();
+            failure.completeExceptionally(t);
+            enqueue(failure);
+        }
+    }
+
+    // The producer is never interrupted, since interrupting a thread doing channel IO closes the channel, and the
+    // readers of the source may still be used after this iterator is closed. It checks for closing instead.
+    private void enqueue(final Future<List<GATKRead>> batch) {
+        try {
+            while (!closed) {
+                if (batches.offer(batch, CLOSED_CHECK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static List<GATKRead> decode(final List<SAMRecord> records) {
+        final List<GATKRead> reads = new ArrayList<>(records.size());
+        for (final SAMRecord record : records) {
+            record.eagerDecode();
+            reads.add(new SAMRecordToGATKReadAdapter(record));
+        }
+        return reads;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!currentBatch.hasNext()) {
+            if (finished) {
+                return false;
+            }
+            final Future<List<GATKRead>> batch;
+            try {
+                batch = batches.take();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new GATKException("Interrupted while waiting for reads", e);
+            }
+            if (batch == END_OF_READS) {
+                finished = true;
+                return false;
+            }
+            currentBatch = getBatch(batch).iterator();
+        }
+        return true;
+    }
+
+    // the exceptions of the producer and decoding threads are rethrown as they are, so that errors in the input are
+    // reported the same way as without read-ahead
+    private List<GATKRead> getBatch(final Future<List<GATKRead>> batch) {
+        try {
+            return batch.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GATKException("Interrupted while waiting for reads", e);
+        } catch (final ExecutionException e) {
+            finished = true;
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new GATKException("Error while reading ahead", cause);
+        }
+    }
+
+    @Override
+    public GATKRead next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException("No more reads");
+        }
+        return currentBatch.next();
+    }
+
+    /**
+     * Stop reading ahead, waiting for the producer thread to stop using the source
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        finished = true;
+        currentBatch = Collections.emptyIterator();
+        // make room in the queue, so that a producer waiting for the consumer notices the closing right away
+        batches.clear();
+        try {
+            producer.join();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GATKException("Interrupted while stopping read-ahead", e);
+        }
+        batches.clear();
+    }
+}
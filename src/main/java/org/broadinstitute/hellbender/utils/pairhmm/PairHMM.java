@@ -139,6 +139,26 @@ public abstract class PairHMM implements Closeable{
     protected long threadLocalPairHMMComputeTimeDiff = 0;
     protected long startTime = 0;
 
+    // optional cache of results from previous calls, consulted before computing each read/haplotype pair
+    protected PairHMMLikelihoodCache likelihoodCache = null;
+
+    /**
+     * Have this PairHMM consult (and populate) the given cache before computing the likelihood of each read given
+     * each haplotype in {@link #computeLog10Likelihoods}.
+     *
+     * @param likelihoodCache the cache to use, or {@code null} to disable caching
+     */
+    public void setLikelihoodCache(final PairHMMLikelihoodCache likelihoodCache) {
+        this.likelihoodCache = likelihoodCache;
+    }
+
+    /**
+     * @return the cache consulted by this PairHMM, or {@code null} if caching is disabled
+     */
+    public PairHMMLikelihoodCache getLikelihoodCache() {
+        return likelihoodCache;
+    }
+
     /**
      * Initialize this PairHMM, making it suitable to run against a read and haplotype with given lengths
      *
@@ -237,15 +257,24 @@ public abstract class PairHMM implements Closeable{
             final byte[] readInsQuals = ReadUtils.getBaseInsertionQualities(read);
             final byte[] readDelQuals = ReadUtils.getBaseDeletionQualities(read);
             final byte[] overallGCP = gcp.get(read);
+            final PairHMMLikelihoodCache.ReadKey readKey = likelihoodCache == null ? null :
+                    PairHMMLikelihoodCache.readKey(readBases, readQuals, readInsQuals, readDelQuals, overallGCP);
 
             // peek at the next haplotype in the list (necessary to get nextHaplotypeBases, which is required for caching in the array implementation)
             final boolean isFirstHaplotype = true;
             for (int a = 0; a < alleleCount; a++) {
                 final Allele allele = alleles.get(a);
                 final byte[] alleleBases = allele.getBases();
-                final byte[] nextAlleleBases = a == alleles.size() - 1 ? null : alleles.get(a + 1).getBases();
-                final double lk = computeReadLikelihoodGivenHaplotypeLog10(alleleBases,
-                        readBases, readQuals, readInsQuals, readDelQuals, overallGCP, isFirstHaplotype, nextAlleleBases);
+                double lk = readKey == null ? Double.NaN : likelihoodCache.get(readKey, alleleBases);
+                if ( Double.isNaN(lk) ) {
+                    // since read values are always recached, skipping over cached haplotypes does not affect the result
+                    final byte[] nextAlleleBases = a == alleles.size() - 1 ? null : alleles.get(a + 1).getBases();
+                    lk = computeReadLikelihoodGivenHaplotypeLog10(alleleBases,
+                            readBases, readQuals, readInsQuals, readDelQuals, overallGCP, isFirstHaplotype, nextAlleleBases);
+                    if ( readKey != null ) {
+                        likelihoodCache.put(readKey, alleleBases, lk);
+                    }
+                }
                 logLikelihoods.set(a, readIndex, lk);
                 mLogLikelihoodArray[idx++] = lk;
             }
@@ -377,5 +406,8 @@ public abstract class PairHMM implements Closeable{
     public void close() {
         if(doProfiling)
             logger.info("Total compute time in PairHMM computeLogLikelihoods() : "+(pairHMMComputeTime*1e-9));
+        if ( likelihoodCache != null ) {
+            logger.info(likelihoodCache.getSummaryLine());
+        }
     }
 }
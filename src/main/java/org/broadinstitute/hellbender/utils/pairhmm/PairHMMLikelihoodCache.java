@@ -0,0 +1,204 @@
+package org.broadinstitute.hellbender.utils.pairhmm;
+
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * A bounded, least-recently-used cache of PairHMM results, keyed on the exact inputs to the HMM: the read bases,
+ * base/insertion/deletion qualities and gap continuation penalties of the (already quality-adjusted) read, and the
+ * bases of the haplotype it is aligned against.
+ *
+ * Padded neighbouring assembly regions frequently contain the same reads and assemble the same haplotypes, so
+ * remembering these results lets a {@link PairHMM} skip recomputing them. Since a cached value is only ever returned
+ * for bit-identical inputs, using the cache does not change the computed likelihoods.
+ *
+ * The cache is bounded by an estimate of the memory retained by its entries rather than by the number of entries,
+ * so that long reads and haplotypes are accounted for. The cache is thread-safe, so that the {@link PairHMM}s of
+ * several threads can share a single cache, whose bound then applies to all of them together.
+ */
+public final class PairHMMLikelihoodCache {
+
+    /**
+     * Rough per-entry overhead of the map entry, key objects and boxed value, in bytes
+     */
+    private static final long ENTRY_OVERHEAD_BYTES = 128;
+
+    /**
+     * Rough overhead of a single byte[] object header, in bytes
+     */
+    private static final long ARRAY_OVERHEAD_BYTES = 16;
+
+    private final long maxBytes;
+    private long currentBytes = 0;
+
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    // access-ordered, so that iteration starts at the least-recently-used entry
+    private final LinkedHashMap<Key, Double> cache = new LinkedHashMap<>(1024, 0.75f, true);
+
+    /**
+     * @param maxBytes approximate upper bound on the memory retained by the cache, in bytes. Must be > 0.
+     */
+    public PairHMMLikelihoodCache(final long maxBytes) {
+        Utils.validateArg(maxBytes > 0, () -> "maxBytes must be > 0 but got " + maxBytes);
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Create a key identifying all of the per-read inputs to the PairHMM. The arrays are not copied, so callers
+     * must not modify them after the key has been created.
+     */
+    public static ReadKey readKey(final byte[] readBases, final byte[] readQuals, final byte[] insertionGOP, final byte[] deletionGOP, final byte[] overallGCP) {
+        return new ReadKey(readBases, readQuals, insertionGOP, deletionGOP, overallGCP);
+    }
+
+    /**
+     * Look up the likelihood of a read given a haplotype.
+     *
+     * @return the cached log10 likelihood, or {@link Double#NaN} if it is not in the cache
+     */
+    public synchronized double get(final ReadKey read, final byte[] haplotypeBases) {
+        final Double result = cache.get(new Key(read, haplotypeBases));
+        if ( result == null ) {
+            misses++;
+            return Double.NaN;
+        }
+        hits++;
+        return result;
+    }
+
+    /**
+     * Remember the likelihood of a read given a haplotype, evicting least-recently-used entries as needed to stay
+     * within the memory bound. The haplotype bases are not copied, so callers must not modify them afterwards.
+     */
+    public synchronized void put(final ReadKey read, final byte[] haplotypeBases, final double log10Likelihood) {
+        final Key key = new Key(read, haplotypeBases);
+        if ( cache.put(key, log10Likelihood) == null ) {
+            currentBytes += key.estimatedBytes();
+            evictIfNecessary();
+        }
+    }
+
+    private void evictIfNecessary() {
+        final Iterator<Key> it = cache.keySet().iterator();
+        while ( currentBytes > maxBytes && it.hasNext() ) {
+            currentBytes -= it.next().estimatedBytes();
+            it.remove();
+            evictions++;
+        }
+    }
+
+    public synchronized long getHits() { return hits; }
+
+    public synchronized long getMisses() { return misses; }
+
+    public synchronized long getEvictions() { return evictions; }
+
+    public synchronized int size() { return cache.size(); }
+
+    /**
+     * @return approximate number of bytes currently retained by the cache
+     */
+    public synchronized long getEstimatedBytes() { return currentBytes; }
+
+    /**
+     * @return a one-line, human-readable summary of the cache statistics
+     */
+    public synchronized String getSummaryLine() {
+        final long lookups = hits + misses;
+        return String.format("PairHMM results cache: %d lookups, %d hits (%.2f%%), %d misses, %d evictions, %d entries (~%d MB) retained",
+                lookups, hits, lookups == 0 ? 0.0 : 100.0 * hits / lookups, misses, evictions, cache.size(), currentBytes / (1024 * 1024));
+    }
+
+    /**
+     * Identifies the per-read inputs to the PairHMM. Its hash code is computed once, so a single key
+     * should be created per read and reused across all haplotypes.
+     */
+    public static final class ReadKey {
+        private final byte[] readBases;
+        private final byte[] readQuals;
+        private final byte[] insertionGOP;
+        private final byte[] deletionGOP;
+        private final byte[] overallGCP;
+        private final int hash;
+
+        private ReadKey(final byte[] readBases, final byte[] readQuals, final byte[] insertionGOP, final byte[] deletionGOP, final byte[] overallGCP) {
+            this.readBases = Utils.nonNull(readBases);
+            this.readQuals = Utils.nonNull(readQuals);
+            this.insertionGOP = Utils.nonNull(insertionGOP);
+            this.deletionGOP = Utils.nonNull(deletionGOP);
+            this.overallGCP = Utils.nonNull(overallGCP);
+
+            int h = Arrays.hashCode(readBases);
+            h = 31 * h + Arrays.hashCode(readQuals);
+            h = 31 * h + Arrays.hashCode(insertionGOP);
+            h = 31 * h + Arrays.hashCode(deletionGOP);
+            h = 31 * h + Arrays.hashCode(overallGCP);
+            this.hash = h;
+        }
+
+        private long estimatedBytes() {
+            return 5 * ARRAY_OVERHEAD_BYTES + readBases.length + readQuals.length + insertionGOP.length + deletionGOP.length + overallGCP.length;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if ( this == o ) {
+                return true;
+            }
+            if ( !(o instanceof ReadKey) ) {
+                return false;
+            }
+            final ReadKey other = (ReadKey) o;
+            return hash == other.hash &&
+                    Arrays.equals(readBases, other.readBases) &&
+                    Arrays.equals(readQuals, other.readQuals) &&
+                    Arrays.equals(insertionGOP, other.insertionGOP) &&
+                    Arrays.equals(deletionGOP, other.deletionGOP) &&
+                    Arrays.equals(overallGCP, other.overallGCP);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class Key {
+        private final ReadKey read;
+        private final byte[] haplotypeBases;
+        private final int hash;
+
+        private Key(final ReadKey read, final byte[] haplotypeBases) {
+            this.read = Utils.nonNull(read);
+            this.haplotypeBases = Utils.nonNull(haplotypeBases);
+            this.hash = 31 * read.hashCode() + Arrays.hashCode(haplotypeBases);
+        }
+
+        private long estimatedBytes() {
+            return ENTRY_OVERHEAD_BYTES + read.estimatedBytes() + ARRAY_OVERHEAD_BYTES + haplotypeBases.length;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if ( this == o ) {
+                return true;
+            }
+            if ( !(o instanceof Key) ) {
+                return false;
+            }
+            final Key other = (Key) o;
+            return hash == other.hash && read.equals(other.read) && Arrays.equals(haplotypeBases, other.haplotypeBases);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -15,6 +15,7 @@ import org.broadinstitute.hellbender.utils.haplotype.Haplotype;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
 import org.broadinstitute.hellbender.utils.read.ReadUtils;
 
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -145,10 +146,14 @@ public final class VectorLoglessPairHMM extends LoglessPairHMM {
         if (doProfiling) {
             threadLocalSetupTimeDiff = (System.nanoTime() - startTime);
         }
-        //for(reads)
-        //   for(haplotypes)
-        //       compute_full_prob()
-        pairHmm.computeLikelihoods(readDataArray, mHaplotypeDataArray, mLogLikelihoodArray);
+        if (likelihoodCache == null) {
+            //for(reads)
+            //   for(haplotypes)
+            //       compute_full_prob()
+            pairHmm.computeLikelihoods(readDataArray, mHaplotypeDataArray, mLogLikelihoodArray);
+        } else {
+            computeLikelihoodsWithCache(readDataArray);
+        }
 
         int readIdx = 0;
         for (int r = 0; r < readListSize; r++) {
@@ -171,6 +176,53 @@ public final class VectorLoglessPairHMM extends LoglessPairHMM {
     }
 
 
+    /**
+     * Fill in {@link #mLogLikelihoodArray} from the results cache where possible, and send only the reads with at
+     * least one uncached haplotype to the native kernel, in a single call. All reads sent to the kernel are
+     * evaluated against all haplotypes, so that the kernel still sees one large, regular batch of work.
+     */
+    private void computeLikelihoodsWithCache(final ReadDataHolder[] readDataArray) {
+        final int numHaplotypes = mHaplotypeDataArray.length;
+        final PairHMMLikelihoodCache.ReadKey[] readKeys = new PairHMMLikelihoodCache.ReadKey[readDataArray.length];
+        final List<Integer> uncachedReadIndices = new ArrayList<>();
+        for (int r = 0; r < readDataArray.length; r++) {
+            final ReadDataHolder read = readDataArray[r];
+            readKeys[r] = PairHMMLikelihoodCache.readKey(read.readBases, read.readQuals, read.insertionGOP, read.deletionGOP, read.overallGCP);
+            boolean allCached = true;
+            for (int h = 0; h < numHaplotypes && allCached; h++) {
+                final double cached = likelihoodCache.get(readKeys[r], mHaplotypeDataArray[h].haplotypeBases);
+                if (Double.isNaN(cached)) {
+                    allCached = false;
+                } else {
+                    mLogLikelihoodArray[r * numHaplotypes + h] = cached;
+                }
+            }
+            if (!allCached) {
+                uncachedReadIndices.add(r);
+            }
+        }
+
+        if (uncachedReadIndices.isEmpty()) {
+            return;
+        }
+
+        final ReadDataHolder[] uncachedReads = new ReadDataHolder[uncachedReadIndices.size()];
+        for (int i = 0; i < uncachedReads.length; i++) {
+            uncachedReads[i] = readDataArray[uncachedReadIndices.get(i)];
+        }
+        final double[] uncachedLikelihoods = new double[uncachedReads.length * numHaplotypes];
+        pairHmm.computeLikelihoods(uncachedReads, mHaplotypeDataArray, uncachedLikelihoods);
+
+        for (int i = 0; i < uncachedReads.length; i++) {
+            final int r = uncachedReadIndices.get(i);
+            for (int h = 0; h < numHaplotypes; h++) {
+                final double lk = uncachedLikelihoods[i * numHaplotypes + h];
+                mLogLikelihoodArray[r * numHaplotypes + h] = lk;
+                likelihoodCache.put(readKeys[r], mHaplotypeDataArray[h].haplotypeBases, lk);
+            }
+        }
+    }
+
     @Override
     public void close() {
         pairHmm.done();
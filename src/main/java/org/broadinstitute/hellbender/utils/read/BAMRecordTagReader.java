@@ -0,0 +1,135 @@
+package org.broadinstitute.hellbender.utils.read;
+
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.util.StringUtil;
+
+/**
+ * Reads the value of a single tag from the BAM encoding of a record, without decoding its other tags.
+ *
+ * htsjdk decodes the fields of records read from BAM files only when they are first accessed, but all of the tags of
+ * a record are decoded together as soon as any one of them is needed. Tools and read filters that only look at a few
+ * tags (typically RG) would then also decode large tags such as OQ or BI/BD, for every read. This class scans the
+ * binary tags of the record instead, and only decodes the value of the tag looked up.
+ *
+ * Only tags with a single value (types A, c, C, s, S, i, I, f and Z) are read: {@link #UNAVAILABLE} is returned for
+ * hex strings and arrays, and for records without an up to date BAM encoding (records not read from a BAM file, or
+ * modified since), which must be looked up with {@link SAMRecord#getAttribute(String)}.
+ */
+final class BAMRecordTagReader {
+    /**
+     * Returned when the value of a tag can't be read from the BAM encoding of a record
+     */
+    static final Object UNAVAILABLE = new Object();
+
+    private BAMRecordTagReader() {}
+
+    /**
+     * @param record record from which to read the tag
+     * @param tag two-character name of the tag
+     * @return the value of the tag, with the same type as {@link SAMRecord#getAttribute(String)} would return,
+     *         null if the record has no such tag, or {@link #UNAVAILABLE} if the value can't be read from the encoding
+     */
+    static Object getAttribute(final SAMRecord record, final String tag) {
+        final byte[] data = record.getVariableBinaryRepresentation();
+        final int attributesSize = record.getAttributesBinarySize();
+        if (data == null || attributesSize < 0 || attributesSize > data.length) {
+            return UNAVAILABLE;
+        }
+
+        final byte tag0 = (byte) tag.charAt(0);
+        final byte tag1 = (byte) tag.charAt(1);
+        int offset = data.length - attributesSize;
+        // each tag is its two-character name, its type and its value
+        while (offset + 3 <= data.length) {
+            final byte type = data[offset + 2];
+            final int valueOffset = offset + 3;
+            if (data[offset] == tag0 && data[offset + 1] == tag1) {
+                return readValue(data, valueOffset, type);
+            }
+            final int valueSize = getValueSize(data, valueOffset, type);
+            if (valueSize < 0) {
+                return UNAVAILABLE;
+            }
+            offset = valueOffset + valueSize;
+        }
+        return null;
+    }
+
+    private static Object readValue(final byte[] data, final int offset, final byte type) {
+        switch (type) {
+            case 'A':
+                return (char) data[offset];
+            case 'c':
+                return (int) data[offset];
+            case 'C':
+                return data[offset] & 0xff;
+            case 's':
+                return (int) (short) readUnsignedShort(data, offset);
+            case 'S':
+                return readUnsignedShort(data, offset);
+            case 'i':
+                return readInt(data, offset);
+            case 'I':
+                // as htsjdk, unsigned values that don't fit in an int are returned as longs
+                final long value = readInt(data, offset) & 0xffffffffL;
+                return value <= Integer.MAX_VALUE ? (Object) (int) value : (Object) value;
+            case 'f':
+                return Float.intBitsToFloat(readInt(data, offset));
+            case 'Z':
+                return StringUtil.bytesToString(data, offset, findTerminator(data, offset) - offset);
+            default:
+                return UNAVAILABLE;
+        }
+    }
+
+    /**
+     * @return the number of bytes of a value of the given type, or -1 if it is not a known type
+     */
+    private static int getValueSize(final byte[] data, final int offset, final byte type) {
+        switch (type) {
+            case 'Z':
+            case 'H':
+                return findTerminator(data, offset) - offset + 1;
+            case 'B':
+                // the type of the elements, followed by their number and their values
+                final int elementSize = getSingleValueSize(data[offset]);
+                return elementSize < 0 ? -1 : 5 + elementSize * readInt(data, offset + 1);
+            default:
+                return getSingleValueSize(type);
+        }
+    }
+
+    private static int getSingleValueSize(final byte type) {
+        switch (type) {
+            case 'A':
+            case 'c':
+            case 'C':
+                return 1;
+            case 's':
+            case 'S':
+                return 2;
+            case 'i':
+            case 'I':
+            case 'f':
+                return 4;
+            default:
+                return -1;
+        }
+    }
+
+    private static int findTerminator(final byte[] data, final int offset) {
+        int end = offset;
+        while (end < data.length && data[end] != 0) {
+            end++;
+        }
+        return end;
+    }
+
+    private static int readUnsignedShort(final byte[] data, final int offset) {
+        return (data[offset] & 0xff) | (data[offset + 1] & 0xff) << 8;
+    }
+
+    private static int readInt(final byte[] data, final int offset) {
+        return (data[offset] & 0xff) | (data[offset + 1] & 0xff) << 8 | (data[offset + 2] & 0xff) << 16 | (data[offset + 3] & 0xff) << 24;
+    }
+}
@@ -0,0 +1,289 @@
+package org.broadinstitute.hellbender.utils.read;
+
+import htsjdk.samtools.BAMFileSpan;
+import htsjdk.samtools.BAMIndex;
+import htsjdk.samtools.BAMIndexer;
+import htsjdk.samtools.BAMRecordCodec;
+import htsjdk.samtools.Chunk;
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMFileSource;
+import htsjdk.samtools.SAMFileWriter;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMSequenceRecord;
+import htsjdk.samtools.SAMSortOrderChecker;
+import htsjdk.samtools.SAMTextHeaderCodec;
+import htsjdk.samtools.util.BinaryCodec;
+import htsjdk.samtools.util.ProgressLoggerInterface;
+import htsjdk.samtools.util.RuntimeIOException;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.io.IOUtils;
+import org.broadinstitute.hellbender.utils.io.ParallelBlockCompressedOutputStream;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+
+/**
+ * A BAM writer whose BGZF blocks are compressed on a pool of threads (see {@link ParallelBlockCompressedOutputStream}),
+ * for tools whose output is limited by the speed of compressing it on a single thread.
+ *
+ * The records must be added in the order of the header (or the header must be unsorted), since unlike the htsjdk
+ * writers this writer does not sort them. When requested, the BAM index is built while writing, as htsjdk does: the
+ * virtual file pointers of a record are only known once the blocks before it have been compressed, so the records
+ * are handed to the indexer as soon as the addresses of their blocks are known. The fields the indexer needs are
+ * copied when a record is added, so the caller may change or reuse the record once {@link #addAlignment} returns.
+ */
+public final class ParallelCompressionBAMWriter implements SAMFileWriter {
+    private final Path outputPath;
+    private final SAMFileHeader header;
+    private final ParallelBlockCompressedOutputStream blockStream;
+    private final BinaryCodec binaryCodec;
+    private final BAMRecordCodec recordCodec;
+    private final SAMSortOrderChecker sortOrderChecker;
+    private final BAMIndexer indexer;
+
+    // records written but not yet indexed, waiting for the addresses of their blocks
+    private final ArrayDeque<PendingRecord> pendingRecords = new ArrayDeque<>();
+    // addresses of the blocks written so far, from firstAddressedBlock on
+    private final ArrayDeque<Long> blockAddresses = new ArrayDeque<>();
+    private long firstAddressedBlock = 0;
+
+    private ProgressLoggerInterface progressLogger = null;
+    private boolean closed = false;
+
+    /**
+     * @param outputPath the BAM file to write
+     * @param header header of the output, whose sort order is the order in which the records must be added
+     * @param compressionLevel deflate compression level of the BGZF blocks
+     * @param compressionThreads number of threads compressing the BGZF blocks
+     * @param createIndex if true, a BAM index is written next to the output, which requires coordinate sorted records
+     * @param openOptions (optional) NIO options specifying how to open the file
+     */
+    public ParallelCompressionBAMWriter(final Path outputPath, final SAMFileHeader header, final int compressionLevel,
+                                        final int compressionThreads, final boolean createIndex,
+                                        final OpenOption... openOptions) {
+        this.outputPath = Utils.nonNull(outputPath);
+        this.header = Utils.nonNull(header);
+        Utils.validateArg(!createIndex || header.getSortOrder() == SAMFileHeader.SortOrder.coordinate,
+                "A BAM index can only be created for coordinate sorted output");
+
+        try {
+            this.indexer = createIndex ? new BAMIndexer(new BufferedOutputStream(Files.newOutputStream(getIndexPath(outputPath))), header) : null;
+            this.blockStream = new ParallelBlockCompressedOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(outputPath, openOptions)), compressionLevel,
+                    compressionThreads, createIndex ? this::blocksWritten : null);
+        } catch (final IOException e) {
+            throw new UserException.CouldNotCreateOutputFile(outputPath.toUri().toString(), "could not open the output", e);
+        }
+        blockAddresses.add(0L);
+        this.binaryCodec = new BinaryCodec(blockStream);
+        this.recordCodec = new BAMRecordCodec(header);
+        recordCodec.setOutputStream(blockStream);
+        this.sortOrderChecker = new SAMSortOrderChecker(header.getSortOrder());
+        writeHeader();
+    }
+
+    /**
+     * @return the path of the index of the BAM file bamPath, named as htsjdk names it (foo.bam is indexed by foo.bai)
+     */
+    public static Path getIndexPath(final Path bamPath) {
+        return bamPath.resolveSibling(IOUtils.replaceExtension(bamPath.getFileName().toString(), BAMIndex.BAMIndexSuffix));
+    }
+
+    // the magic number, the header text and the binary sequence dictionary, alone in the first blocks
+    private void writeHeader() {
+        final StringWriter headerText = new StringWriter();
+        new SAMTextHeaderCodec().encode(headerText, header, true);
+
+        binaryCodec.writeBytes(ReadUtils.BAM_MAGIC);
+        binaryCodec.writeString(headerText.toString(), true, false);
+        binaryCodec.writeInt(header.getSequenceDictionary().size());
+        for (final SAMSequenceRecord sequenceRecord : header.getSequenceDictionary().getSequences()) {
+            binaryCodec.writeString(sequenceRecord.getSequenceName(), true, true);
+            binaryCodec.writeInt(sequenceRecord.getSequenceLength());
+        }
+        try {
+            blockStream.endBlock();
+        } catch (final IOException e) {
+            throw new RuntimeIOException(e);
+        }
+    }
+
+    @Override
+    public void addAlignment(final SAMRecord alignment) {
+        alignment.setHeaderStrict(header);
+        if (!sortOrderChecker.isSorted(alignment)) {
+            throw new IllegalArgumentException("Alignments added out of order in " + getClass().getSimpleName() +
+                    ".addAlignment for " + outputPath.toUri() + ". Sort order is " + header.getSortOrder() +
+                    ". Offending records are at [" + sortOrderChecker.getSortKey(sortOrderChecker.getPreviousRecord()) +
+                    "] and [" + sortOrderChecker.getSortKey(alignment) + "]");
+        }
+
+        final long startBlock = blockStream.getBlockNumber();
+        final int startOffset = blockStream.getBlockOffset();
+        // adding the record to the pending ones first, since encoding it may write blocks
+        final PendingRecord pending = indexer == null ? null : new PendingRecord(header, alignment, startBlock, startOffset);
+        if (pending != null) {
+            pendingRecords.add(pending);
+        }
+        recordCodec.encode(alignment);
+        if (pending != null) {
+            pending.setEnd(blockStream.getBlockNumber(), blockStream.getBlockOffset());
+            indexResolvedRecords();
+        }
+
+        if (progressLogger != null) {
+            progressLogger.record(alignment);
+        }
+    }
+
+    // called by the block stream, as blocks are written
+    private void blocksWritten(final long numBlocksWritten, final long nextBlockAddress) {
+        blockAddresses.add(nextBlockAddress);
+        indexResolvedRecords();
+    }
+
+    private void indexResolvedRecords() {
+        final long lastAddressedBlock = firstAddressedBlock + blockAddresses.size() - 1;
+        while (!pendingRecords.isEmpty() && pendingRecords.peekFirst().isResolved(lastAddressedBlock)) {
+            final PendingRecord pending = pendingRecords.removeFirst();
+            final long start = virtualFilePointer(pending.startBlock, pending.startOffset);
+            final long end = virtualFilePointer(pending.endBlock, pending.endOffset);
+            indexer.processAlignment(pending.toIndexedRecord(new SAMFileSource(null, new BAMFileSpan(new Chunk(start, end)))));
+        }
+        // the addresses of the blocks before the first pending record are no longer needed
+        final long firstNeededBlock = pendingRecords.isEmpty() ? lastAddressedBlock : pendingRecords.peekFirst().startBlock;
+        while (firstAddressedBlock < firstNeededBlock) {
+            blockAddresses.removeFirst();
+            firstAddressedBlock++;
+        }
+    }
+
+    private long virtualFilePointer(final long block, final int offset) {
+        long address = 0;
+        long i = firstAddressedBlock;
+        for (final long blockAddress : blockAddresses) {
+            if (i++ == block) {
+                address = blockAddress;
+                break;
+            }
+        }
+        return address << 16 | offset;
+    }
+
+    @Override
+    public void setProgressLogger(final ProgressLoggerInterface progressLogger) {
+        this.progressLogger = progressLogger;
+    }
+
+    @Override
+    public SAMFileHeader getFileHeader() {
+        return header;
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            blockStream.close();
+        } catch (final IOException e) {
+            throw new RuntimeIOException(e);
+        }
+        if (indexer != null) {
+            indexer.finish();
+        }
+    }
+
+    private static final class PendingRecord {
+        private final SAMFileHeader header;
+        // what the indexer reads from a record, copied from it when it is added
+        private final int referenceIndex;
+        private final int alignmentStart;
+        private final int alignmentEnd;
+        private final int indexingBin;
+        private final boolean unmapped;
+        private final long startBlock;
+        private final int startOffset;
+        private long endBlock = Long.MAX_VALUE;
+        private int endOffset;
+
+        PendingRecord(final SAMFileHeader header, final SAMRecord record, final long startBlock, final int startOffset) {
+            this.header = header;
+            this.referenceIndex = record.getReferenceIndex();
+            this.alignmentStart = record.getAlignmentStart();
+            this.alignmentEnd = record.getAlignmentEnd();
+            final Integer bin = record.getIndexingBin();
+            this.indexingBin = bin != null ? bin : record.computeIndexingBin();
+            this.unmapped = record.getReadUnmappedFlag();
+            this.startBlock = startBlock;
+            this.startOffset = startOffset;
+        }
+
+        SAMRecord toIndexedRecord(final SAMFileSource fileSource) {
+            return new IndexedRecord(this, fileSource);
+        }
+
+        void setEnd(final long endBlock, final int endOffset) {
+            this.endBlock = endBlock;
+            this.endOffset = endOffset;
+        }
+
+        boolean isResolved(final long lastAddressedBlock) {
+            return endBlock <= lastAddressedBlock;
+        }
+    }
+
+    /**
+     * The record handed to the indexer: only the fields the indexer reads, from the copy made when the record was added
+     */
+    private static final class IndexedRecord extends SAMRecord {
+        private static final long serialVersionUID = 1L;
+
+        private final PendingRecord pending;
+        private final SAMFileSource fileSource;
+
+        IndexedRecord(final PendingRecord pending, final SAMFileSource fileSource) {
+            super(pending.header);
+            this.pending = pending;
+            this.fileSource = fileSource;
+        }
+
+        @Override
+        public Integer getReferenceIndex() {
+            return pending.referenceIndex;
+        }
+
+        @Override
+        public int getAlignmentStart() {
+            return pending.alignmentStart;
+        }
+
+        @Override
+        public int getAlignmentEnd() {
+            return pending.alignmentEnd;
+        }
+
+        @Override
+        public Integer getIndexingBin() {
+            return pending.indexingBin;
+        }
+
+        @Override
+        public boolean getReadUnmappedFlag() {
+            return pending.unmapped;
+        }
+
+        @Override
+        public SAMFileSource getFileSource() {
+            return fileSource;
+        }
+    }
+}
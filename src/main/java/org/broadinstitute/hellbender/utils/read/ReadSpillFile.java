@@ -0,0 +1,143 @@
+package org.broadinstitute.hellbender.utils.read;
+
+import htsjdk.samtools.BAMRecordCodec;
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.util.CloseableIterator;
+import htsjdk.samtools.util.RuntimeIOException;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.NoSuchElementException;
+
+/**
+ * A local scratch file of reads, for tools that need to go over the same reads twice without decoding the input
+ * again. Reads are written with {@link #add} in their binary BAM record encoding, uncompressed, and read back in the
+ * same order with {@link #readBack}. The file is deleted by {@link #close}.
+ *
+ * Not thread-safe.
+ */
+public final class ReadSpillFile implements AutoCloseable {
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final SAMFileHeader header;
+    private final File file;
+    private final BAMRecordCodec codec;
+
+    private OutputStream output;
+    private InputStream input = null;
+    private long numReads = 0;
+
+    /**
+     * @param header header of the reads to be added
+     * @param file the (temporary) file in which to store the reads
+     */
+    public ReadSpillFile(final SAMFileHeader header, final File file) {
+        this.header = Utils.nonNull(header);
+        this.file = Utils.nonNull(file);
+        this.codec = new BAMRecordCodec(header);
+        try {
+            output = new BufferedOutputStream(Files.newOutputStream(file.toPath()), BUFFER_SIZE);
+        } catch (final IOException e) {
+            throw new UserException.CouldNotCreateOutputFile(file, "could not create read spill file", e);
+        }
+        codec.setOutputStream(output, file.getAbsolutePath());
+    }
+
+    /**
+     * Add a read at the end of the file. Must not be called after {@link #readBack}.
+     */
+    public void add(final GATKRead read) {
+        Utils.nonNull(read);
+        Utils.validate(output != null, "Cannot add reads to a spill file after reading it back");
+        try {
+            codec.encode(read.convertToSAMRecord(header));
+        } catch (final RuntimeIOException e) {
+            throw new UserException.CouldNotCreateOutputFile(file, "could not write to read spill file", e);
+        }
+        numReads++;
+    }
+
+    /**
+     * @return the number of reads added to the file
+     */
+    public long getNumReads() {
+        return numReads;
+    }
+
+    /**
+     * Finish writing the file, and iterate over its reads in the order in which they were added.
+     * Can only be called once.
+     */
+    public CloseableIterator<GATKRead> readBack() {
+        Utils.validate(output != null, "A spill file can only be read back once");
+        try {
+            output.close();
+            output = null;
+            input = new BufferedInputStream(Files.newInputStream(file.toPath()), BUFFER_SIZE);
+        } catch (final IOException e) {
+            throw new UserException.CouldNotReadInputFile(file, "could not read back read spill file", e);
+        }
+        codec.setInputStream(input, file.getAbsolutePath());
+        return new SpilledReadIterator();
+    }
+
+    private final class SpilledReadIterator implements CloseableIterator<GATKRead> {
+        private SAMRecord next = decodeNext();
+
+        private SAMRecord decodeNext() {
+            try {
+                return codec.decode();
+            } catch (final RuntimeIOException e) {
+                throw new UserException.CouldNotReadInputFile(file, "could not read back read spill file", e);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public GATKRead next() {
+            if (next == null) {
+                throw new NoSuchElementException("No more reads in spill file " + file);
+            }
+            final GATKRead read = new SAMRecordToGATKReadAdapter(next);
+            next = decodeNext();
+            return read;
+        }
+
+        @Override
+        public void close() {
+            ReadSpillFile.this.close();
+        }
+    }
+
+    /**
+     * Close and delete the file
+     */
+    @Override
+    public void close() {
+        try {
+            if (output != null) {
+                output.close();
+                output = null;
+            }
+            if (input != null) {
+                input.close();
+                input = null;
+            }
+            Files.deleteIfExists(file.toPath());
+        } catch (final IOException e) {
+            throw new UserException.CouldNotCreateOutputFile(file, "could not delete read spill file", e);
+        }
+    }
+}
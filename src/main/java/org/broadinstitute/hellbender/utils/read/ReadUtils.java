@@ -14,6 +14,7 @@ import htsjdk.samtools.SAMTag;
 import htsjdk.samtools.SAMUtils;
 import htsjdk.samtools.SamStreams;
 import htsjdk.samtools.cram.build.CramIO;
+import htsjdk.samtools.util.BlockCompressedOutputStream;
 import java.io.*;
 import java.nio.file.Files;
 import java.nio.file.OpenOption;
@@ -32,6 +33,7 @@ import org.broadinstitute.hellbender.utils.BaseUtils;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.QualityUtils;
 import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.io.IOUtils;
 import org.broadinstitute.hellbender.utils.read.markduplicates.LibraryIdGenerator;
 import org.broadinstitute.hellbender.utils.recalibration.EventType;
 
@@ -1119,9 +1121,38 @@ public final class ReadUtils {
         final boolean preSorted,
         boolean createOutputBamIndex,
         final boolean createMD5)
+    {
+        return createCommonSAMWriter(outputPath, referenceFile, header, preSorted, createOutputBamIndex, createMD5, 0);
+    }
+
+    /**
+     * Create a common SAMFileWriter for use with GATK tools, which compresses BAM output on a pool of threads.
+     *
+     * The compression threads are only used for BAM output without MD5, whose records are either presorted or
+     * unsorted; other outputs are written by the htsjdk writers, on the calling thread.
+     *
+     * @param outputPath - if this file has a .cram extension then a reference is required. Can not be null.
+     * @param referenceFile - the reference source to use. Can not be null if a output file has a .cram extension.
+     * @param header - header to be used for the output writer
+     * @param preSorted - if true then the records must already be sorted to match the header sort order
+     * @param createOutputBamIndex - if true an index will be created for .BAM and .CRAM files
+     * @param createMD5 - if true an MD5 file will be created
+     * @param compressionThreads - number of threads compressing BAM output (0 to compress it on the calling thread)
+     *
+     * @return SAMFileWriter
+     */
+    public static SAMFileWriter createCommonSAMWriter(
+        final Path outputPath,
+        final Path referenceFile,
+        final SAMFileHeader header,
+        final boolean preSorted,
+        boolean createOutputBamIndex,
+        final boolean createMD5,
+        final int compressionThreads)
     {
         Utils.nonNull(outputPath);
         Utils.nonNull(header);
+        Utils.validateArg(compressionThreads >= 0, "compressionThreads must be >= 0");
 
         if (createOutputBamIndex && header.getSortOrder() != SAMFileHeader.SortOrder.coordinate) {
             logger.warn("Skipping index file creation for: " +
@@ -1129,6 +1160,18 @@ public final class ReadUtils {
             createOutputBamIndex = false;
         }
 
+        if (compressionThreads > 0 && IOUtils.isBamFileName(outputPath.toString())) {
+            // the parallel writer neither sorts the records nor computes an MD5
+            final boolean needsSorting = !preSorted && header.getSortOrder() != SAMFileHeader.SortOrder.unsorted
+                    && header.getSortOrder() != SAMFileHeader.SortOrder.unknown;
+            if (!needsSorting && !createMD5) {
+                return new ParallelCompressionBAMWriter(outputPath, header.clone(),
+                        BlockCompressedOutputStream.getDefaultCompressionLevel(), compressionThreads, createOutputBamIndex);
+            }
+            logger.info("Compressing " + outputPath + " on a single thread, since " +
+                    (needsSorting ? "its records must be sorted" : "an MD5 is requested"));
+        }
+
         final SAMFileWriterFactory factory = new SAMFileWriterFactory().setCreateIndex(createOutputBamIndex).setCreateMd5File(createMD5);
         return ReadUtils.createCommonSAMWriterFromFactory(factory, outputPath, referenceFile, header, preSorted);
     }
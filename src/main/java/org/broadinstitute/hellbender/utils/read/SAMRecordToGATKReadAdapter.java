@@ -266,8 +266,8 @@ public class SAMRecordToGATKReadAdapter implements GATKRead, Serializable {
 
     @Override
     public int getLength() {
-        final byte[] bases = samRecord.getReadBases();
-        return bases == null ? 0 : bases.length;
+        // unlike getReadBases(), this doesn't require records read from BAM files to decode their bases
+        return samRecord.getReadLength();
     }
 
     @Override
@@ -376,7 +376,7 @@ public class SAMRecordToGATKReadAdapter implements GATKRead, Serializable {
     @Override
     public String getReadGroup() {
         // May return null
-        return (String)samRecord.getAttribute(SAMTagUtil.getSingleton().RG);
+        return (String)getAttributeValue(SAMTag.RG.name());
     }
 
     @Override
@@ -558,16 +558,25 @@ public class SAMRecordToGATKReadAdapter implements GATKRead, Serializable {
         samRecord.setDuplicateReadFlag(isDuplicate);
     }
 
+    /**
+     * Reads the value of a single tag directly from the BAM encoding of the record when possible, so that looking up
+     * a tag doesn't decode all of the other tags of the record.
+     */
+    private Object getAttributeValue( final String attributeName ) {
+        final Object attributeValue = BAMRecordTagReader.getAttribute(samRecord, attributeName);
+        return attributeValue != BAMRecordTagReader.UNAVAILABLE ? attributeValue : samRecord.getAttribute(attributeName);
+    }
+
     @Override
     public boolean hasAttribute( final String attributeName ) {
         ReadUtils.assertAttributeNameIsLegal(attributeName);
-        return samRecord.getAttribute(attributeName) != null;
+        return getAttributeValue(attributeName) != null;
     }
 
     @Override
     public Integer getAttributeAsInteger( final String attributeName ) {
         ReadUtils.assertAttributeNameIsLegal(attributeName);
-        final Object attributeValue = samRecord.getAttribute(attributeName);
+        final Object attributeValue = getAttributeValue(attributeName);
 
         if ( attributeValue == null ) {
             return null;
@@ -588,7 +597,7 @@ public class SAMRecordToGATKReadAdapter implements GATKRead, Serializable {
     @Override
     public String getAttributeAsString( final String attributeName ) {
         ReadUtils.assertAttributeNameIsLegal(attributeName);
-        final Object attributeValue = samRecord.getAttribute(attributeName);
+        final Object attributeValue = getAttributeValue(attributeName);
         if ( attributeValue instanceof byte[]) {
             // in case that the attribute is a byte[] array, the toString method will format it as name@hashCode
             // for a good representation of the byte[] as String, it encodes the bytes with the default charset (UTF-8)
@@ -602,7 +611,7 @@ public class SAMRecordToGATKReadAdapter implements GATKRead, Serializable {
     @Override
     public byte[] getAttributeAsByteArray( final String attributeName ) {
         ReadUtils.assertAttributeNameIsLegal(attributeName);
-        final Object attributeValue = samRecord.getAttribute(attributeName);
+        final Object attributeValue = getAttributeValue(attributeName);
 
         if ( attributeValue == null ) {
             return null;
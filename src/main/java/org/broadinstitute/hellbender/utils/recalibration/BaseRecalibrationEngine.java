@@ -21,6 +21,7 @@ import org.broadinstitute.hellbender.utils.collections.NestedIntegerArray;
 import org.broadinstitute.hellbender.utils.read.AlignmentUtils;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
 import org.broadinstitute.hellbender.utils.read.ReadUtils;
+import org.broadinstitute.hellbender.utils.reference.ReferenceBasesView;
 import org.broadinstitute.hellbender.utils.recalibration.covariates.Covariate;
 import org.broadinstitute.hellbender.utils.recalibration.covariates.CovariateKeyCache;
 import org.broadinstitute.hellbender.utils.recalibration.covariates.ReadCovariates;
@@ -28,6 +29,7 @@ import org.broadinstitute.hellbender.utils.recalibration.covariates.StandardCova
 
 import java.io.Serializable;
 import java.util.Arrays;
+import java.util.function.Function;
 
 public final class BaseRecalibrationEngine implements Serializable {
     private static final long serialVersionUID = 1L;
@@ -60,6 +62,9 @@ public final class BaseRecalibrationEngine implements Serializable {
 
     private RecalibrationArgumentCollection recalArgs;
 
+    // statistics accumulated from the reads, converted to recalTables by finalizeData()
+    private DenseRecalibrationTables denseTables;
+
     private RecalibrationTables recalTables;
 
     private SAMFileHeader readsHeader;
@@ -95,7 +100,7 @@ public final class BaseRecalibrationEngine implements Serializable {
         if ( numReadGroups < 1 ) {
             throw new UserException("Number of read groups must be >= 1, but is " + numReadGroups);
         }
-        recalTables = new RecalibrationTables(covariates, numReadGroups);
+        denseTables = new DenseRecalibrationTables(covariates, numReadGroups, recalArgs.computeIndelBQSRTables);
         keyCache = new CovariateKeyCache();
         cachedEventTypes = recalArgs.computeIndelBQSRTables ? EventType.values() : new EventType[]{EventType.BASE_SUBSTITUTION};
     }
@@ -112,6 +117,18 @@ public final class BaseRecalibrationEngine implements Serializable {
      * whether or not the base matches the reference at this particular location
      */
     public void processRead( final GATKRead originalRead, final ReferenceDataSource refDS, final Iterable<? extends Locatable> knownSites ) {
+        processRead(originalRead, refDS, read -> calculateKnownSites(read, knownSites));
+    }
+
+    /**
+     * Same as {@link #processRead(GATKRead, ReferenceDataSource, Iterable)}, with the known sites given as by
+     * {@link KnownSitesCursor#getKnownSites}: the start and end of each site, as consecutive elements.
+     */
+    public void processRead( final GATKRead originalRead, final ReferenceDataSource refDS, final int[] knownSites ) {
+        processRead(originalRead, refDS, read -> calculateKnownSites(read, knownSites));
+    }
+
+    private void processRead( final GATKRead originalRead, final ReferenceDataSource refDS, final Function<GATKRead, boolean[]> knownSitesCalculator ) {
         final ReadTransformer transform = makeReadTransform();
         final GATKRead read = transform.apply(originalRead);
 
@@ -134,7 +151,7 @@ public final class BaseRecalibrationEngine implements Serializable {
 
         if( baqArray != null ) { // some reads just can't be BAQ'ed
             final ReadCovariates covariates = RecalUtils.computeCovariates(read, readsHeader, this.covariates, true, keyCache);
-            final boolean[] skip = calculateSkipArray(read, knownSites); // skip known sites of variation as well as low quality and non-regular bases
+            final boolean[] skip = calculateSkipArray(read, knownSitesCalculator.apply(read)); // skip known sites of variation as well as low quality and non-regular bases
             final double[] snpErrors = calculateFractionalErrorArray(isSNP, baqArray);
             final double[] insertionErrors = calculateFractionalErrorArray(isInsertion, baqArray);
             final double[] deletionErrors = calculateFractionalErrorArray(isDeletion, baqArray);
@@ -147,6 +164,21 @@ public final class BaseRecalibrationEngine implements Serializable {
         numReadsProcessed++;
     }
 
+    /**
+     * Add the statistics collected by another engine, created with the same arguments and header, to the statistics
+     * of this engine. Used to merge the engines of several threads, each of which has processed different reads.
+     *
+     * Must be called before finalizeData() has been called on either engine.
+     *
+     * @param other engine whose statistics to add to this one's, which must not be used afterwards
+     */
+    public void combine( final BaseRecalibrationEngine other ) {
+        Utils.nonNull(other);
+        Utils.validate(!finalized && !other.finalized, "Cannot combine engines after finalizeData() has been called");
+        denseTables.combine(other.denseTables);
+        numReadsProcessed += other.numReadsProcessed;
+    }
+
     /**
      * Finalize, if appropriate, all derived data in recalibrationTables.
      *
@@ -157,6 +189,8 @@ public final class BaseRecalibrationEngine implements Serializable {
      */
     public void finalizeData() {
         Utils.validate(!finalized, "FinalizeData() has already been called");
+        recalTables = denseTables.toRecalibrationTables();
+        denseTables = null;
         finalizeRecalibrationTables(recalTables);
         finalized = true;
     }
@@ -208,9 +242,22 @@ public final class BaseRecalibrationEngine implements Serializable {
 
     /**
      * Get a possibly not-final recalibration table, to deal with distributed execution.
+     *
+     * Before finalizeData() has been called, this is a new copy of the statistics collected so far.
      */
     public RecalibrationTables getRecalibrationTables() {
-        return recalTables;
+        return finalized ? recalTables : denseTables.toRecalibrationTables();
+    }
+
+    /**
+     * Get the statistics collected so far, in the compact form used to collect them, to combine the statistics of
+     * several engines (see {@link DenseRecalibrationTables#combine}) before converting them to recalibration tables.
+     *
+     * It is an error to call this function after finalizeData has been called
+     */
+    public DenseRecalibrationTables getDenseRecalibrationTables() {
+        Utils.validate(!finalized, "Cannot get the collected statistics after finalizeData() has been called");
+        return denseTables;
     }
 
     /**
@@ -244,31 +291,17 @@ public final class BaseRecalibrationEngine implements Serializable {
 
         final GATKRead read = recalInfo.getRead();
         final ReadCovariates readCovariates = recalInfo.getCovariatesValues();
-        final NestedIntegerArray<RecalDatum> qualityScoreTable = recalTables.getQualityScoreTable();
 
-        final int nCovariates = covariates.size();
-        final int nSpecialCovariates = covariates.numberOfSpecialCovariates();
         final int readLength = read.getLength();
         for( int offset = 0; offset < readLength; offset++ ) {
             if( ! recalInfo.skip(offset) ) {
                 for (int idx = 0; idx < cachedEventTypes.length; idx++) { //Note: we loop explicitly over cached values for speed
                     final EventType eventType = cachedEventTypes[idx];
                     final int[] keys = readCovariates.getKeySet(offset, eventType);
-                    final int eventIndex = eventType.ordinal();
-                    final byte qual = recalInfo.getQual(eventType, offset);
                     final double isError = recalInfo.getErrorFraction(eventType, offset);
 
-                    final int key0 = keys[0];
-                    final int key1 = keys[1];
-
-                    RecalUtils.incrementDatumOrPutIfNecessary3keys(qualityScoreTable, qual, isError, key0, key1, eventIndex);
-
-                    for (int i = nSpecialCovariates; i < nCovariates; i++) {
-                        final int keyi = keys[i];
-                        if (keyi >= 0) {
-                            RecalUtils.incrementDatumOrPutIfNecessary4keys(recalTables.getTable(i), qual, isError, key0, key1, keyi, eventIndex);
-                        }
-                    }
+                    // the quality score key is the quality recalInfo.getQual(eventType, offset) of the event
+                    denseTables.increment(keys, eventType.ordinal(), isError);
                 }
             }
         }
@@ -316,10 +349,9 @@ public final class BaseRecalibrationEngine implements Serializable {
         return read;
     }
 
-    private boolean[] calculateSkipArray( final GATKRead read, final Iterable<? extends Locatable> knownSites ) {
+    private boolean[] calculateSkipArray( final GATKRead read, final boolean[] knownSitesArray ) {
         final int readLength = read.getLength();
         final boolean[] skip = new boolean[readLength];
-        final boolean[] knownSitesArray = calculateKnownSites(read, knownSites);
         for(int i = 0; i < readLength; i++ ) {
             skip[i] = !BaseUtils.isRegularBase(read.getBase(i)) || read.getBaseQuality(i) < recalArgs.PRESERVE_QSCORES_LESS_THAN || knownSitesArray[i];
         }
@@ -327,33 +359,55 @@ public final class BaseRecalibrationEngine implements Serializable {
     }
 
     protected boolean[] calculateKnownSites( final GATKRead read, final Iterable<? extends Locatable> knownSites ) {
-        final int readLength = read.getLength();
-        final boolean[] knownSitesArray = new boolean[readLength];//initializes to all false
+        final boolean[] knownSitesArray = new boolean[read.getLength()];//initializes to all false
         final Cigar cigar = read.getCigar();
         final int softStart = read.getSoftStart();
         final int softEnd = read.getSoftEnd();
         for ( final Locatable knownSite : knownSites ) {
-            if (knownSite.getEnd() < softStart || knownSite.getStart() > softEnd) {
-                // knownSite is outside clipping window for the read, ignore
-                continue;
-            }
-            int featureStartOnRead = ReadUtils.getReadCoordinateForReferenceCoordinate(softStart, cigar, knownSite.getStart(), ReadUtils.ClippingTail.LEFT_TAIL, true);
-            if( featureStartOnRead == ReadUtils.CLIPPING_GOAL_NOT_REACHED ) {
-                featureStartOnRead = 0;
-            }
+            markKnownSite(knownSitesArray, cigar, softStart, softEnd, knownSite.getStart(), knownSite.getEnd());
+        }
+        return knownSitesArray;
+    }
 
-            int featureEndOnRead = ReadUtils.getReadCoordinateForReferenceCoordinate(softStart, cigar, knownSite.getEnd(), ReadUtils.ClippingTail.LEFT_TAIL, true);
-            if( featureEndOnRead == ReadUtils.CLIPPING_GOAL_NOT_REACHED ) {
-                featureEndOnRead = readLength;
-            }
+    /**
+     * @param knownSites the start and end of each known site, as consecutive elements
+     */
+    protected boolean[] calculateKnownSites( final GATKRead read, final int[] knownSites ) {
+        final boolean[] knownSitesArray = new boolean[read.getLength()];//initializes to all false
+        if ( knownSites.length == 0 ) {
+            return knownSitesArray;
+        }
+        final Cigar cigar = read.getCigar();
+        final int softStart = read.getSoftStart();
+        final int softEnd = read.getSoftEnd();
+        for ( int i = 0; i < knownSites.length; i += 2 ) {
+            markKnownSite(knownSitesArray, cigar, softStart, softEnd, knownSites[i], knownSites[i + 1]);
+        }
+        return knownSitesArray;
+    }
 
-            if( featureStartOnRead > readLength ) {
-                featureStartOnRead = featureEndOnRead = readLength;
-            }
+    private static void markKnownSite( final boolean[] knownSitesArray, final Cigar cigar, final int softStart, final int softEnd,
+                                       final int siteStart, final int siteEnd ) {
+        final int readLength = knownSitesArray.length;
+        if (siteEnd < softStart || siteStart > softEnd) {
+            // knownSite is outside clipping window for the read, ignore
+            return;
+        }
+        int featureStartOnRead = ReadUtils.getReadCoordinateForReferenceCoordinate(softStart, cigar, siteStart, ReadUtils.ClippingTail.LEFT_TAIL, true);
+        if( featureStartOnRead == ReadUtils.CLIPPING_GOAL_NOT_REACHED ) {
+            featureStartOnRead = 0;
+        }
 
-            Arrays.fill(knownSitesArray, Math.max(0, featureStartOnRead), Math.min(readLength, featureEndOnRead + 1), true);
+        int featureEndOnRead = ReadUtils.getReadCoordinateForReferenceCoordinate(softStart, cigar, siteEnd, ReadUtils.ClippingTail.LEFT_TAIL, true);
+        if( featureEndOnRead == ReadUtils.CLIPPING_GOAL_NOT_REACHED ) {
+            featureEndOnRead = readLength;
         }
-        return knownSitesArray;
+
+        if( featureStartOnRead > readLength ) {
+            featureStartOnRead = featureEndOnRead = readLength;
+        }
+
+        Arrays.fill(knownSitesArray, Math.max(0, featureStartOnRead), Math.min(readLength, featureEndOnRead + 1), true);
     }
 
     /**
@@ -368,7 +422,7 @@ public final class BaseRecalibrationEngine implements Serializable {
      * @return the total number of SNP and indel events
      */
     protected static int calculateIsSNPOrIndel(final GATKRead read, final ReferenceDataSource ref, int[] snp, int[] isIns, int[] isDel) {
-        final byte[] refBases = ref.queryAndPrefetch(read.getContig(), read.getStart(), read.getEnd()).getBases();
+        final ReferenceBasesView refBases = ref.queryBases(read.getContig(), read.getStart(), read.getEnd());
         int readPos = 0;
         int refPos = 0;
         int nEvents = 0;
@@ -380,7 +434,7 @@ public final class BaseRecalibrationEngine implements Serializable {
                 case EQ:
                 case X:
                     for (int i = 0; i < elementLength; i++) {
-                        int snpInt = (BaseUtils.basesAreEqual(read.getBase(readPos), refBases[refPos]) ? 0 : 1);
+                        int snpInt = (BaseUtils.basesAreEqual(read.getBase(readPos), refBases.get(refPos)) ? 0 : 1);
                         snp[readPos] = snpInt;
                         nEvents += snpInt;
                         readPos++;
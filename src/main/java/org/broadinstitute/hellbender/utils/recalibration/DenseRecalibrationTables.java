@@ -0,0 +1,233 @@
+package org.broadinstitute.hellbender.utils.recalibration;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.collections.NestedIntegerArray;
+import org.broadinstitute.hellbender.utils.recalibration.covariates.Covariate;
+import org.broadinstitute.hellbender.utils.recalibration.covariates.StandardCovariateList;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Recalibration statistics accumulated in primitive arrays rather than in {@link RecalDatum} objects, for collecting
+ * the statistics of many reads cheaply. Converted to {@link RecalibrationTables} by {@link #toRecalibrationTables} to
+ * be finalized and written to a report.
+ *
+ * Holds the quality score table and one table per additional covariate, each divided into blocks by read group and
+ * reported quality. A block has one cell per covariate key (one in total for the quality score table) and event type,
+ * at offset key * number of event types + event index, and is allocated on the first observation for its read group
+ * and quality. Cells store the number of observations and the number of mismatches scaled as in {@link RecalDatum},
+ * so the statistics of each cell are exactly those that the equivalent RecalDatum would have accumulated.
+ *
+ * A covariate with many possible keys, such as the context covariate with a long context or the cycle covariate with a
+ * large maximum cycle, would need blocks so large that few of their cells are ever used. Tables whose blocks would have
+ * more than {@link #MAX_DENSE_BLOCK_SIZE} cells are therefore kept sparse instead, in a {@link NestedIntegerArray} of
+ * RecalDatum as in {@link RecalibrationTables}.
+ *
+ * The read group table is not stored, since it is derived from the quality score table when finalizing the tables.
+ */
+public final class DenseRecalibrationTables implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private static final int QUALITY_SCORE_TABLE_INDEX = 0;
+
+    /**
+     * Largest number of cells in a block of a dense table (1MB of counts and sums per block)
+     */
+    @VisibleForTesting
+    static final long MAX_DENSE_BLOCK_SIZE = 1 << 16;
+
+    private final StandardCovariateList covariates;
+    private final int numReadGroups;
+    private final int qualDimension;
+    private final int eventDimension;
+    private final int specialCovariateCount;
+
+    // number of keys of each table: 1 for the quality score table, then that of each additional covariate
+    private final int[] keyDimensions;
+
+    // by table, then read group * qualDimension + quality, then key * eventDimension + event index; null for sparse tables
+    private final long[][][] observations;
+    private final double[][][] scaledMismatches;
+
+    // by table, indexed by read group, quality, key and event index as in RecalibrationTables; null for dense tables
+    private final List<NestedIntegerArray<RecalDatum>> sparseTables;
+
+    /**
+     * @param covariates the covariates for which to collect statistics
+     * @param numReadGroups number of read groups
+     * @param includeIndels whether to collect statistics for insertions and deletions as well as base substitutions
+     */
+    public DenseRecalibrationTables(final StandardCovariateList covariates, final int numReadGroups, final boolean includeIndels) {
+        Utils.nonNull(covariates);
+        Utils.validateArg(numReadGroups > 0, "numReadGroups must be > 0");
+        this.covariates = covariates;
+        this.numReadGroups = numReadGroups;
+        this.qualDimension = covariates.getQualityScoreCovariate().maximumKeyValue() + 1;
+        this.eventDimension = includeIndels ? EventType.values().length : EventType.BASE_SUBSTITUTION.ordinal() + 1;
+        this.specialCovariateCount = covariates.numberOfSpecialCovariates();
+
+        final List<Integer> dimensions = new ArrayList<>();
+        dimensions.add(1);
+        for ( final Covariate covariate : covariates.getAdditionalCovariates() ) {
+            dimensions.add(covariate.maximumKeyValue() + 1);
+        }
+        keyDimensions = dimensions.stream().mapToInt(Integer::intValue).toArray();
+        final int numTables = keyDimensions.length;
+
+        final int numBlocks = Math.toIntExact(Math.multiplyExact((long) numReadGroups, qualDimension));
+        observations = new long[numTables][][];
+        scaledMismatches = new double[numTables][][];
+        sparseTables = new ArrayList<>(numTables);
+        for ( int table = 0; table < numTables; table++ ) {
+            if ( isDense(keyDimensions[table], eventDimension) ) {
+                observations[table] = new long[numBlocks][];
+                scaledMismatches[table] = new double[numBlocks][];
+                sparseTables.add(null);
+            } else {
+                sparseTables.add(new NestedIntegerArray<>(numReadGroups, qualDimension, keyDimensions[table], EventType.values().length));
+            }
+        }
+    }
+
+    /**
+     * @return whether a table with numKeys keys for each of eventDimension event types is small enough to be dense
+     */
+    @VisibleForTesting
+    static boolean isDense(final int numKeys, final int eventDimension) {
+        return Math.multiplyExact((long) numKeys, eventDimension) <= MAX_DENSE_BLOCK_SIZE;
+    }
+
+    @VisibleForTesting
+    boolean isDenseTable(final int table) {
+        return observations[table] != null;
+    }
+
+    /**
+     * Record an observation of an event at a base.
+     *
+     * @param keys the covariate keys of the base for this event type, as given by
+     *             {@link org.broadinstitute.hellbender.utils.recalibration.covariates.ReadCovariates#getKeySet}.
+     *             The quality key is also the reported quality of the observation.
+     * @param eventIndex ordinal of the event type
+     * @param isError error value of the observation
+     */
+    public void increment(final int[] keys, final int eventIndex, final double isError) {
+        final int block = keys[0] * qualDimension + keys[1];
+        final double scaledError = isError * RecalDatum.MULTIPLIER;
+
+        incrementCell(QUALITY_SCORE_TABLE_INDEX, block, eventIndex, scaledError);
+        for ( int table = 1; table < keyDimensions.length; table++ ) {
+            final int key = keys[specialCovariateCount + table - 1];
+            if ( key < 0 ) {
+                continue;
+            }
+            final NestedIntegerArray<RecalDatum> sparseTable = sparseTables.get(table);
+            if ( sparseTable == null ) {
+                incrementCell(table, block, key * eventDimension + eventIndex, scaledError);
+            } else {
+                RecalUtils.incrementDatumOrPutIfNecessary4keys(sparseTable, (byte) keys[1], isError, keys[0], keys[1], key, eventIndex);
+            }
+        }
+    }
+
+    private void incrementCell(final int table, final int block, final int cell, final double scaledError) {
+        long[] blockObservations = observations[table][block];
+        if ( blockObservations == null ) {
+            blockObservations = observations[table][block] = new long[keyDimensions[table] * eventDimension];
+            scaledMismatches[table][block] = new double[blockObservations.length];
+        }
+        blockObservations[cell]++;
+        scaledMismatches[table][block][cell] += scaledError;
+    }
+
+    /**
+     * Add the statistics of toMerge to these tables, in place
+     *
+     * @return these tables
+     */
+    public DenseRecalibrationTables combine(final DenseRecalibrationTables toMerge) {
+        Utils.nonNull(toMerge);
+        Utils.validateArg(numReadGroups == toMerge.numReadGroups && qualDimension == toMerge.qualDimension &&
+                eventDimension == toMerge.eventDimension && Arrays.equals(keyDimensions, toMerge.keyDimensions),
+                "Attempting to merge DenseRecalibrationTables with different sizes");
+
+        for ( int table = 0; table < keyDimensions.length; table++ ) {
+            if ( sparseTables.get(table) != null ) {
+                RecalUtils.combineTables(sparseTables.get(table), toMerge.sparseTables.get(table));
+                continue;
+            }
+            for ( int block = 0; block < observations[table].length; block++ ) {
+                final long[] otherObservations = toMerge.observations[table][block];
+                if ( otherObservations == null ) {
+                    continue;
+                }
+                final double[] otherMismatches = toMerge.scaledMismatches[table][block];
+                if ( observations[table][block] == null ) {
+                    observations[table][block] = otherObservations.clone();
+                    scaledMismatches[table][block] = otherMismatches.clone();
+                } else {
+                    final long[] myObservations = observations[table][block];
+                    final double[] myMismatches = scaledMismatches[table][block];
+                    for ( int cell = 0; cell < myObservations.length; cell++ ) {
+                        myObservations[cell] += otherObservations[cell];
+                        myMismatches[cell] += otherMismatches[cell];
+                    }
+                }
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Combines the right tables into the left tables, in-place (without making a copy)
+     *
+     * @return left, with the statistics of right added to it
+     */
+    public static DenseRecalibrationTables inPlaceCombine(final DenseRecalibrationTables left, final DenseRecalibrationTables right) {
+        Utils.nonNull(left);
+        return left.combine(right);
+    }
+
+    /**
+     * @return new (not finalized) recalibration tables holding one RecalDatum per cell with observations
+     */
+    public RecalibrationTables toRecalibrationTables() {
+        final RecalibrationTables tables = new RecalibrationTables(covariates, numReadGroups);
+        final List<NestedIntegerArray<RecalDatum>> additionalTables = tables.getAdditionalTables();
+        for ( int table = 0; table < keyDimensions.length; table++ ) {
+            final NestedIntegerArray<RecalDatum> target = table == QUALITY_SCORE_TABLE_INDEX ? tables.getQualityScoreTable() : additionalTables.get(table - 1);
+            if ( sparseTables.get(table) != null ) {
+                for ( final NestedIntegerArray.Leaf<RecalDatum> leaf : sparseTables.get(table).getAllLeaves() ) {
+                    target.put(new RecalDatum(leaf.value), leaf.keys);
+                }
+                continue;
+            }
+            for ( int block = 0; block < observations[table].length; block++ ) {
+                final long[] blockObservations = observations[table][block];
+                if ( blockObservations == null ) {
+                    continue;
+                }
+                final int readGroup = block / qualDimension;
+                final int qual = block % qualDimension;
+                for ( int cell = 0; cell < blockObservations.length; cell++ ) {
+                    if ( blockObservations[cell] == 0 ) {
+                        continue;
+                    }
+                    final RecalDatum datum = RecalDatum.fromScaledMismatches(blockObservations[cell], scaledMismatches[table][block][cell], (byte) qual);
+                    final int key = cell / eventDimension;
+                    final int eventIndex = cell % eventDimension;
+                    if ( table == QUALITY_SCORE_TABLE_INDEX ) {
+                        target.put(datum, readGroup, qual, eventIndex);
+                    } else {
+                        target.put(datum, readGroup, qual, key, eventIndex);
+                    }
+                }
+            }
+        }
+        return tables;
+    }
+}
@@ -0,0 +1,189 @@
+package org.broadinstitute.hellbender.utils.recalibration;
+
+import htsjdk.tribble.Feature;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Streams the known sites of variation used by BQSR alongside coordinate-sorted reads, so that the known sites
+ * overlapping each read are found without querying the feature sources for every read.
+ *
+ * The sources are queried one window of {@code windowSize} bases at a time as the queries move along a contig, and
+ * the start and end of each site are kept in a buffer of primitives sorted by start. Sites that end well before the
+ * current query are dropped from the buffer from time to time. A query that starts before the dropped sites, or on
+ * another contig, reloads the buffer from the sources, so results are always the same as querying the sources
+ * directly. This includes zero-length sites (such as insertions in BED files), which end one base before they start
+ * and so only overlap intervals containing the bases on both sides of them, even when those bases are in different
+ * windows. The cursor is only fast when successive queries are (mostly) in increasing order, as they are for
+ * coordinate-sorted reads.
+ *
+ * The sources are typically {@link org.broadinstitute.hellbender.engine.FeatureManager#getFeatures} for each known
+ * sites input of a tool, and are not closed by the cursor. Not thread-safe.
+ */
+public final class KnownSitesCursor {
+    public static final int DEFAULT_WINDOW_SIZE = 100_000;
+
+    /**
+     * Returned by {@link #getKnownSites} when there are no known sites in the interval
+     */
+    public static final int[] NO_SITES = new int[0];
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final List<Function<SimpleInterval, List<? extends Feature>>> sources;
+    private final int windowSize;
+
+    private String contig = null;
+    // queries starting before this position may need sites that are no longer in the buffer
+    private int retainedStart;
+    // last position of the contig whose sites have been loaded
+    private int loadedEnd;
+
+    // buffered sites, each as (start << 32 | end) so that sorting sorts by start, in [0, size)
+    private long[] sites = new long[INITIAL_CAPACITY];
+    private int size = 0;
+    // length of the longest buffered site, which bounds how far before a query an overlapping site can start
+    private int maxSiteLength = 0;
+
+    /**
+     * @param sources the sources of known sites, each returning the sites overlapping an interval sorted by start
+     * @param windowSize number of bases of known sites to load from the sources at a time
+     */
+    public KnownSitesCursor(final List<Function<SimpleInterval, List<? extends Feature>>> sources, final int windowSize) {
+        Utils.nonNull(sources);
+        Utils.validateArg(windowSize > 0, "windowSize must be > 0");
+        this.sources = new ArrayList<>(sources);
+        this.windowSize = windowSize;
+    }
+
+    /**
+     * Known sites overlapping an interval.
+     *
+     * @param contig contig of the interval
+     * @param start start of the interval (1-based, inclusive)
+     * @param end end of the interval (1-based, inclusive), >= start
+     * @return the start and end of each overlapping known site, as consecutive elements, sorted by start;
+     *         {@link #NO_SITES} when there are none
+     */
+    public int[] getKnownSites(final String contig, final int start, final int end) {
+        Utils.nonNull(contig);
+        Utils.validateArg(start > 0 && end >= start, () -> "Invalid interval " + contig + ":" + start + "-" + end);
+
+        if (!contig.equals(this.contig) || start < retainedStart) {
+            reset(contig, start);
+        }
+        while (loadedEnd < end) {
+            load(loadedEnd + 1, (int) Math.min(Integer.MAX_VALUE, Math.max(end, (long) loadedEnd + windowSize)), false);
+        }
+        if (start - (long) retainedStart > 2L * windowSize) {
+            dropSitesEndingBefore(start - windowSize);
+        }
+
+        // sites are sorted by start, so the overlapping ones are among those starting in [start - maxSiteLength, end]
+        final int first = firstSiteStartingAtOrAfter(Math.max(1, start - maxSiteLength));
+        int count = 0;
+        for (int i = first; i < size && siteStart(sites[i]) <= end; i++) {
+            if (siteEnd(sites[i]) >= start) {
+                count++;
+            }
+        }
+        if (count == 0) {
+            return NO_SITES;
+        }
+
+        final int[] result = new int[2 * count];
+        int next = 0;
+        for (int i = first; i < size && siteStart(sites[i]) <= end; i++) {
+            if (siteEnd(sites[i]) >= start) {
+                result[next++] = siteStart(sites[i]);
+                result[next++] = siteEnd(sites[i]);
+            }
+        }
+        return result;
+    }
+
+    private void reset(final String newContig, final int start) {
+        contig = newContig;
+        size = 0;
+        maxSiteLength = 0;
+        retainedStart = start;
+        loadedEnd = start - 1;
+        // the first window also needs the sites that start before it but overlap it
+        load(start, (int) Math.min(Integer.MAX_VALUE, (long) start + windowSize - 1), true);
+    }
+
+    /**
+     * Add the sites of the sources in [windowStart, windowEnd] to the buffer. Sites starting before the window are
+     * only added when includeEarlierStarts is true, as otherwise they were added with a previous window.
+     */
+    private void load(final int windowStart, final int windowEnd, final boolean includeEarlierStarts) {
+        // a zero-length site starting at windowStart ends at windowStart - 1, so it overlaps neither this window nor
+        // the previous one: query one more base before the window for it
+        final SimpleInterval window = new SimpleInterval(contig, includeEarlierStarts ? windowStart : Math.max(1, windowStart - 1), windowEnd);
+        final int firstNewSite = size;
+        for (final Function<SimpleInterval, List<? extends Feature>> source : sources) {
+            for (final Feature feature : source.apply(window)) {
+                if (includeEarlierStarts || feature.getStart() >= windowStart) {
+                    add(feature.getStart(), feature.getEnd());
+                }
+            }
+        }
+        // each source is sorted, but not their union; the new sites all start after the previous ones
+        Arrays.sort(sites, firstNewSite, size);
+        loadedEnd = windowEnd;
+    }
+
+    private void add(final int start, final int end) {
+        if (size == sites.length) {
+            sites = Arrays.copyOf(sites, 2 * sites.length);
+        }
+        sites[size++] = ((long) start << 32) | (end & 0xFFFFFFFFL);
+        maxSiteLength = Math.max(maxSiteLength, siteLength(start, end));
+    }
+
+    // zero-length sites (such as insertions in BED files) have end < start, and must not make the search start after the query
+    private static int siteLength(final int start, final int end) {
+        return Math.max(0, end - start);
+    }
+
+    private void dropSitesEndingBefore(final int position) {
+        int kept = 0;
+        int newMaxSiteLength = 0;
+        for (int i = 0; i < size; i++) {
+            if (siteEnd(sites[i]) >= position) {
+                sites[kept++] = sites[i];
+                newMaxSiteLength = Math.max(newMaxSiteLength, siteLength(siteStart(sites[i]), siteEnd(sites[i])));
+            }
+        }
+        size = kept;
+        maxSiteLength = newMaxSiteLength;
+        retainedStart = position;
+    }
+
+    private int firstSiteStartingAtOrAfter(final int position) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (siteStart(sites[mid]) < position) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static int siteStart(final long site) {
+        return (int) (site >>> 32);
+    }
+
+    private static int siteEnd(final long site) {
+        return (int) site;
+    }
+}
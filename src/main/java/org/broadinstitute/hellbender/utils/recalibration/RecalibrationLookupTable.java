@@ -0,0 +1,175 @@
+package org.broadinstitute.hellbender.utils.recalibration;
+
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.collections.NestedIntegerArray;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.broadinstitute.hellbender.utils.MathUtils.fastRound;
+import static org.broadinstitute.hellbender.utils.QualityUtils.boundQual;
+import static org.broadinstitute.hellbender.utils.recalibration.RecalDatum.MAX_RECALIBRATED_Q_SCORE;
+
+/**
+ * Precompiled form of a set of {@link RecalibrationTables}, used to recalibrate base substitution qualities with
+ * array lookups only.
+ *
+ * The hierarchical Bayesian estimate of
+ * {@link org.broadinstitute.hellbender.transformers.BQSRReadTransformer#hierarchicalBayesianQualityEstimate} is a
+ * conditional prior that depends only on the read group and reported quality, plus one delta per additional covariate
+ * that depends only on the read group, reported quality and covariate key. This class computes all of them once from
+ * the tables, in dense arrays indexed by the covariate keys, so that recalibrating a base is a few array lookups and
+ * additions followed by a lookup of the final (quantized) quality.
+ *
+ * Computes exactly the same qualities as evaluating the estimate for every base, not only the same estimates up to
+ * rounding: each {@link RecalDatum} is always evaluated with the same conditional prior, the conditional priors are
+ * computed with the same expression (and so in the same order of additions) as by the estimate, and the covariate
+ * deltas are summed in covariate order starting from 0.0 before being added to the conditional prior, again as by the
+ * estimate. A covariate key without observations adds 0.0, which leaves the sum unchanged, just as a missing
+ * {@link RecalDatum} is skipped by the estimate.
+ */
+public final class RecalibrationLookupTable implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private static final int BASE_SUBSTITUTION_INDEX = EventType.BASE_SUBSTITUTION.ordinal();
+
+    private final int numReadGroups;
+    private final int qualDimension;
+    private final int specialCovariateCount;
+
+    // whether the read group table has an entry for each read group: reads from other read groups are not recalibrated
+    private final boolean[] hasReadGroup;
+
+    // conditional prior of each read group when the reported quality is not in the tables
+    private final double[] readGroupPriors;
+
+    // conditional prior of each read group x reported quality, at readGroup * qualDimension + qual
+    private final double[] conditionalPriors;
+
+    // delta of each additional covariate, by covariate, then read group x reported quality (as above), then covariate
+    // key; null where there are no observations, and shorter than the key space when larger keys have no observations
+    private final double[][][] covariateDeltas;
+
+    // final quality for each rounded estimate, after quantization
+    private final byte[] finalQuals;
+
+    /**
+     * @param recalibrationTables the tables to precompile
+     * @param quantizedQuals quantized quality for each recalibrated quality
+     * @param staticQuantizedMapping mapping applied to the quantized qualities, or null for none
+     * @param globalQScorePrior global prior for the quality scores, or a value <= 0 to use the reported quality of each read group
+     */
+    public RecalibrationLookupTable(final RecalibrationTables recalibrationTables, final List<Byte> quantizedQuals,
+                                    final byte[] staticQuantizedMapping, final double globalQScorePrior) {
+        Utils.nonNull(recalibrationTables);
+        Utils.nonNull(quantizedQuals);
+
+        final NestedIntegerArray<RecalDatum> readGroupTable = recalibrationTables.getReadGroupTable();
+        final NestedIntegerArray<RecalDatum> qualityScoreTable = recalibrationTables.getQualityScoreTable();
+        numReadGroups = readGroupTable.getDimensions()[0];
+        qualDimension = qualityScoreTable.getDimensions()[1];
+        specialCovariateCount = recalibrationTables.covariates.numberOfSpecialCovariates();
+
+        hasReadGroup = new boolean[numReadGroups];
+        readGroupPriors = new double[numReadGroups];
+        conditionalPriors = new double[numReadGroups * qualDimension];
+        for ( int rg = 0; rg < numReadGroups; rg++ ) {
+            final RecalDatum empiricalQualRG = readGroupTable.get2Keys(rg, BASE_SUBSTITUTION_INDEX);
+            if ( empiricalQualRG == null ) {
+                continue;
+            }
+            hasReadGroup[rg] = true;
+            final double epsilon = globalQScorePrior > 0.0 ? globalQScorePrior : empiricalQualRG.getEstimatedQReported();
+            final double globalDeltaQ = empiricalQualRG.getEmpiricalQuality(epsilon) - epsilon;
+            // the conditional prior with no reported quality datum, (0.0 + globalDeltaQ) + epsilon as in the estimate
+            readGroupPriors[rg] = 0.0 + globalDeltaQ + epsilon;
+            for ( int qual = 0; qual < qualDimension; qual++ ) {
+                final RecalDatum empiricalQualQS = qualityScoreTable.get3Keys(rg, qual, BASE_SUBSTITUTION_INDEX);
+                final double deltaQReported = empiricalQualQS == null ? 0.0 : empiricalQualQS.getEmpiricalQuality(globalDeltaQ + epsilon) - (globalDeltaQ + epsilon);
+                // keep the association order of the estimate, (deltaQReported + globalDeltaQ) + epsilon, so that the
+                // rounded qualities can't differ at .5 boundaries
+                conditionalPriors[rg * qualDimension + qual] = deltaQReported + globalDeltaQ + epsilon;
+            }
+        }
+
+        final List<NestedIntegerArray<RecalDatum>> additionalTables = recalibrationTables.getAdditionalTables();
+        covariateDeltas = new double[additionalTables.size()][][];
+        for ( int i = 0; i < additionalTables.size(); i++ ) {
+            covariateDeltas[i] = computeCovariateDeltas(additionalTables.get(i));
+        }
+
+        finalQuals = new byte[MAX_RECALIBRATED_Q_SCORE + 1];
+        for ( int qual = 0; qual < finalQuals.length; qual++ ) {
+            final byte quantizedQual = quantizedQuals.get(qual);
+            finalQuals[qual] = staticQuantizedMapping == null ? quantizedQual : staticQuantizedMapping[quantizedQual];
+        }
+    }
+
+    private double[][] computeCovariateDeltas(final NestedIntegerArray<RecalDatum> table) {
+        final double[][] deltas = new double[numReadGroups * qualDimension][];
+        final List<NestedIntegerArray.Leaf<RecalDatum>> leaves = table.getAllLeaves();
+
+        // size each array to the largest key with observations, so that sparse key spaces don't cost memory
+        final int[] maxKeys = new int[deltas.length];
+        Arrays.fill(maxKeys, -1);
+        for ( final NestedIntegerArray.Leaf<RecalDatum> leaf : leaves ) {
+            if ( isUsable(leaf) ) {
+                final int index = leaf.keys[0] * qualDimension + leaf.keys[1];
+                maxKeys[index] = Math.max(maxKeys[index], leaf.keys[2]);
+            }
+        }
+        for ( int index = 0; index < deltas.length; index++ ) {
+            if ( maxKeys[index] >= 0 ) {
+                deltas[index] = new double[maxKeys[index] + 1];
+            }
+        }
+
+        for ( final NestedIntegerArray.Leaf<RecalDatum> leaf : leaves ) {
+            if ( isUsable(leaf) ) {
+                final int index = leaf.keys[0] * qualDimension + leaf.keys[1];
+                final double conditionalPrior = conditionalPriors[index];
+                deltas[index][leaf.keys[2]] = leaf.value.getEmpiricalQuality(conditionalPrior) - conditionalPrior;
+            }
+        }
+        return deltas;
+    }
+
+    private boolean isUsable(final NestedIntegerArray.Leaf<RecalDatum> leaf) {
+        return leaf.keys[3] == BASE_SUBSTITUTION_INDEX && hasReadGroup[leaf.keys[0]];
+    }
+
+    /**
+     * @return true if bases of the read group with this key can be recalibrated
+     */
+    public boolean hasReadGroup(final int readGroupKey) {
+        return readGroupKey >= 0 && readGroupKey < numReadGroups && hasReadGroup[readGroupKey];
+    }
+
+    /**
+     * Recalibrated, quantized quality of a base substitution.
+     *
+     * @param keySet covariate keys of the base, as given by {@link org.broadinstitute.hellbender.utils.recalibration.covariates.ReadCovariates#getKeySet},
+     *               whose read group must satisfy {@link #hasReadGroup}
+     * @return the final quality of the base
+     */
+    public byte getRecalibratedQual(final int[] keySet) {
+        final int readGroup = keySet[0];
+        final int qual = keySet[1];
+        if ( qual >= qualDimension ) {
+            return finalQuals[boundQual(fastRound(readGroupPriors[readGroup]), MAX_RECALIBRATED_Q_SCORE)];
+        }
+
+        // the covariate deltas are summed on their own before being added to the conditional prior, as by the estimate
+        final int index = readGroup * qualDimension + qual;
+        double deltaQCovariates = 0.0;
+        for ( int i = 0; i < covariateDeltas.length; i++ ) {
+            final double[] deltas = covariateDeltas[i][index];
+            final int key = keySet[specialCovariateCount + i];
+            if ( deltas != null && key >= 0 && key < deltas.length ) {
+                deltaQCovariates += deltas[key];
+            }
+        }
+        return finalQuals[boundQual(fastRound(conditionalPriors[index] + deltaQCovariates), MAX_RECALIBRATED_Q_SCORE)];
+    }
+}
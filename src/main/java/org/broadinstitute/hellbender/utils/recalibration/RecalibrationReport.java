@@ -1,9 +1,6 @@
 package org.broadinstitute.hellbender.utils.recalibration;
 
 
-import org.apache.commons.collections.CollectionUtils;
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
 import org.broadinstitute.hellbender.exceptions.GATKException;
 import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.utils.QualityUtils;
@@ -21,18 +18,13 @@ import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
 import java.util.SortedSet;
-import java.util.TreeSet;
 
 /**
  * This class has all the static functionality for reading a recalibration report file into memory. 
  */
 public final class RecalibrationReport {
-    private static final Logger logger = LogManager.getLogger(RecalibrationReport.class);
     private QuantizationInfo quantizationInfo; // histogram containing the counts for qual quantization (calculated after recalibration is done)
     private final RecalibrationTables recalibrationTables; // quick access reference to the tables
     private final StandardCovariateList covariates; // list of all covariates to be used in this calculation
@@ -99,47 +91,11 @@ public final class RecalibrationReport {
         Utils.nonNull(inputs);
         Utils.nonEmpty(inputs, "Cannot gather an empty list of inputs");
 
-        final SortedSet<String> allReadGroups = new TreeSet<>();
-        final Map<File, Set<String>> inputReadGroups = new LinkedHashMap<>();
-
-        // Get the read groups from each input report
-        for (final File input : inputs) {
-            final GATKReport report = new GATKReport(input);
-            final Set<String> readGroups = report.getReadGroups();
-            inputReadGroups.put(input, readGroups);
-            allReadGroups.addAll(readGroups);
-        }
-
-        logTablesWithMissingReadGroups(allReadGroups, inputReadGroups);
-
-        final RecalibrationReport result = inputs.stream()
-                .map(i -> new RecalibrationReport(new GATKReport(i), allReadGroups))
-                .reduce(RecalibrationReport::combine)
-                .filter(r -> !r.isEmpty())
-                .orElseThrow(() -> new GATKException("there is no usable data in any input file") );
-
-        result.quantizationInfo = new QuantizationInfo(result.recalibrationTables, result.RAC.QUANTIZING_LEVELS);
-        return result.createGATKReport();
-    }
-
-    /**
-     * helper function to output log messages if there are tables that are missing read groups that were seen in the other tables
-     * @param allReadGroups a set of all of the read groups across inputs
-     * @param inputReadGroups a map from file to the read groups that file contains
-     */
-    private static void logTablesWithMissingReadGroups(SortedSet<String> allReadGroups, Map<File, Set<String>> inputReadGroups) {
-        // Log the read groups that are missing from specific inputs
-        for (final Map.Entry<File, Set<String>> entry: inputReadGroups.entrySet()) {
-            final File input = entry.getKey();
-            final Set<String> readGroups = entry.getValue();
-            if (allReadGroups.size() != readGroups.size()) {
-                // Since this is not completely unexpected, more than debug, but less than a proper warning.
-                logger.info("Missing read group(s)" + ": " + input.getAbsolutePath());
-                for (final Object readGroup: CollectionUtils.subtract(allReadGroups, readGroups)) {
-                    logger.info("  " + readGroup);
-                }
-            }
-        }
+        // the inputs are read one row at a time rather than loaded as GATKReports, so that gathering many of them
+        // only needs memory for the gathered tables
+        final RecalibrationReportGatherer gatherer = new RecalibrationReportGatherer();
+        inputs.forEach(gatherer::add);
+        return gatherer.toGATKReport();
     }
 
     /**
@@ -322,7 +278,7 @@ public final class RecalibrationReport {
      * @param table the GATKReportTable containing the arguments and its corresponding values
      * @return a RAC object properly initialized with all the objects in the table
      */
-    private static RecalibrationArgumentCollection initializeArgumentCollectionTable(GATKReportTable table) {
+    static RecalibrationArgumentCollection initializeArgumentCollectionTable(GATKReportTable table) {
         final RecalibrationArgumentCollection RAC = new RecalibrationArgumentCollection();
 
         final List<String> standardCovariateClassNames = new StandardCovariateList(RAC, Collections.emptyList()).getStandardCovariateClassNames();
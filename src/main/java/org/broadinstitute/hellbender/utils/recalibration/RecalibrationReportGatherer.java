@@ -0,0 +1,417 @@
+package org.broadinstitute.hellbender.utils.recalibration;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.collections.NestedIntegerArray;
+import org.broadinstitute.hellbender.utils.gcs.BucketUtils;
+import org.broadinstitute.hellbender.utils.recalibration.covariates.Covariate;
+import org.broadinstitute.hellbender.utils.recalibration.covariates.StandardCovariateList;
+import org.broadinstitute.hellbender.utils.report.GATKReport;
+import org.broadinstitute.hellbender.utils.report.GATKReportTable;
+import org.broadinstitute.hellbender.utils.report.GATKReportVersion;
+import org.broadinstitute.hellbender.utils.text.TextFormattingUtils;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Gathers recalibration reports by reading their tables one row at a time into primitive accumulators, so that no
+ * input is ever held in memory as a {@link GATKReport} and the memory used is bounded by the dimensions of the tables
+ * (read groups, qualities and covariate values) rather than by the number of inputs.
+ *
+ * The gathered statistics are exactly those obtained by combining the {@link RecalibrationReport} of each input in
+ * order with {@link RecalibrationReport#combine}: each cell accumulates its observations, its mismatches (scaled as
+ * in {@link RecalDatum}) and its estimated reported quality as {@link RecalDatum#combine} does. As there, the
+ * arguments of the gathered report are those of the first input, and all inputs are expected to share them.
+ *
+ * Not thread-safe.
+ */
+final class RecalibrationReportGatherer {
+    private static final Logger logger = LogManager.getLogger(RecalibrationReportGatherer.class);
+
+    private static final int READ_GROUP_TABLE_INDEX = 0;
+    private static final int QUALITY_SCORE_TABLE_INDEX = 1;
+    private static final int NUM_EVENTS = EventType.values().length;
+
+    // estimated reported quality of the cells that have not been seen in any input yet
+    private static final double NO_DATA = -1.0;
+
+    // fields of the two header lines of each table, as written by GATKReportTable
+    private static final String TABLE_HEADER_SEPARATOR = ":";
+    private static final int TABLE_ROWS_FIELD = 3;
+    private static final int TABLE_NAME_FIELD = 2;
+    private static final int TABLE_HEADER_MARK_LIMIT = 1 << 16;
+
+    private GATKReportTable argumentTable = null;   // of the first input, kept untouched for the output
+    private RecalibrationArgumentCollection RAC = null;
+
+    // covariates of each table, by table index as in RecalibrationTables, and table index by name in the report
+    private Covariate[] tableCovariates;
+    private final Map<String, Integer> covariateTableIndices = new HashMap<>();
+    private TableAccumulator[] tables;
+
+    // index of each read group, in the order in which they were first seen
+    private final Map<String, Integer> readGroupIndices = new LinkedHashMap<>();
+    // the read groups seen in each input, by index
+    private final Map<File, BitSet> inputReadGroups = new LinkedHashMap<>();
+
+    /**
+     * Add the statistics of a recalibration report file to the gathered ones
+     *
+     * @param input a file containing a {@link RecalibrationReport}
+     */
+    void add(final File input) {
+        Utils.nonNull(input);
+        final BitSet readGroups = new BitSet();
+        inputReadGroups.put(input, readGroups);
+
+        try (final BufferedReader reader = new BufferedReader(new InputStreamReader(BucketUtils.openFile(input.getPath())))) {
+            final String reportHeader = reader.readLine();
+            if (reportHeader == null) {
+                throw new UserException.MalformedFile(input, GATKReport.RECAL_FILE + " is empty.");
+            }
+            final GATKReportVersion version = GATKReportVersion.fromHeader(reportHeader);
+            if (version != GATKReportVersion.V1_1) {
+                throw new UserException.MalformedFile(input, "Unsupported GATK report version " + version);
+            }
+
+            final int nTables = Integer.parseInt(reportHeader.split(TABLE_HEADER_SEPARATOR)[2]);
+            for (int i = 0; i < nTables; i++) {
+                reader.mark(TABLE_HEADER_MARK_LIMIT);
+                final String tableDataLine = reader.readLine();
+                final String tableNameLine = reader.readLine();
+                if (tableDataLine == null || tableNameLine == null) {
+                    throw new UserException.MalformedFile(input, "Missing tables in " + GATKReport.RECAL_FILE);
+                }
+                final String tableName = tableNameLine.split(TABLE_HEADER_SEPARATOR)[TABLE_NAME_FIELD];
+                final int nRows = Integer.parseInt(tableDataLine.split(TABLE_HEADER_SEPARATOR)[TABLE_ROWS_FIELD]);
+
+                switch (tableName) {
+                    case RecalUtils.ARGUMENT_REPORT_TABLE_TITLE:
+                        if (argumentTable == null) {
+                            reader.reset();
+                            initializeArguments(new GATKReportTable(reader, version));
+                        } else {
+                            skipTable(reader, nRows);
+                        }
+                        break;
+                    case RecalUtils.READGROUP_REPORT_TABLE_TITLE:
+                    case RecalUtils.QUALITY_SCORE_REPORT_TABLE_TITLE:
+                    case RecalUtils.ALL_COVARIATES_REPORT_TABLE_TITLE:
+                        if (argumentTable == null) {
+                            throw new UserException.MalformedFile(input, "The " + RecalUtils.ARGUMENT_REPORT_TABLE_TITLE + " table must come before the " + tableName + " table");
+                        }
+                        readTable(reader, input, tableName, nRows, readGroups);
+                        break;
+                    default:
+                        // the quantization table is recomputed from the gathered statistics
+                        skipTable(reader, nRows);
+                }
+            }
+        } catch (final IOException e) {
+            throw new UserException.CouldNotReadInputFile(input, e);
+        }
+    }
+
+    /**
+     * @return the gathered recalibration report, with its empirical and quantized qualities computed from the
+     *         gathered statistics
+     */
+    GATKReport toGATKReport() {
+        if (argumentTable == null) {
+            throw new GATKException("there is no usable data in any input file");
+        }
+        final SortedSet<String> allReadGroups = new TreeSet<>(readGroupIndices.keySet());
+        logTablesWithMissingReadGroups(allReadGroups);
+
+        final StandardCovariateList covariates = new StandardCovariateList(RAC, new ArrayList<>(allReadGroups));
+        final RecalibrationTables recalibrationTables = new RecalibrationTables(covariates, allReadGroups.size());
+
+        // the read groups are indexed in the order in which they were seen, but keyed in sorted order in the report
+        final int[] readGroupKeys = new int[readGroupIndices.size()];
+        readGroupIndices.forEach((readGroup, index) -> readGroupKeys[index] = covariates.getReadGroupCovariate().keyFromValue(readGroup));
+
+        boolean isEmpty = true;
+        for (int tableIndex = 0; tableIndex < tables.length; tableIndex++) {
+            isEmpty &= !tables[tableIndex].addTo(recalibrationTables.getTable(tableIndex), readGroupKeys);
+        }
+        if (isEmpty) {
+            throw new GATKException("there is no usable data in any input file");
+        }
+
+        final QuantizationInfo quantizationInfo = new QuantizationInfo(recalibrationTables, RAC.QUANTIZING_LEVELS);
+        return RecalUtils.createRecalibrationGATKReport(argumentTable, quantizationInfo, recalibrationTables, covariates);
+    }
+
+    private void initializeArguments(final GATKReportTable table) {
+        argumentTable = table;
+        RAC = RecalibrationReport.initializeArgumentCollectionTable(table);
+
+        // the keys of the covariates other than the read group do not depend on the read groups
+        final StandardCovariateList covariates = new StandardCovariateList(RAC, Collections.emptyList());
+        final int qualDimension = covariates.getQualityScoreCovariate().maximumKeyValue() + 1;
+        tableCovariates = new Covariate[covariates.size()];
+        tables = new TableAccumulator[covariates.size()];
+        for (final Covariate covariate : covariates) {
+            final int tableIndex = covariates.indexByClass(covariate.getClass());
+            tableCovariates[tableIndex] = covariate;
+            if (tableIndex == READ_GROUP_TABLE_INDEX) {
+                tables[tableIndex] = new TableAccumulator(tableIndex, 1, 1);
+            } else if (tableIndex == QUALITY_SCORE_TABLE_INDEX) {
+                tables[tableIndex] = new TableAccumulator(tableIndex, qualDimension, 1);
+            } else {
+                tables[tableIndex] = new TableAccumulator(tableIndex, qualDimension, covariate.maximumKeyValue() + 1);
+                covariateTableIndices.put(covariate.parseNameForReport(), tableIndex);
+            }
+        }
+    }
+
+    /**
+     * Add the rows of one of the recalibration tables to the accumulators
+     */
+    private void readTable(final BufferedReader reader, final File input, final String tableName, final int nRows, final BitSet readGroups) throws IOException {
+        final String columnLine = reader.readLine();
+        if (columnLine == null) {
+            throw new UserException.MalformedFile(input, "Missing columns of the " + tableName + " table");
+        }
+        final List<Integer> columnStarts = TextFormattingUtils.getWordStarts(columnLine);
+        final List<String> columnNames = Arrays.asList(TextFormattingUtils.splitFixedWidth(columnLine, columnStarts));
+
+        final boolean isReadGroupTable = tableName.equals(RecalUtils.READGROUP_REPORT_TABLE_TITLE);
+        final boolean isAllCovariatesTable = tableName.equals(RecalUtils.ALL_COVARIATES_REPORT_TABLE_TITLE);
+        final int readGroupColumn = columnIndex(columnNames, RecalUtils.READGROUP_COLUMN_NAME, input, tableName);
+        final int eventColumn = columnIndex(columnNames, RecalUtils.EVENT_TYPE_COLUMN_NAME, input, tableName);
+        final int observationsColumn = columnIndex(columnNames, RecalUtils.NUMBER_OBSERVATIONS_COLUMN_NAME, input, tableName);
+        final int errorsColumn = columnIndex(columnNames, RecalUtils.NUMBER_ERRORS_COLUMN_NAME, input, tableName);
+        // the estimated reported quality is only in the read group table, the other tables use the reported quality
+        final int estimatedQReportedColumn = isReadGroupTable ? columnIndex(columnNames, RecalUtils.ESTIMATED_Q_REPORTED_COLUMN_NAME, input, tableName) : -1;
+        final int qualColumn = isReadGroupTable ? -1 : columnIndex(columnNames, RecalUtils.QUALITY_SCORE_COLUMN_NAME, input, tableName);
+        final int covariateNameColumn = isAllCovariatesTable ? columnIndex(columnNames, RecalUtils.COVARIATE_NAME_COLUMN_NAME, input, tableName) : -1;
+        final int covariateValueColumn = isAllCovariatesTable ? columnIndex(columnNames, RecalUtils.COVARIATE_VALUE_COLUMN_NAME, input, tableName) : -1;
+
+        for (int row = 0; row < nRows; row++) {
+            final String line = reader.readLine();
+            if (line == null) {
+                throw new UserException.MalformedFile(input, "Missing rows in the " + tableName + " table");
+            }
+            final String[] fields = TextFormattingUtils.splitFixedWidth(line, columnStarts);
+            try {
+                final int readGroup = readGroupIndex(fields[readGroupColumn]);
+                readGroups.set(readGroup);
+                final int event = EventType.eventFrom(fields[eventColumn]).ordinal();
+                final long numObservations = Long.parseLong(fields[observationsColumn]);
+                final double numMismatches = Double.parseDouble(fields[errorsColumn]);
+
+                if (isReadGroupTable) {
+                    tables[READ_GROUP_TABLE_INDEX].add(readGroup, 0, 0, event, numObservations, numMismatches, Double.parseDouble(fields[estimatedQReportedColumn]));
+                } else {
+                    final int qual = tableCovariates[QUALITY_SCORE_TABLE_INDEX].keyFromValue(fields[qualColumn]);
+                    Utils.validateArg(qual >= 0 && qual <= tableCovariates[QUALITY_SCORE_TABLE_INDEX].maximumKeyValue(), () -> "Invalid quality score " + qual);
+                    if (isAllCovariatesTable) {
+                        final Integer tableIndex = covariateTableIndices.get(fields[covariateNameColumn]);
+                        Utils.validateArg(tableIndex != null, () -> "Unknown covariate " + fields[covariateNameColumn]);
+                        final int key = tableCovariates[tableIndex].keyFromValue(fields[covariateValueColumn]);
+                        tables[tableIndex].add(readGroup, qual, key, event, numObservations, numMismatches, qual);
+                    } else {
+                        tables[QUALITY_SCORE_TABLE_INDEX].add(readGroup, qual, 0, event, numObservations, numMismatches, qual);
+                    }
+                }
+            } catch (final IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+                throw new UserException.MalformedFile(input, "Could not parse row " + row + " of the " + tableName + " table: " + line, e);
+            }
+        }
+        reader.readLine(); // the empty line after each table
+    }
+
+    private static int columnIndex(final List<String> columnNames, final String columnName, final File input, final String tableName) {
+        final int index = columnNames.indexOf(columnName);
+        if (index < 0) {
+            throw new UserException.MalformedFile(input, "Missing column " + columnName + " in the " + tableName + " table");
+        }
+        return index;
+    }
+
+    private int readGroupIndex(final String readGroup) {
+        final Integer index = readGroupIndices.get(readGroup);
+        if (index != null) {
+            return index;
+        }
+        final int newIndex = readGroupIndices.size();
+        readGroupIndices.put(readGroup, newIndex);
+        return newIndex;
+    }
+
+    // skip the column names, rows and the empty line after a table whose header lines have been read
+    private static void skipTable(final BufferedReader reader, final int nRows) throws IOException {
+        for (int i = 0; i < nRows + 2; i++) {
+            reader.readLine();
+        }
+    }
+
+    /**
+     * helper function to output log messages if there are inputs that are missing read groups that were seen in the other inputs
+     * @param allReadGroups a set of all of the read groups across inputs
+     */
+    private void logTablesWithMissingReadGroups(final SortedSet<String> allReadGroups) {
+        for (final Map.Entry<File, BitSet> entry : inputReadGroups.entrySet()) {
+            final BitSet readGroups = entry.getValue();
+            if (allReadGroups.size() != readGroups.cardinality()) {
+                // Since this is not completely unexpected, more than debug, but less than a proper warning.
+                logger.info("Missing read group(s)" + ": " + entry.getKey().getAbsolutePath());
+                for (final String readGroup : allReadGroups) {
+                    if (!readGroups.get(readGroupIndices.get(readGroup))) {
+                        logger.info("  " + readGroup);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * The cells of one recalibration table, divided into blocks by read group and reported quality (by read group
+     * only for the read group table), as in {@link DenseRecalibrationTables}. Blocks are allocated on their first
+     * observation, and the number of blocks grows as new read groups are seen.
+     *
+     * As in DenseRecalibrationTables, a table whose blocks would be too large (see
+     * {@link DenseRecalibrationTables#isDense}) is kept sparse instead, as one {@link RecalDatum} per cell seen,
+     * combined with {@link RecalDatum#combine}.
+     */
+    private static final class TableAccumulator {
+        private final int tableIndex;
+        private final int blocksPerReadGroup;
+        private final int numKeys;
+
+        // dense tables only
+        private final int cellsPerBlock;
+        private long[][] observations = new long[0][];
+        private double[][] scaledMismatches = new double[0][];
+        private double[][] estimatedQReported = new double[0][];
+
+        // sparse tables only, by block * numKeys * NUM_EVENTS + key * NUM_EVENTS + event index
+        private final Map<Long, RecalDatum> sparseCells;
+
+        TableAccumulator(final int tableIndex, final int blocksPerReadGroup, final int numKeys) {
+            this.tableIndex = tableIndex;
+            this.blocksPerReadGroup = blocksPerReadGroup;
+            this.numKeys = numKeys;
+            if (DenseRecalibrationTables.isDense(numKeys, NUM_EVENTS)) {
+                this.cellsPerBlock = numKeys * NUM_EVENTS;
+                this.sparseCells = null;
+            } else {
+                this.cellsPerBlock = 0;
+                this.sparseCells = new HashMap<>();
+            }
+        }
+
+        void add(final int readGroup, final int qual, final int key, final int event, final long numObservations, final double numMismatches, final double reportedQuality) {
+            // out of range keys are rejected as malformed rows, which dense blocks would do by going out of bounds
+            Utils.validateArg(key >= 0 && key < numKeys, () -> "Invalid covariate key " + key);
+            final int block = readGroup * blocksPerReadGroup + qual;
+            if (sparseCells != null) {
+                addSparse(((long) block * numKeys + key) * NUM_EVENTS + event, numObservations, numMismatches, reportedQuality);
+                return;
+            }
+
+            final int cell = key * NUM_EVENTS + event;
+            if (block >= observations.length) {
+                final int newLength = Math.max(block + 1, 2 * observations.length);
+                observations = Arrays.copyOf(observations, newLength);
+                scaledMismatches = Arrays.copyOf(scaledMismatches, newLength);
+                estimatedQReported = Arrays.copyOf(estimatedQReported, newLength);
+            }
+            if (observations[block] == null) {
+                observations[block] = new long[cellsPerBlock];
+                scaledMismatches[block] = new double[cellsPerBlock];
+                estimatedQReported[block] = new double[cellsPerBlock];
+                Arrays.fill(estimatedQReported[block], NO_DATA);
+            }
+
+            final double previousQReported = estimatedQReported[block][cell];
+            if (previousQReported == NO_DATA) {
+                observations[block][cell] = numObservations;
+                scaledMismatches[block][cell] = numMismatches * RecalDatum.MULTIPLIER;
+                estimatedQReported[block][cell] = reportedQuality;
+            } else {
+                // exactly as RecalDatum.combine, including the round trip of the other datum's mismatches through its scaling
+                final double sumErrors = RecalDatum.expectedErrors(observations[block][cell], previousQReported)
+                        + RecalDatum.expectedErrors(numObservations, reportedQuality);
+                observations[block][cell] += numObservations;
+                scaledMismatches[block][cell] += ((numMismatches * RecalDatum.MULTIPLIER) / RecalDatum.MULTIPLIER) * RecalDatum.MULTIPLIER;
+                estimatedQReported[block][cell] = -10 * Math.log10(sumErrors / observations[block][cell]);
+            }
+        }
+
+        // the datum of each row, as RecalibrationReport reads it
+        private void addSparse(final long cell, final long numObservations, final double numMismatches, final double reportedQuality) {
+            final RecalDatum datum = new RecalDatum(numObservations, numMismatches, (byte) 1);
+            datum.setEstimatedQReported(reportedQuality);
+            final RecalDatum previous = sparseCells.putIfAbsent(cell, datum);
+            if (previous != null) {
+                previous.combine(datum);
+            }
+        }
+
+        /**
+         * Put one RecalDatum per accumulated cell in a table of {@link RecalibrationTables}
+         *
+         * @param target the table with the same index as this one
+         * @param readGroupKeys the key of each read group index
+         * @return whether any cell was put in the table
+         */
+        boolean addTo(final NestedIntegerArray<RecalDatum> target, final int[] readGroupKeys) {
+            if (sparseCells != null) {
+                for (final Map.Entry<Long, RecalDatum> entry : sparseCells.entrySet()) {
+                    final long cell = entry.getKey();
+                    final int block = (int) (cell / ((long) numKeys * NUM_EVENTS));
+                    final int key = (int) (cell / NUM_EVENTS % numKeys);
+                    put(target, entry.getValue(), readGroupKeys[block / blocksPerReadGroup], block % blocksPerReadGroup, key, (int) (cell % NUM_EVENTS));
+                }
+                return !sparseCells.isEmpty();
+            }
+
+            boolean added = false;
+            for (int block = 0; block < observations.length; block++) {
+                if (observations[block] == null) {
+                    continue;
+                }
+                final int readGroupKey = readGroupKeys[block / blocksPerReadGroup];
+                final int qual = block % blocksPerReadGroup;
+                for (int cell = 0; cell < cellsPerBlock; cell++) {
+                    if (estimatedQReported[block][cell] == NO_DATA) {
+                        continue;
+                    }
+                    final RecalDatum datum = RecalDatum.fromScaledMismatches(observations[block][cell], scaledMismatches[block][cell], (byte) 1);
+                    datum.setEstimatedQReported(estimatedQReported[block][cell]);
+                    put(target, datum, readGroupKey, qual, cell / NUM_EVENTS, cell % NUM_EVENTS);
+                    added = true;
+                }
+            }
+            return added;
+        }
+
+        private void put(final NestedIntegerArray<RecalDatum> target, final RecalDatum datum, final int readGroupKey, final int qual, final int key, final int eventIndex) {
+            if (tableIndex == READ_GROUP_TABLE_INDEX) {
+                target.put(datum, readGroupKey, eventIndex);
+            } else if (tableIndex == QUALITY_SCORE_TABLE_INDEX) {
+                target.put(datum, readGroupKey, qual, eventIndex);
+            } else {
+                target.put(datum, readGroupKey, qual, key, eventIndex);
+            }
+        }
+    }
+}
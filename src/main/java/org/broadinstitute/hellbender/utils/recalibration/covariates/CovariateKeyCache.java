@@ -7,6 +7,10 @@ import org.broadinstitute.hellbender.utils.Utils;
  * Use an LRU cache to keep cache of keys (int[][][]) arrays for each read length we've seen.
  * The cache allows us to avoid the expense of recreating these arrays for every read.  The LRU
  * keeps the total number of cached arrays to less than LRU_CACHE_SIZE.
+ *
+ * Also holds scratch buffers that the covariates reuse from read to read instead of allocating
+ * intermediate arrays for each read. This makes the cache a per-thread workspace: it is not thread-safe,
+ * and the contents of the scratch buffers are only valid until the next covariate computation.
  */
 public final class CovariateKeyCache {
 
@@ -17,6 +21,10 @@ public final class CovariateKeyCache {
 
     private final LRUCache<Integer, int[][][]> keysCache = new LRUCache<>(LRU_CACHE_SIZE);
 
+    private byte[] basesBuffer = new byte[0];
+    private int[] mismatchKeysBuffer = new int[0];
+    private int[] indelKeysBuffer = new int[0];
+
     /**
      * Get the cached value for the given readlength or null is no value is cached.
      */
@@ -38,4 +46,34 @@ public final class CovariateKeyCache {
     public int size() {
         return keysCache.size();
     }
+
+    /**
+     * Returns a scratch buffer for the bases of a read, of at least the given length.
+     */
+    public byte[] getBasesBuffer(final int length) {
+        if (basesBuffer.length < length) {
+            basesBuffer = new byte[length];
+        }
+        return basesBuffer;
+    }
+
+    /**
+     * Returns a scratch buffer for the base substitution keys of a read, of at least the given length.
+     */
+    public int[] getMismatchKeysBuffer(final int length) {
+        if (mismatchKeysBuffer.length < length) {
+            mismatchKeysBuffer = new int[length];
+        }
+        return mismatchKeysBuffer;
+    }
+
+    /**
+     * Returns a scratch buffer for the indel keys of a read, of at least the given length.
+     */
+    public int[] getIndelKeysBuffer(final int length) {
+        if (indelKeysBuffer.length < length) {
+            indelKeysBuffer = new int[length];
+        }
+        return indelKeysBuffer;
+    }
 }
@@ -0,0 +1,162 @@
+package org.broadinstitute.hellbender.utils.reference;
+
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.iterators.ByteArrayIterator;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+
+/**
+ * A read-only view of the reference bases of a region of a contig, over an array owned by the source of the bases
+ * (for instance the cache of a {@link org.broadinstitute.hellbender.utils.fasta.CachingIndexedFastaSequenceFile}),
+ * so that querying the reference does not copy the bases.
+ *
+ * The bases of a view never change, but they are shared: use {@link #getBases()} to get a copy that can be modified
+ * or kept after the region is done with. Positions are 1-based and inclusive, as in {@link SimpleInterval}, and a
+ * view may be empty.
+ */
+public final class ReferenceBasesView implements Iterable<Byte> {
+    private final String contig;
+    private final int start;
+    private final byte[] bases;
+    private final int offset;
+    private final int length;
+
+    /**
+     * @param contig contig of the bases
+     * @param start position on the contig of the first base of the view
+     * @param bases array holding the bases of the view, which must not be modified afterwards
+     * @param offset index in bases of the first base of the view
+     * @param length number of bases in the view
+     */
+    public ReferenceBasesView(final String contig, final int start, final byte[] bases, final int offset, final int length) {
+        Utils.nonNull(contig);
+        Utils.nonNull(bases);
+        Utils.validateArg(offset >= 0 && length >= 0 && offset + length <= bases.length,
+                () -> String.format("bases %d to %d are outside of an array of %d bases", offset, offset + length, bases.length));
+        this.contig = contig;
+        this.start = start;
+        this.bases = bases;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * Creates a view of all the bases of an array
+     */
+    public ReferenceBasesView(final SimpleInterval interval, final byte[] bases) {
+        this(Utils.nonNull(interval).getContig(), interval.getStart(), bases, 0, bases.length);
+        Utils.validateArg(interval.size() == bases.length, () -> "interval " + interval + " must have as many bases as the array (" + bases.length + ")");
+    }
+
+    public String getContig() {
+        return contig;
+    }
+
+    /**
+     * @return position of the first base of the view
+     */
+    public int getStart() {
+        return start;
+    }
+
+    /**
+     * @return position of the last base of the view, which is start - 1 for an empty view
+     */
+    public int getEnd() {
+        return start + length - 1;
+    }
+
+    /**
+     * @return the number of bases in the view
+     */
+    public int length() {
+        return length;
+    }
+
+    public boolean isEmpty() {
+        return length == 0;
+    }
+
+    /**
+     * @param index 0-based index of the base in the view
+     * @return the base at that index
+     */
+    public byte get(final int index) {
+        Utils.validIndex(index, length);
+        return bases[offset + index];
+    }
+
+    /**
+     * @param position 1-based position on the contig, between {@link #getStart} and {@link #getEnd}
+     * @return the base at that position
+     */
+    public byte getBaseAt(final int position) {
+        return get(position - start);
+    }
+
+    /**
+     * @return a view of the bases from fromIndex (inclusive) to toIndex (exclusive), sharing the bases of this view
+     */
+    public ReferenceBasesView subView(final int fromIndex, final int toIndex) {
+        Utils.validateArg(0 <= fromIndex && fromIndex <= toIndex && toIndex <= length,
+                () -> String.format("invalid sub-view [%d, %d) of a view of %d bases", fromIndex, toIndex, length));
+        return new ReferenceBasesView(contig, start + fromIndex, bases, offset + fromIndex, toIndex - fromIndex);
+    }
+
+    /**
+     * @return a view of the bases of an interval within this view, sharing the bases of this view
+     */
+    public ReferenceBasesView subView(final SimpleInterval interval) {
+        Utils.validateArg(interval.getContig().equals(contig) && interval.getStart() >= start && interval.getEnd() <= getEnd(),
+                () -> "interval " + interval + " is not within " + contig + ":" + start + "-" + getEnd());
+        return subView(interval.getStart() - start, interval.getEnd() - start + 1);
+    }
+
+    /**
+     * @return a copy of the bases of the view
+     */
+    public byte[] getBases() {
+        return Arrays.copyOfRange(bases, offset, offset + length);
+    }
+
+    /**
+     * Copies the bases of the view to an array
+     *
+     * @param destination the array to which to copy the bases
+     * @param destinationOffset index in destination of the first base
+     */
+    public void copyTo(final byte[] destination, final int destinationOffset) {
+        System.arraycopy(bases, offset, destination, destinationOffset, length);
+    }
+
+    /**
+     * @return a read-only buffer over the bases of the view, without copying them
+     */
+    public ByteBuffer asByteBuffer() {
+        return ByteBuffer.wrap(bases, offset, length).slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * Iterating over the bases boxes each of them: prefer {@link #get} in loops over many bases.
+     */
+    @Override
+    public Iterator<Byte> iterator() {
+        return length == 0 ? Collections.emptyIterator() : new ByteArrayIterator(bases, offset, offset + length);
+    }
+
+    /**
+     * @return the bases of the view, as a String
+     */
+    public String getBaseString() {
+        return new String(bases, offset, length);
+    }
+
+    @Override
+    public String toString() {
+        return "ReferenceBasesView{" + contig + ":" + start + "-" + getEnd() + "}";
+    }
+}
@@ -41,6 +41,7 @@ public final class GATKVCFConstants {
     public static final String SPANNING_DELETIONS_KEY =             "Dels";
     public static final String ORIGINAL_DP_KEY =                    "DP_Orig"; //SelectVariants
     public static final String DOWNSAMPLED_KEY =                    "DS";
+    public static final String ASSEMBLY_REGION_BUDGET_KEY =         "REGION_BUDGET"; //HaplotypeCaller
     public static final String EVENT_COUNT_IN_HAPLOTYPE_KEY =       "ECNT"; //M2
     public static final String FISHER_STRAND_KEY =                  "FS";
     public static final String AS_FISHER_STRAND_KEY =               "AS_FS";
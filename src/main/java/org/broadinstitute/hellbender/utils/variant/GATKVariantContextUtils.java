@@ -1,6 +1,7 @@
 package org.broadinstitute.hellbender.utils.variant;
 
 import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.util.BlockCompressedOutputStream;
 import htsjdk.samtools.util.CollectionUtil;
 import htsjdk.samtools.util.IOUtil;
 import htsjdk.samtools.util.Locatable;
@@ -24,6 +25,7 @@ import org.broadinstitute.hellbender.utils.BaseUtils;
 import org.broadinstitute.hellbender.utils.MathUtils;
 import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.param.ParamUtils;
+import org.broadinstitute.hellbender.utils.variant.writers.ParallelCompressionVCFWriter;
 
 import java.io.File;
 import java.io.Serializable;
@@ -90,8 +92,42 @@ public final class GATKVariantContextUtils {
             final SAMSequenceDictionary referenceDictionary,
             final boolean createMD5,
             final Options... options)
+    {
+        return createVCFWriter(outFile, referenceDictionary, createMD5, 0, options);
+    }
+
+    /**
+     * Creates a VariantContextWriter like {@link #createVCFWriter(File, SAMSequenceDictionary, boolean, Options...)},
+     * which compresses block compressed VCF output on a pool of threads.
+     *
+     * The compression threads are only used for block compressed VCF output without MD5; other outputs are written
+     * by the htsjdk writers, on the calling thread.
+     *
+     * @param outFile output File for this writer. May not be null.
+     * @param referenceDictionary required if on the fly indexing is set, otherwise can be null
+     * @param createMD5 true if an md5 file should be created
+     * @param compressionThreads number of threads compressing block compressed VCF output (0 to compress it on the calling thread)
+     * @param options variable length list of additional Options to be set for this writer
+     * @returns VariantContextWriter must be closed by the caller
+     */
+    public static VariantContextWriter createVCFWriter(
+            final File outFile,
+            final SAMSequenceDictionary referenceDictionary,
+            final boolean createMD5,
+            final int compressionThreads,
+            final Options... options)
     {
         Utils.nonNull(outFile);
+        Utils.validateArg(compressionThreads >= 0, "compressionThreads must be >= 0");
+
+        if (compressionThreads > 0 && getVariantFileTypeFromExtension(outFile) == VariantContextWriterBuilder.OutputType.BLOCK_COMPRESSED_VCF) {
+            // the parallel writer does not compute an MD5
+            if (!createMD5) {
+                return new ParallelCompressionVCFWriter(outFile.toPath(), referenceDictionary,
+                        BlockCompressedOutputStream.getDefaultCompressionLevel(), compressionThreads, options);
+            }
+            logger.info("Compressing " + outFile + " on a single thread, since an MD5 is requested");
+        }
 
         VariantContextWriterBuilder vcWriterBuilder =
                 new VariantContextWriterBuilder().clearOptions().setOutputFile(outFile);
@@ -0,0 +1,205 @@
+package org.broadinstitute.hellbender.utils.variant.writers;
+
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.util.BlockCompressedOutputStream;
+import htsjdk.samtools.util.LittleEndianOutputStream;
+import htsjdk.samtools.util.RuntimeIOException;
+import htsjdk.tribble.index.Index;
+import htsjdk.tribble.index.tabix.TabixFormat;
+import htsjdk.tribble.index.tabix.TabixIndexCreator;
+import htsjdk.tribble.util.TabixUtils;
+import htsjdk.variant.variantcontext.VariantContext;
+import htsjdk.variant.variantcontext.writer.Options;
+import htsjdk.variant.variantcontext.writer.VariantContextWriter;
+import htsjdk.variant.variantcontext.writer.VariantContextWriterBuilder;
+import htsjdk.variant.vcf.VCFHeader;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.io.ParallelBlockCompressedOutputStream;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * A block compressed VCF writer whose BGZF blocks are compressed on a pool of threads (see
+ * {@link ParallelBlockCompressedOutputStream}), for tools whose output is limited by the speed of compressing it on
+ * a single thread.
+ *
+ * The records are encoded by the htsjdk VCF writer, writing uncompressed text to the parallel block stream. When
+ * requested, the tabix index is built while writing, as htsjdk does: the virtual file pointer of a record is only
+ * known once the blocks before it have been compressed, so the records are handed to the index creator as soon as
+ * the address of their first block is known, in the order in which they were added.
+ */
+public final class ParallelCompressionVCFWriter implements VariantContextWriter {
+    private final Path outputPath;
+    private final ParallelBlockCompressedOutputStream blockStream;
+    private final VariantContextWriter vcfWriter;
+    private final TabixIndexCreator indexCreator;
+
+    // records written but not yet indexed, waiting for the address of their first block, followed on closing by the
+    // end of the last record
+    private final ArrayDeque<PendingVariant> pendingVariants = new ArrayDeque<>();
+    // addresses of the blocks written so far, from firstAddressedBlock on
+    private final ArrayDeque<Long> blockAddresses = new ArrayDeque<>();
+    private long firstAddressedBlock = 0;
+    // virtual file pointer of the end of the last record, known once the last blocks are written
+    private long endFilePointer = -1;
+
+    private boolean closed = false;
+
+    /**
+     * @param outputPath the block compressed VCF file to write
+     * @param sequenceDictionary dictionary of the contigs of the records, required to create an index
+     * @param compressionLevel deflate compression level of the BGZF blocks
+     * @param compressionThreads number of threads compressing the BGZF blocks
+     * @param options options of the htsjdk writer; a tabix index is written next to the output if
+     *                {@link Options#INDEX_ON_THE_FLY} is given, which requires the records to be sorted
+     */
+    public ParallelCompressionVCFWriter(final Path outputPath, final SAMSequenceDictionary sequenceDictionary,
+                                        final int compressionLevel, final int compressionThreads,
+                                        final Options... options) {
+        this.outputPath = Utils.nonNull(outputPath);
+        final boolean createIndex = Arrays.asList(options).contains(Options.INDEX_ON_THE_FLY);
+        Utils.validateArg(!createIndex || sequenceDictionary != null, "A sequence dictionary is required to create an index");
+
+        this.indexCreator = createIndex ? new TabixIndexCreator(sequenceDictionary, TabixFormat.VCF) : null;
+        try {
+            this.blockStream = new ParallelBlockCompressedOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(outputPath)), compressionLevel,
+                    compressionThreads, createIndex ? this::blocksWritten : null);
+        } catch (final IOException e) {
+            throw new UserException.CouldNotCreateOutputFile(outputPath.toUri().toString(), "could not open the output", e);
+        }
+        blockAddresses.add(0L);
+
+        // the htsjdk writer writes each record to the block stream as it is added, so that the block stream tells
+        // where it starts; the index is built here, not by the htsjdk writer
+        final VariantContextWriterBuilder builder = new VariantContextWriterBuilder().clearOptions().setOutputStream(blockStream);
+        for (final Options option : options) {
+            if (option != Options.INDEX_ON_THE_FLY) {
+                builder.setOption(option);
+            }
+        }
+        this.vcfWriter = builder.build();
+    }
+
+    /**
+     * @return the path of the index of the block compressed VCF file vcfPath, named as htsjdk names it
+     * (foo.vcf.gz is indexed by foo.vcf.gz.tbi)
+     */
+    public static Path getIndexPath(final Path vcfPath) {
+        return vcfPath.resolveSibling(vcfPath.getFileName().toString() + TabixUtils.STANDARD_INDEX_EXTENSION);
+    }
+
+    @Override
+    public void writeHeader(final VCFHeader header) {
+        vcfWriter.writeHeader(header);
+    }
+
+    @Override
+    public void setHeader(final VCFHeader header) {
+        vcfWriter.setHeader(header);
+    }
+
+    @Override
+    public void add(final VariantContext vc) {
+        Utils.nonNull(vc);
+        if (indexCreator != null) {
+            pendingVariants.add(new PendingVariant(vc, blockStream.getBlockNumber(), blockStream.getBlockOffset()));
+        }
+        vcfWriter.add(vc);
+        if (indexCreator != null) {
+            indexResolvedVariants();
+        }
+    }
+
+    // called by the block stream, as blocks are written
+    private void blocksWritten(final long numBlocksWritten, final long nextBlockAddress) {
+        blockAddresses.add(nextBlockAddress);
+        indexResolvedVariants();
+    }
+
+    private void indexResolvedVariants() {
+        final long lastAddressedBlock = firstAddressedBlock + blockAddresses.size() - 1;
+        while (!pendingVariants.isEmpty() && pendingVariants.peekFirst().startBlock <= lastAddressedBlock) {
+            final PendingVariant pending = pendingVariants.removeFirst();
+            final long filePointer = virtualFilePointer(pending.startBlock, pending.startOffset);
+            if (pending.variant != null) {
+                indexCreator.addFeature(pending.variant, filePointer);
+            } else {
+                endFilePointer = filePointer;
+            }
+        }
+        // the addresses of the blocks before the first pending record are no longer needed
+        final long firstNeededBlock = pendingVariants.isEmpty() ? lastAddressedBlock : pendingVariants.peekFirst().startBlock;
+        while (firstAddressedBlock < firstNeededBlock) {
+            blockAddresses.removeFirst();
+            firstAddressedBlock++;
+        }
+    }
+
+    private long virtualFilePointer(final long block, final int offset) {
+        long address = 0;
+        long i = firstAddressedBlock;
+        for (final long blockAddress : blockAddresses) {
+            if (i++ == block) {
+                address = blockAddress;
+                break;
+            }
+        }
+        return address << 16 | offset;
+    }
+
+    @Override
+    public boolean checkError() {
+        return vcfWriter.checkError();
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (indexCreator != null) {
+            pendingVariants.add(new PendingVariant(null, blockStream.getBlockNumber(), blockStream.getBlockOffset()));
+        }
+        vcfWriter.close();
+        try {
+            blockStream.close();
+        } catch (final IOException e) {
+            throw new RuntimeIOException(e);
+        }
+        if (indexCreator != null) {
+            writeIndex(indexCreator.finalizeIndex(endFilePointer));
+        }
+    }
+
+    private void writeIndex(final Index index) {
+        final Path indexPath = getIndexPath(outputPath);
+        try (final LittleEndianOutputStream indexStream = new LittleEndianOutputStream(
+                new BlockCompressedOutputStream(Files.newOutputStream(indexPath), (File) null))) {
+            index.write(indexStream);
+        } catch (final IOException e) {
+            throw new UserException.CouldNotCreateOutputFile(indexPath.toUri().toString(), "could not write the index", e);
+        }
+    }
+
+    private static final class PendingVariant {
+        // null for the end of the last record
+        private final VariantContext variant;
+        private final long startBlock;
+        private final int startOffset;
+
+        PendingVariant(final VariantContext variant, final long startBlock, final int startOffset) {
+            this.variant = variant;
+            this.startBlock = startBlock;
+            this.startOffset = startOffset;
+        }
+    }
+}
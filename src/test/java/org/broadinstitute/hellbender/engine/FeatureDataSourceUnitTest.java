@@ -1,8 +1,11 @@
 package org.broadinstitute.hellbender.engine;
 
 import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.tribble.AbstractFeatureReader;
 import htsjdk.tribble.Feature;
+import htsjdk.tribble.FeatureReader;
 import htsjdk.variant.variantcontext.VariantContext;
+import htsjdk.variant.vcf.VCFCodec;
 import htsjdk.variant.vcf.VCFFileReader;
 import htsjdk.variant.vcf.VCFHeader;
 import org.apache.commons.lang3.tuple.Pair;
@@ -384,6 +387,33 @@ public final class FeatureDataSourceUnitTest extends GATKBaseTest {
         }
     }
 
+    /**
+     * Tests that prefetching the Features of the traversal intervals returns the same Features for the same queries,
+     * including queries that go backwards or leave the traversal intervals
+     */
+    @Test(dataProvider = "SingleDataSourceMultipleQueriesTestData")
+    public void testSingleDataSourceMultipleQueriesWithPrefetching( final List<Pair<SimpleInterval, List<String>>> testQueries ) {
+        try (final FeatureDataSource<VariantContext> featureSource = new FeatureDataSource<>(QUERY_TEST_VCF)) {
+            featureSource.enablePrefetching(Arrays.asList(new SimpleInterval("1", 1, 1300), new SimpleInterval("2", 1, 750),
+                                                          new SimpleInterval("3", 1, 400)));
+
+            for ( Pair<SimpleInterval, List<String>> testQuery : testQueries ) {
+                final SimpleInterval queryInterval = testQuery.getLeft();
+                final List<String> expectedVariantIDs = testQuery.getRight();
+
+                final List<VariantContext> queryResults = featureSource.queryAndPrefetch(queryInterval);
+                checkVariantQueryResults(queryResults, expectedVariantIDs, queryInterval);
+            }
+        }
+    }
+
+    @Test(expectedExceptions = UserException.class)
+    public void testHandlePrefetchingOverUnindexedFile() {
+        try ( FeatureDataSource<VariantContext> featureSource = new FeatureDataSource<>(UNINDEXED_VCF) ) {
+            featureSource.enablePrefetching(Collections.singletonList(new SimpleInterval("1", 1, 1)));
+        }
+    }
+
     @DataProvider(name = "GVCFQueryTestData")
     public Object[][] getGVCFQueryTestData() {
 
@@ -676,4 +706,83 @@ public final class FeatureDataSourceUnitTest extends GATKBaseTest {
      * End of direct testing on the FeatureCache inner class
      *********************************************************/
 
+    /**************************************************
+     * Direct testing on the PrefetchingFeatureCache class
+     **************************************************/
+
+    @DataProvider(name = "PrefetchingBlocksDataProvider")
+    public Object[][] getPrefetchingBlocksData() {
+        // intervals, padding, block size, expected blocks
+        return new Object[][] {
+                { Arrays.asList(new SimpleInterval("1", 50, 60)), 10, 100,
+                  Arrays.asList(new SimpleInterval("1", 40, 70)) },
+                { Arrays.asList(new SimpleInterval("1", 5, 60)), 10, 100,
+                  Arrays.asList(new SimpleInterval("1", 1, 70)) },
+                // nearby intervals are fetched together
+                { Arrays.asList(new SimpleInterval("1", 50, 60), new SimpleInterval("1", 100, 110)), 10, 100,
+                  Arrays.asList(new SimpleInterval("1", 40, 120)) },
+                { Arrays.asList(new SimpleInterval("1", 50, 60), new SimpleInterval("1", 200, 210)), 10, 100,
+                  Arrays.asList(new SimpleInterval("1", 40, 70), new SimpleInterval("1", 190, 220)) },
+                { Arrays.asList(new SimpleInterval("1", 50, 60), new SimpleInterval("2", 50, 60)), 10, 100,
+                  Arrays.asList(new SimpleInterval("1", 40, 70), new SimpleInterval("2", 40, 70)) },
+                // large intervals are split into blocks overlapping by the padding
+                { Arrays.asList(new SimpleInterval("1", 1, 250)), 10, 100,
+                  Arrays.asList(new SimpleInterval("1", 1, 100), new SimpleInterval("1", 91, 190), new SimpleInterval("1", 181, 260)) },
+                { Arrays.asList(new SimpleInterval("1", 1, 250)), 0, 100,
+                  Arrays.asList(new SimpleInterval("1", 1, 100), new SimpleInterval("1", 101, 200), new SimpleInterval("1", 201, 250)) }
+        };
+    }
+
+    @Test(dataProvider = "PrefetchingBlocksDataProvider")
+    public void testPrefetchingBlocks( final List<SimpleInterval> intervals, final int padding, final int blockSize, final List<SimpleInterval> expectedBlocks ) {
+        Assert.assertEquals(PrefetchingFeatureCache.makeBlocks(intervals, padding, blockSize), expectedBlocks);
+    }
+
+    @Test
+    public void testPrefetchedBlockOverlappingFeatures() {
+        final List<ArtificialTestFeature> features = Arrays.asList(new ArtificialTestFeature("1", 1, 100), new ArtificialTestFeature("1", 50, 150),
+                new ArtificialTestFeature("1", 60, 60), new ArtificialTestFeature("1", 200, 300), new ArtificialTestFeature("1", 210, 220),
+                new ArtificialTestFeature("1", 350, 400), new ArtificialTestFeature("1", 350, 350));
+        final PrefetchingFeatureCache.FeatureBlock<ArtificialTestFeature> block =
+                new PrefetchingFeatureCache.FeatureBlock<>(new SimpleInterval("1", 1, 500), features.iterator());
+
+        for ( int start = 1; start <= 500; start += 7 ) {
+            for ( int end = start; end <= 500; end += 13 ) {
+                final SimpleInterval query = new SimpleInterval("1", start, end);
+                final List<ArtificialTestFeature> expected = features.stream().filter(feature -> feature.getStart() <= query.getEnd() && feature.getEnd() >= query.getStart()).collect(Collectors.toList());
+                Assert.assertEquals(block.getOverlappingFeatures(query), expected, query.toString());
+            }
+        }
+    }
+
+    @Test
+    public void testPrefetchingCacheHitsAndMisses() {
+        final FeatureReader<VariantContext> reader = AbstractFeatureReader.getFeatureReader(QUERY_TEST_VCF.getAbsolutePath(), new VCFCodec());
+        try ( final PrefetchingFeatureCache<VariantContext> cache = new PrefetchingFeatureCache<>(reader, "test",
+                Arrays.asList(new SimpleInterval("1", 100, 300), new SimpleInterval("1", 1000, 1200), new SimpleInterval("2", 549, 650)), 10, 100) ) {
+            Assert.assertEquals(cache.getNumBlocks(), 8);
+
+            Assert.assertEquals(getIDs(cache.getFeatures(new SimpleInterval("1", 100, 150))), Arrays.asList("a"));
+            Assert.assertEquals(getIDs(cache.getFeatures(new SimpleInterval("1", 200, 203))), Arrays.asList("b", "c", "d"));
+            Assert.assertEquals(getIDs(cache.getFeatures(new SimpleInterval("1", 999, 1000))), Arrays.asList("i", "j", "k"));
+            // outside of the traversal intervals
+            Assert.assertNull(cache.getFeatures(new SimpleInterval("1", 2000, 3000)));
+            Assert.assertNull(cache.getFeatures(new SimpleInterval("3", 1, 300)));
+            Assert.assertEquals(getIDs(cache.getFeatures(new SimpleInterval("2", 549, 560))), Arrays.asList("q"));
+            // before the current block
+            Assert.assertNull(cache.getFeatures(new SimpleInterval("1", 100, 200)));
+
+            Assert.assertEquals(cache.getNumCacheHits(), 4);
+            Assert.assertEquals(cache.getNumCacheMisses(), 3);
+        }
+    }
+
+    private static List<String> getIDs( final List<VariantContext> variants ) {
+        return variants.stream().map(VariantContext::getID).collect(Collectors.toList());
+    }
+
+    /*********************************************************
+     * End of direct testing on the PrefetchingFeatureCache class
+     *********************************************************/
+
 }
@@ -281,6 +281,22 @@ public final class FeatureManagerUnitTest extends GATKBaseTest {
         Assert.assertEquals(variants.get(4).getStart(),280);
     }
 
+    @Test
+    public void testPrefetchingSkipsInputsWithoutIndex() {
+        final ValidFeatureArgumentSource toolInstance = new ValidFeatureArgumentSource();
+        toolInstance.variantContextFeatureInput = new FeatureInput<>(FEATURE_MANAGER_TEST_DIRECTORY + "feature_data_source_test.wo-idx.vcf");
+        toolInstance.bedListFeatureInput.add(new FeatureInput<>(FEATURE_MANAGER_TEST_DIRECTORY + "minimal_bed_file.bed"));
+
+        try (final FeatureManager manager = new FeatureManager(toolInstance)) {
+            // the unindexed VCF is skipped rather than failing, while the indexed BED file is prefetched
+            manager.enablePrefetching(Collections.singletonList(new SimpleInterval("1", 1, 1000)));
+
+            final List<VariantContext> variants = Utils.stream(manager.getFeatureIterator(toolInstance.variantContextFeatureInput)).collect(Collectors.toList());
+            Assert.assertEquals(variants.size(), 26);
+            Assert.assertEquals(manager.getFeatures(toolInstance.bedListFeatureInput.get(0), new SimpleInterval("1", 1, 1)).size(), 1);
+        }
+    }
+
     @Test(expectedExceptions = GATKException.class)
     public void testHandleRequestForNonExistentFeatureInput() {
         FeatureManager manager = new FeatureManager(new ValidFeatureArgumentSource());
@@ -0,0 +1,203 @@
+package org.broadinstitute.hellbender.engine;
+
+import com.google.common.jimfs.Configuration;
+import com.google.common.jimfs.Jimfs;
+import htsjdk.samtools.SAMException;
+import htsjdk.samtools.SAMSequenceRecord;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.io.IOUtils;
+import org.broadinstitute.hellbender.utils.reference.ReferenceBasesView;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public final class MemoryMappedReferenceSourceUnitTest extends GATKBaseTest {
+    private static final Path TEST_REFERENCE = IOUtils.getPath(hg19MiniReference);
+    private static final Path TEST_REFERENCE_BGZ = IOUtils.getPath(hg19MiniReference + ".gz");
+    // lower case bases and IUPAC codes, which must be normalized as by ReferenceFileSource
+    private static final Path AMBIGUITY_CODES_REFERENCE = IOUtils.getPath(publicTestDir + "org/broadinstitute/hellbender/engine/ambiguityCodes.fasta");
+
+    private static MemoryMappedReferenceSource openWithTempCache(final Path fasta) {
+        return new MemoryMappedReferenceSource(fasta, createTempPath("memoryMappedReference", MemoryMappedReferenceSource.CACHE_FILE_EXTENSION));
+    }
+
+    @DataProvider(name = "references")
+    public Object[][] references() {
+        return new Object[][]{{TEST_REFERENCE}, {TEST_REFERENCE_BGZ}, {AMBIGUITY_CODES_REFERENCE}};
+    }
+
+    @Test(dataProvider = "references")
+    public void testSameBasesAsFileSource(final Path fasta) {
+        final Random random = new Random(5);
+        try (final ReferenceDataSource expected = new ReferenceFileSource(fasta);
+             final MemoryMappedReferenceSource actual = openWithTempCache(fasta)) {
+            Assert.assertEquals(actual.getSequenceDictionary(), expected.getSequenceDictionary());
+            for (final SAMSequenceRecord contig : expected.getSequenceDictionary().getSequences()) {
+                final String name = contig.getSequenceName();
+                final int length = contig.getSequenceLength();
+                Assert.assertEquals(actual.queryAndPrefetch(name, 1, length).getBases(), expected.queryAndPrefetch(name, 1, length).getBases());
+                Assert.assertEquals(actual.queryAndPrefetch(name, 1, length).getContigIndex(), contig.getSequenceIndex());
+
+                for (int i = 0; i < 100; i++) {
+                    final int start = 1 + random.nextInt(length);
+                    final int stop = Math.min(length, start + random.nextInt(500));
+                    final byte[] expectedBases = expected.queryAndPrefetch(name, start, stop).getBases();
+                    Assert.assertEquals(actual.queryAndPrefetch(name, start, stop).getBases(), expectedBases);
+
+                    final ReferenceBasesView view = actual.queryBases(name, start, stop);
+                    Assert.assertEquals(view.getStart(), start);
+                    Assert.assertEquals(view.getBases(), expectedBases);
+
+                    final ByteBuffer buffer = actual.getBasesBuffer(name, start, stop);
+                    Assert.assertTrue(buffer.isReadOnly());
+                    Assert.assertEquals(buffer.remaining(), expectedBases.length);
+                    Assert.assertEquals(buffer.get(buffer.position()), expectedBases[0]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testCacheFileIsReusedUntilOutOfDate() throws IOException {
+        final Path cachePath = createTempPath("memoryMappedReference", MemoryMappedReferenceSource.CACHE_FILE_EXTENSION);
+        new MemoryMappedReferenceSource(TEST_REFERENCE, cachePath).close();
+        final long cacheSize = Files.size(cachePath);
+
+        // an up to date cache file is not rewritten
+        final FileTime laterTime = FileTime.fromMillis(Files.getLastModifiedTime(TEST_REFERENCE).toMillis() + 1000);
+        Files.setLastModifiedTime(cachePath, laterTime);
+        new MemoryMappedReferenceSource(TEST_REFERENCE, cachePath).close();
+        Assert.assertEquals(Files.getLastModifiedTime(cachePath), laterTime);
+
+        // a cache file older than the fasta is rebuilt
+        Files.setLastModifiedTime(cachePath, FileTime.fromMillis(Files.getLastModifiedTime(TEST_REFERENCE).toMillis() - 1000));
+        new MemoryMappedReferenceSource(TEST_REFERENCE, cachePath).close();
+        Assert.assertTrue(Files.getLastModifiedTime(cachePath).compareTo(Files.getLastModifiedTime(TEST_REFERENCE)) >= 0);
+
+        // as is a cache file of the wrong size
+        Files.write(cachePath, new byte[10]);
+        try (final MemoryMappedReferenceSource source = new MemoryMappedReferenceSource(TEST_REFERENCE, cachePath)) {
+            Assert.assertEquals(Files.size(cachePath), cacheSize);
+            Assert.assertEquals(new String(source.queryAndPrefetch("1", 11041, 11045).getBases()), "GCAAA");
+        }
+    }
+
+    @Test
+    public void testDefaultCacheFileIsNextToFasta() throws IOException {
+        final File directory = createTempDir("memoryMappedReference");
+        final Path fasta = directory.toPath().resolve("hg19mini.fasta");
+        Files.copy(TEST_REFERENCE, fasta);
+        Files.copy(IOUtils.getPath(hg19MiniReference + ".fai"), directory.toPath().resolve("hg19mini.fasta.fai"));
+        Files.copy(IOUtils.getPath(publicTestDir + "hg19mini.dict"), directory.toPath().resolve("hg19mini.dict"));
+
+        final Path cachePath = directory.toPath().resolve("hg19mini.fasta" + MemoryMappedReferenceSource.CACHE_FILE_EXTENSION);
+        Assert.assertEquals(MemoryMappedReferenceSource.getDefaultCachePath(fasta), cachePath);
+        try (final ReferenceDataSource source = ReferenceDataSource.ofMemoryMapped(fasta)) {
+            Assert.assertTrue(Files.exists(cachePath));
+            Assert.assertEquals(new String(source.queryAndPrefetch("1", 11210, 11220).getBases()), "CGGTGCTGTGC");
+        }
+    }
+
+    @Test(expectedExceptions = UserException.class)
+    public void testNoDefaultCacheFileForNonLocalFasta() throws IOException {
+        try (final FileSystem jimfs = Jimfs.newFileSystem(Configuration.unix())) {
+            final Path fasta = jimfs.getPath("hg19mini.fasta");
+            Files.copy(TEST_REFERENCE, fasta);
+            MemoryMappedReferenceSource.getDefaultCachePath(fasta);
+        }
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void testQueryAfterClose() {
+        final MemoryMappedReferenceSource source = openWithTempCache(TEST_REFERENCE);
+        source.close();
+        source.queryAndPrefetch("1", 11041, 11045);
+    }
+
+    @Test
+    public void testConcurrentQueries() throws Exception {
+        final int numQueries = 1000;
+        final List<String> contigs = new ArrayList<>();
+        final List<int[]> intervals = new ArrayList<>();
+        final List<byte[]> expectedBases = new ArrayList<>();
+        final Random random = new Random(11);
+        try (final ReferenceDataSource expected = new ReferenceFileSource(TEST_REFERENCE)) {
+            final List<SAMSequenceRecord> sequences = expected.getSequenceDictionary().getSequences();
+            for (int i = 0; i < numQueries; i++) {
+                final SAMSequenceRecord contig = sequences.get(random.nextInt(sequences.size()));
+                final int start = 1 + random.nextInt(contig.getSequenceLength());
+                final int stop = Math.min(contig.getSequenceLength(), start + random.nextInt(1000));
+                contigs.add(contig.getSequenceName());
+                intervals.add(new int[]{start, stop});
+                expectedBases.add(expected.queryAndPrefetch(contig.getSequenceName(), start, stop).getBases());
+            }
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try (final MemoryMappedReferenceSource source = openWithTempCache(TEST_REFERENCE)) {
+            final List<Future<Boolean>> results = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                final int offset = thread;
+                results.add(executor.submit(() -> {
+                    for (int i = 0; i < numQueries; i++) {
+                        final int query = (i + offset * 97) % numQueries;
+                        final int[] interval = intervals.get(query);
+                        if (!new String(source.queryBases(contigs.get(query), interval[0], interval[1]).getBases())
+                                .equals(new String(expectedBases.get(query)))) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }));
+            }
+            for (final Future<Boolean> result : results) {
+                Assert.assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testEmptyQuery() {
+        try (final MemoryMappedReferenceSource source = openWithTempCache(TEST_REFERENCE)) {
+            Assert.assertEquals(source.queryAndPrefetch("2", 100, 99).length(), 0);
+            Assert.assertTrue(source.queryBases("2", 100, 99).isEmpty());
+        }
+    }
+
+    @Test(expectedExceptions = UserException.MissingContigInSequenceDictionary.class)
+    public void testMissingContig() {
+        try (final MemoryMappedReferenceSource source = openWithTempCache(TEST_REFERENCE)) {
+            source.queryAndPrefetch("chr1", 1, 10);
+        }
+    }
+
+    @Test(expectedExceptions = SAMException.class)
+    public void testQueryPastEndOfContig() {
+        try (final MemoryMappedReferenceSource source = openWithTempCache(TEST_REFERENCE)) {
+            final int length = source.getSequenceDictionary().getSequence("1").getSequenceLength();
+            source.queryAndPrefetch("1", length - 10, length + 1);
+        }
+    }
+
+    @Test(expectedExceptions = UserException.MissingReferenceFaiFile.class)
+    public void testReferenceWithMissingFaiFile() {
+        openWithTempCache(IOUtils.getPath(publicTestDir + "fastaWithoutFai.fasta"));
+    }
+}
@@ -0,0 +1,142 @@
+package org.broadinstitute.hellbender.engine;
+
+import htsjdk.samtools.SAMFileHeader;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.read.ArtificialReadUtils;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public final class PrefetchingAssemblyRegionIteratorUnitTest extends GATKBaseTest {
+
+    private final SAMFileHeader header = ArtificialReadUtils.createArtificialSamHeader(1, 1, 1000000);
+
+    private List<AssemblyRegion> makeRegions(final int numRegions) {
+        final List<AssemblyRegion> regions = new ArrayList<>(numRegions);
+        for ( int i = 0; i < numRegions; i++ ) {
+            regions.add(new AssemblyRegion(new SimpleInterval("1", 100 * i + 1, 100 * i + 50), 10, header));
+        }
+        return regions;
+    }
+
+    @DataProvider(name = "PrefetchSizes")
+    public Object[][] prefetchSizes() {
+        return new Object[][] { {0, 1}, {1, 1}, {10, 1}, {10, 3}, {100, 1000} };
+    }
+
+    @Test(dataProvider = "PrefetchSizes")
+    public void testReturnsRegionsInOrder(final int numRegions, final int numRegionsToPrefetch) {
+        final List<AssemblyRegion> regions = makeRegions(numRegions);
+        final List<AssemblyRegion> actual = new ArrayList<>();
+        try ( final PrefetchingAssemblyRegionIterator iter = new PrefetchingAssemblyRegionIterator(regions.iterator(), numRegionsToPrefetch) ) {
+            while ( iter.hasNext() ) {
+                Assert.assertTrue(iter.hasNext());
+                actual.add(iter.next());
+            }
+            Assert.assertFalse(iter.hasNext());
+        }
+
+        Assert.assertEquals(actual.size(), regions.size());
+        for ( int i = 0; i < regions.size(); i++ ) {
+            Assert.assertSame(actual.get(i), regions.get(i));
+        }
+    }
+
+    @Test(expectedExceptions = NoSuchElementException.class)
+    public void testNextWhenExhausted() {
+        try ( final PrefetchingAssemblyRegionIterator iter = new PrefetchingAssemblyRegionIterator(Collections.emptyIterator(), 2) ) {
+            iter.next();
+        }
+    }
+
+    @Test
+    public void testFailureIsRethrownAfterPrecedingRegions() {
+        final List<AssemblyRegion> regions = makeRegions(3);
+        final Iterator<AssemblyRegion> failing = new Iterator<AssemblyRegion>() {
+            private int i = 0;
+
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public AssemblyRegion next() {
+                if ( i == regions.size() ) {
+                    throw new IllegalStateException("boom");
+                }
+                return regions.get(i++);
+            }
+        };
+
+        try ( final PrefetchingAssemblyRegionIterator iter = new PrefetchingAssemblyRegionIterator(failing, 1) ) {
+            for ( final AssemblyRegion region : regions ) {
+                Assert.assertSame(iter.next(), region);
+            }
+            iter.hasNext();
+            Assert.fail("expected the failure of the wrapped iterator to be rethrown");
+        } catch ( final IllegalStateException e ) {
+            Assert.assertEquals(e.getMessage(), "boom");
+        }
+    }
+
+    @Test
+    public void testCloseBeforeExhausted() {
+        final PrefetchingAssemblyRegionIterator iter = new PrefetchingAssemblyRegionIterator(makeRegions(50).iterator(), 2);
+        Assert.assertTrue(iter.hasNext());
+        iter.next();
+        iter.close();
+        Assert.assertFalse(iter.hasNext());
+    }
+
+    @Test
+    public void testCloseWaitsForProducer() throws InterruptedException {
+        final List<AssemblyRegion> regions = makeRegions(50);
+        final AtomicInteger regionsProduced = new AtomicInteger();
+        final AtomicBoolean inNext = new AtomicBoolean();
+        final Iterator<AssemblyRegion> slow = new Iterator<AssemblyRegion>() {
+            @Override
+            public boolean hasNext() {
+                return regionsProduced.get() < regions.size();
+            }
+
+            @Override
+            public AssemblyRegion next() {
+                inNext.set(true);
+                try {
+                    Thread.sleep(20);
+                } catch ( final InterruptedException e ) {
+                    throw new IllegalStateException("the producer should not be interrupted", e);
+                } finally {
+                    inNext.set(false);
+                }
+                return regions.get(regionsProduced.getAndIncrement());
+            }
+        };
+
+        final PrefetchingAssemblyRegionIterator iter = new PrefetchingAssemblyRegionIterator(slow, 1);
+        Assert.assertSame(iter.next(), regions.get(0));
+        iter.close();
+
+        // once closed, the wrapped iterator is no longer used
+        Assert.assertFalse(inNext.get());
+        final int produced = regionsProduced.get();
+        Thread.sleep(100);
+        Assert.assertEquals(regionsProduced.get(), produced);
+        Assert.assertTrue(produced < regions.size());
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testBadPrefetchSize() {
+        new PrefetchingAssemblyRegionIterator(makeRegions(1).iterator(), 0);
+    }
+}
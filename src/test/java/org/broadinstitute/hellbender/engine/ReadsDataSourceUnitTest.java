@@ -250,6 +250,43 @@ public final class ReadsDataSourceUnitTest extends GATKBaseTest {
         }
     }
 
+    @Test(dataProvider = "MultipleFilesCompleteTraversalData")
+    public void testMultipleFilesCompleteTraversalWithDecodingThreads(final List<Path> samFiles, final List<String> expectedReadNames) {
+        try (ReadsDataSource readsSource = new ReadsDataSource(samFiles)) {
+            readsSource.setDecodingThreads(2);
+            List<String> readNames = new ArrayList<>();
+            for (GATKRead read : readsSource) {
+                readNames.add(read.getName());
+            }
+            Assert.assertEquals(readNames, expectedReadNames, "Wrong reads returned in complete traversal with decoding threads of " + samFiles);
+        }
+    }
+
+    @Test
+    public void testQueryAfterIncompleteTraversalWithDecodingThreads() {
+        try (ReadsDataSource readsSource = new ReadsDataSource(Arrays.asList(FIRST_TEST_BAM, SECOND_TEST_BAM, THIRD_TEST_BAM))) {
+            readsSource.setDecodingThreads(2);
+            final Iterator<GATKRead> traversal = readsSource.iterator();
+            Assert.assertEquals(traversal.next().getName(), "a");
+
+            // the query stops the read-ahead of the traversal, and the readers can still be used
+            List<String> queriedNames = new ArrayList<>();
+            readsSource.query(new SimpleInterval("1", 285, 1000)).forEachRemaining(read -> queriedNames.add(read.getName()));
+            Assert.assertEquals(queriedNames, Arrays.asList("c", "m", "n", "d"));
+
+            List<String> readNames = new ArrayList<>();
+            readsSource.iterator().forEachRemaining(read -> readNames.add(read.getName()));
+            Assert.assertEquals(readNames.size(), 26);
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testNegativeDecodingThreads() {
+        try (ReadsDataSource readsSource = new ReadsDataSource(FIRST_TEST_BAM)) {
+            readsSource.setDecodingThreads(-1);
+        }
+    }
+
     @DataProvider(name = "MultipleFilesTraversalWithIntervalsData")
     public Object[][] getMultipleFilesTraversalWithIntervalsData() {
         // Files, with intervals, and expected read names in the expected order
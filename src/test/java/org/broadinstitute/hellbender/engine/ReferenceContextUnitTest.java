@@ -4,6 +4,7 @@ import org.broadinstitute.hellbender.GATKBaseTest;
 import org.broadinstitute.hellbender.exceptions.GATKException;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.io.IOUtils;
+import org.broadinstitute.hellbender.utils.reference.ReferenceBasesView;
 import org.testng.Assert;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
@@ -36,6 +37,7 @@ public final class ReferenceContextUnitTest extends GATKBaseTest {
                            "Empty ReferenceContext reports having both a backing data source and an interval");
         Assert.assertEquals(refContext.getBases().length, 0, "Empty ReferenceContext should have returned an empty bases array from getBases()");
         Assert.assertFalse(refContext.iterator().hasNext(), "Empty ReferenceContext should have returned an empty bases iterator from iterator()");
+        Assert.assertTrue(refContext.getBasesView().isEmpty(), "Empty ReferenceContext should have returned an empty bases view from getBasesView()");
     }
 
     @DataProvider(name = "WindowlessReferenceIntervalDataProvider")
@@ -297,11 +299,17 @@ public final class ReferenceContextUnitTest extends GATKBaseTest {
 
         Assert.assertEquals(contextBases.length, expectedBases.length(), "Wrong number of bases from refContext.getBases()");
 
+        final ReferenceBasesView contextBasesView = refContext.getBasesView();
+        Assert.assertEquals(contextBasesView.length(), expectedBases.length(), "Wrong number of bases from refContext.getBasesView()");
+        Assert.assertEquals(contextBasesView.getStart(), refContext.getWindow().getStart(), "Wrong start of refContext.getBasesView()");
+
         final byte[] expectedBasesByteArray = expectedBases.getBytes();
         for ( int baseIndex = 0; baseIndex < expectedBases.length(); ++baseIndex ) {
             Assert.assertEquals(contextBases[baseIndex], expectedBasesByteArray[baseIndex], "Base #" + (baseIndex + 1) + " incorrect from refContext.getBases()");
             Assert.assertEquals(contextBasesFromIterator.get(baseIndex).byteValue(), expectedBasesByteArray[baseIndex], "Base #" + (baseIndex + 1) + " incorrect from refContext.iterator()");
+            Assert.assertEquals(contextBasesView.get(baseIndex), expectedBasesByteArray[baseIndex], "Base #" + (baseIndex + 1) + " incorrect from refContext.getBasesView()");
         }
+        Assert.assertEquals(refContext.getBase(), expectedBasesByteArray[refContext.numWindowLeadingBases()], "Wrong base from refContext.getBase()");
     }
 
     private void checkReferenceContextBasesFromInterval( final ReferenceContext refContext, final String expectedBases, final SimpleInterval interval ) {
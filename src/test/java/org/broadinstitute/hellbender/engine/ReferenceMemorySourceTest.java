@@ -5,6 +5,7 @@ import htsjdk.samtools.SAMSequenceDictionary;
 import htsjdk.samtools.SAMSequenceRecord;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.reference.ReferenceBases;
+import org.broadinstitute.hellbender.utils.reference.ReferenceBasesView;
 import org.testng.Assert;
 import org.testng.annotations.BeforeTest;
 import org.testng.annotations.DataProvider;
@@ -67,6 +68,21 @@ public class ReferenceMemorySourceTest {
         Assert.assertEquals(memorySource.queryAndPrefetch(interval).getBases(), bytes);
     }
 
+    @Test(dataProvider="data")
+    public void testQueryBases(SimpleInterval interval, byte[] bytes) throws Exception {
+        final ReferenceBasesView view = memorySource.queryBases(interval);
+        Assert.assertEquals(view.getContig(), interval.getContig());
+        Assert.assertEquals(view.getStart(), interval.getStart());
+        Assert.assertEquals(view.getEnd(), interval.getEnd());
+        Assert.assertEquals(view.getBases(), bytes);
+        checkEquals(view.iterator(), bytes);
+    }
+
+    @Test(dataProvider="badIntervals", expectedExceptions = java.lang.IllegalArgumentException.class)
+    public void testQueryBasesOutOfBounds(SimpleInterval interval) {
+        memorySource.queryBases(interval);
+    }
+
     @Test(dataProvider="badIntervals", expectedExceptions = java.lang.IllegalArgumentException.class)
     public void testQueryOutOfBounds(SimpleInterval interval) {
         // we want to explode right away, not after going through the iterator for a while.
@@ -304,5 +304,59 @@ public final class CountingReadFilterUnitTest {
         Assert.assertTrue(andFilter.rhs.delegateFilter.getClass() == ReadFilterLibrary.MAPPED.getClass());
     }
 
+    @Test(dataProvider = "readsStartEnd")
+    public void testFromListWithStatistics(GATKRead read, boolean start, boolean end) {
+        for (final boolean reorder : new boolean[]{false, true}) {
+            final CountingReadFilter rf = CountingReadFilter.fromListWithStatistics(Arrays.asList(startOk, endOk), header, reorder);
+            Assert.assertEquals(rf.test(read), start && end);
+            Assert.assertEquals(rf.getFilteredCount(), start && end ? 0 : 1);
+            Assert.assertTrue(rf.getSummaryLine().contains("Read filter statistics"));
+        }
+    }
+
+    @Test
+    public void testFromListWithStatisticsEmpty() {
+        CountingReadFilter rf = CountingReadFilter.fromListWithStatistics(Collections.emptyList(), header, true);
+        Assert.assertTrue(rf.delegateFilter.getClass() == ReadFilterLibrary.AllowAllReadsReadFilter.class);
+    }
+
+    @Test
+    public void testReorderFilters() {
+        final GATKRead duplicateRead = goodRead.copy();
+        duplicateRead.setIsDuplicate(true);
+        final List<String> initialOrder = Arrays.asList("AllowAllReadsReadFilter", "NotDuplicateReadFilter");
+
+        // a filter rejecting reads is moved before a filter that doesn't, but only if reordering is enabled
+        for (final boolean reorder : new boolean[]{false, true}) {
+            final CountingReadFilter.ProfilingAndReadFilter rf = (CountingReadFilter.ProfilingAndReadFilter)
+                    CountingReadFilter.fromListWithStatistics(Arrays.asList(ReadFilterLibrary.ALLOW_ALL_READS, ReadFilterLibrary.NOT_DUPLICATE), header, reorder);
+            Assert.assertEquals(rf.getFilterNames(), initialOrder);
+            for (int i = 0; i < CountingReadFilter.ProfilingAndReadFilter.REORDER_INTERVAL; i++) {
+                Assert.assertFalse(rf.test(duplicateRead));
+            }
+            Assert.assertEquals(rf.getFilteredCount(), CountingReadFilter.ProfilingAndReadFilter.REORDER_INTERVAL);
+            Assert.assertEquals(rf.getFilterNames(), reorder ? Arrays.asList("NotDuplicateReadFilter", "AllowAllReadsReadFilter") : initialOrder);
+            Assert.assertTrue(rf.test(goodRead));
+        }
+    }
+
+    @Test
+    public void testReorderFiltersKeepsGuardFilters() {
+        final GATKRead unmappedRead = ArtificialReadUtils.createArtificialUnmappedRead(header, new byte[]{'A'}, new byte[]{30});
+        final GATKRead duplicateRead = goodRead.copy();
+        duplicateRead.setIsDuplicate(true);
+        final CountingReadFilter.ProfilingAndReadFilter rf = (CountingReadFilter.ProfilingAndReadFilter)
+                CountingReadFilter.fromListWithStatistics(Arrays.asList(ReadFilterLibrary.ALLOW_ALL_READS, ReadFilterLibrary.MAPPED,
+                        ReadFilterLibrary.NOT_SECONDARY_ALIGNMENT, ReadFilterLibrary.NOT_DUPLICATE), header, true);
+
+        // the mapped read filter rejects the most reads, and the duplicate filter only rejects reads after it, but
+        // neither may be moved across the mapped read filter
+        for (int i = 0; i < CountingReadFilter.ProfilingAndReadFilter.REORDER_INTERVAL; i++) {
+            Assert.assertFalse(rf.test(i % 4 == 0 ? duplicateRead : unmappedRead));
+        }
+        Assert.assertEquals(rf.getFilterNames(), Arrays.asList("AllowAllReadsReadFilter", "MappedReadFilter", "NotDuplicateReadFilter", "NotSecondaryAlignmentReadFilter"));
+        Assert.assertTrue(rf.test(goodRead));
+    }
+
 }
 
@@ -0,0 +1,70 @@
+package org.broadinstitute.hellbender.tools.walkers.bqsr;
+
+import org.broadinstitute.hellbender.CommandLineProgramTest;
+import org.broadinstitute.hellbender.testutils.ArgumentsBuilder;
+import org.broadinstitute.hellbender.testutils.IntegrationTestSpec;
+import org.broadinstitute.hellbender.testutils.SamAssertionUtils;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public final class BQSRPipelineIntegrationTest extends CommandLineProgramTest {
+
+    private String getResourceDir() {
+        return getTestDataDir() + "/" + "BQSR" + "/";
+    }
+
+    @DataProvider(name = "BQSRPipelineTest")
+    public Object[][] createBQSRPipelineTestData() {
+        return new Object[][]{
+                {Collections.emptyList(), Collections.emptyList()},
+                {Arrays.asList("-indels", "--enable-baq"), Arrays.asList("--quantize-quals", "6")},
+                {Collections.emptyList(), Arrays.asList("--emit-original-quals")},
+        };
+    }
+
+    // the output of the single pass must be the same as that of BaseRecalibrator followed by ApplyBQSR
+    @Test(dataProvider = "BQSRPipelineTest")
+    public void testSameAsBothSteps(final List<String> recalibrationArgs, final List<String> applyArgs) throws IOException {
+        final File bam = new File(getResourceDir() + WGS_B37_CH20_1M_1M1K_BAM);
+        final File knownSites = new File(getResourceDir() + DBSNP_138_B37_CH20_1M_1M1K_VCF);
+        final File reference = new File(b37_reference_20_21);
+
+        final File expectedTable = createTempFile("expected.recal", ".table");
+        final ArgumentsBuilder baseRecalibratorArgs = new ArgumentsBuilder()
+                .addReference(reference)
+                .addInput(bam)
+                .addFileArgument(BaseRecalibrator.KNOWN_SITES_ARG_FULL_NAME, knownSites)
+                .addOutput(expectedTable);
+        recalibrationArgs.forEach(baseRecalibratorArgs::add);
+        runCommandLine(baseRecalibratorArgs.getArgsList(), BaseRecalibrator.class.getSimpleName());
+
+        final File expectedBam = createTempFile("expected.recalibrated", ".bam");
+        final ArgumentsBuilder applyBQSRArgs = new ArgumentsBuilder()
+                .addInput(bam)
+                .addFileArgument("bqsr-recal-file", expectedTable)
+                .addOutput(expectedBam);
+        applyArgs.forEach(applyBQSRArgs::add);
+        runCommandLine(applyBQSRArgs.getArgsList(), ApplyBQSR.class.getSimpleName());
+
+        final File actualTable = createTempFile("actual.recal", ".table");
+        final File actualBam = createTempFile("actual.recalibrated", ".bam");
+        final ArgumentsBuilder pipelineArgs = new ArgumentsBuilder()
+                .addReference(reference)
+                .addInput(bam)
+                .addFileArgument(BaseRecalibrator.KNOWN_SITES_ARG_FULL_NAME, knownSites)
+                .addFileArgument(BQSRPipeline.RECAL_TABLE_OUTPUT_LONG_NAME, actualTable)
+                .addOutput(actualBam);
+        recalibrationArgs.forEach(pipelineArgs::add);
+        applyArgs.forEach(pipelineArgs::add);
+        runCommandLine(pipelineArgs.getArgsList());
+
+        IntegrationTestSpec.assertEqualTextFiles(actualTable, expectedTable);
+        SamAssertionUtils.assertSamsEqual(actualBam, expectedBam);
+    }
+}
@@ -0,0 +1,85 @@
+package org.broadinstitute.hellbender.tools.walkers.bqsr;
+
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SamReader;
+import htsjdk.samtools.SamReaderFactory;
+import org.broadinstitute.hellbender.CommandLineProgramTest;
+import org.broadinstitute.hellbender.testutils.ArgumentsBuilder;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * A harness to measure the throughput (reads per second) of BaseRecalibrator and ApplyBQSR on a fixed test BAM,
+ * for comparing the speed of changes to the covariate computation and recalibration code.
+ * This test is disabled by default because it only prints timings and takes a while to complete.
+ */
+public final class BQSRSpeedIntegrationTest extends CommandLineProgramTest {
+
+    private static final int NUM_WARMUP_ITERATIONS = 3;
+    private static final int NUM_ITERATIONS = 10;
+
+    private static final double NS_TO_S = 1.0e9;
+
+    private String getResourceDir() {
+        return getTestDataDir() + "/" + "BQSR" + "/";
+    }
+
+    @Test(enabled = false)
+    public void compareTimingForBQSR() throws IOException {
+        final File bam = new File(getResourceDir() + WGS_B37_CH20_1M_1M1K_BAM);
+        final File knownSites = new File(getResourceDir() + DBSNP_138_B37_CH20_1M_1M1K_VCF);
+        final File recalTable = createTempFile("speed.recal", ".table");
+        final File recalibratedBam = createTempFile("speed.recalibrated", ".bam");
+        final long numReads = countReads(bam);
+
+        final ArgumentsBuilder baseRecalibratorArgs = new ArgumentsBuilder()
+                .addReference(new File(b37_reference_20_21))
+                .addInput(bam)
+                .addArgument("known-sites", knownSites.getAbsolutePath())
+                .addOutput(recalTable);
+        final ArgumentsBuilder applyBQSRArgs = new ArgumentsBuilder()
+                .addInput(bam)
+                .addArgument("bqsr-recal-file", recalTable.getAbsolutePath())
+                .addOutput(recalibratedBam);
+
+        final double baseRecalibratorSeconds = time(baseRecalibratorArgs, BaseRecalibrator.class.getSimpleName());
+        final double applyBQSRSeconds = time(applyBQSRArgs, ApplyBQSR.class.getSimpleName());
+
+        System.out.println("================================================================================");
+        System.out.println("Timing Results for " + numReads + " reads, mean of " + NUM_ITERATIONS + " runs:");
+        System.out.println("--------------------------------------------------------------------------------");
+        printTimingString(BaseRecalibrator.class.getSimpleName(), baseRecalibratorSeconds, numReads);
+        printTimingString(ApplyBQSR.class.getSimpleName(), applyBQSRSeconds, numReads);
+        System.out.println("================================================================================");
+    }
+
+    /**
+     * @return the mean wall clock time in seconds of running the tool, after some warmup runs
+     */
+    private double time(final ArgumentsBuilder args, final String toolName) {
+        for (int i = 0; i < NUM_WARMUP_ITERATIONS; i++) {
+            runCommandLine(args.getArgsList(), toolName);
+        }
+        final long startTime = System.nanoTime();
+        for (int i = 0; i < NUM_ITERATIONS; i++) {
+            runCommandLine(args.getArgsList(), toolName);
+        }
+        return (System.nanoTime() - startTime) / NS_TO_S / NUM_ITERATIONS;
+    }
+
+    private static long countReads(final File bam) throws IOException {
+        long count = 0;
+        try (final SamReader reader = SamReaderFactory.makeDefault().open(bam)) {
+            for (final SAMRecord ignored : reader) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static void printTimingString(final String toolName, final double seconds, final long numReads) {
+        System.out.println("\t" + toolName + " Time:\t" + seconds + "s\tReads/s:\t" + (numReads / seconds));
+    }
+}
@@ -0,0 +1,143 @@
+package org.broadinstitute.hellbender.tools.walkers.haplotypecaller;
+
+import htsjdk.samtools.SAMFileHeader;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.engine.AssemblyRegion;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.haplotype.Haplotype;
+import org.broadinstitute.hellbender.utils.read.ArtificialReadUtils;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public final class AssemblyRegionBudgetUnitTest extends GATKBaseTest {
+
+    private final SAMFileHeader header = ArtificialReadUtils.createArtificialSamHeader(1, 1, 1000000);
+    private final SimpleInterval span = new SimpleInterval("1", 101, 200);
+
+    // 10 starts with 8 reads each
+    private AssemblyResultSet makeAssemblyResult(final int numAltHaplotypes) {
+        final AssemblyRegion region = new AssemblyRegion(span, 0, header);
+        for ( int start = 0; start < 10; start++ ) {
+            for ( int i = 0; i < 8; i++ ) {
+                region.add(ArtificialReadUtils.createArtificialRead(header, "read" + start + "_" + i, 0, 101 + start, 50));
+            }
+        }
+
+        final AssemblyResultSet result = new AssemblyResultSet();
+        final Haplotype ref = new Haplotype("AAAAAAAAAA".getBytes(), true);
+        ref.setGenomeLocation(span);
+        result.add(ref);
+        for ( int i = 0; i < numAltHaplotypes; i++ ) {
+            final Haplotype alt = new Haplotype(("AAAAAAAAA" + "CGTCGTCGT".charAt(i)).getBytes(), false);
+            alt.setGenomeLocation(span);
+            alt.setScore(-i);
+            result.add(alt);
+        }
+        result.setRegionForGenotyping(region);
+        return result;
+    }
+
+    private static Map<Integer, Integer> countReadsPerStart(final AssemblyRegion region) {
+        final Map<Integer, Integer> counts = new HashMap<>();
+        region.getReads().forEach(read -> counts.merge(read.getStart(), 1, Integer::sum));
+        return counts;
+    }
+
+    @Test
+    public void testDisabled() {
+        final AssemblyRegionBudget budget = new AssemblyRegionBudget(0, 0, header);
+        Assert.assertFalse(budget.isEnabled());
+        final AssemblyResultSet assemblyResult = makeAssemblyResult(3);
+        Assert.assertSame(budget.apply(assemblyResult), assemblyResult);
+        Assert.assertEquals(assemblyResult.getRegionForGenotyping().size(), 80);
+        Assert.assertFalse(budget.isAssemblyOverTime(assemblyResult.getRegionForGenotyping(), 0));
+    }
+
+    @Test
+    public void testWithinBudget() {
+        final AssemblyRegionBudget budget = new AssemblyRegionBudget(320, 0, header);
+        final AssemblyResultSet assemblyResult = makeAssemblyResult(3);
+        Assert.assertSame(budget.apply(assemblyResult), assemblyResult);
+        Assert.assertEquals(assemblyResult.getRegionForGenotyping().size(), 80);
+    }
+
+    @Test
+    public void testDownsampling() {
+        // 80 reads x 4 haplotypes: halving the reads per start to 4 gives 40 x 4 = 160
+        final AssemblyRegionBudget budget = new AssemblyRegionBudget(200, 0, header);
+        final AssemblyResultSet assemblyResult = makeAssemblyResult(3);
+        Assert.assertSame(budget.apply(assemblyResult), assemblyResult);
+
+        final AssemblyRegion region = assemblyResult.getRegionForGenotyping();
+        Assert.assertEquals(region.size(), 40);
+        countReadsPerStart(region).values().forEach(count -> Assert.assertEquals((int) count, 4));
+    }
+
+    @Test
+    public void testFewerHaplotypes() {
+        // even 1 read per start gives 10 x 4 = 40 > 30, so only the reference and the 2 best haplotypes are kept
+        final AssemblyRegionBudget budget = new AssemblyRegionBudget(30, 0, header);
+        final AssemblyResultSet assemblyResult = makeAssemblyResult(3);
+        final AssemblyResultSet budgeted = budget.apply(assemblyResult);
+
+        Assert.assertEquals(budgeted.getRegionForGenotyping().size(), 10);
+        Assert.assertEquals(budgeted.getHaplotypeCount(), 3);
+        Assert.assertSame(budgeted.getReferenceHaplotype(), assemblyResult.getReferenceHaplotype());
+        Assert.assertEquals(budgeted.getHaplotypeList().get(1).getScore(), 0.0);
+        Assert.assertEquals(budgeted.getHaplotypeList().get(2).getScore(), -1.0);
+        Assert.assertTrue(budget.getSummaryLine().contains("1 regions downsampled, 1 with fewer haplotypes, 0 not genotyped"));
+    }
+
+    @Test
+    public void testOverBudget() {
+        // 10 reads x the minimum of 2 haplotypes is still over budget
+        final AssemblyRegionBudget budget = new AssemblyRegionBudget(15, 0, header);
+        final AssemblyResultSet assemblyResult = makeAssemblyResult(3);
+        Assert.assertNull(budget.apply(assemblyResult));
+        Assert.assertTrue(budget.getSummaryLine().contains("0 regions downsampled, 0 with fewer haplotypes, 1 not genotyped"));
+        // the reads of a region that is not genotyped are kept for its reference model
+        Assert.assertEquals(assemblyResult.getRegionForGenotyping().size(), 80);
+    }
+
+    @Test
+    public void testMaxHaplotypesPerGraph() {
+        final AssemblyRegion region = makeAssemblyResult(0).getRegionForGenotyping();
+        // 10 start positions, so at least 10 reads after downsampling
+        Assert.assertEquals(new AssemblyRegionBudget(200, 0, header).getMaxHaplotypesPerGraph(region), 20);
+        Assert.assertEquals(new AssemblyRegionBudget(15, 0, header).getMaxHaplotypesPerGraph(region), 2);
+        Assert.assertEquals(new AssemblyRegionBudget(100, 0, header).getMaxHaplotypesPerGraph(new AssemblyRegion(span, 0, header)), 100);
+        Assert.assertFalse(new AssemblyRegionBudget(0, 1, header).hasReadHaplotypeLimit());
+
+        final AssemblyRegionBudget budget = new AssemblyRegionBudget(200, 0, header);
+        budget.recordHaplotypeLimitReached(region);
+        Assert.assertTrue(budget.getSummaryLine().endsWith("1 with fewer haplotypes assembled"));
+    }
+
+    @Test
+    public void testAssemblyOverTime() {
+        final AssemblyRegionBudget budget = new AssemblyRegionBudget(0, 1, header);
+        Assert.assertTrue(budget.isEnabled());
+        final AssemblyRegion region = new AssemblyRegion(span, 0, header);
+        Assert.assertFalse(budget.isAssemblyOverTime(region, System.nanoTime()));
+        Assert.assertTrue(budget.isAssemblyOverTime(region, System.nanoTime() - 2_000_000_000L));
+        Assert.assertTrue(budget.hasAssemblyTimeLimit());
+        Assert.assertEquals(budget.getAssemblyDeadline(5_000_000_000L), 6_000_000_000L);
+        Assert.assertFalse(new AssemblyRegionBudget(100, 0, header).hasAssemblyTimeLimit());
+    }
+
+    @Test
+    public void testUnscoredHaplotypesRankLast() {
+        // 10 reads per start x 4 haplotypes with a budget of 30 keeps the reference and 2 alternate haplotypes
+        final AssemblyRegionBudget budget = new AssemblyRegionBudget(30, 0, header);
+        final AssemblyResultSet assemblyResult = makeAssemblyResult(3);
+        assemblyResult.getHaplotypeList().get(1).setScore(Double.NaN);
+        final AssemblyResultSet budgeted = budget.apply(assemblyResult);
+
+        Assert.assertEquals(budgeted.getHaplotypeCount(), 3);
+        Assert.assertEquals(budgeted.getHaplotypeList().get(1).getScore(), -1.0);
+        Assert.assertEquals(budgeted.getHaplotypeList().get(2).getScore(), -2.0);
+    }
+}
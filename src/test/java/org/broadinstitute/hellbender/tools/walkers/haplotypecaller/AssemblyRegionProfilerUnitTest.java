@@ -0,0 +1,115 @@
+package org.broadinstitute.hellbender.tools.walkers.haplotypecaller;
+
+import htsjdk.samtools.SAMFileHeader;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.engine.AssemblyRegion;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.read.ArtificialReadUtils;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public final class AssemblyRegionProfilerUnitTest extends GATKBaseTest {
+
+    private final SAMFileHeader header = ArtificialReadUtils.createArtificialSamHeader(1, 1, 1000000);
+
+    private static Map<String, String> readSummary(final File summary) throws IOException {
+        final List<String> lines = Files.readAllLines(summary.toPath());
+        Assert.assertEquals(lines.get(0), "metric\tvalue");
+        final Map<String, String> metrics = new HashMap<>();
+        for ( final String line : lines.subList(1, lines.size()) ) {
+            final String[] fields = line.split("\t");
+            Assert.assertEquals(fields.length, 2, line);
+            metrics.put(fields[0], fields[1]);
+        }
+        return metrics;
+    }
+
+    @Test
+    public void testSummaryAndRegionOutput() throws IOException {
+        final File summary = createTempFile("testSummaryAndRegionOutput", ".tsv");
+        final File regions = createTempFile("testSummaryAndRegionOutput", ".regions.tsv");
+        final AssemblyRegionProfiler profiler = new AssemblyRegionProfiler(summary.getAbsolutePath(), regions.getAbsolutePath(), false);
+        Assert.assertTrue(profiler.isEnabled());
+
+        final AssemblyRegion active = new AssemblyRegion(new SimpleInterval("1", 101, 200), 10, header);
+        active.add(ArtificialReadUtils.createArtificialRead(header, "read1", 0, 101, 50));
+        active.add(ArtificialReadUtils.createArtificialRead(header, "read2", 0, 121, 50));
+
+        final AssemblyRegionProfiler.RegionProfile activeProfile = profiler.startRegion(active);
+        Assert.assertEquals((int) activeProfile.time(AssemblyRegionProfiler.Stage.ASSEMBLY, () -> 3), 3);
+        activeProfile.setHaplotypeCount(3);
+        activeProfile.time(AssemblyRegionProfiler.Stage.READ_LIKELIHOODS, () -> null);
+        activeProfile.time(AssemblyRegionProfiler.Stage.GENOTYPING, () -> null);
+        activeProfile.finish();
+
+        final AssemblyRegion inactive = new AssemblyRegion(new SimpleInterval("1", 201, 300), Collections.emptyList(), false, 10, header);
+        profiler.startRegion(inactive).finish();
+
+        for ( int i = 0; i < 5; i++ ) {
+            profiler.time(AssemblyRegionProfiler.Stage.ACTIVITY_PROFILE, () -> null);
+        }
+        final int[] outputs = {0};
+        profiler.run(AssemblyRegionProfiler.Stage.OUTPUT, () -> outputs[0]++);
+        Assert.assertEquals(outputs[0], 1);
+
+        profiler.close();
+
+        final Map<String, String> metrics = readSummary(summary);
+        Assert.assertEquals(metrics.get("regions"), "2");
+        Assert.assertEquals(metrics.get("active_regions"), "1");
+        Assert.assertEquals(metrics.get("reads"), "2");
+        Assert.assertEquals(metrics.get("haplotypes"), "3");
+        Assert.assertEquals(metrics.get("activity_profile_count"), "5");
+        Assert.assertEquals(metrics.get("assembly_count"), "1");
+        Assert.assertEquals(metrics.get("read_likelihoods_count"), "1");
+        Assert.assertEquals(metrics.get("genotyping_count"), "1");
+        Assert.assertEquals(metrics.get("reference_confidence_count"), "0");
+        Assert.assertEquals(metrics.get("output_count"), "1");
+        Assert.assertFalse(metrics.containsKey("assembly_allocated_bytes"));
+
+        final List<String> regionLines = Files.readAllLines(regions.toPath());
+        Assert.assertEquals(regionLines.size(), 3);
+        Assert.assertTrue(regionLines.get(0).startsWith("contig\tstart\tend\tactive\treads\thaplotypes\t"));
+        Assert.assertTrue(regionLines.get(1).startsWith("1\t101\t200\ttrue\t2\t3\t"));
+        Assert.assertTrue(regionLines.get(2).startsWith("1\t201\t300\tfalse\t0\t0\t"));
+    }
+
+    @Test
+    public void testDisabled() {
+        final AssemblyBasedCallerArgumentCollection args = new HaplotypeCallerArgumentCollection();
+        final AssemblyRegionProfiler profiler = AssemblyRegionProfiler.fromArguments(args);
+        Assert.assertSame(profiler, AssemblyRegionProfiler.DISABLED);
+        Assert.assertFalse(profiler.isEnabled());
+
+        final AssemblyRegionProfiler.RegionProfile regionProfile = profiler.startRegion(new AssemblyRegion(new SimpleInterval("1", 101, 200), 10, header));
+        Assert.assertEquals(regionProfile.time(AssemblyRegionProfiler.Stage.ASSEMBLY, () -> "assembled"), "assembled");
+        regionProfile.finish();
+        profiler.close();
+    }
+
+    @Test
+    public void testAllocationTracking() throws IOException {
+        final File summary = createTempFile("testAllocationTracking", ".tsv");
+        final AssemblyBasedCallerArgumentCollection args = new HaplotypeCallerArgumentCollection();
+        args.stageProfileOutput = summary.getAbsolutePath();
+        args.profileAllocations = true;
+
+        final AssemblyRegionProfiler profiler = AssemblyRegionProfiler.fromArguments(args);
+        profiler.time(AssemblyRegionProfiler.Stage.ASSEMBLY, () -> new long[1000]);
+        profiler.close();
+
+        // if the JVM doesn't support allocation accounting we just don't report the allocated bytes
+        final Map<String, String> metrics = readSummary(summary);
+        if ( metrics.containsKey("assembly_allocated_bytes") ) {
+            Assert.assertTrue(Long.parseLong(metrics.get("assembly_allocated_bytes")) >= 8000);
+        }
+    }
+}
@@ -13,6 +13,7 @@ import org.apache.commons.lang3.tuple.Pair;
 import org.broadinstitute.barclay.argparser.CommandLineException;
 import org.broadinstitute.hellbender.CommandLineProgramTest;
 import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
+import org.broadinstitute.hellbender.engine.AssemblyRegionWalker;
 import org.broadinstitute.hellbender.engine.FeatureDataSource;
 import org.broadinstitute.hellbender.engine.ReadsDataSource;
 import org.broadinstitute.hellbender.exceptions.UserException;
@@ -34,6 +35,7 @@ import org.testng.annotations.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -94,6 +96,127 @@ public class HaplotypeCallerIntegrationTest extends CommandLineProgramTest {
         }
     }
 
+    @DataProvider(name="MultiThreadedAssemblyRegionInputs")
+    public Object[][] getMultiThreadedAssemblyRegionInputs() {
+        return new Object[][] {
+                {"NONE", "expected.testVCFMode.gatk4.vcf", ".vcf"},
+                {"GVCF", "expected.testGVCFMode.gatk4.g.vcf", ".g.vcf"}
+        };
+    }
+
+    private File runWithAssemblyRegionThreads(final String ercMode, final String extension, final int threads, final int prefetch) {
+        return runWithAssemblyRegionThreads(ercMode, extension, threads, prefetch, HaplotypeCaller.DEFAULT_MAX_READS_PER_ALIGNMENT);
+    }
+
+    private File runWithAssemblyRegionThreads(final String ercMode, final String extension, final int threads, final int prefetch, final int maxReadsPerAlignmentStart) {
+        Utils.resetRandomGenerator();
+
+        final File output = createTempFile("testMultiThreadedAssemblyRegionProcessing", extension);
+        final String[] args = {
+                "-I", NA12878_20_21_WGS_bam,
+                "-R", b37_reference_20_21,
+                "-L", "20:10000000-10100000",
+                "-O", output.getAbsolutePath(),
+                "-ERC", ercMode,
+                "-pairHMM", "AVX_LOGLESS_CACHING",
+                "--" + AssemblyRegionWalker.ASSEMBLY_REGION_PREFETCH_LONG_NAME, String.valueOf(prefetch),
+                "--" + AssemblyRegionWalker.ASSEMBLY_REGION_THREADS_LONG_NAME, String.valueOf(threads),
+                "--" + AssemblyRegionWalker.MAX_STARTS_LONG_NAME, String.valueOf(maxReadsPerAlignmentStart),
+                "--" + StandardArgumentDefinitions.ADD_OUTPUT_VCF_COMMANDLINE, "false"
+        };
+
+        runCommandLine(args);
+        return output;
+    }
+
+    /*
+     * Test that processing assembly regions on multiple threads produces exactly the same output as the
+     * single-threaded traversal, for any number of threads
+     */
+    @Test(dataProvider="MultiThreadedAssemblyRegionInputs")
+    public void testMultiThreadedAssemblyRegionProcessingMatchesPastResults(final String ercMode, final String expectedFileName, final String extension) throws Exception {
+        final File expected = new File(TEST_FILES_DIR, expectedFileName);
+        IntegrationTestSpec.assertEqualTextFiles(runWithAssemblyRegionThreads(ercMode, extension, 4, 0), expected);
+        IntegrationTestSpec.assertEqualTextFiles(runWithAssemblyRegionThreads(ercMode, extension, 2, 0), expected);
+    }
+
+    /*
+     * Test that determining assembly regions ahead of processing on a separate thread produces exactly the same
+     * output as the default traversal, both on its own and combined with multi-threaded region processing
+     */
+    @Test(dataProvider="MultiThreadedAssemblyRegionInputs")
+    public void testAssemblyRegionPrefetchMatchesPastResults(final String ercMode, final String expectedFileName, final String extension) throws Exception {
+        final File expected = new File(TEST_FILES_DIR, expectedFileName);
+        IntegrationTestSpec.assertEqualTextFiles(runWithAssemblyRegionThreads(ercMode, extension, 1, 8), expected);
+
+        IntegrationTestSpec.assertEqualTextFiles(runWithAssemblyRegionThreads(ercMode, extension, 4, 8),
+                runWithAssemblyRegionThreads(ercMode, extension, 4, 0));
+    }
+
+    /*
+     * Test that prefetching assembly regions downsamples the reads exactly like the default traversal: with at most
+     * one read per alignment start, most of the regions are downsampled
+     */
+    @Test(dataProvider="MultiThreadedAssemblyRegionInputs")
+    public void testAssemblyRegionPrefetchWithDownsampling(final String ercMode, final String expectedFileName, final String extension) throws Exception {
+        final File defaultOutput = runWithAssemblyRegionThreads(ercMode, extension, 1, 0, 1);
+
+        IntegrationTestSpec.assertEqualTextFiles(runWithAssemblyRegionThreads(ercMode, extension, 1, 8, 1), defaultOutput);
+        IntegrationTestSpec.assertEqualTextFiles(runWithAssemblyRegionThreads(ercMode, extension, 4, 8, 1), defaultOutput);
+    }
+
+    /*
+     * Test that stage profiling leaves the calls unchanged, and that the summary and per-region outputs are written
+     */
+    @Test
+    public void testStageProfiling() throws Exception {
+        Utils.resetRandomGenerator();
+
+        final File output = createTempFile("testStageProfiling", ".g.vcf");
+        final File expected = new File(TEST_FILES_DIR, "expected.testGVCFMode.gatk4.g.vcf");
+        final File stageProfile = createTempFile("testStageProfiling", ".stages.tsv");
+        final File regionProfile = createTempFile("testStageProfiling", ".regions.tsv");
+
+        final String[] args = {
+                "-I", NA12878_20_21_WGS_bam,
+                "-R", b37_reference_20_21,
+                "-L", "20:10000000-10100000",
+                "-O", output.getAbsolutePath(),
+                "-ERC", "GVCF",
+                "-pairHMM", "AVX_LOGLESS_CACHING",
+                "--" + AssemblyBasedCallerArgumentCollection.STAGE_PROFILE_OUT_LONG_NAME, stageProfile.getAbsolutePath(),
+                "--" + AssemblyBasedCallerArgumentCollection.REGION_PROFILE_OUT_LONG_NAME, regionProfile.getAbsolutePath(),
+                "--" + AssemblyBasedCallerArgumentCollection.PROFILE_ALLOCATIONS_LONG_NAME,
+                "--" + StandardArgumentDefinitions.ADD_OUTPUT_VCF_COMMANDLINE, "false"
+        };
+
+        runCommandLine(args);
+
+        IntegrationTestSpec.assertEqualTextFiles(output, expected);
+
+        final List<String> stages = Files.readAllLines(stageProfile.toPath());
+        Assert.assertEquals(stages.get(0), "metric\tvalue");
+        final String regionCount = stages.stream().filter(line -> line.startsWith("regions\t")).findFirst().get().split("\t")[1];
+        Assert.assertTrue(Integer.parseInt(regionCount) > 0);
+
+        // one row per region, plus the header
+        Assert.assertEquals(Files.readAllLines(regionProfile.toPath()).size(), Integer.parseInt(regionCount) + 1);
+    }
+
+    @Test(expectedExceptions = CommandLineException.BadArgumentValue.class)
+    public void testMultiThreadedAssemblyRegionProcessingRejectsBamOutput() throws Exception {
+        final String[] args = {
+                "-I", NA12878_20_21_WGS_bam,
+                "-R", b37_reference_20_21,
+                "-L", "20:10000000-10010000",
+                "-O", createTempFile("testMultiThreadedAssemblyRegionProcessingRejectsBamOutput", ".vcf").getAbsolutePath(),
+                "-" + AssemblyBasedCallerArgumentCollection.BAM_OUTPUT_SHORT_NAME, createTempFile("testMultiThreadedAssemblyRegionProcessingRejectsBamOutput", ".bam").getAbsolutePath(),
+                "--" + AssemblyRegionWalker.ASSEMBLY_REGION_THREADS_LONG_NAME, "2"
+        };
+
+        runCommandLine(args);
+    }
+
     /*
      * Test that in VCF mode we're consistent with past GATK4 results
      *
@@ -373,6 +373,93 @@ public final class ReferenceConfidenceModelUnitTest extends GATKBaseTest {
         }
     }
 
+    @DataProvider(name = "RefConfidenceWithoutCallsData")
+    public Object[][] makeRefConfidenceWithoutCallsData() {
+        return new Object[][] { {1, 2, 0}, {10, 2, 0}, {60, 2, 10}, {60, 1, 10}, {60, 3, 5} };
+    }
+
+    // regions without calls are computed without pileups: check that this gives exactly the same results as the
+    // pileup-based calculation, which is forced by passing a call that lies outside the region
+    @Test(dataProvider = "RefConfidenceWithoutCallsData")
+    public void testRefConfidenceWithoutCallsMatchesPileups(final int nReads, final int ploidy, final int extension) {
+        final Random random = new Random(nReads * 31 + ploidy);
+        final StringBuilder refBuilder = new StringBuilder();
+        for ( int i = 0; i < 40; i++ ) {
+            refBuilder.append("ACGT".charAt(random.nextInt(4)));
+        }
+        final RefConfData data = new RefConfData(refBuilder.toString(), extension);
+        final String paddedRef = new String(data.getRefHap().getBases());
+        final int paddedStart = data.getPaddedRefLoc().getStart();
+
+        final List<GATKRead> reads = new ArrayList<>();
+        while ( reads.size() < nReads ) {
+            final StringBuilder cigar = new StringBuilder();
+            final StringBuilder bases = new StringBuilder();
+            final int start = random.nextInt(paddedRef.length() - 10);
+            int refOffset = start;
+            if ( random.nextBoolean() ) {
+                final int clipLength = 1 + random.nextInt(3);
+                cigar.append(clipLength).append('S');
+                for ( int i = 0; i < clipLength; i++ ) bases.append("ACGT".charAt(random.nextInt(4)));
+            }
+            for ( int element = 0; element < 3 && refOffset < paddedRef.length(); element++ ) {
+                if ( element > 0 ) {
+                    final int indelLength = 1 + random.nextInt(3);
+                    if ( random.nextBoolean() ) {
+                        cigar.append(indelLength).append('I');
+                        for ( int i = 0; i < indelLength; i++ ) bases.append("ACGT".charAt(random.nextInt(4)));
+                    } else {
+                        cigar.append(indelLength).append('D');
+                        refOffset += indelLength;
+                    }
+                }
+                final int matchLength = Math.min(1 + random.nextInt(10), paddedRef.length() - refOffset);
+                if ( matchLength <= 0 ) {
+                    break;
+                }
+                cigar.append(matchLength).append('M');
+                for ( int i = 0; i < matchLength; i++ ) {
+                    bases.append(random.nextInt(10) == 0 ? "ACGT".charAt(random.nextInt(4)) : paddedRef.charAt(refOffset + i));
+                }
+                refOffset += matchLength;
+            }
+            if ( ! cigar.toString().endsWith("M") ) {
+                continue;
+            }
+            if ( random.nextBoolean() ) {
+                cigar.append('2').append('S');
+                bases.append("AC");
+            }
+
+            final byte[] quals = new byte[bases.length()];
+            for ( int i = 0; i < quals.length; i++ ) {
+                quals[i] = (byte)random.nextInt(40);
+            }
+            final GATKRead read = ArtificialReadUtils.createArtificialRead(header, "read " + reads.size(), 0, paddedStart + start, bases.toString().getBytes(), quals, cigar.toString());
+            read.setReadGroup(rg.getId());
+            reads.add(read);
+        }
+        reads.sort(Comparator.comparingInt(GATKRead::getStart));
+        reads.forEach(data.getActiveRegion()::add);
+
+        final List<Haplotype> haplotypes = Arrays.asList(data.getRefHap());
+        final ReadLikelihoods<Haplotype> likelihoods = createDummyStratifiedReadMap(data.getRefHap(), samples, data.getActiveRegion());
+        final PloidyModel ploidyModel = new HomogeneousPloidyModel(samples, ploidy);
+        final VariantContext outsideCall = GATKVariantContextUtils.makeFromAlleles("test", "1", 900, Arrays.asList("A", "C"));
+
+        final List<VariantContext> withoutPileups = model.calculateRefConfidence(data.getRefHap(), haplotypes, data.getPaddedRefLoc(), data.getActiveRegion(), likelihoods, ploidyModel, Collections.emptyList());
+        final List<VariantContext> fromPileups = model.calculateRefConfidence(data.getRefHap(), haplotypes, data.getPaddedRefLoc(), data.getActiveRegion(), likelihoods, ploidyModel, Collections.singletonList(outsideCall));
+
+        Assert.assertEquals(withoutPileups.size(), fromPileups.size());
+        for ( int i = 0; i < fromPileups.size(); i++ ) {
+            final VariantContext expected = fromPileups.get(i);
+            final VariantContext actual = withoutPileups.get(i);
+            Assert.assertEquals(actual.getStart(), expected.getStart());
+            Assert.assertEquals(actual.getAlleles(), expected.getAlleles());
+            Assert.assertEquals(actual.getGenotype(sample).toString(), expected.getGenotype(sample).toString(), "at " + expected.getStart());
+        }
+    }
+
     /**
      * Create a context that maps each read to the reference haplotype with log10 L of 0
      * @param refHaplotype a non-null reference haplotype
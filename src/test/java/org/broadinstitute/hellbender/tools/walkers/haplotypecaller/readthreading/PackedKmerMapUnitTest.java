@@ -0,0 +1,94 @@
+package org.broadinstitute.hellbender.tools.walkers.haplotypecaller.readthreading;
+
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.Kmer;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.*;
+
+public final class PackedKmerMapUnitTest extends GATKBaseTest {
+
+    @Test
+    public void testPack() {
+        Assert.assertEquals(PackedKmerMap.pack("ACGT".getBytes(), 0, 4), 0b00011011L);
+        Assert.assertEquals(PackedKmerMap.pack("TTACGT".getBytes(), 2, 4), 0b00011011L);
+        Assert.assertEquals(PackedKmerMap.pack("ACNT".getBytes(), 0, 4), -1L);
+        Assert.assertEquals(PackedKmerMap.pack("acgt".getBytes(), 0, 4), -1L);
+        Assert.assertTrue(PackedKmerMap.pack(new String(new char[31]).replace('\0', 'T').getBytes(), 0, 31) >= 0);
+        Assert.assertEquals(PackedKmerMap.pack(new String(new char[32]).replace('\0', 'A').getBytes(), 0, 32), -1L);
+    }
+
+    @Test
+    public void testLookupInPlace() {
+        final PackedKmerMap<String> map = new PackedKmerMap<>(3);
+        final byte[] sequence = "GACACNCAG".getBytes();
+        Assert.assertNull(map.put(sequence, 0, "GAC"));
+        Assert.assertNull(map.put(sequence, 3, "ACN"));
+        Assert.assertEquals(map.put(sequence, 3, "ACN2"), "ACN");
+        Assert.assertEquals(map.size(), 2);
+
+        Assert.assertEquals(map.get("TTGAC".getBytes(), 2), "GAC");
+        Assert.assertEquals(map.get(new Kmer("GAC")), "GAC");
+        Assert.assertEquals(map.get(new Kmer("ACN")), "ACN2");
+        Assert.assertFalse(map.containsKey(sequence, 1));
+        Assert.assertFalse(map.containsKey(new Kmer("CNC")));
+
+        Assert.assertEquals(map.remove(sequence, 3), "ACN2");
+        Assert.assertNull(map.remove(sequence, 3));
+        Assert.assertEquals(map.size(), 1);
+        Assert.assertEquals(map.values(), Collections.singletonList("GAC"));
+
+        map.clear();
+        Assert.assertTrue(map.isEmpty());
+        Assert.assertNull(map.get(sequence, 0));
+    }
+
+    @DataProvider(name = "KmerSizes")
+    public Object[][] kmerSizes() {
+        return new Object[][] { {1}, {5}, {25}, {31}, {32}, {45} };
+    }
+
+    @Test(dataProvider = "KmerSizes")
+    public void testMatchesHashMap(final int kmerSize) {
+        final Random random = new Random(13);
+        final byte[] bases = {'A', 'C', 'G', 'T', 'N'};
+        final byte[] sequence = new byte[5000];
+        for ( int i = 0; i < sequence.length; i++ ) {
+            // mostly ACGT, with the occasional N, and a repeated block so that some kmers occur many times
+            sequence[i] = i >= 2500 && i < 3000 ? sequence[i - 250] : bases[random.nextInt(100) < 2 ? 4 : random.nextInt(4)];
+        }
+
+        final PackedKmerMap<Integer> map = new PackedKmerMap<>(kmerSize);
+        final Map<Kmer, Integer> expected = new HashMap<>();
+        for ( int i = 0; i + kmerSize <= sequence.length; i++ ) {
+            final Kmer kmer = new Kmer(sequence, i, kmerSize);
+            if ( random.nextInt(4) == 0 ) {
+                Assert.assertEquals(map.remove(sequence, i), expected.remove(kmer));
+            } else {
+                Assert.assertEquals(map.put(sequence, i, i), expected.put(kmer, i));
+            }
+            Assert.assertEquals(map.size(), expected.size());
+        }
+
+        for ( int i = 0; i + kmerSize <= sequence.length; i++ ) {
+            Assert.assertEquals(map.get(sequence, i), expected.get(new Kmer(sequence, i, kmerSize)));
+        }
+        final List<Integer> actualValues = map.values();
+        final List<Integer> expectedValues = new ArrayList<>(expected.values());
+        Collections.sort(actualValues);
+        Collections.sort(expectedValues);
+        Assert.assertEquals(actualValues, expectedValues);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testKmerOutOfBounds() {
+        new PackedKmerMap<String>(4).get("ACG".getBytes(), 0);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testWrongKmerSize() {
+        new PackedKmerMap<String>(4).get(new Kmer("ACG"));
+    }
+}
@@ -32,6 +32,7 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 public final class ReadThreadingAssemblerUnitTest extends GATKBaseTest {
 
@@ -232,6 +233,123 @@ public final class ReadThreadingAssemblerUnitTest extends GATKBaseTest {
         Assert.assertEquals(haplotypes.get(1), altHaplotype);
     }
 
+    @DataProvider(name = "KmerSizeThreadsData")
+    public Object[][] makeKmerSizeThreadsData() {
+        return new Object[][]{{2}, {3}, {8}};
+    }
+
+    @Test(dataProvider = "KmerSizeThreadsData")
+    public void testConcurrentKmerSizesMatchSerial(final int kmerSizeThreads) {
+        final String unique = new String(seq.getSubsequenceAt("1", 100000, 100200).getBases());
+        // duplicate a 40bp segment so that the reference has non-unique kmers up to size 40, forcing the assembler
+        // to go through the larger kmer sizes used for recovery
+        final String ref = unique.substring(0, 120) + unique.substring(80, 120) + unique.substring(120);
+        final SimpleInterval loc = new SimpleInterval("1", 100000, 100000 + ref.length() - 1);
+        final byte[] refBases = ref.getBytes();
+        final byte[] altBases = refBases.clone();
+        altBases[60] = altBases[60] == 'A' ? (byte)'C' : (byte)'A';
+
+        final List<GATKRead> reads = new LinkedList<>();
+        for ( int i = 0; i < 20; i++ ) {
+            final GATKRead read = ArtificialReadUtils.createArtificialRead(header, loc.getContig(), loc.getContig(), loc.getStart(), altBases.clone(), Utils.dupBytes((byte) 30, altBases.length), altBases.length + "M");
+            reads.add(read);
+        }
+
+        final ReadThreadingAssembler serial = new ReadThreadingAssembler(128, Arrays.asList(10, 25), false, false, 1);
+        final ReadThreadingAssembler concurrent = new ReadThreadingAssembler(128, Arrays.asList(10, 25), false, false, 1);
+        concurrent.setKmerSizeThreads(kmerSizeThreads);
+
+        final Haplotype refHaplotype = new Haplotype(refBases, true);
+        final List<Integer> serialKmerSizes = new ArrayList<>();
+        serial.assemble(reads, refHaplotype, Collections.emptyList(), header, SmithWatermanJavaAligner.getInstance()).forEach(r -> serialKmerSizes.add(r.getKmerSize()));
+        final List<Integer> concurrentKmerSizes = new ArrayList<>();
+        concurrent.assemble(reads, refHaplotype, Collections.emptyList(), header, SmithWatermanJavaAligner.getInstance()).forEach(r -> concurrentKmerSizes.add(r.getKmerSize()));
+        Assert.assertEquals(serialKmerSizes.size(), 1);
+        Assert.assertTrue(serialKmerSizes.get(0) > 40, "expected the assembly to require one of the larger recovery kmer sizes");
+        Assert.assertEquals(concurrentKmerSizes, serialKmerSizes);
+
+        final List<Haplotype> serialHaplotypes = assemble(serial, refBases, loc, reads);
+        Assert.assertEquals(serialHaplotypes, Arrays.asList(refHaplotype, new Haplotype(altBases, false)));
+        Assert.assertEquals(assemble(concurrent, refBases, loc, reads), serialHaplotypes);
+        concurrent.close();
+    }
+
+    @DataProvider(name = "AssemblyDeadlineData")
+    public Object[][] makeAssemblyDeadlineData() {
+        return new Object[][]{{1}, {2}};
+    }
+
+    @Test(dataProvider = "AssemblyDeadlineData")
+    public void testAssemblyDeadline(final int kmerSizeThreads) {
+        final String ref = new String(seq.getSubsequenceAt("1", 100000, 100200).getBases());
+        final SimpleInterval loc = new SimpleInterval("1", 100000, 100000 + ref.length() - 1);
+        final byte[] refBases = ref.getBytes();
+        final byte[] altBases = refBases.clone();
+        altBases[60] = altBases[60] == 'A' ? (byte)'C' : (byte)'A';
+
+        final List<GATKRead> reads = new LinkedList<>();
+        for ( int i = 0; i < 20; i++ ) {
+            reads.add(ArtificialReadUtils.createArtificialRead(header, loc.getContig(), loc.getContig(), loc.getStart(), altBases.clone(), Utils.dupBytes((byte) 30, altBases.length), altBases.length + "M"));
+        }
+
+        final ReadThreadingAssembler assembler = new ReadThreadingAssembler(128, Arrays.asList(10, 25), false, false, 1);
+        assembler.setKmerSizeThreads(kmerSizeThreads);
+        final Haplotype refHaplotype = new Haplotype(refBases, true);
+
+        // past the deadline, no kmer size is tried and only the reference haplotype is returned
+        assembler.setAssemblyDeadline(System.nanoTime() - 1);
+        Assert.assertTrue(assembler.assemble(reads, refHaplotype, Collections.emptyList(), header, SmithWatermanJavaAligner.getInstance()).isEmpty());
+        Assert.assertEquals(assemble(assembler, refBases, loc, reads), Collections.singletonList(refHaplotype));
+
+        assembler.setAssemblyDeadline(System.nanoTime() + TimeUnit.HOURS.toNanos(1));
+        Assert.assertEquals(assemble(assembler, refBases, loc, reads), Arrays.asList(refHaplotype, new Haplotype(altBases, false)));
+
+        assembler.setAssemblyDeadline(System.nanoTime() - 1);
+        assembler.clearAssemblyDeadline();
+        Assert.assertEquals(assemble(assembler, refBases, loc, reads), Arrays.asList(refHaplotype, new Haplotype(altBases, false)));
+        assembler.close();
+    }
+
+    @Test
+    public void testMaxHaplotypesPerGraph() {
+        final String ref = new String(seq.getSubsequenceAt("1", 100000, 100200).getBases());
+        final SimpleInterval loc = new SimpleInterval("1", 100000, 100000 + ref.length() - 1);
+        final byte[] refBases = ref.getBytes();
+
+        // two alternate haplotypes, with one SNP each, and different support
+        final List<GATKRead> reads = new LinkedList<>();
+        for ( final int snpOffset : new int[]{60, 140} ) {
+            final byte[] altBases = refBases.clone();
+            altBases[snpOffset] = altBases[snpOffset] == 'A' ? (byte)'C' : (byte)'A';
+            for ( int i = 0; i < (snpOffset == 60 ? 20 : 10); i++ ) {
+                reads.add(ArtificialReadUtils.createArtificialRead(header, loc.getContig(), loc.getContig(), loc.getStart(), altBases.clone(), Utils.dupBytes((byte) 30, altBases.length), altBases.length + "M"));
+            }
+        }
+
+        final ReadThreadingAssembler assembler = new ReadThreadingAssembler(128, Arrays.asList(25));
+        final Haplotype refHaplotype = new Haplotype(refBases, true);
+        final List<Haplotype> allHaplotypes = assemble(assembler, refBases, loc, reads);
+        Assert.assertTrue(allHaplotypes.size() >= 3);
+        Assert.assertFalse(assembler.wasHaplotypeLimitReached());
+
+        // only the best path is found, and the reference haplotype is still returned
+        assembler.setMaxHaplotypesPerGraph(1);
+        final List<Haplotype> limitedHaplotypes = assemble(assembler, refBases, loc, reads);
+        Assert.assertTrue(limitedHaplotypes.size() <= 2);
+        Assert.assertTrue(limitedHaplotypes.contains(refHaplotype));
+        Assert.assertTrue(assembler.wasHaplotypeLimitReached());
+
+        // a limit that is not reached changes nothing
+        assembler.setMaxHaplotypesPerGraph(allHaplotypes.size() + 10);
+        Assert.assertEquals(assemble(assembler, refBases, loc, reads), allHaplotypes);
+        Assert.assertFalse(assembler.wasHaplotypeLimitReached());
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testBadKmerSizeThreads() {
+        new ReadThreadingAssembler().setKmerSizeThreads(0);
+    }
+
     private static class TestAssembler {
         final ReadThreadingAssembler assembler;
         private final SAMFileHeader header;
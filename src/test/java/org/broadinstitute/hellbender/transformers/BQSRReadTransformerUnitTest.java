@@ -1,15 +1,38 @@
 package org.broadinstitute.hellbender.transformers;
 
+import htsjdk.samtools.SAMFileHeader;
+import org.broadinstitute.hellbender.engine.ReadsDataSource;
+import org.broadinstitute.hellbender.tools.ApplyBQSRArgumentCollection;
 import org.broadinstitute.hellbender.utils.QualityUtils;
+import org.broadinstitute.hellbender.utils.collections.NestedIntegerArray;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.recalibration.EventType;
 import org.broadinstitute.hellbender.utils.recalibration.RecalDatum;
 import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.utils.recalibration.RecalUtils;
+import org.broadinstitute.hellbender.utils.recalibration.RecalibrationReport;
+import org.broadinstitute.hellbender.utils.recalibration.RecalibrationTables;
+import org.broadinstitute.hellbender.utils.recalibration.covariates.CovariateKeyCache;
+import org.broadinstitute.hellbender.utils.recalibration.covariates.StandardCovariateList;
 import org.testng.Assert;
+import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
+import java.io.File;
 import java.util.Arrays;
 import java.util.List;
 
+import static org.broadinstitute.hellbender.utils.MathUtils.fastRound;
+import static org.broadinstitute.hellbender.utils.QualityUtils.boundQual;
+import static org.broadinstitute.hellbender.utils.recalibration.RecalDatum.MAX_RECALIBRATED_Q_SCORE;
+
 public final class BQSRReadTransformerUnitTest extends GATKBaseTest {
+    private static final String resourceDir = toolsTestDir + "BQSR/";
+    private static final File hiSeqBam = new File(resourceDir + "HiSeq.1mb.1RG.2k_lines.alternate.bam");
+    private static final File hiSeqTable = new File(resourceDir + "HiSeq.20mb.1RG.table.gz");
+
+    private static final int BASE_SUBSTITUTION_INDEX = EventType.BASE_SUBSTITUTION.ordinal();
+
     @Test
     public void basicHierarchicalBayesianQualityEstimateTest() {
 
@@ -89,4 +112,73 @@ public final class BQSRReadTransformerUnitTest extends GATKBaseTest {
             }
         }
     }
+
+    @DataProvider(name = "globalQScorePriors")
+    public Object[][] globalQScorePriors() {
+        return new Object[][]{{-1.0}, {30.0}};
+    }
+
+    /*
+     * Test that every quality recalibrated through the precompiled lookup table is the same as the quality computed
+     * by evaluating the estimate per base on the recalibration tables (the way the qualities were computed before
+     * the lookup table), on real reads and a real recalibration table
+     */
+    @Test(dataProvider = "globalQScorePriors")
+    public void testLookupTableMatchesPerBaseRecalibration(final double globalQScorePrior) {
+        final ApplyBQSRArgumentCollection args = new ApplyBQSRArgumentCollection();
+        args.globalQScorePrior = globalQScorePrior;
+
+        // load the tables separately, so that the datums' cached empirical qualities are independent
+        final RecalibrationReport report = new RecalibrationReport(hiSeqTable);
+        report.getQuantizationInfo().noQuantization();
+        final RecalibrationTables tables = report.getRecalibrationTables();
+        final StandardCovariateList covariates = report.getCovariates();
+        final List<Byte> quantizedQuals = report.getQuantizationInfo().getQuantizedQuals();
+        final CovariateKeyCache keyCache = new CovariateKeyCache();
+
+        int compared = 0;
+        try ( final ReadsDataSource reads = new ReadsDataSource(hiSeqBam.toPath()) ) {
+            final SAMFileHeader header = reads.getHeader();
+            final BQSRReadTransformer transformer = new BQSRReadTransformer(header, hiSeqTable, args);
+            for ( final GATKRead read : reads ) {
+                final byte[] expected = recalibratePerBase(read.copy(), header, tables, covariates, quantizedQuals, keyCache, args);
+                final byte[] actual = transformer.apply(read.copy()).getBaseQualities();
+                Assert.assertEquals(actual, expected, read.getName());
+                compared += actual.length;
+            }
+        }
+        Assert.assertTrue(compared > 0);
+    }
+
+    private static byte[] recalibratePerBase(final GATKRead read, final SAMFileHeader header, final RecalibrationTables tables,
+                                             final StandardCovariateList covariates, final List<Byte> quantizedQuals,
+                                             final CovariateKeyCache keyCache, final ApplyBQSRArgumentCollection args) {
+        final int[][] fullReadKeySet = RecalUtils.computeCovariates(read, header, covariates, false, keyCache).getKeySet(EventType.BASE_SUBSTITUTION);
+        final byte[] quals = read.getBaseQualities();
+        final RecalDatum empiricalQualRG = tables.getReadGroupTable().get2Keys(fullReadKeySet[0][0], BASE_SUBSTITUTION_INDEX);
+        if ( empiricalQualRG == null ) {
+            return quals;
+        }
+        final double epsilon = args.globalQScorePrior > 0.0 ? args.globalQScorePrior : empiricalQualRG.getEstimatedQReported();
+        final NestedIntegerArray<RecalDatum> qualityScoreTable = tables.getQualityScoreTable();
+        final int specialCovariateCount = covariates.numberOfSpecialCovariates();
+        final RecalDatum[] empiricalQualCovs = new RecalDatum[covariates.size() - specialCovariateCount];
+
+        for ( int offset = 0; offset < quals.length; offset++ ) {
+            if ( quals[offset] < args.PRESERVE_QSCORES_LESS_THAN ) {
+                continue;
+            }
+            Arrays.fill(empiricalQualCovs, null);
+            final int[] keySet = fullReadKeySet[offset];
+            final RecalDatum empiricalQualQS = qualityScoreTable.get3Keys(keySet[0], keySet[1], BASE_SUBSTITUTION_INDEX);
+            for ( int i = specialCovariateCount; i < covariates.size(); i++ ) {
+                if ( keySet[i] >= 0 ) {
+                    empiricalQualCovs[i - specialCovariateCount] = tables.getTable(i).get4Keys(keySet[0], keySet[1], keySet[i], BASE_SUBSTITUTION_INDEX);
+                }
+            }
+            final double estimate = BQSRReadTransformer.hierarchicalBayesianQualityEstimate(epsilon, empiricalQualRG, empiricalQualQS, empiricalQualCovs);
+            quals[offset] = quantizedQuals.get(boundQual(fastRound(estimate), MAX_RECALIBRATED_Q_SCORE));
+        }
+        return quals;
+    }
 }
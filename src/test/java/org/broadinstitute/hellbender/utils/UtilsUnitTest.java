@@ -18,6 +18,8 @@ import org.testng.annotations.Test;
 import java.io.File;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -80,6 +82,25 @@ public final class UtilsUnitTest extends GATKBaseTest {
         Assert.assertEquals(lst, Arrays.asList(0,1,2, 3, 4, 5));
     }
 
+    @Test
+    public void testThreadRandomGenerator() throws Exception {
+        final Random sharedGenerator = Utils.getRandomGenerator();
+        final Random threadGenerator = new Random(Utils.getRandomSeed("20", 1000));
+        Utils.setThreadRandomGenerator(threadGenerator);
+        try {
+            Assert.assertSame(Utils.getRandomGenerator(), threadGenerator);
+            // other threads still use the shared generator
+            final ExecutorService executorService = Executors.newSingleThreadExecutor();
+            Assert.assertSame(executorService.submit(Utils::getRandomGenerator).get(), sharedGenerator);
+            executorService.shutdown();
+        } finally {
+            Utils.setThreadRandomGenerator(null);
+        }
+        Assert.assertSame(Utils.getRandomGenerator(), sharedGenerator);
+        Assert.assertEquals(Utils.getRandomSeed("20", 1000), Utils.getRandomSeed("20", 1000));
+        Assert.assertNotEquals(Utils.getRandomSeed("20", 1000), Utils.getRandomSeed("20", 1001));
+    }
+
     @Test
     public void testTransform() throws Exception {
         final Iterator<String> it= Arrays.asList("1", "2", "3").iterator();
@@ -96,6 +117,24 @@ public final class UtilsUnitTest extends GATKBaseTest {
         Assert.assertEquals(lst, Arrays.asList(1,2,3));
     }
 
+    @Test
+    public void testTransformParallelWithSharedExecutor() throws Exception {
+        final ExecutorService executorService = Executors.newFixedThreadPool(2);
+        try {
+            for ( int i = 0; i < 2; i++ ) {
+                final Iterator<Integer> integers = Utils.transformParallel(ImmutableList.of(5, 4, 3, 2, 1).iterator(), n -> {
+                    try { Thread.sleep(n * 20); } catch (InterruptedException e) { }
+                    return n;
+                }, executorService, 4);
+                Assert.assertEquals(Lists.newArrayList(integers), ImmutableList.of(5, 4, 3, 2, 1));
+                // the caller owns the executor, so it must still be usable after the iterator is exhausted
+                Assert.assertFalse(executorService.isShutdown());
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
     @Test
     public void testXor()  {
         Assert.assertEquals(Utils.xor(false, false), false);
@@ -24,6 +24,7 @@ import java.io.File;
 import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 
 public final class BAQUnitTest extends GATKBaseTest {
 
@@ -152,17 +153,86 @@ public final class BAQUnitTest extends GATKBaseTest {
     @Test(dataProvider = "data")
     public void testBAQWithProvidedReference(BAQTest test) {
         if (test.refBases != null) {
-            testBAQ(test, false, null);
+            testBAQ(test, false, null, BAQ.HMMPrecision.DOUBLE);
         }
     }
 
     @Test(dataProvider = "data")
     public void testBAQWithCigarAndRefLookup(BAQTest test) {
         if (test.cigar != null) {
-            testBAQ(test, true, test.rds);
+            testBAQ(test, true, test.rds, BAQ.HMMPrecision.DOUBLE);
         }
     }
 
+    @Test(dataProvider = "data")
+    public void testFloatBAQWithProvidedReference(BAQTest test) {
+        if (test.refBases != null) {
+            testBAQ(test, false, null, BAQ.HMMPrecision.FLOAT);
+        }
+    }
+
+    @Test
+    public void testFloatPrecisionMatchesDoublePrecision() {
+        final BAQ doubleBAQ = new BAQ(1.0e-3, 0.1, 7, (byte) 4, BAQ.HMMPrecision.DOUBLE);
+        final BAQ floatBAQ = new BAQ(1.0e-3, 0.1, 7, (byte) 4, BAQ.HMMPrecision.FLOAT);
+        final Random random = new Random(7);
+        for (int i = 0; i < 2000; i++) {
+            final byte[][] refReadAndQuals = randomReferenceReadAndQuals(random);
+            final int readLength = refReadAndQuals[1].length;
+            final BAQ.BAQCalculationResult expected = doubleBAQ.calcBAQFromHMM(refReadAndQuals[0], refReadAndQuals[1], refReadAndQuals[2], 0, readLength);
+            final BAQ.BAQCalculationResult actual = floatBAQ.calcBAQFromHMM(refReadAndQuals[0], refReadAndQuals[1], refReadAndQuals[2], 0, readLength);
+            Assert.assertEquals(actual.bq, expected.bq, "BAQ differs for read " + new String(refReadAndQuals[1]));
+        }
+    }
+
+    // the HMM matrices are reused between reads, which must give the same results as new matrices for each read
+    @Test
+    public void testReusedMatrices() {
+        for (final BAQ.HMMPrecision precision : BAQ.HMMPrecision.values()) {
+            final BAQ reusedBAQ = new BAQ(1.0e-3, 0.1, 7, (byte) 4, precision);
+            final Random random = new Random(11);
+            for (int i = 0; i < 200; i++) {
+                final byte[][] refReadAndQuals = randomReferenceReadAndQuals(random);
+                final int readLength = refReadAndQuals[1].length;
+                final BAQ.BAQCalculationResult expected = new BAQ(1.0e-3, 0.1, 7, (byte) 4, precision)
+                        .calcBAQFromHMM(refReadAndQuals[0], refReadAndQuals[1], refReadAndQuals[2], 0, readLength);
+                final BAQ.BAQCalculationResult actual = reusedBAQ.calcBAQFromHMM(refReadAndQuals[0], refReadAndQuals[1], refReadAndQuals[2], 0, readLength);
+                Assert.assertEquals(actual.bq, expected.bq);
+                Assert.assertEquals(actual.state, expected.state);
+            }
+        }
+    }
+
+    /**
+     * @return a reference window, and the bases and qualities of a read of random length aligned within it
+     *         with a few mismatches, insertions and deletions
+     */
+    private static byte[][] randomReferenceReadAndQuals(final Random random) {
+        final byte[] bases = {'A', 'C', 'G', 'T'};
+        final int readLength = 1 + random.nextInt(random.nextInt(10) == 0 ? 300 : 151);
+        final byte[] ref = new byte[readLength + 6 + random.nextInt(4)];
+        for (int i = 0; i < ref.length; i++) {
+            ref[i] = bases[random.nextInt(4)];
+        }
+        final byte[] read = new byte[readLength];
+        final byte[] quals = new byte[readLength];
+        int refIndex = 3;
+        for (int i = 0; i < readLength; i++) {
+            final int event = random.nextInt(100);
+            if (event < 2) {
+                refIndex++; // a deletion
+            }
+            if (event == 2 || refIndex >= ref.length) {
+                read[i] = bases[random.nextInt(4)]; // an insertion, or past the end of the reference
+            } else {
+                read[i] = random.nextInt(50) == 0 ? bases[random.nextInt(4)] : ref[refIndex];
+                refIndex++;
+            }
+            quals[i] = (byte) (2 + random.nextInt(40));
+        }
+        return new byte[][]{ref, read, quals};
+    }
+
     @Test
     public void testBAQQualRange() {
         BAQ baq = new BAQ(1.0e-3, 0.1, 7, (byte) 4);         // matches current samtools parameters
@@ -194,9 +264,9 @@ public final class BAQUnitTest extends GATKBaseTest {
         Assert.assertFalse(read.hasAttribute("BQ"));
     }
 
-    private void testBAQ(BAQTest test, boolean lookupWithFasta, ReferenceDataSource rds) {
+    private void testBAQ(BAQTest test, boolean lookupWithFasta, ReferenceDataSource rds, BAQ.HMMPrecision precision) {
         final int bandWidth = 7;
-        final BAQ baqHMM = new BAQ(1.0e-3, 0.1, bandWidth, (byte) 4);         // matches current samtools parameters
+        final BAQ baqHMM = new BAQ(1.0e-3, 0.1, bandWidth, (byte) 4, precision);         // matches current samtools parameters
 
         final GATKRead read = test.createRead();
         final BAQ.BAQCalculationResult result;
@@ -15,6 +15,7 @@ import org.broadinstitute.hellbender.GATKBaseTest;
 import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.testutils.BaseTest;
 import org.broadinstitute.hellbender.utils.io.IOUtils;
+import org.broadinstitute.hellbender.utils.reference.ReferenceBasesView;
 import org.testng.Assert;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
@@ -135,6 +136,27 @@ public final class CachingIndexedFastaSequenceFileUnitTest extends GATKBaseTest
         }
     }
 
+    @Test(dataProvider = "fastas")
+    public void testSubsequenceViews(Path fasta, Path unzipped, int cacheSize, int querySize) throws IOException {
+        try(final ReferenceSequenceFile uncached = ReferenceSequenceFileFactory.getReferenceSequenceFile(unzipped);
+            final CachingIndexedFastaSequenceFile caching = new CachingIndexedFastaSequenceFile(fasta, getCacheSize(cacheSize), true, false)) {
+
+            final SAMSequenceRecord contig = uncached.getSequenceDictionary().getSequence(0);
+            final List<ReferenceBasesView> views = new ArrayList<>();
+            for (int start = 1; start + querySize <= contig.getSequenceLength(); start += 10) {
+                views.add(caching.getSubsequenceView(contig.getSequenceName(), start, start + querySize));
+            }
+
+            // the views stay valid after the cache moves on
+            for (final ReferenceBasesView view : views) {
+                final ReferenceSequence uncachedVal = uncached.getSubsequenceAt(contig.getSequenceName(), view.getStart(), view.getEnd());
+                Assert.assertEquals(view.getContig(), contig.getSequenceName());
+                Assert.assertEquals(view.length(), querySize + 1);
+                Assert.assertEquals(view.getBases(), uncachedVal.getBases());
+            }
+        }
+    }
+
     // make sure some bases are lower case and some are upper case
     @Test
     public void testMixedCasesInExample() throws IOException {
@@ -379,6 +379,37 @@ public final class ReadLikelihoodsUnitTest {
         testLikelihoodMatrixQueries(samples,result,newLikelihoods);
     }
 
+    @Test(dataProvider = "dataSets")
+    public void testAddReadsAndCopyAlleleLikelihoods(final String[] samples, final Allele[] alleles, final Map<String,List<GATKRead>> reads) {
+        final ReadLikelihoods<Allele> original = new ReadLikelihoods<>(new IndexedSampleList(samples), new IndexedAlleleList<>(alleles), reads);
+        final double[][][] originalLikelihoods = fillWithRandomLikelihoods(samples,alleles,original);
+        final ReadLikelihoods<Allele> result = original.copy();
+
+        // add a copy of each sample's reads, which must get the initial likelihood and leave the existing values alone.
+        final Map<String,List<GATKRead>> newReads = new LinkedHashMap<>();
+        for (int s = 0; s < samples.length; s++) {
+            final List<GATKRead> sampleNewReads = new ArrayList<>();
+            result.sampleReads(s).forEach(read -> sampleNewReads.add(read.copy()));
+            newReads.put(samples[s], sampleNewReads);
+        }
+        result.addReads(newReads, -7.5);
+
+        final double[][][] newLikelihoods = new double[samples.length][alleles.length][];
+        for (int s = 0; s < samples.length; s++) {
+            final int originalReadCount = original.sampleReadCount(s);
+            Assert.assertEquals(result.sampleReadCount(s), 2 * originalReadCount);
+            for (int a = 0; a < alleles.length; a++) {
+                newLikelihoods[s][a] = Arrays.copyOf(originalLikelihoods[s][a], 2 * originalReadCount);
+                Arrays.fill(newLikelihoods[s][a], originalReadCount, 2 * originalReadCount, -7.5);
+
+                final double[] copied = new double[2 * originalReadCount + 1];
+                result.sampleMatrix(s).copyAlleleLikelihoods(a, copied, 1);
+                Assert.assertEquals(Arrays.copyOfRange(copied, 1, copied.length), newLikelihoods[s][a]);
+            }
+        }
+        testLikelihoodMatrixQueries(samples,result,newLikelihoods);
+    }
+
     private void testLikelihoodMatrixQueries(final String[] samples, final ReadLikelihoods<Allele> result, final double[][][] likelihoods) {
         for (final String sample : samples) {
             final int indexOfSample = result.indexOfSample(sample);
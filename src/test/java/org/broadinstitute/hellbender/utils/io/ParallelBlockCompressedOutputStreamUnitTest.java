@@ -0,0 +1,117 @@
+package org.broadinstitute.hellbender.utils.io;
+
+import htsjdk.samtools.util.BlockCompressedInputStream;
+import htsjdk.samtools.util.BlockCompressedOutputStream;
+import org.apache.commons.io.IOUtils;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public final class ParallelBlockCompressedOutputStreamUnitTest extends GATKBaseTest {
+
+    // compressible text followed by random bytes, which do not compress
+    private static byte[] makeData(final int length) {
+        final byte[] data = new byte[length];
+        final Random random = new Random(13);
+        final byte[] bases = {'A', 'C', 'G', 'T'};
+        for (int i = 0; i < length / 2; i++) {
+            data[i] = bases[random.nextInt(bases.length)];
+        }
+        final byte[] randomBytes = new byte[length - length / 2];
+        random.nextBytes(randomBytes);
+        System.arraycopy(randomBytes, 0, data, length / 2, randomBytes.length);
+        return data;
+    }
+
+    @DataProvider(name = "compressionParameters")
+    public Object[][] compressionParameters() {
+        // data length, number of compression threads
+        return new Object[][]{
+                {0, 1},
+                {1, 1},
+                {100_000, 1},
+                {1_000_000, 1},
+                {1_000_000, 3},
+                {3_000_000, 8}
+        };
+    }
+
+    @Test(dataProvider = "compressionParameters")
+    public void testRoundTripAndBlockAddresses(final int length, final int numThreads) throws IOException {
+        final byte[] data = makeData(length);
+        final File output = createTempFile("parallelBlockCompressed", ".gz");
+
+        final List<Long> blockAddresses = new ArrayList<>();
+        blockAddresses.add(0L);
+        // positions of some of the bytes, as the block number, the offset in the block and the index in the data
+        final List<long[]> positions = new ArrayList<>();
+        final Random random = new Random(7);
+        try (final ParallelBlockCompressedOutputStream out = new ParallelBlockCompressedOutputStream(
+                new BufferedOutputStream(new FileOutputStream(output)), BlockCompressedOutputStream.getDefaultCompressionLevel(),
+                numThreads, (numBlocksWritten, nextBlockAddress) -> {
+                    Assert.assertEquals(numBlocksWritten, blockAddresses.size());
+                    blockAddresses.add(nextBlockAddress);
+                })) {
+            int written = 0;
+            while (written < length) {
+                positions.add(new long[]{out.getBlockNumber(), out.getBlockOffset(), written});
+                if (random.nextInt(10) == 0) {
+                    out.write(data[written++]);
+                } else {
+                    final int chunk = Math.min(length - written, random.nextInt(20_000));
+                    out.write(data, written, chunk);
+                    written += chunk;
+                }
+            }
+        }
+        Assert.assertEquals(BlockCompressedInputStream.checkTermination(output), BlockCompressedInputStream.FileTermination.HAS_TERMINATOR_BLOCK);
+
+        try (final BlockCompressedInputStream in = new BlockCompressedInputStream(output)) {
+            Assert.assertEquals(IOUtils.toByteArray(in), data);
+        }
+
+        try (final BlockCompressedInputStream in = new BlockCompressedInputStream(output)) {
+            for (final long[] position : positions) {
+                in.seek(blockAddresses.get((int) position[0]) << 16 | position[1]);
+                Assert.assertEquals((byte) in.read(), data[(int) position[2]]);
+            }
+        }
+    }
+
+    @Test
+    public void testEndBlock() throws IOException {
+        final File output = createTempFile("parallelBlockCompressed", ".gz");
+        try (final ParallelBlockCompressedOutputStream out = new ParallelBlockCompressedOutputStream(
+                new FileOutputStream(output), BlockCompressedOutputStream.getDefaultCompressionLevel(), 2, null)) {
+            out.write(new byte[]{1, 2, 3});
+            Assert.assertEquals(out.getBlockNumber(), 0);
+            Assert.assertEquals(out.getBlockOffset(), 3);
+            out.endBlock();
+            Assert.assertEquals(out.getBlockNumber(), 1);
+            Assert.assertEquals(out.getBlockOffset(), 0);
+            // ending an empty block does nothing
+            out.endBlock();
+            Assert.assertEquals(out.getBlockNumber(), 1);
+            out.write(4);
+        }
+
+        try (final BlockCompressedInputStream in = new BlockCompressedInputStream(output)) {
+            Assert.assertEquals(IOUtils.toByteArray(in), new byte[]{1, 2, 3, 4});
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testInvalidNumberOfThreads() {
+        new ParallelBlockCompressedOutputStream(new ByteArrayOutputStream(), 5, 0, null);
+    }
+}
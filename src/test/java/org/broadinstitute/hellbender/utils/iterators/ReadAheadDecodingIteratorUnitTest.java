@@ -0,0 +1,111 @@
+package org.broadinstitute.hellbender.utils.iterators;
+
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMRecord;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.read.ArtificialReadUtils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public final class ReadAheadDecodingIteratorUnitTest extends GATKBaseTest {
+    private static final SAMFileHeader HEADER = ArtificialReadUtils.createArtificialSamHeader();
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(3);
+
+    @AfterClass
+    public void shutdownExecutor() {
+        executor.shutdownNow();
+    }
+
+    private static List<SAMRecord> makeRecords(final int numRecords) {
+        final List<SAMRecord> records = new ArrayList<>(numRecords);
+        for (int i = 0; i < numRecords; i++) {
+            records.add(ArtificialReadUtils.createArtificialSAMRecord(HEADER, "read" + i, 0, i + 1, 10));
+        }
+        return records;
+    }
+
+    @DataProvider(name = "readAheadParameters")
+    public Object[][] readAheadParameters() {
+        // number of records, batch size, maximum number of batches ahead
+        return new Object[][]{
+                {0, 10, 1},
+                {1, 10, 1},
+                {10, 10, 1},
+                {11, 10, 2},
+                {1000, 7, 3},
+                {1000, 1000, 4}
+        };
+    }
+
+    @Test(dataProvider = "readAheadParameters")
+    public void testSameReadsInSameOrder(final int numRecords, final int batchSize, final int maxBatchesAhead) {
+        final List<SAMRecord> records = makeRecords(numRecords);
+        final List<String> names = new ArrayList<>();
+        try (final ReadAheadDecodingIterator iterator = new ReadAheadDecodingIterator(records.iterator(), executor, batchSize, maxBatchesAhead)) {
+            while (iterator.hasNext()) {
+                names.add(iterator.next().getName());
+            }
+            Assert.assertFalse(iterator.hasNext());
+        }
+
+        Assert.assertEquals(names.size(), numRecords);
+        for (int i = 0; i < numRecords; i++) {
+            Assert.assertEquals(names.get(i), records.get(i).getReadName());
+        }
+    }
+
+    @Test
+    public void testCloseBeforeTheEnd() {
+        final Iterator<SAMRecord> source = makeRecords(1000).iterator();
+        final ReadAheadDecodingIterator iterator = new ReadAheadDecodingIterator(source, executor, 10, 2);
+        final GATKRead first = iterator.next();
+        Assert.assertEquals(first.getName(), "read0");
+        iterator.close();
+        Assert.assertFalse(iterator.hasNext());
+
+        // the producer has stopped, after reading at most a few batches ahead
+        int remaining = 0;
+        while (source.hasNext()) {
+            source.next();
+            remaining++;
+        }
+        Assert.assertTrue(remaining >= 1000 - 5 * 10, "read too far ahead: " + remaining + " records left");
+    }
+
+    @Test(expectedExceptions = UserException.MalformedFile.class)
+    public void testSourceExceptionIsRethrown() {
+        final Iterator<SAMRecord> records = makeRecords(25).iterator();
+        final Iterator<SAMRecord> failing = new Iterator<SAMRecord>() {
+            private int count = 0;
+
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public SAMRecord next() {
+                if (++count > 25) {
+                    throw new UserException.MalformedFile("bad record");
+                }
+                return records.next();
+            }
+        };
+        try (final ReadAheadDecodingIterator iterator = new ReadAheadDecodingIterator(failing, executor, 10, 2)) {
+            while (iterator.hasNext()) {
+                iterator.next();
+            }
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package org.broadinstitute.hellbender.utils.pairhmm;
+
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.genotyper.IndexedAlleleList;
+import org.broadinstitute.hellbender.utils.genotyper.IndexedSampleList;
+import org.broadinstitute.hellbender.utils.genotyper.LikelihoodMatrix;
+import org.broadinstitute.hellbender.utils.genotyper.ReadLikelihoods;
+import org.broadinstitute.hellbender.utils.haplotype.Haplotype;
+import org.broadinstitute.hellbender.utils.read.ArtificialReadUtils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public final class PairHMMLikelihoodCacheUnitTest extends GATKBaseTest {
+
+    private static PairHMMLikelihoodCache.ReadKey key(final String bases, final byte qual) {
+        final byte[] quals = Utils.dupBytes(qual, bases.length());
+        return PairHMMLikelihoodCache.readKey(bases.getBytes(), quals, quals.clone(), quals.clone(), Utils.dupBytes((byte) 10, bases.length()));
+    }
+
+    @Test
+    public void testGetAndPut() {
+        final PairHMMLikelihoodCache cache = new PairHMMLikelihoodCache(1024 * 1024);
+        final byte[] haplotype = "ACGTACGTACGT".getBytes();
+
+        Assert.assertTrue(Double.isNaN(cache.get(key("ACGT", (byte) 30), haplotype)));
+        cache.put(key("ACGT", (byte) 30), haplotype, -1.5);
+
+        // equal (but not identical) inputs must hit
+        Assert.assertEquals(cache.get(key("ACGT", (byte) 30), "ACGTACGTACGT".getBytes()), -1.5);
+        // any difference in read bases, qualities or haplotype must miss
+        Assert.assertTrue(Double.isNaN(cache.get(key("ACGA", (byte) 30), haplotype)));
+        Assert.assertTrue(Double.isNaN(cache.get(key("ACGT", (byte) 20), haplotype)));
+        Assert.assertTrue(Double.isNaN(cache.get(key("ACGT", (byte) 30), "ACGTACGTACGA".getBytes())));
+
+        Assert.assertEquals(cache.getHits(), 1);
+        Assert.assertEquals(cache.getMisses(), 4);
+        Assert.assertEquals(cache.size(), 1);
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsedToStayWithinBound() {
+        final byte[] haplotype = "ACGTACGTACGT".getBytes();
+        final PairHMMLikelihoodCache probe = new PairHMMLikelihoodCache(Long.MAX_VALUE);
+        probe.put(key("AAAA", (byte) 30), haplotype, -1.0);
+        final long bytesPerEntry = probe.getEstimatedBytes();
+
+        final PairHMMLikelihoodCache cache = new PairHMMLikelihoodCache(2 * bytesPerEntry);
+        cache.put(key("AAAA", (byte) 30), haplotype, -1.0);
+        cache.put(key("CCCC", (byte) 30), haplotype, -2.0);
+        // touch the first entry so that the second one becomes the least recently used
+        Assert.assertEquals(cache.get(key("AAAA", (byte) 30), haplotype), -1.0);
+        cache.put(key("GGGG", (byte) 30), haplotype, -3.0);
+
+        Assert.assertEquals(cache.size(), 2);
+        Assert.assertEquals(cache.getEvictions(), 1);
+        Assert.assertTrue(cache.getEstimatedBytes() <= 2 * bytesPerEntry);
+        Assert.assertEquals(cache.get(key("AAAA", (byte) 30), haplotype), -1.0);
+        Assert.assertTrue(Double.isNaN(cache.get(key("CCCC", (byte) 30), haplotype)));
+        Assert.assertEquals(cache.get(key("GGGG", (byte) 30), haplotype), -3.0);
+    }
+
+    @Test
+    public void testSharedBetweenThreads() throws Exception {
+        final byte[] haplotype = "ACGTACGTACGT".getBytes();
+        final PairHMMLikelihoodCache probe = new PairHMMLikelihoodCache(Long.MAX_VALUE);
+        probe.put(key("AAAA", (byte) 30), haplotype, -1.0);
+        final long bytesPerEntry = probe.getEstimatedBytes();
+
+        // room for fewer entries than the threads put together, so that they evict each other's entries
+        final PairHMMLikelihoodCache cache = new PairHMMLikelihoodCache(50 * bytesPerEntry);
+        final int numThreads = 4;
+        final int entriesPerThread = 100;
+        final ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        try {
+            final List<Future<?>> results = new ArrayList<>();
+            for ( int t = 0; t < numThreads; t++ ) {
+                final byte qual = (byte) (10 + t);
+                results.add(executor.submit(() -> {
+                    for ( int i = 0; i < entriesPerThread; i++ ) {
+                        // a distinct read for each i, writing it in base 4
+                        final StringBuilder bases = new StringBuilder();
+                        for ( int n = i, digit = 0; digit < 4; digit++, n /= 4 ) {
+                            bases.append("ACGT".charAt(n % 4));
+                        }
+                        final double expected = -(qual * 1000 + i);
+                        final double cached = cache.get(key(bases.toString(), qual), haplotype);
+                        if ( Double.isNaN(cached) ) {
+                            cache.put(key(bases.toString(), qual), haplotype, expected);
+                        } else {
+                            Assert.assertEquals(cached, expected);
+                        }
+                    }
+                }));
+            }
+            for ( final Future<?> result : results ) {
+                result.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        Assert.assertTrue(cache.getEstimatedBytes() <= 50 * bytesPerEntry);
+        Assert.assertEquals(cache.getHits() + cache.getMisses(), numThreads * entriesPerThread);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testNonPositiveSize() {
+        new PairHMMLikelihoodCache(0);
+    }
+
+    @Test
+    public void testCachedResultsMatchUncachedResults() {
+        final List<Haplotype> haplotypes = Arrays.asList(
+                new Haplotype("ACGTTGCAAGCTTAGCATCGATCGATGCTAGCTAGCTA".getBytes(), true),
+                new Haplotype("ACGTTGCAAGCTTAGCATCGTTCGATGCTAGCTAGCTA".getBytes(), false),
+                new Haplotype("ACGTTGCAAGCTTAGCATCGATCGATGCTAGCTA".getBytes(), false));
+        final List<GATKRead> reads = new ArrayList<>();
+        for ( final String bases : Arrays.asList("GCAAGCTTAGCATCGATCGA", "GCAAGCTTAGCATCGTTCGA", "TTAGCATCGATCGATGCTAG") ) {
+            reads.add(ArtificialReadUtils.createArtificialRead(bases.getBytes(), Utils.dupBytes((byte) 30, bases.length()), bases.length() + "M"));
+        }
+        final Map<GATKRead, byte[]> gcp = new LinkedHashMap<>();
+        reads.forEach(read -> gcp.put(read, Utils.dupBytes((byte) 10, read.getLength())));
+
+        final double[] expected = computeLikelihoods(new LoglessPairHMM(), haplotypes, reads, gcp);
+
+        final PairHMM cachingHMM = new LoglessPairHMM();
+        cachingHMM.setLikelihoodCache(new PairHMMLikelihoodCache(1024 * 1024));
+        // the first pass populates the cache, the second (in a different haplotype order) is served from it
+        Assert.assertEquals(computeLikelihoods(cachingHMM, haplotypes, reads, gcp), expected);
+        Assert.assertEquals(cachingHMM.getLikelihoodCache().getHits(), 0);
+
+        final List<Haplotype> reversed = new ArrayList<>(haplotypes);
+        Collections.reverse(reversed);
+        final double[] reversedExpected = computeLikelihoods(new LoglessPairHMM(), reversed, reads, gcp);
+        Assert.assertEquals(computeLikelihoods(cachingHMM, reversed, reads, gcp), reversedExpected);
+        Assert.assertEquals(cachingHMM.getLikelihoodCache().getHits(), reads.size() * haplotypes.size());
+    }
+
+    private static double[] computeLikelihoods(final PairHMM hmm, final List<Haplotype> haplotypes, final List<GATKRead> reads, final Map<GATKRead, byte[]> gcp) {
+        final ReadLikelihoods<Haplotype> likelihoods = new ReadLikelihoods<>(new IndexedSampleList("sample"),
+                new IndexedAlleleList<>(haplotypes), Collections.singletonMap("sample", reads));
+        final LikelihoodMatrix<Haplotype> matrix = likelihoods.sampleMatrix(0);
+        hmm.computeLog10Likelihoods(matrix, reads, gcp);
+        return hmm.getLogLikelihoodArray().clone();
+    }
+}
@@ -0,0 +1,99 @@
+package org.broadinstitute.hellbender.utils.read;
+
+import htsjdk.samtools.BAMRecordCodec;
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMRecord;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+public final class BAMRecordTagReaderUnitTest extends GATKBaseTest {
+    private static final SAMFileHeader HEADER = ArtificialReadUtils.createArtificialSamHeader();
+
+    // an array tag first, which must be skipped to read the following tags
+    private static SAMRecord createRecordWithTags() {
+        final SAMRecord record = ArtificialReadUtils.createArtificialSAMRecord(HEADER, "read", 0, 100, 10);
+        record.setAttribute("XJ", new short[]{1, 2, 3});
+        record.setAttribute("XA", 'x');
+        record.setAttribute("XB", -5);
+        record.setAttribute("XC", 200);
+        record.setAttribute("XD", -1000);
+        record.setAttribute("XE", 40000);
+        record.setAttribute("XF", -100000);
+        record.setAttribute("XG", 3000000000L);
+        record.setAttribute("XH", 1.5f);
+        record.setAttribute("XI", "hello");
+        record.setAttribute("RG", "ReadGroup1");
+        return record;
+    }
+
+    // encodes and decodes the record, which gives a BAMRecord that has not decoded any of its fields yet
+    private static SAMRecord roundTripThroughBAM(final SAMRecord record) {
+        final BAMRecordCodec codec = new BAMRecordCodec(HEADER);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        codec.setOutputStream(out);
+        codec.encode(record);
+        codec.setInputStream(new ByteArrayInputStream(out.toByteArray()));
+        return codec.decode();
+    }
+
+    @DataProvider(name = "singleValueTags")
+    public Object[][] singleValueTags() {
+        return new Object[][]{{"XA"}, {"XB"}, {"XC"}, {"XD"}, {"XE"}, {"XF"}, {"XG"}, {"XH"}, {"XI"}, {"RG"}};
+    }
+
+    @Test(dataProvider = "singleValueTags")
+    public void testSameValueAsSAMRecord(final String tag) {
+        final SAMRecord record = createRecordWithTags();
+        final Object value = BAMRecordTagReader.getAttribute(roundTripThroughBAM(record), tag);
+        final Object expected = roundTripThroughBAM(record).getAttribute(tag);
+        Assert.assertNotNull(expected);
+        Assert.assertEquals(value, expected);
+        Assert.assertEquals(value.getClass(), expected.getClass());
+    }
+
+    @Test
+    public void testMissingTag() {
+        Assert.assertNull(BAMRecordTagReader.getAttribute(roundTripThroughBAM(createRecordWithTags()), "ZZ"));
+        final SAMRecord withoutTags = ArtificialReadUtils.createArtificialSAMRecord(HEADER, "read", 0, 100, 10);
+        Assert.assertNull(BAMRecordTagReader.getAttribute(roundTripThroughBAM(withoutTags), "RG"));
+    }
+
+    @Test
+    public void testUnavailableValues() {
+        final SAMRecord record = roundTripThroughBAM(createRecordWithTags());
+        // arrays are left to htsjdk
+        Assert.assertSame(BAMRecordTagReader.getAttribute(record, "XJ"), BAMRecordTagReader.UNAVAILABLE);
+        // as are records that were not read from a BAM file...
+        Assert.assertSame(BAMRecordTagReader.getAttribute(createRecordWithTags(), "XB"), BAMRecordTagReader.UNAVAILABLE);
+        // ...or that were modified since
+        record.setAttribute("XB", 7);
+        Assert.assertSame(BAMRecordTagReader.getAttribute(record, "XB"), BAMRecordTagReader.UNAVAILABLE);
+    }
+
+    @Test
+    public void testReadAdapterOverBAMRecord() {
+        final SAMRecord record = createRecordWithTags();
+        final GATKRead expected = new SAMRecordToGATKReadAdapter(record);
+        final GATKRead read = new SAMRecordToGATKReadAdapter(roundTripThroughBAM(record));
+
+        Assert.assertEquals(read.getLength(), 10);
+        Assert.assertEquals(read.getReadGroup(), "ReadGroup1");
+        Assert.assertTrue(read.hasAttribute("XA"));
+        Assert.assertFalse(read.hasAttribute("ZZ"));
+        Assert.assertEquals(read.getAttributeAsInteger("XF"), expected.getAttributeAsInteger("XF"));
+        Assert.assertEquals(read.getAttributeAsString("XI"), "hello");
+        Assert.assertEquals(read.getAttributeAsString("XH"), expected.getAttributeAsString("XH"));
+        Assert.assertEquals(read.getAttributeAsByteArray("XI"), expected.getAttributeAsByteArray("XI"));
+
+        // values set on the read are not read from its stale encoding
+        read.setAttribute("XB", 7);
+        Assert.assertEquals(read.getAttributeAsInteger("XB").intValue(), 7);
+        read.clearAttribute("RG");
+        Assert.assertNull(read.getReadGroup());
+    }
+}
@@ -0,0 +1,137 @@
+package org.broadinstitute.hellbender.utils.read;
+
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMRecordIterator;
+import htsjdk.samtools.SamReader;
+import htsjdk.samtools.SamReaderFactory;
+import htsjdk.samtools.util.BlockCompressedOutputStream;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+public final class ParallelCompressionBAMWriterUnitTest extends GATKBaseTest {
+    // coordinate sorted, with unmapped reads, and several BGZF blocks long
+    private static final File INPUT_BAM = new File(publicTestDir + "org/broadinstitute/hellbender/utils/read/comparator_test_with_unmapped.bam");
+
+    private static Path writeWithCompressionThreads(final File input, final int compressionThreads, final boolean createIndex) throws IOException {
+        final Path output = createTempPath("parallelCompressionBAMWriter", ".bam");
+        try (final SamReader reader = SamReaderFactory.makeDefault().open(input);
+             final ParallelCompressionBAMWriter writer = new ParallelCompressionBAMWriter(output, reader.getFileHeader(),
+                     BlockCompressedOutputStream.getDefaultCompressionLevel(), compressionThreads, createIndex)) {
+            for (final SAMRecord record : reader) {
+                writer.addAlignment(record);
+            }
+        }
+        return output;
+    }
+
+    private static List<String> readNames(final SAMRecordIterator iterator) {
+        final List<String> names = new ArrayList<>();
+        try (final SAMRecordIterator records = iterator) {
+            records.forEachRemaining(record -> names.add(record.getReadName()));
+        }
+        return names;
+    }
+
+    @DataProvider(name = "compressionThreads")
+    public Object[][] compressionThreads() {
+        return new Object[][]{{1}, {2}, {4}};
+    }
+
+    @Test(dataProvider = "compressionThreads")
+    public void testSameRecords(final int compressionThreads) throws IOException {
+        final Path output = writeWithCompressionThreads(INPUT_BAM, compressionThreads, false);
+        Assert.assertFalse(Files.exists(ParallelCompressionBAMWriter.getIndexPath(output)));
+
+        try (final SamReader expected = SamReaderFactory.makeDefault().open(INPUT_BAM);
+             final SamReader actual = SamReaderFactory.makeDefault().open(output)) {
+            Assert.assertEquals(actual.getFileHeader(), expected.getFileHeader());
+            Assert.assertEquals(actual.iterator(), expected.iterator());
+        }
+    }
+
+    @Test(dataProvider = "compressionThreads")
+    public void testIndexQueries(final int compressionThreads) throws IOException {
+        final Path output = writeWithCompressionThreads(INPUT_BAM, compressionThreads, true);
+        Assert.assertTrue(Files.exists(ParallelCompressionBAMWriter.getIndexPath(output)));
+
+        try (final SamReader expected = SamReaderFactory.makeDefault().open(INPUT_BAM);
+             final SamReader actual = SamReaderFactory.makeDefault().open(output)) {
+            Assert.assertTrue(actual.hasIndex());
+            // querying around many reads checks the file pointers of the reads in every block
+            final List<SimpleInterval> queries = new ArrayList<>();
+            int i = 0;
+            for (final SAMRecord record : expected) {
+                if (!record.getReadUnmappedFlag() && i++ % 10 == 0) {
+                    queries.add(new SimpleInterval(record.getContig(), record.getAlignmentStart(), record.getAlignmentEnd()));
+                }
+            }
+            for (final SimpleInterval query : queries) {
+                Assert.assertEquals(readNames(actual.queryOverlapping(query.getContig(), query.getStart(), query.getEnd())),
+                        readNames(expected.queryOverlapping(query.getContig(), query.getStart(), query.getEnd())), query.toString());
+            }
+            Assert.assertEquals(readNames(actual.queryUnmapped()), readNames(expected.queryUnmapped()));
+        }
+    }
+
+    @Test
+    public void testIndexUnaffectedByChangesAfterAdding() throws IOException {
+        final Path output = createTempPath("parallelCompressionBAMWriter", ".bam");
+        try (final SamReader reader = SamReaderFactory.makeDefault().open(INPUT_BAM);
+             final ParallelCompressionBAMWriter writer = new ParallelCompressionBAMWriter(output, reader.getFileHeader(),
+                     BlockCompressedOutputStream.getDefaultCompressionLevel(), 2, true)) {
+            for (final SAMRecord record : reader) {
+                writer.addAlignment(record);
+                // most records are still waiting for the addresses of their blocks at this point
+                record.setReadUnmappedFlag(true);
+                record.setReferenceIndex(SAMRecord.NO_ALIGNMENT_REFERENCE_INDEX);
+                record.setAlignmentStart(SAMRecord.NO_ALIGNMENT_START);
+            }
+        }
+
+        try (final SamReader expected = SamReaderFactory.makeDefault().open(INPUT_BAM);
+             final SamReader actual = SamReaderFactory.makeDefault().open(output)) {
+            final List<SimpleInterval> queries = new ArrayList<>();
+            for (final SAMRecord record : expected) {
+                if (!record.getReadUnmappedFlag()) {
+                    queries.add(new SimpleInterval(record.getContig(), record.getAlignmentStart(), record.getAlignmentEnd()));
+                }
+            }
+            for (final SimpleInterval query : queries) {
+                Assert.assertEquals(readNames(actual.queryOverlapping(query.getContig(), query.getStart(), query.getEnd())),
+                        readNames(expected.queryOverlapping(query.getContig(), query.getStart(), query.getEnd())), query.toString());
+            }
+            Assert.assertEquals(readNames(actual.queryUnmapped()), readNames(expected.queryUnmapped()));
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testOutOfOrderRecords() throws IOException {
+        final SAMFileHeader header = ArtificialReadUtils.createArtificialSamHeader();
+        header.setSortOrder(SAMFileHeader.SortOrder.coordinate);
+        final Path output = createTempPath("parallelCompressionBAMWriter", ".bam");
+        try (final ParallelCompressionBAMWriter writer = new ParallelCompressionBAMWriter(output, header,
+                BlockCompressedOutputStream.getDefaultCompressionLevel(), 2, true)) {
+            writer.addAlignment(ArtificialReadUtils.createArtificialSAMRecord(header, "second", 0, 200, 10));
+            writer.addAlignment(ArtificialReadUtils.createArtificialSAMRecord(header, "first", 0, 100, 10));
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testIndexRequiresCoordinateOrder() {
+        final SAMFileHeader header = ArtificialReadUtils.createArtificialSamHeader();
+        header.setSortOrder(SAMFileHeader.SortOrder.queryname);
+        final Path output = createTempPath("parallelCompressionBAMWriter", ".bam");
+        new ParallelCompressionBAMWriter(output, header, BlockCompressedOutputStream.getDefaultCompressionLevel(), 2, true);
+    }
+}
@@ -553,6 +553,46 @@ public final class ReadUtilsUnitTest extends GATKBaseTest {
         }
     }
 
+    @Test(dataProvider="createSAMWriter")
+    public void testCreateSAMWriterWithCompressionThreads(
+            final File bamFile,
+            final File referenceFile,
+            final String outputExtension,
+            final boolean preSorted,
+            final boolean createIndex,
+            final boolean createMD5,
+            final boolean expectIndex) throws Exception {
+        final File outputFile = createTempFile("samWriterTest",  outputExtension);
+
+        try (final SamReader samReader = SamReaderFactory.makeDefault().referenceSequence(referenceFile).open(bamFile);
+             final SAMFileWriter samWriter = ReadUtils.createCommonSAMWriter(outputFile.toPath(),
+                     referenceFile == null ? null : referenceFile.toPath(), samReader.getFileHeader(), preSorted,
+                     createIndex, createMD5, 2)) {
+            for (final SAMRecord record : samReader) {
+                samWriter.addAlignment(record);
+            }
+        }
+
+        final File md5File = new File(outputFile.getAbsolutePath() + ".md5");
+        if (md5File.exists()) {
+            md5File.deleteOnExit();
+        }
+        Assert.assertEquals(expectIndex, null != SamFiles.findIndex(outputFile));
+        Assert.assertEquals(createMD5, md5File.exists());
+
+        try (final SamReader samReader = SamReaderFactory.makeDefault().referenceSequence(referenceFile).open(bamFile);
+             final SamReader outputReader = SamReaderFactory.makeDefault().referenceSequence(referenceFile).open(outputFile)) {
+            Assert.assertEquals(samReader.iterator(), outputReader.iterator());
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testCreateSAMWriterWithNegativeCompressionThreads() {
+        final File outputFile = createTempFile("samWriterTest", ".bam");
+        ReadUtils.createCommonSAMWriter(outputFile.toPath(), null, ArtificialReadUtils.createArtificialSamHeader(),
+                true, false, false, -1);
+    }
+
     @DataProvider(name="hasCRAMFileContents")
     public Object[][] createHasCRAMFileContentsData() {
         return new Object[][] {
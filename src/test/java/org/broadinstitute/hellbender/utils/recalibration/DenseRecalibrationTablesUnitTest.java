@@ -0,0 +1,201 @@
+package org.broadinstitute.hellbender.utils.recalibration;
+
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.utils.collections.NestedIntegerArray;
+import org.broadinstitute.hellbender.utils.recalibration.covariates.Covariate;
+import org.broadinstitute.hellbender.utils.recalibration.covariates.StandardCovariateList;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public final class DenseRecalibrationTablesUnitTest extends GATKBaseTest {
+    private static final int NUM_READ_GROUPS = 4;
+    private static final double[] ERRORS = {0.0, 1.0, 0.25, 1.0 / 3.0};
+
+    private final RecalibrationArgumentCollection recalArgs = new RecalibrationArgumentCollection();
+    private final StandardCovariateList covariates = new StandardCovariateList(recalArgs,
+            IntStream.range(0, NUM_READ_GROUPS).mapToObj(i -> "readgroup" + i).collect(Collectors.toList()));
+
+    private static final class Observation {
+        final int[] keys;
+        final int eventIndex;
+        final double isError;
+
+        Observation(final int[] keys, final int eventIndex, final double isError) {
+            this.keys = keys;
+            this.eventIndex = eventIndex;
+            this.isError = isError;
+        }
+    }
+
+    private List<Observation> makeObservations(final int n, final boolean includeIndels) {
+        final Random random = new Random(42);
+        final Iterator<Covariate> additionalCovariates = covariates.getAdditionalCovariates().iterator();
+        final Covariate context = additionalCovariates.next();
+        final Covariate cycle = additionalCovariates.next();
+        final String bases = "ACGT";
+        final List<Observation> observations = new ArrayList<>(n);
+        for ( int i = 0; i < n; i++ ) {
+            final String contextValue = "" + bases.charAt(random.nextInt(4)) + bases.charAt(random.nextInt(4));
+            final int cycleValue = (1 + random.nextInt(150)) * (random.nextBoolean() ? 1 : -1);
+            final int[] keys = {
+                    random.nextInt(NUM_READ_GROUPS),
+                    10 + random.nextInt(30),
+                    random.nextInt(20) == 0 ? -1 : context.keyFromValue(contextValue),
+                    cycle.keyFromValue(cycleValue)
+            };
+            final int eventIndex = includeIndels ? random.nextInt(EventType.values().length) : 0;
+            observations.add(new Observation(keys, eventIndex, ERRORS[random.nextInt(ERRORS.length)]));
+        }
+        return observations;
+    }
+
+    private static void add(final RecalibrationTables tables, final Observation o) {
+        final byte qual = (byte) o.keys[1];
+        RecalUtils.incrementDatumOrPutIfNecessary3keys(tables.getQualityScoreTable(), qual, o.isError, o.keys[0], o.keys[1], o.eventIndex);
+        for ( int i = 2; i < tables.numTables(); i++ ) {
+            if ( o.keys[i] >= 0 ) {
+                RecalUtils.incrementDatumOrPutIfNecessary4keys(tables.getTable(i), qual, o.isError, o.keys[0], o.keys[1], o.keys[i], o.eventIndex);
+            }
+        }
+    }
+
+    private static void assertTablesEqual(final RecalibrationTables actual, final RecalibrationTables expected, final double tolerance) {
+        Assert.assertEquals(actual.numTables(), expected.numTables());
+        for ( int i = 1; i < expected.numTables(); i++ ) {
+            final List<NestedIntegerArray.Leaf<RecalDatum>> expectedLeaves = expected.getTable(i).getAllLeaves();
+            Assert.assertEquals(actual.getTable(i).getAllLeaves().size(), expectedLeaves.size());
+            for ( final NestedIntegerArray.Leaf<RecalDatum> leaf : expectedLeaves ) {
+                final RecalDatum datum = actual.getTable(i).get(leaf.keys);
+                Assert.assertNotNull(datum);
+                Assert.assertEquals(datum.getNumObservations(), leaf.value.getNumObservations());
+                Assert.assertEquals(datum.getNumMismatches(), leaf.value.getNumMismatches(), tolerance);
+                Assert.assertEquals(datum.getEstimatedQReported(), leaf.value.getEstimatedQReported(), tolerance);
+            }
+        }
+    }
+
+    @Test
+    public void testSameStatisticsAsRecalDatums() {
+        for ( final boolean includeIndels : new boolean[]{false, true} ) {
+            final RecalibrationTables expected = new RecalibrationTables(covariates, NUM_READ_GROUPS);
+            final DenseRecalibrationTables dense = new DenseRecalibrationTables(covariates, NUM_READ_GROUPS, includeIndels);
+            for ( final Observation o : makeObservations(20000, includeIndels) ) {
+                add(expected, o);
+                dense.increment(o.keys, o.eventIndex, o.isError);
+            }
+            // accumulated in the same order, so the sums are exactly the same
+            assertTablesEqual(dense.toRecalibrationTables(), expected, 0.0);
+        }
+    }
+
+    @Test
+    public void testCombine() {
+        final List<Observation> observations = makeObservations(20000, true);
+        final DenseRecalibrationTables all = new DenseRecalibrationTables(covariates, NUM_READ_GROUPS, true);
+        final DenseRecalibrationTables first = new DenseRecalibrationTables(covariates, NUM_READ_GROUPS, true);
+        final DenseRecalibrationTables second = new DenseRecalibrationTables(covariates, NUM_READ_GROUPS, true);
+        for ( int i = 0; i < observations.size(); i++ ) {
+            final Observation o = observations.get(i);
+            all.increment(o.keys, o.eventIndex, o.isError);
+            (i % 3 == 0 ? first : second).increment(o.keys, o.eventIndex, o.isError);
+        }
+
+        final DenseRecalibrationTables empty = new DenseRecalibrationTables(covariates, NUM_READ_GROUPS, true);
+        final DenseRecalibrationTables combined = DenseRecalibrationTables.inPlaceCombine(DenseRecalibrationTables.inPlaceCombine(empty, first), second);
+        Assert.assertSame(combined, empty);
+        assertTablesEqual(combined.toRecalibrationTables(), all.toRecalibrationTables(), 1e-6);
+    }
+
+    @Test
+    public void testLargeKeyDimensions() {
+        // a context of 13 bases has 2^30 keys and a maximum cycle of 10^6 has 2 * 10^6 keys: neither fits in dense blocks
+        final RecalibrationArgumentCollection largeArgs = new RecalibrationArgumentCollection();
+        largeArgs.MISMATCHES_CONTEXT_SIZE = 13;
+        largeArgs.MAXIMUM_CYCLE_VALUE = 1_000_000;
+        final StandardCovariateList largeCovariates = new StandardCovariateList(largeArgs,
+                IntStream.range(0, NUM_READ_GROUPS).mapToObj(i -> "readgroup" + i).collect(Collectors.toList()));
+        final DenseRecalibrationTables tables = new DenseRecalibrationTables(largeCovariates, NUM_READ_GROUPS, true);
+        Assert.assertTrue(tables.isDenseTable(0));
+        Assert.assertFalse(tables.isDenseTable(1));
+        Assert.assertFalse(tables.isDenseTable(2));
+
+        // the default covariates are dense
+        final DenseRecalibrationTables defaultTables = new DenseRecalibrationTables(covariates, NUM_READ_GROUPS, true);
+        IntStream.range(0, 3).forEach(table -> Assert.assertTrue(defaultTables.isDenseTable(table)));
+
+        // sizes whose number of cells overflows an int
+        Assert.assertFalse(DenseRecalibrationTables.isDense(Integer.MAX_VALUE, EventType.values().length));
+        Assert.assertFalse(DenseRecalibrationTables.isDense(1 << 30, EventType.values().length));
+    }
+
+    @Test
+    public void testSparseTablesSameStatisticsAsRecalDatums() {
+        // a context of 7 bases has 2^18 keys, so the context table is sparse while the cycle table is dense
+        final RecalibrationArgumentCollection largeArgs = new RecalibrationArgumentCollection();
+        largeArgs.MISMATCHES_CONTEXT_SIZE = 7;
+        final StandardCovariateList largeCovariates = new StandardCovariateList(largeArgs,
+                IntStream.range(0, NUM_READ_GROUPS).mapToObj(i -> "readgroup" + i).collect(Collectors.toList()));
+        final Iterator<Covariate> additionalCovariates = largeCovariates.getAdditionalCovariates().iterator();
+        final Covariate context = additionalCovariates.next();
+        final Covariate cycle = additionalCovariates.next();
+
+        final RecalibrationTables expected = new RecalibrationTables(largeCovariates, NUM_READ_GROUPS);
+        final DenseRecalibrationTables first = new DenseRecalibrationTables(largeCovariates, NUM_READ_GROUPS, true);
+        final DenseRecalibrationTables second = new DenseRecalibrationTables(largeCovariates, NUM_READ_GROUPS, true);
+        Assert.assertFalse(first.isDenseTable(1));
+        Assert.assertTrue(first.isDenseTable(2));
+
+        final Random random = new Random(42);
+        final String bases = "ACGT";
+        for ( int i = 0; i < 20000; i++ ) {
+            final StringBuilder contextValue = new StringBuilder();
+            for ( int j = 0; j < 7; j++ ) {
+                contextValue.append(bases.charAt(random.nextInt(4)));
+            }
+            // only a few read groups and qualities, as each sparse block has one cell per context
+            final int[] keys = {
+                    random.nextInt(2),
+                    20 + random.nextInt(2),
+                    context.keyFromValue(contextValue.toString()),
+                    cycle.keyFromValue((1 + random.nextInt(150)) * (random.nextBoolean() ? 1 : -1))
+            };
+            final Observation o = new Observation(keys, random.nextInt(EventType.values().length), ERRORS[random.nextInt(ERRORS.length)]);
+            add(expected, o);
+            (i % 3 == 0 ? first : second).increment(o.keys, o.eventIndex, o.isError);
+        }
+
+        assertTablesEqual(first.combine(second).toRecalibrationTables(), expected, 1e-6);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testCombineDifferentSizes() {
+        new DenseRecalibrationTables(covariates, NUM_READ_GROUPS, true).combine(new DenseRecalibrationTables(covariates, NUM_READ_GROUPS, false));
+    }
+
+    @Test
+    public void testReportRoundTrip() {
+        final DenseRecalibrationTables dense = new DenseRecalibrationTables(covariates, NUM_READ_GROUPS, false);
+        for ( final Observation o : makeObservations(20000, false) ) {
+            dense.increment(o.keys, o.eventIndex, o.isError);
+        }
+        final RecalibrationTables tables = dense.toRecalibrationTables();
+        BaseRecalibrationEngine.finalizeRecalibrationTables(tables);
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try ( final PrintStream stream = new PrintStream(out) ) {
+            RecalUtils.outputRecalibrationReport(stream, recalArgs, new QuantizationInfo(tables, recalArgs.QUANTIZING_LEVELS), tables, covariates);
+        }
+        final RecalibrationTables read = new RecalibrationReport(new ByteArrayInputStream(out.toByteArray())).getRecalibrationTables();
+        assertTablesEqual(read, tables, 0.01);
+    }
+}
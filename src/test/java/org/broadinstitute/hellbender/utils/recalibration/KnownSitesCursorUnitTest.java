@@ -0,0 +1,135 @@
+package org.broadinstitute.hellbender.utils.recalibration;
+
+import htsjdk.tribble.Feature;
+import htsjdk.tribble.SimpleFeature;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.engine.FeatureDataSource;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public final class KnownSitesCursorUnitTest extends GATKBaseTest {
+    private static final String BQSR_DIR = publicTestDir + "org/broadinstitute/hellbender/tools/BQSR/";
+    private static final File DBSNP_20_21 = new File(dbsnp_138_b37_20_21_vcf);
+    private static final File DBSNP_20_1M = new File(BQSR_DIR + DBSNP_138_B37_CH20_1M_1M1K_VCF);
+    private static final File DBSNP_21_10M = new File(BQSR_DIR + "dbsnp_138.b37.21.10m-10m100.vcf");
+
+    @DataProvider(name = "windowSizes")
+    public Object[][] windowSizes() {
+        return new Object[][]{{1}, {50}, {1000}, {KnownSitesCursor.DEFAULT_WINDOW_SIZE}};
+    }
+
+    @Test(dataProvider = "windowSizes")
+    public void testSameSitesAsQueryingTheSources(final int windowSize) {
+        final List<File> files = Arrays.asList(DBSNP_20_21, DBSNP_20_1M, DBSNP_21_10M);
+        final List<FeatureDataSource<Feature>> expectedSources = new ArrayList<>();
+        final List<FeatureDataSource<Feature>> cursorSources = new ArrayList<>();
+        for (final File file : files) {
+            expectedSources.add(new FeatureDataSource<>(file));
+            cursorSources.add(new FeatureDataSource<>(file));
+        }
+
+        final Random random = new Random(17);
+        try {
+            final KnownSitesCursor cursor = new KnownSitesCursor(cursorSources.stream()
+                    .<Function<SimpleInterval, List<? extends Feature>>>map(source -> source::queryAndPrefetch)
+                    .collect(Collectors.toList()), windowSize);
+            int compared = 0;
+            final List<SimpleInterval> ranges = Arrays.asList(
+                    new SimpleInterval("20", 999_900, 1_003_000),
+                    new SimpleInterval("21", 9_999_900, 10_003_000),
+                    new SimpleInterval("20", 1_000_000, 1_001_000));
+            for (final SimpleInterval range : ranges) {
+                final String contig = range.getContig();
+                int start = range.getStart();
+                while (start < range.getEnd()) {
+                    // mostly increasing starts, as for sorted reads, with occasional steps back
+                    start += random.nextInt(50) == 0 ? -random.nextInt(20) : random.nextInt(10);
+                    final int end = start + random.nextInt(150);
+                    final SimpleInterval interval = new SimpleInterval(contig, start, end);
+                    Assert.assertEquals(cursor.getKnownSites(contig, start, end), expectedSites(expectedSources, interval), interval.toString());
+                    compared++;
+                }
+            }
+            Assert.assertTrue(compared > 0);
+        } finally {
+            expectedSources.forEach(FeatureDataSource::close);
+            cursorSources.forEach(FeatureDataSource::close);
+        }
+    }
+
+    @Test
+    public void testZeroLengthSites() {
+        // zero-length sites, such as insertions in a BED file, end before they start
+        final List<Feature> sites = Arrays.asList(
+                new SimpleFeature("20", 100, 99),
+                new SimpleFeature("20", 150, 149),
+                new SimpleFeature("20", 200, 199));
+        final KnownSitesCursor cursor = new KnownSitesCursor(Collections.singletonList(interval -> sites.stream()
+                .filter(site -> site.getContig().equals(interval.getContig()) && site.getStart() <= interval.getEnd() && site.getEnd() >= interval.getStart())
+                .collect(Collectors.toList())), 1000);
+        Assert.assertEquals(cursor.getKnownSites("20", 90, 120), new int[]{100, 99});
+        // a zero-length site only overlaps intervals that contain the bases on both sides of it
+        Assert.assertEquals(cursor.getKnownSites("20", 149, 149), KnownSitesCursor.NO_SITES);
+        Assert.assertEquals(cursor.getKnownSites("20", 150, 150), KnownSitesCursor.NO_SITES);
+        Assert.assertEquals(cursor.getKnownSites("20", 149, 150), new int[]{150, 149});
+        Assert.assertEquals(cursor.getKnownSites("20", 160, 198), KnownSitesCursor.NO_SITES);
+        Assert.assertEquals(cursor.getKnownSites("20", 199, 250), new int[]{200, 199});
+    }
+
+    @Test
+    public void testZeroLengthSitesBetweenWindows() {
+        // with windows of 10 bases starting at 1, each of these sites is between the last base of a window and the
+        // first base of the next one
+        final List<Feature> sites = Arrays.asList(
+                new SimpleFeature("20", 11, 10),
+                new SimpleFeature("20", 31, 30));
+        final Function<SimpleInterval, List<? extends Feature>> source = interval -> sites.stream()
+                .filter(site -> site.getContig().equals(interval.getContig()) && site.getStart() <= interval.getEnd() && site.getEnd() >= interval.getStart())
+                .collect(Collectors.toList());
+        final KnownSitesCursor cursor = new KnownSitesCursor(Collections.singletonList(source), 10);
+        for (final SimpleInterval interval : Arrays.asList(new SimpleInterval("20", 1, 5), new SimpleInterval("20", 5, 15),
+                new SimpleInterval("20", 11, 29), new SimpleInterval("20", 25, 35), new SimpleInterval("20", 30, 31))) {
+            final int[] expected = source.apply(interval).stream().flatMapToInt(site -> IntStream.of(site.getStart(), site.getEnd())).toArray();
+            Assert.assertEquals(cursor.getKnownSites(interval.getContig(), interval.getStart(), interval.getEnd()), expected, interval.toString());
+        }
+    }
+
+    @Test
+    public void testNoSites() {
+        final KnownSitesCursor cursor = new KnownSitesCursor(new ArrayList<>(), 100);
+        Assert.assertSame(cursor.getKnownSites("20", 1, 100), KnownSitesCursor.NO_SITES);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testInvalidInterval() {
+        new KnownSitesCursor(new ArrayList<>(), 100).getKnownSites("20", 100, 99);
+    }
+
+    private static int[] expectedSites(final List<FeatureDataSource<Feature>> sources, final SimpleInterval interval) {
+        final List<long[]> sites = new ArrayList<>();
+        for (final FeatureDataSource<Feature> source : sources) {
+            for (final Feature feature : source.queryAndPrefetch(interval)) {
+                sites.add(new long[]{feature.getStart(), feature.getEnd()});
+            }
+        }
+        sites.sort((a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+        final int[] result = new int[2 * sites.size()];
+        for (int i = 0; i < sites.size(); i++) {
+            result[2 * i] = (int) sites.get(i)[0];
+            result[2 * i + 1] = (int) sites.get(i)[1];
+        }
+        return result;
+    }
+}
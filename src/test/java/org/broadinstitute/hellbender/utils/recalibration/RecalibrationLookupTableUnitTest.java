@@ -0,0 +1,106 @@
+package org.broadinstitute.hellbender.utils.recalibration;
+
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.transformers.BQSRReadTransformer;
+import org.broadinstitute.hellbender.utils.QualityUtils;
+import org.broadinstitute.hellbender.utils.collections.NestedIntegerArray;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.broadinstitute.hellbender.utils.MathUtils.fastRound;
+import static org.broadinstitute.hellbender.utils.QualityUtils.boundQual;
+import static org.broadinstitute.hellbender.utils.recalibration.RecalDatum.MAX_RECALIBRATED_Q_SCORE;
+
+public final class RecalibrationLookupTableUnitTest extends GATKBaseTest {
+
+    private static final String testDir = GATKBaseTest.publicTestDir + "/org/broadinstitute/hellbender/utils/recalibration/";
+    private static final File recal = new File(testDir + "HiSeq.1mb.1RG.noSG.table");
+
+    private static final int BASE_SUBSTITUTION_INDEX = EventType.BASE_SUBSTITUTION.ordinal();
+
+    @DataProvider(name = "priors")
+    public Object[][] priors() {
+        return new Object[][]{{0.0}, {30.0}};
+    }
+
+    @Test(dataProvider = "priors")
+    public void testMatchesHierarchicalBayesianQualityEstimate(final double globalQScorePrior) {
+        final RecalibrationTables tables = new RecalibrationReport(recal).getRecalibrationTables();
+        final List<Byte> identity = new ArrayList<>();
+        for ( int i = 0; i <= QualityUtils.MAX_SAM_QUAL_SCORE; i++ ) {
+            identity.add((byte) i);
+        }
+        final RecalibrationLookupTable lookupTable = new RecalibrationLookupTable(tables, identity, null, globalQScorePrior);
+
+        // evaluate the estimate on separately loaded tables, so that the datums' cached empirical qualities are independent
+        final RecalibrationTables expectedTables = new RecalibrationReport(recal).getRecalibrationTables();
+        final NestedIntegerArray<RecalDatum> contextTable = expectedTables.getAdditionalTables().get(0);
+        final NestedIntegerArray<RecalDatum> cycleTable = expectedTables.getAdditionalTables().get(1);
+        final Set<Integer> contextKeys = keysWithObservations(contextTable);
+        final Set<Integer> cycleKeys = keysWithObservations(cycleTable);
+        // also some keys without observations, and a missing key
+        contextKeys.addAll(Arrays.asList(-1, 0, 100000));
+        cycleKeys.addAll(Arrays.asList(-1, 0, 100000));
+
+        int compared = 0;
+        for ( final NestedIntegerArray.Leaf<RecalDatum> rgLeaf : expectedTables.getReadGroupTable().getAllLeaves() ) {
+            final int rg = rgLeaf.keys[0];
+            if ( rgLeaf.keys[1] != BASE_SUBSTITUTION_INDEX ) {
+                continue;
+            }
+            Assert.assertTrue(lookupTable.hasReadGroup(rg));
+            final double epsilon = globalQScorePrior > 0.0 ? globalQScorePrior : rgLeaf.value.getEstimatedQReported();
+            for ( int qual = 0; qual <= QualityUtils.MAX_SAM_QUAL_SCORE; qual++ ) {
+                final RecalDatum qsDatum = expectedTables.getQualityScoreTable().get3Keys(rg, qual, BASE_SUBSTITUTION_INDEX);
+                if ( qsDatum == null && qual % 10 != 0 ) {
+                    continue;
+                }
+                for ( final int context : contextKeys ) {
+                    for ( final int cycle : cycleKeys ) {
+                        final RecalDatum contextDatum = context < 0 ? null : contextTable.get4Keys(rg, qual, context, BASE_SUBSTITUTION_INDEX);
+                        final RecalDatum cycleDatum = cycle < 0 ? null : cycleTable.get4Keys(rg, qual, cycle, BASE_SUBSTITUTION_INDEX);
+                        final double estimate = BQSRReadTransformer.hierarchicalBayesianQualityEstimate(epsilon, rgLeaf.value, qsDatum, contextDatum, cycleDatum);
+                        final byte expected = boundQual(fastRound(estimate), MAX_RECALIBRATED_Q_SCORE);
+                        Assert.assertEquals(lookupTable.getRecalibratedQual(new int[]{rg, qual, context, cycle}), expected);
+                        compared++;
+                    }
+                }
+            }
+        }
+        Assert.assertTrue(compared > 0);
+        Assert.assertFalse(lookupTable.hasReadGroup(-1));
+        Assert.assertFalse(lookupTable.hasReadGroup(expectedTables.getReadGroupTable().getDimensions()[0]));
+    }
+
+    @Test
+    public void testQuantization() {
+        final RecalibrationTables tables = new RecalibrationReport(recal).getRecalibrationTables();
+        final List<Byte> allTwenty = new ArrayList<>();
+        for ( int i = 0; i <= QualityUtils.MAX_SAM_QUAL_SCORE; i++ ) {
+            allTwenty.add((byte) 20);
+        }
+        final byte[] staticMapping = BQSRReadTransformer.constructStaticQuantizedMapping(Arrays.asList(10, 30), true);
+
+        final RecalibrationLookupTable quantized = new RecalibrationLookupTable(tables, allTwenty, null, 0.0);
+        final RecalibrationLookupTable mapped = new RecalibrationLookupTable(tables, allTwenty, staticMapping, 0.0);
+        final int[] keySet = {0, 30, 0, 0};
+        Assert.assertEquals(quantized.getRecalibratedQual(keySet), 20);
+        Assert.assertEquals(mapped.getRecalibratedQual(keySet), 10);
+    }
+
+    private static Set<Integer> keysWithObservations(final NestedIntegerArray<RecalDatum> table) {
+        final Set<Integer> keys = new TreeSet<>();
+        for ( final NestedIntegerArray.Leaf<RecalDatum> leaf : table.getAllLeaves() ) {
+            keys.add(leaf.keys[2]);
+        }
+        return keys;
+    }
+}
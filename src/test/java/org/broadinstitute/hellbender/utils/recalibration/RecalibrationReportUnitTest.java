@@ -18,6 +18,7 @@ import org.testng.annotations.Test;
 
 import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
 import java.io.PrintStream;
 import java.util.*;
 
@@ -134,6 +135,83 @@ public final class RecalibrationReportUnitTest extends GATKBaseTest {
         Assert.assertTrue(report12.equals(report21), "GATK reports are different when gathered in a different order.");
     }
 
+    @DataProvider(name = "gatherInputs")
+    public Object[][] getGatherInputs() {
+        final List<File> filesWithEmpty = new ArrayList<>(recalFiles);
+        filesWithEmpty.add(0, recalEmpty);
+        return new Object[][] {
+                {Collections.nCopies(5, new File(testDir + "bqsr.manyObservations.piece.table"))},
+                {recalFiles},
+                {filesWithEmpty},
+                {Arrays.asList(new File(testDir + "NA12878.rg_subset.chrY_Plus.recal_data.table"), new File(testDir + "NA12878.rg_subset.chr1.recal_data.table"))}
+        };
+    }
+
+    // the streaming gather must give the same report as combining the RecalibrationReports of the inputs
+    @Test(dataProvider = "gatherInputs")
+    public void testGatherSameAsCombiningReports(final List<File> inputs) {
+        final SortedSet<String> allReadGroups = new TreeSet<>();
+        inputs.forEach(input -> allReadGroups.addAll(new GATKReport(input).getReadGroups()));
+        final RecalibrationReport combined = inputs.stream()
+                .map(input -> new RecalibrationReport(new GATKReport(input), allReadGroups))
+                .reduce(RecalibrationReport::combine)
+                .get();
+        final GATKReport expected = RecalUtils.createRecalibrationGATKReport(
+                new GATKReport(inputs.get(0)).getTable(RecalUtils.ARGUMENT_REPORT_TABLE_TITLE),
+                new QuantizationInfo(combined.getRecalibrationTables(), combined.getRAC().QUANTIZING_LEVELS),
+                combined.getRecalibrationTables(), combined.getCovariates());
+
+        Assert.assertEquals(reportAsString(RecalibrationReport.gatherReports(inputs)), reportAsString(expected));
+    }
+
+    @Test
+    public void testGatherLargeContextReports() throws IOException {
+        // with a context of 7 bases the context table has too many keys for dense blocks, so it is gathered sparsely
+        final RecalibrationArgumentCollection args = new RecalibrationArgumentCollection();
+        args.MISMATCHES_CONTEXT_SIZE = 7;
+        final List<String> readGroups = Arrays.asList("rg1", "rg2");
+        final StandardCovariateList covariates = new StandardCovariateList(args, readGroups);
+        final Iterator<Covariate> additionalCovariates = covariates.getAdditionalCovariates().iterator();
+        final Covariate context = additionalCovariates.next();
+        final Covariate cycle = additionalCovariates.next();
+
+        final Random random = new Random(5);
+        final String bases = "ACGT";
+        final List<File> inputs = new ArrayList<>();
+        for (int input = 0; input < 3; input++) {
+            final DenseRecalibrationTables dense = new DenseRecalibrationTables(covariates, readGroups.size(), true);
+            for (int i = 0; i < 2000; i++) {
+                final StringBuilder contextValue = new StringBuilder();
+                for (int j = 0; j < 7; j++) {
+                    contextValue.append(bases.charAt(random.nextInt(4)));
+                }
+                final int[] keys = {
+                        random.nextInt(readGroups.size()),
+                        20 + random.nextInt(2),
+                        context.keyFromValue(contextValue.toString()),
+                        cycle.keyFromValue(1 + random.nextInt(100))
+                };
+                dense.increment(keys, random.nextInt(EventType.values().length), random.nextInt(10) == 0 ? 1.0 : 0.0);
+            }
+            final RecalibrationTables tables = dense.toRecalibrationTables();
+            BaseRecalibrationEngine.finalizeRecalibrationTables(tables);
+
+            final File report = createTempFile("largeContext" + input, ".table");
+            try (final PrintStream stream = new PrintStream(report)) {
+                RecalUtils.outputRecalibrationReport(stream, args, new QuantizationInfo(tables, args.QUANTIZING_LEVELS), tables, covariates);
+            }
+            inputs.add(report);
+        }
+
+        testGatherSameAsCombiningReports(inputs);
+    }
+
+    private static String reportAsString(final GATKReport report) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        report.print(new PrintStream(bytes));
+        return bytes.toString();
+    }
+
     private static RecalDatum createRandomRecalDatum(int maxObservations, int maxErrors) {
         final Random random = new Random();
         final int nObservations = random.nextInt(maxObservations);
@@ -1,6 +1,7 @@
 package org.broadinstitute.hellbender.utils.recalibration.covariates;
 
 import htsjdk.samtools.SAMFileHeader;
+import org.broadinstitute.hellbender.utils.BaseUtils;
 import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.clipping.ClippingRepresentation;
 import org.broadinstitute.hellbender.utils.clipping.ReadClipper;
@@ -46,6 +47,38 @@ public final class ContextCovariateUnitTest extends GATKBaseTest {
         }
     }
 
+    @Test
+    public void testReusedWorkspace() {
+        final Random rnd = Utils.getRandomGenerator();
+        final SAMFileHeader header = ArtificialReadUtils.createArtificialSamHeader();
+        final CovariateKeyCache sharedCache = new CovariateKeyCache();
+
+        for(int i = 0; i < 50; i++) {
+            final GATKRead read = ArtificialReadUtils.createRandomRead(header, 1 + rnd.nextInt(200));
+            read.setIsReverseStrand(rnd.nextBoolean());
+            final byte[] quals = read.getBaseQualities();
+            for (int j = 0; j < quals.length; j++) {
+                // low quality tails on some reads, and some reads entirely of low quality
+                quals[j] = (byte) (rnd.nextInt(4) == 0 ? RAC.LOW_QUAL_TAIL : 30);
+            }
+            read.setBaseQualities(quals);
+
+            // the bases must be the same as those of the clipped read
+            final GATKRead clippedRead = ReadClipper.clipLowQualEnds(read, RAC.LOW_QUAL_TAIL, ClippingRepresentation.WRITE_NS);
+            final byte[] clippedBases = read.isReverseStrand() ? BaseUtils.simpleReverseComplement(clippedRead.getBases()) : clippedRead.getBases();
+            Assert.assertEquals(new String(getStrandedClippedBytes(read, RAC.LOW_QUAL_TAIL)), new String(clippedBases));
+
+            // and reusing the workspace from read to read must not change the keys
+            final ReadCovariates reused = new ReadCovariates(read.getLength(), 1, sharedCache);
+            final ReadCovariates fresh = new ReadCovariates(read.getLength(), 1, new CovariateKeyCache());
+            covariate.recordValues(read, header, reused, true);
+            covariate.recordValues(read, header, fresh, true);
+            Assert.assertEquals(reused.getMismatchesKeySet(), fresh.getMismatchesKeySet());
+            Assert.assertEquals(reused.getInsertionsKeySet(), fresh.getInsertionsKeySet());
+            Assert.assertEquals(reused.getDeletionsKeySet(), fresh.getDeletionsKeySet());
+        }
+    }
+
     public static void verifyCovariateArray(int[][] values, int contextSize, GATKRead read, Covariate contextCovariate, final byte lowQualTail) {
         for (int i = 0; i < values.length; i++) {
             Assert.assertEquals(contextCovariate.formatKey(values[i][0]), expectedContext(read, i, contextSize, lowQualTail), "offset " + i);
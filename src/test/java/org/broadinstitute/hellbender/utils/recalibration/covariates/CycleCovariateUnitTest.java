@@ -55,6 +55,32 @@ public final class CycleCovariateUnitTest extends GATKBaseTest {
         verifyCovariateArray(readCovariates.getMismatchesKeySet(), -1, -1);
     }
 
+    @Test
+    public void testRecordedValuesMatchCycleKey() {
+        final SAMFileHeader header = ArtificialReadUtils.createArtificialSamHeaderWithReadGroup(illuminaReadGroup);
+        final int readLength = 20;
+        for (final boolean negativeStrand : new boolean[]{false, true}) {
+            for (final boolean secondOfPair : new boolean[]{false, true}) {
+                final GATKRead read = ArtificialReadUtils.createRandomRead(header, readLength);
+                read.setIsPaired(true);
+                read.setIsReverseStrand(negativeStrand);
+                if (secondOfPair) {
+                    read.setIsSecondOfPair();
+                }
+
+                final ReadCovariates readCovariates = new ReadCovariates(read.getLength(), 1, new CovariateKeyCache());
+                covariate.recordValues(read, header, readCovariates, true);
+                for (int i = 0; i < readLength; i++) {
+                    final int substitutionKey = CycleCovariate.cycleKey(i, read, false, RAC.MAXIMUM_CYCLE_VALUE);
+                    final int indelKey = CycleCovariate.cycleKey(i, read, true, RAC.MAXIMUM_CYCLE_VALUE);
+                    Assert.assertEquals(readCovariates.getMismatchesKeySet(i)[0], substitutionKey);
+                    Assert.assertEquals(readCovariates.getInsertionsKeySet(i)[0], indelKey);
+                    Assert.assertEquals(readCovariates.getDeletionsKeySet(i)[0], indelKey);
+                }
+            }
+        }
+    }
+
     private void verifyCovariateArray(int[][] values, int init, int increment) {
         for (int i = 0; i < values.length; i++) {
             short actual = Short.decode(covariate.formatKey(values[i][0]));
@@ -0,0 +1,92 @@
+package org.broadinstitute.hellbender.utils.reference;
+
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+
+public final class ReferenceBasesViewUnitTest extends GATKBaseTest {
+    // a view of CGTAC, at 1:101-105, over a larger array
+    private static final byte[] ARRAY = "NNCGTACNN".getBytes();
+    private static final ReferenceBasesView VIEW = new ReferenceBasesView("1", 101, ARRAY, 2, 5);
+
+    @Test
+    public void testPositionsAndBases() {
+        Assert.assertEquals(VIEW.getContig(), "1");
+        Assert.assertEquals(VIEW.getStart(), 101);
+        Assert.assertEquals(VIEW.getEnd(), 105);
+        Assert.assertEquals(VIEW.length(), 5);
+        Assert.assertFalse(VIEW.isEmpty());
+        Assert.assertEquals(VIEW.get(0), 'C');
+        Assert.assertEquals(VIEW.get(4), 'C');
+        Assert.assertEquals(VIEW.getBaseAt(103), 'T');
+        Assert.assertEquals(VIEW.getBases(), "CGTAC".getBytes());
+        Assert.assertEquals(VIEW.getBaseString(), "CGTAC");
+
+        final byte[] copy = new byte[7];
+        VIEW.copyTo(copy, 1);
+        Assert.assertEquals(copy, new byte[]{0, 'C', 'G', 'T', 'A', 'C', 0});
+
+        final ByteBuffer buffer = VIEW.asByteBuffer();
+        Assert.assertTrue(buffer.isReadOnly());
+        Assert.assertEquals(buffer.remaining(), 5);
+        Assert.assertEquals(buffer.get(1), 'G');
+
+        final Iterator<Byte> iterator = VIEW.iterator();
+        for (final byte base : "CGTAC".getBytes()) {
+            Assert.assertEquals(iterator.next().byteValue(), base);
+        }
+        Assert.assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    public void testSubViews() {
+        final ReferenceBasesView subView = VIEW.subView(1, 4);
+        Assert.assertEquals(subView.getStart(), 102);
+        Assert.assertEquals(subView.getEnd(), 104);
+        Assert.assertEquals(subView.getBaseString(), "GTA");
+
+        Assert.assertEquals(VIEW.subView(new SimpleInterval("1", 104, 105)).getBaseString(), "AC");
+
+        final ReferenceBasesView empty = VIEW.subView(2, 2);
+        Assert.assertTrue(empty.isEmpty());
+        Assert.assertEquals(empty.getEnd(), empty.getStart() - 1);
+        Assert.assertEquals(empty.getBases().length, 0);
+        Assert.assertFalse(empty.iterator().hasNext());
+    }
+
+    @Test
+    public void testViewOfWholeArray() {
+        final ReferenceBasesView view = new ReferenceBasesView(new SimpleInterval("2", 10, 13), "ACGT".getBytes());
+        Assert.assertEquals(view.getEnd(), 13);
+        Assert.assertEquals(view.getBaseAt(10), 'A');
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testIndexOutsideOfView() {
+        VIEW.get(5);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testPositionOutsideOfView() {
+        VIEW.getBaseAt(100);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testSubViewOutsideOfView() {
+        VIEW.subView(new SimpleInterval("1", 104, 106));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testViewOutsideOfArray() {
+        new ReferenceBasesView("1", 1, ARRAY, 5, 5);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testIntervalOfWrongSize() {
+        new ReferenceBasesView(new SimpleInterval("2", 10, 12), "ACGT".getBytes());
+    }
+}
@@ -0,0 +1,111 @@
+package org.broadinstitute.hellbender.utils.variant.writers;
+
+import htsjdk.samtools.util.BlockCompressedOutputStream;
+import htsjdk.samtools.util.CloseableIterator;
+import htsjdk.variant.variantcontext.VariantContext;
+import htsjdk.variant.variantcontext.writer.Options;
+import htsjdk.variant.variantcontext.writer.VariantContextWriter;
+import htsjdk.variant.vcf.VCFFileReader;
+import htsjdk.variant.vcf.VCFHeader;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.variant.GATKVariantContextUtils;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+public final class ParallelCompressionVCFWriterUnitTest extends GATKBaseTest {
+    // sorted, with contig lines, and several BGZF blocks long
+    private static final File INPUT_VCF = new File(toolsTestDir + "walkers/GenotypeGVCFs/expected/gvcf.basepairResolution.includeNonVariantSites.vcf");
+
+    private static File write(final Function<File, VariantContextWriter> writerFactory) {
+        final File output = createTempFile("parallelCompressionVCFWriter", ".vcf.gz");
+        try (final VCFFileReader reader = new VCFFileReader(INPUT_VCF, false);
+             final VariantContextWriter writer = writerFactory.apply(output)) {
+            writer.writeHeader(reader.getFileHeader());
+            for (final VariantContext vc : reader) {
+                writer.add(vc);
+            }
+        }
+        return output;
+    }
+
+    private static File writeWithCompressionThreads(final int compressionThreads, final Options... options) {
+        final VCFHeader header;
+        try (final VCFFileReader reader = new VCFFileReader(INPUT_VCF, false)) {
+            header = reader.getFileHeader();
+        }
+        return write(output -> new ParallelCompressionVCFWriter(output.toPath(), header.getSequenceDictionary(),
+                BlockCompressedOutputStream.getDefaultCompressionLevel(), compressionThreads, options));
+    }
+
+    private static List<String> variantPositions(final CloseableIterator<VariantContext> iterator) {
+        final List<String> positions = new ArrayList<>();
+        try (final CloseableIterator<VariantContext> variants = iterator) {
+            variants.forEachRemaining(vc -> positions.add(vc.getContig() + ":" + vc.getStart() + "-" + vc.getEnd()));
+        }
+        return positions;
+    }
+
+    @DataProvider(name = "compressionThreads")
+    public Object[][] compressionThreads() {
+        return new Object[][]{{1}, {2}, {4}};
+    }
+
+    @Test(dataProvider = "compressionThreads")
+    public void testSameRecords(final int compressionThreads) {
+        final File expected = write(output -> GATKVariantContextUtils.createVCFWriter(output, null, false));
+        final File actual = writeWithCompressionThreads(compressionThreads);
+        Assert.assertFalse(Files.exists(ParallelCompressionVCFWriter.getIndexPath(actual.toPath())));
+
+        try (final VCFFileReader expectedReader = new VCFFileReader(expected, false);
+             final VCFFileReader actualReader = new VCFFileReader(actual, false)) {
+            final List<String> expectedLines = new ArrayList<>();
+            expectedReader.forEach(vc -> expectedLines.add(vc.toStringDecodeGenotypes()));
+            final List<String> actualLines = new ArrayList<>();
+            actualReader.forEach(vc -> actualLines.add(vc.toStringDecodeGenotypes()));
+            Assert.assertEquals(actualLines, expectedLines);
+        }
+    }
+
+    @Test(dataProvider = "compressionThreads")
+    public void testIndexQueries(final int compressionThreads) {
+        final File output = writeWithCompressionThreads(compressionThreads, Options.INDEX_ON_THE_FLY);
+        final Path indexPath = ParallelCompressionVCFWriter.getIndexPath(output.toPath());
+        Assert.assertTrue(Files.exists(indexPath));
+
+        try (final VCFFileReader expected = new VCFFileReader(INPUT_VCF, false);
+             final VCFFileReader actual = new VCFFileReader(output, indexPath.toFile(), true)) {
+            final List<SimpleInterval> variants = new ArrayList<>();
+            for (final VariantContext vc : expected) {
+                variants.add(new SimpleInterval(vc));
+            }
+            // querying around many records checks the file pointers of the records in every block
+            for (int i = 0; i < variants.size(); i += 10) {
+                final SimpleInterval query = variants.get(i);
+                final List<String> expectedPositions = new ArrayList<>();
+                for (final SimpleInterval variant : variants) {
+                    if (variant.overlaps(query)) {
+                        expectedPositions.add(variant.getContig() + ":" + variant.getStart() + "-" + variant.getEnd());
+                    }
+                }
+                Assert.assertEquals(variantPositions(actual.query(query.getContig(), query.getStart(), query.getEnd())),
+                        expectedPositions, query.toString());
+            }
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testIndexRequiresSequenceDictionary() {
+        final File output = createTempFile("parallelCompressionVCFWriter", ".vcf.gz");
+        new ParallelCompressionVCFWriter(output.toPath(), null, BlockCompressedOutputStream.getDefaultCompressionLevel(), 2,
+                Options.INDEX_ON_THE_FLY);
+    }
+}